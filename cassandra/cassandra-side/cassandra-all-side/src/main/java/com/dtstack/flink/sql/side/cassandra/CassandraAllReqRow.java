@@ -32,12 +32,12 @@ import com.dtstack.flink.sql.side.AllReqRow;
 import com.dtstack.flink.sql.side.FieldInfo;
 import com.dtstack.flink.sql.side.JoinInfo;
 import com.dtstack.flink.sql.side.SideTableInfo;
+import com.dtstack.flink.sql.side.cache.AbsAllCacheStore;
+import com.dtstack.flink.sql.side.cache.SideCacheKey;
 import com.dtstack.flink.sql.side.cassandra.table.CassandraSideTableInfo;
 import org.apache.calcite.sql.JoinType;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.flink.api.java.typeutils.RowTypeInfo;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import org.apache.flink.table.typeutils.TimeIndicatorTypeInfo;
 import org.apache.flink.types.Row;
 import org.apache.flink.util.Collector;
@@ -50,8 +50,6 @@ import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Reason:
@@ -74,73 +72,50 @@ public class CassandraAllReqRow extends AllReqRow {
     private transient Cluster cluster;
     private transient Session session = null;
 
-    private AtomicReference<Map<String, List<Map<String, Object>>>> cacheRef = new AtomicReference<>();
-
     public CassandraAllReqRow(RowTypeInfo rowTypeInfo, JoinInfo joinInfo, List<FieldInfo> outFieldInfoList, SideTableInfo sideTableInfo) {
         super(new com.dtstack.flink.sql.side.cassandra.CassandraAllSideInfo(rowTypeInfo, joinInfo, outFieldInfoList, sideTableInfo));
     }
 
     @Override
-    public Row fillData(Row input, Object sideInput) {
-        Map<String, Object> cacheInfo = (Map<String, Object>) sideInput;
-        Row row = new Row(sideInfo.getOutFieldInfoList().size());
-        for (Map.Entry<Integer, Integer> entry : sideInfo.getInFieldIndex().entrySet()) {
-            Object obj = input.getField(entry.getValue());
-            obj = convertTimeIndictorTypeInfo(entry.getValue(), obj);
-            row.setField(entry.getKey(), obj);
-        }
-
-        for (Map.Entry<Integer, String> entry : sideInfo.getSideFieldNameIndex().entrySet()) {
-            if (cacheInfo == null) {
-                row.setField(entry.getKey(), null);
-            } else {
-                row.setField(entry.getKey(), cacheInfo.get(entry.getValue()));
-            }
-        }
-
-        return row;
+    protected String getCacheSourceIdentity() {
+        CassandraSideTableInfo tableInfo = (CassandraSideTableInfo) sideInfo.getSideTableInfo();
+        return tableInfo.getAddress() + "|" + sideInfo.getSqlCondition();
     }
 
     @Override
     protected void initCache() throws SQLException {
-        Map<String, List<Map<String, Object>>> newCache = Maps.newConcurrentMap();
-        cacheRef.set(newCache);
+        AbsAllCacheStore newCache = newCacheStore();
         loadData(newCache);
+        switchCacheStore(newCache);
     }
 
     @Override
     protected void reloadCache() {
         //reload cacheRef and replace to old cacheRef
-        Map<String, List<Map<String, Object>>> newCache = Maps.newConcurrentMap();
+        AbsAllCacheStore newCache = newCacheStore();
         try {
             loadData(newCache);
         } catch (SQLException e) {
             LOG.error("", e);
         }
 
-        cacheRef.set(newCache);
+        switchCacheStore(newCache);
         LOG.info("----- cassandra all cacheRef reload end:{}", Calendar.getInstance());
     }
 
 
     @Override
     public void flatMap(Row value, Collector<Row> out) throws Exception {
-        List<Object> inputParams = Lists.newArrayList();
-        for (Integer conValIndex : sideInfo.getEqualValIndex()) {
-            Object equalObj = value.getField(conValIndex);
-            if (equalObj == null) {
-                if(sideInfo.getJoinType() == JoinType.LEFT){
-                    Row data = fillData(value, null);
-                    out.collect(data);
-                }
-                return;
+        SideCacheKey key = buildInputKey(value);
+        if (key == null) {
+            if(sideInfo.getJoinType() == JoinType.LEFT){
+                Row data = fillData(value, null);
+                out.collect(data);
             }
-
-            inputParams.add(equalObj);
+            return;
         }
 
-        String key = buildKey(inputParams);
-        List<Map<String, Object>> cacheList = cacheRef.get().get(key);
+        List<Object[]> cacheList = getCacheStore().get(key);
         if (CollectionUtils.isEmpty(cacheList)) {
             if (sideInfo.getJoinType() == JoinType.LEFT) {
                 Row row = fillData(value, null);
@@ -152,30 +127,12 @@ public class CassandraAllReqRow extends AllReqRow {
             return;
         }
 
-        for (Map<String, Object> one : cacheList) {
+        for (Object[] one : cacheList) {
             out.collect(fillData(value, one));
         }
 
     }
 
-    private String buildKey(List<Object> equalValList) {
-        StringBuilder sb = new StringBuilder("");
-        for (Object equalVal : equalValList) {
-            sb.append(equalVal).append("_");
-        }
-
-        return sb.toString();
-    }
-
-    private String buildKey(Map<String, Object> val, List<String> equalFieldList) {
-        StringBuilder sb = new StringBuilder("");
-        for (String equalField : equalFieldList) {
-            sb.append(val.get(equalField)).append("_");
-        }
-
-        return sb.toString();
-    }
-
     private Session getConn(CassandraSideTableInfo tableInfo) {
         try {
             if (session == null) {
@@ -244,7 +201,7 @@ public class CassandraAllReqRow extends AllReqRow {
     }
 
 
-    private void loadData(Map<String, List<Map<String, Object>>> tmpCache) throws SQLException {
+    private void loadData(AbsAllCacheStore tmpCache) throws SQLException {
         CassandraSideTableInfo tableInfo = (CassandraSideTableInfo) sideInfo.getSideTableInfo();
         Session session = null;
 
@@ -272,15 +229,15 @@ public class CassandraAllReqRow extends AllReqRow {
             //load data from table
             String sql = sideInfo.getSqlCondition() + " limit " + FETCH_SIZE;
             ResultSet resultSet = session.execute(sql);
-            String[] sideFieldNames = sideInfo.getSideSelectFields().split(",");
+            String[] sideFieldNames = getSideRowFields();
             for (com.datastax.driver.core.Row row : resultSet) {
-                Map<String, Object> oneRow = Maps.newHashMap();
-                for (String fieldName : sideFieldNames) {
-                    oneRow.put(fieldName.trim(), row.getObject(fieldName.trim()));
+                Object[] oneRow = new Object[sideFieldNames.length];
+                for (int i = 0; i < sideFieldNames.length; i++) {
+                    oneRow[i] = row.getObject(sideFieldNames[i]);
+                }
+                if (isLocalSideRow(oneRow)) {
+                    tmpCache.put(buildSideKey(oneRow), oneRow);
                 }
-                String cacheKey = buildKey(oneRow, sideInfo.getEqualFieldList());
-                List<Map<String, Object>> list = tmpCache.computeIfAbsent(cacheKey, key -> Lists.newArrayList());
-                list.add(oneRow);
             }
         } catch (Exception e) {
             LOG.error("", e);
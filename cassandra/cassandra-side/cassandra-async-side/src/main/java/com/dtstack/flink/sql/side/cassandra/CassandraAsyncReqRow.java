@@ -19,14 +19,24 @@
 
 package com.dtstack.flink.sql.side.cassandra;
 
+import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.ColumnMetadata;
 import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.GuavaCompatibility;
 import com.datastax.driver.core.HostDistance;
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.LocalDate;
 import com.datastax.driver.core.PoolingOptions;
+import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.QueryOptions;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.SocketOptions;
+import com.datastax.driver.core.TableMetadata;
+import com.datastax.driver.core.TypeCodec;
 import com.datastax.driver.core.policies.DowngradingConsistencyRetryPolicy;
 import com.datastax.driver.core.policies.RetryPolicy;
 import com.dtstack.flink.sql.enums.ECacheContentType;
@@ -34,30 +44,30 @@ import com.dtstack.flink.sql.side.AsyncReqRow;
 import com.dtstack.flink.sql.side.CacheMissVal;
 import com.dtstack.flink.sql.side.FieldInfo;
 import com.dtstack.flink.sql.side.JoinInfo;
+import com.dtstack.flink.sql.side.SideLookupReq;
 import com.dtstack.flink.sql.side.SideTableInfo;
 import com.dtstack.flink.sql.side.cache.CacheObj;
+import com.dtstack.flink.sql.side.cache.SideCacheKey;
 import com.dtstack.flink.sql.side.cassandra.table.CassandraSideTableInfo;
-import com.google.common.base.Function;
-import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.FutureCallback;
-import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
-import io.vertx.core.json.JsonArray;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.flink.api.java.typeutils.RowTypeInfo;
 import org.apache.flink.configuration.Configuration;
-import com.google.common.collect.Lists;
-import org.apache.flink.streaming.api.functions.async.ResultFuture;
-import org.apache.flink.table.typeutils.TimeIndicatorTypeInfo;
 import org.apache.flink.types.Row;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.net.InetAddress;
-import java.sql.Timestamp;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Reason:
@@ -71,15 +81,20 @@ public class CassandraAsyncReqRow extends AsyncReqRow {
 
     private static final Logger LOG = LoggerFactory.getLogger(CassandraAsyncReqRow.class);
 
-    private final static int DEFAULT_VERTX_EVENT_LOOP_POOL_SIZE = 10;
+    private transient Cluster cluster;
+    private transient Session session;
+    private transient CassandraSideTableInfo cassandraSideTableInfo;
 
-    private final static int DEFAULT_VERTX_WORKER_POOL_SIZE = 20;
+    private transient CodecRegistry codecRegistry;
 
-    private final static int DEFAULT_MAX_DB_CONN_POOL_SIZE = 20;
+    //select ... where k1 = ? and k2 = ?, in the order of the equal fields
+    private transient PreparedStatement lookupStatement;
 
-    private transient Cluster cluster;
-    private transient ListenableFuture session;
-    private transient CassandraSideTableInfo cassandraSideTableInfo;
+    //select ..., inField where k1 = ? and ... and inField in ?, null if the keys can't be batched
+    private transient PreparedStatement batchLookupStatement;
+
+    //position of the IN field in the equal fields
+    private transient int inFieldIndex = -1;
 
     public CassandraAsyncReqRow(RowTypeInfo rowTypeInfo, JoinInfo joinInfo, List<FieldInfo> outFieldInfoList, SideTableInfo sideTableInfo) {
         super(new com.dtstack.flink.sql.side.cassandra.CassandraAsyncSideInfo(rowTypeInfo, joinInfo, outFieldInfoList, sideTableInfo));
@@ -91,177 +106,321 @@ public class CassandraAsyncReqRow extends AsyncReqRow {
         super.open(parameters);
         cassandraSideTableInfo = (CassandraSideTableInfo) sideInfo.getSideTableInfo();
         connCassandraDB(cassandraSideTableInfo);
+        prepareStatements();
     }
 
     private void connCassandraDB(CassandraSideTableInfo tableInfo) {
         try {
-            if (session == null) {
-                QueryOptions queryOptions = new QueryOptions();
-                //The default consistency level for queries: ConsistencyLevel.TWO.
-                queryOptions.setConsistencyLevel(ConsistencyLevel.QUORUM);
-                Integer maxRequestsPerConnection = tableInfo.getMaxRequestsPerConnection() == null ? 1 : tableInfo.getMaxRequestsPerConnection();
-                Integer coreConnectionsPerHost = tableInfo.getCoreConnectionsPerHost() == null ? 8 : tableInfo.getCoreConnectionsPerHost();
-                Integer maxConnectionsPerHost = tableInfo.getMaxConnectionsPerHost() == null ? 32768 : tableInfo.getMaxConnectionsPerHost();
-                Integer maxQueueSize = tableInfo.getMaxQueueSize() == null ? 100000 : tableInfo.getMaxQueueSize();
-                Integer readTimeoutMillis = tableInfo.getReadTimeoutMillis() == null ? 60000 : tableInfo.getReadTimeoutMillis();
-                Integer connectTimeoutMillis = tableInfo.getConnectTimeoutMillis() == null ? 60000 : tableInfo.getConnectTimeoutMillis();
-                Integer poolTimeoutMillis = tableInfo.getPoolTimeoutMillis() == null ? 60000 : tableInfo.getPoolTimeoutMillis();
-                Integer cassandraPort = 0;
-                String address = tableInfo.getAddress();
-                String userName = tableInfo.getUserName();
-                String password = tableInfo.getPassword();
-                String database = tableInfo.getDatabase();
-
-                ArrayList serversList = new ArrayList();
-                //Read timeout or connection timeout Settings
-                SocketOptions so = new SocketOptions()
-                        .setReadTimeoutMillis(readTimeoutMillis)
-                        .setConnectTimeoutMillis(connectTimeoutMillis);
-
-                //The cluster USES hostdistance.local in the same machine room
-                //Hostdistance. REMOTE is used for different machine rooms
-                //Ignore use HostDistance. IGNORED
-                PoolingOptions poolingOptions = new PoolingOptions()
-                        //Each connection allows a maximum of 64 concurrent requests
-                        .setMaxRequestsPerConnection(HostDistance.LOCAL, maxRequestsPerConnection)
-                        //Have at least two connections to each machine in the cluster
-                        .setCoreConnectionsPerHost(HostDistance.LOCAL, coreConnectionsPerHost)
-                        //There are up to eight connections to each machine in the cluster
-                        .setMaxConnectionsPerHost(HostDistance.LOCAL, maxConnectionsPerHost)
-                        .setMaxQueueSize(maxQueueSize)
-                        .setPoolTimeoutMillis(poolTimeoutMillis);
-                //重试策略
-                RetryPolicy retryPolicy = DowngradingConsistencyRetryPolicy.INSTANCE;
-
-                for (String server : address.split(",")) {
-                    cassandraPort = Integer.parseInt(server.split(":")[1]);
-                    serversList.add(InetAddress.getByName(server.split(":")[0]));
-                }
+            QueryOptions queryOptions = new QueryOptions();
+            //The default consistency level for queries: ConsistencyLevel.TWO.
+            queryOptions.setConsistencyLevel(ConsistencyLevel.QUORUM);
+            //lookups are multiplexed on the pooled connections, 1024 is the default of the driver for protocol v3+
+            Integer maxRequestsPerConnection = tableInfo.getMaxRequestsPerConnection() == null ? 1024 : tableInfo.getMaxRequestsPerConnection();
+            Integer coreConnectionsPerHost = tableInfo.getCoreConnectionsPerHost() == null ? 8 : tableInfo.getCoreConnectionsPerHost();
+            Integer maxConnectionsPerHost = tableInfo.getMaxConnectionsPerHost() == null ? 32768 : tableInfo.getMaxConnectionsPerHost();
+            Integer maxQueueSize = tableInfo.getMaxQueueSize() == null ? 100000 : tableInfo.getMaxQueueSize();
+            Integer readTimeoutMillis = tableInfo.getReadTimeoutMillis() == null ? 60000 : tableInfo.getReadTimeoutMillis();
+            Integer connectTimeoutMillis = tableInfo.getConnectTimeoutMillis() == null ? 60000 : tableInfo.getConnectTimeoutMillis();
+            Integer poolTimeoutMillis = tableInfo.getPoolTimeoutMillis() == null ? 60000 : tableInfo.getPoolTimeoutMillis();
+            Integer cassandraPort = 0;
+            String address = tableInfo.getAddress();
+            String userName = tableInfo.getUserName();
+            String password = tableInfo.getPassword();
+            String database = tableInfo.getDatabase();
+
+            ArrayList serversList = new ArrayList();
+            //Read timeout or connection timeout Settings
+            SocketOptions so = new SocketOptions()
+                    .setReadTimeoutMillis(readTimeoutMillis)
+                    .setConnectTimeoutMillis(connectTimeoutMillis);
+
+            //The cluster USES hostdistance.local in the same machine room
+            //Hostdistance. REMOTE is used for different machine rooms
+            //Ignore use HostDistance. IGNORED
+            PoolingOptions poolingOptions = new PoolingOptions()
+                    //Each connection allows a maximum of 64 concurrent requests
+                    .setMaxRequestsPerConnection(HostDistance.LOCAL, maxRequestsPerConnection)
+                    //Have at least two connections to each machine in the cluster
+                    .setCoreConnectionsPerHost(HostDistance.LOCAL, coreConnectionsPerHost)
+                    //There are up to eight connections to each machine in the cluster
+                    .setMaxConnectionsPerHost(HostDistance.LOCAL, maxConnectionsPerHost)
+                    .setMaxQueueSize(maxQueueSize)
+                    .setPoolTimeoutMillis(poolTimeoutMillis);
+            //重试策略
+            RetryPolicy retryPolicy = DowngradingConsistencyRetryPolicy.INSTANCE;
+
+            for (String server : address.split(",")) {
+                cassandraPort = Integer.parseInt(server.split(":")[1]);
+                serversList.add(InetAddress.getByName(server.split(":")[0]));
+            }
 
-                if (userName == null || userName.isEmpty() || password == null || password.isEmpty()) {
-                    cluster = Cluster.builder().addContactPoints(serversList).withRetryPolicy(retryPolicy)
-                            .withPort(cassandraPort)
-                            .withPoolingOptions(poolingOptions).withSocketOptions(so)
-                            .withQueryOptions(queryOptions).build();
-                } else {
-                    cluster = Cluster.builder().addContactPoints(serversList).withRetryPolicy(retryPolicy)
-                            .withPort(cassandraPort)
-                            .withPoolingOptions(poolingOptions).withSocketOptions(so)
-                            .withCredentials(userName, password)
-                            .withQueryOptions(queryOptions).build();
-                }
-                // 建立连接 连接已存在的键空间
-                session = cluster.connectAsync(database);
-                LOG.info("connect cassandra is successed!");
+            if (userName == null || userName.isEmpty() || password == null || password.isEmpty()) {
+                cluster = Cluster.builder().addContactPoints(serversList).withRetryPolicy(retryPolicy)
+                        .withPort(cassandraPort)
+                        .withPoolingOptions(poolingOptions).withSocketOptions(so)
+                        .withQueryOptions(queryOptions).build();
+            } else {
+                cluster = Cluster.builder().addContactPoints(serversList).withRetryPolicy(retryPolicy)
+                        .withPort(cassandraPort)
+                        .withPoolingOptions(poolingOptions).withSocketOptions(so)
+                        .withCredentials(userName, password)
+                        .withQueryOptions(queryOptions).build();
             }
+            // 建立连接 连接已存在的键空间
+            session = cluster.connect(database);
+            codecRegistry = cluster.getConfiguration().getCodecRegistry();
+            LOG.info("connect cassandra is successed!");
         } catch (Exception e) {
             LOG.error("connect cassandra is error:" + e.getMessage());
+            throw new RuntimeException("connect cassandra failed", e);
         }
     }
 
-    @Override
-    public void asyncInvoke(Row input, ResultFuture<Row> resultFuture) throws Exception {
+    /**
+     * Prepare the lookups once, rows only bind their join values.
+     * Keys of the same partition can be read by one IN query on the last clustering column
+     * when the join fields are the partition key followed by a prefix of the clustering columns.
+     */
+    private void prepareStatements() {
+        List<String> equalFieldList = sideInfo.getEqualFieldList();
+        List<String> conditions = Lists.newArrayList();
+        for (String equalField : equalFieldList) {
+            conditions.add(equalField + " = ?");
+        }
+        lookupStatement = session.prepare(sideInfo.getSqlCondition() + " where " + StringUtils.join(conditions, " and "));
 
-        JsonArray inputParams = new JsonArray();
-        StringBuffer stringBuffer = new StringBuffer();
-        String sqlWhere = " where ";
+        KeyspaceMetadata keyspaceMetadata = cluster.getMetadata().getKeyspace(cassandraSideTableInfo.getDatabase());
+        TableMetadata tableMetadata = keyspaceMetadata == null ? null : keyspaceMetadata.getTable(cassandraSideTableInfo.getTableName());
+        if (tableMetadata == null) {
+            LOG.warn("can't find metadata of cassandra table {}, keys are looked up one by one", cassandraSideTableInfo.getTableName());
+            return;
+        }
 
-        for (int i = 0; i < sideInfo.getEqualFieldList().size(); i++) {
-            Integer conValIndex = sideInfo.getEqualValIndex().get(i);
-            Object equalObj = input.getField(conValIndex);
-            if (equalObj == null) {
-                dealMissKey(input, resultFuture);
+        int partitionKeySize = tableMetadata.getPartitionKey().size();
+        List<ColumnMetadata> primaryKey = tableMetadata.getPrimaryKey();
+        if (equalFieldList.size() <= partitionKeySize || equalFieldList.size() > primaryKey.size()) {
+            return;
+        }
+        for (int i = 0; i < equalFieldList.size(); i++) {
+            boolean found = false;
+            //partition key columns in any order, clustering columns as a prefix
+            int from = i < partitionKeySize ? 0 : i;
+            int to = i < partitionKeySize ? partitionKeySize : i + 1;
+            for (ColumnMetadata column : primaryKey.subList(from, to)) {
+                found = found || column.getName().equalsIgnoreCase(equalFieldList.get(i));
+            }
+            if (!found) {
                 return;
             }
-            inputParams.add(equalObj);
-            stringBuffer.append(sideInfo.getEqualFieldList().get(i))
-                    .append(" = ").append("'" + equalObj + "'")
-                    .append(" and ");
         }
 
-        String key = buildCacheKey(inputParams);
-        sqlWhere = sqlWhere + stringBuffer.toString().substring(0, stringBuffer.lastIndexOf(" and "));
+        inFieldIndex = equalFieldList.size() - 1;
+        String inField = equalFieldList.get(inFieldIndex);
+        conditions.set(inFieldIndex, inField + " in ?");
+        batchLookupStatement = session.prepare(sideInfo.getSqlCondition().replaceFirst(" from ", "," + inField + " from ")
+                + " where " + StringUtils.join(conditions, " and "));
+    }
 
-        if (openCache()) {
-            CacheObj val = getFromCache(key);
-            if (val != null) {
+    @Override
+    protected void handleAsyncInvoke(SideLookupReq req) throws Exception {
+        BoundStatement boundStatement = lookupStatement.bind();
+        int index = 0;
+        for (Object value : req.getInputParams().values()) {
+            if (!bindValue(boundStatement, index++, value)) {
+                completeLookup(req, CacheMissVal.getMissKeyObj());
+                return;
+            }
+        }
 
-                if (ECacheContentType.MissVal == val.getType()) {
-                    dealMissKey(input, resultFuture);
-                    return;
-                } else if (ECacheContentType.MultiLine == val.getType()) {
+        fetchAll(session.executeAsync(boundStatement), rows -> completeRows(req, rows), t -> failLookup(req, t));
+    }
 
-                    for (Object rowArray : (List) val.getContent()) {
-                        Row row = fillData(input, rowArray);
-                        resultFuture.complete(Collections.singleton(row));
-                    }
+    @Override
+    protected boolean supportBatch() {
+        return true;
+    }
 
-                } else {
-                    throw new RuntimeException("not support cache obj type " + val.getType());
+    /**
+     * Keys of the same partition are read by one IN query, the others are looked up one by one.
+     */
+    @Override
+    protected void handleBatchInvoke(List<SideLookupReq> reqs) throws Exception {
+        if (batchLookupStatement == null) {
+            for (SideLookupReq req : reqs) {
+                handleAsyncInvoke(req);
+            }
+            return;
+        }
+
+        //values of the equal fields before the IN field -> requests
+        Map<List<Object>, List<SideLookupReq>> partitionReqs = Maps.newLinkedHashMap();
+        for (SideLookupReq req : reqs) {
+            List<Object> values = Lists.newArrayList(req.getInputParams().values());
+            partitionReqs.computeIfAbsent(values.subList(0, inFieldIndex), key -> Lists.newArrayList()).add(req);
+        }
+
+        for (Map.Entry<List<Object>, List<SideLookupReq>> entry : partitionReqs.entrySet()) {
+            List<SideLookupReq> groupReqs = entry.getValue();
+            if (groupReqs.size() == 1) {
+                handleAsyncInvoke(groupReqs.get(0));
+                continue;
+            }
+
+            BoundStatement boundStatement = batchLookupStatement.bind();
+            boolean bound = true;
+            for (int i = 0; i < inFieldIndex && bound; i++) {
+                bound = bindValue(boundStatement, i, entry.getKey().get(i));
+            }
+            if (!bound) {
+                groupReqs.forEach(req -> completeLookup(req, CacheMissVal.getMissKeyObj()));
+                continue;
+            }
+
+            DataType inFieldType = batchLookupStatement.getVariables().getType(inFieldIndex).getTypeArguments().get(0);
+            Class<?> inFieldJavaType = codecRegistry.codecFor(inFieldType).getJavaType().getRawType();
+            //IN value as read back from the side table -> requests, inputs converting to the same value share it.
+            //decimals are compared by value like cassandra does, whatever their scale
+            Map<SideCacheKey, List<SideLookupReq>> inValueReqs = Maps.newLinkedHashMap();
+            List<Object> inValues = Lists.newArrayList();
+            for (SideLookupReq req : groupReqs) {
+                Object inValue = toCassandraValue(Lists.newArrayList(req.getInputParams().values()).get(inFieldIndex), inFieldType);
+                if (!inFieldJavaType.isInstance(inValue)) {
+                    completeLookup(req, CacheMissVal.getMissKeyObj());
+                    continue;
                 }
-                return;
+                inValueReqs.computeIfAbsent(SideCacheKey.of(inValue), key -> {
+                    inValues.add(inValue);
+                    return Lists.newArrayList();
+                }).add(req);
+            }
+            if (inValues.isEmpty()) {
+                continue;
             }
+            boundStatement.setList(inFieldIndex, inValues);
+
+            int inFieldPosition = sideInfo.getSideSelectFields().split(",").length;
+            fetchAll(session.executeAsync(boundStatement), rows -> {
+                Map<SideCacheKey, List<com.datastax.driver.core.Row>> inValueRows = Maps.newHashMap();
+                for (com.datastax.driver.core.Row row : rows) {
+                    inValueRows.computeIfAbsent(SideCacheKey.of(row.getObject(inFieldPosition)), key -> Lists.newArrayList()).add(row);
+                }
+                for (Map.Entry<SideCacheKey, List<SideLookupReq>> inValueReq : inValueReqs.entrySet()) {
+                    List<com.datastax.driver.core.Row> inRows = inValueRows.get(inValueReq.getKey());
+                    inValueReq.getValue().forEach(req -> completeRows(req, inRows));
+                }
+            }, t -> inValueReqs.values().forEach(inReqs -> inReqs.forEach(req -> failLookup(req, t))));
         }
+    }
 
-        //connect Cassandra
-        connCassandraDB(cassandraSideTableInfo);
+    private void completeRows(SideLookupReq req, List<com.datastax.driver.core.Row> rows) {
+        if (rows != null && rows.size() > 0) {
+            completeLookup(req, CacheObj.buildCacheObj(ECacheContentType.MultiLine, rows));
+        } else {
+            completeLookup(req, CacheMissVal.getMissKeyObj());
+        }
+    }
 
-        String sqlCondition = sideInfo.getSqlCondition() + " " + sqlWhere;
-        System.out.println("sqlCondition:" + sqlCondition);
-
-        ListenableFuture<ResultSet> resultSet = Futures.transformAsync(session,
-                new AsyncFunction<Session, ResultSet>() {
-                    @Override
-                    public ListenableFuture<ResultSet> apply(Session session) throws Exception {
-                        return session.executeAsync(sqlCondition);
-                    }
-                });
-
-        ListenableFuture<List<com.datastax.driver.core.Row>> data = Futures.transform(resultSet,
-                new Function<ResultSet, List<com.datastax.driver.core.Row>>() {
-                    @Override
-                    public List<com.datastax.driver.core.Row> apply(ResultSet rs) {
-                        return rs.all();
-                    }
-                });
-
-        Futures.addCallback(data, new FutureCallback<List<com.datastax.driver.core.Row>>() {
+    /**
+     * Read every page of the result without blocking, further pages are fetched asynchronously.
+     */
+    private void fetchAll(ListenableFuture<ResultSet> resultSetFuture,
+                          Consumer<List<com.datastax.driver.core.Row>> onComplete, Consumer<Throwable> onError) {
+        List<com.datastax.driver.core.Row> rows = new ArrayList<>();
+        GuavaCompatibility.INSTANCE.addCallback(resultSetFuture, new FutureCallback<ResultSet>() {
             @Override
-            public void onSuccess(List<com.datastax.driver.core.Row> rows) {
-                cluster.closeAsync();
-                if (rows.size() > 0) {
-                    List<com.datastax.driver.core.Row> cacheContent = Lists.newArrayList();
-                    for (com.datastax.driver.core.Row line : rows) {
-                        Row row = fillData(input, line);
-                        if (openCache()) {
-                            cacheContent.add(line);
-                        }
-                        resultFuture.complete(Collections.singleton(row));
-                    }
-
-                    if (openCache()) {
-                        putCache(key, CacheObj.buildCacheObj(ECacheContentType.MultiLine, cacheContent));
-                    }
+            public void onSuccess(ResultSet resultSet) {
+                for (int available = resultSet.getAvailableWithoutFetching(); available > 0; available--) {
+                    rows.add(resultSet.one());
+                }
+                if (resultSet.isFullyFetched()) {
+                    onComplete.accept(rows);
                 } else {
-                    dealMissKey(input, resultFuture);
-                    if (openCache()) {
-                        putCache(key, CacheMissVal.getMissKeyObj());
-                    }
-                    resultFuture.complete(null);
+                    GuavaCompatibility.INSTANCE.addCallback(resultSet.fetchMoreResults(), this);
                 }
             }
 
             @Override
             public void onFailure(Throwable t) {
-                LOG.error("Failed to retrieve the data: %s%n",
-                        t.getMessage());
-                System.out.println("Failed to retrieve the data: " + t.getMessage());
-                cluster.closeAsync();
-                resultFuture.completeExceptionally(t);
+                LOG.error("Failed to retrieve the data: " + t.getMessage());
+                onError.accept(t);
             }
         });
     }
 
+    /**
+     * @return false if the value can't be represented in the java type of the column, it equals no value of the column then
+     */
+    private boolean bindValue(BoundStatement boundStatement, int index, Object value) {
+        DataType dataType = boundStatement.preparedStatement().getVariables().getType(index);
+        Object cassandraValue = toCassandraValue(value, dataType);
+        TypeCodec codec = codecRegistry.codecFor(dataType);
+        if (!codec.getJavaType().getRawType().isInstance(cassandraValue)) {
+            return false;
+        }
+
+        boundStatement.set(index, cassandraValue, codec);
+        return true;
+    }
+
+    /**
+     * Convert a join value of the stream to the exact java type of the cassandra column, e.g. an int join field on a bigint column,
+     * so that it equals the value read back from the column.
+     * @return the value unchanged if it can't be represented in the java type of the column
+     */
+    private Object toCassandraValue(Object value, DataType dataType) {
+        if (value == null) {
+            return null;
+        }
+
+        Class<?> javaType = codecRegistry.codecFor(dataType).getJavaType().getRawType();
+        if (javaType == Date.class && value instanceof Date) {
+            //a Timestamp never equals the Date read from a timestamp column
+            return value.getClass() == Date.class ? value : new Date(((Date) value).getTime());
+        }
+
+        if (javaType.isInstance(value)) {
+            return value;
+        }
+
+        if (value instanceof java.sql.Date && javaType == LocalDate.class) {
+            return LocalDate.fromDaysSinceEpoch((int) ((java.sql.Date) value).toLocalDate().toEpochDay());
+        }
+
+        if (javaType == String.class) {
+            return value.toString();
+        }
+
+        BigDecimal number;
+        try {
+            number = new BigDecimal(value.toString().trim());
+        } catch (NumberFormatException e) {
+            return value;
+        }
+        try {
+            if (javaType == Integer.class) {
+                return number.intValueExact();
+            } else if (javaType == Long.class) {
+                return number.longValueExact();
+            } else if (javaType == Short.class) {
+                return number.shortValueExact();
+            } else if (javaType == Byte.class) {
+                return number.byteValueExact();
+            } else if (javaType == Double.class) {
+                return number.doubleValue();
+            } else if (javaType == Float.class) {
+                return number.floatValue();
+            } else if (javaType == BigDecimal.class) {
+                return number;
+            } else if (javaType == BigInteger.class) {
+                return number.toBigIntegerExact();
+            }
+        } catch (ArithmeticException e) {
+            return value;
+        }
+
+        return value;
+    }
+
     @Override
     public Row fillData(Row input, Object line) {
         com.datastax.driver.core.Row rowArray = (com.datastax.driver.core.Row) line;
@@ -280,26 +439,19 @@ public class CassandraAsyncReqRow extends AsyncReqRow {
             }
         }
 
-        System.out.println("row:" + row.toString());
         return row;
     }
 
     @Override
     public void close() throws Exception {
         super.close();
+        if (session != null) {
+            session.close();
+            session = null;
+        }
         if (cluster != null) {
             cluster.close();
             cluster = null;
         }
     }
-
-    public String buildCacheKey(JsonArray jsonArray) {
-        StringBuilder sb = new StringBuilder();
-        for (Object ele : jsonArray.getList()) {
-            sb.append(ele.toString())
-                    .append("_");
-        }
-
-        return sb.toString();
-    }
 }
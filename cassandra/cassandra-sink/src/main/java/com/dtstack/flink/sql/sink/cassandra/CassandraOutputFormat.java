@@ -38,33 +38,54 @@
 
 package com.dtstack.flink.sql.sink.cassandra;
 
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.CodecRegistry;
 import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.GuavaCompatibility;
 import com.datastax.driver.core.HostDistance;
+import com.datastax.driver.core.LocalDate;
 import com.datastax.driver.core.PoolingOptions;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ProtocolVersion;
 import com.datastax.driver.core.QueryOptions;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.SocketOptions;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.TypeCodec;
+import com.datastax.driver.core.policies.DCAwareRoundRobinPolicy;
 import com.datastax.driver.core.policies.DowngradingConsistencyRetryPolicy;
 import com.datastax.driver.core.policies.RetryPolicy;
-import com.dtstack.flink.sql.metric.MetricConstant;
-import org.apache.flink.api.common.io.RichOutputFormat;
+import com.datastax.driver.core.policies.TokenAwarePolicy;
+import com.dtstack.flink.sql.factory.DTThreadFactory;
+import com.dtstack.flink.sql.sink.IFlushableOutputFormat;
+import com.dtstack.flink.sql.sink.MetricOutputFormat;
+import com.google.common.util.concurrent.FutureCallback;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.flink.api.common.typeinfo.TypeInformation;
 import org.apache.flink.api.java.tuple.Tuple;
 import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.configuration.Configuration;
-import org.apache.flink.metrics.Counter;
-import org.apache.flink.metrics.Meter;
-import org.apache.flink.metrics.MeterView;
 import org.apache.flink.types.Row;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.net.InetAddress;
+import java.nio.ByteBuffer;
 import java.sql.DriverManager;
-import java.sql.PreparedStatement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * OutputFormat to write tuples into a database.
@@ -73,7 +94,7 @@ import java.util.ArrayList;
  * @see Tuple
  * @see DriverManager
  */
-public class CassandraOutputFormat extends RichOutputFormat<Tuple2> {
+public class CassandraOutputFormat extends MetricOutputFormat implements IFlushableOutputFormat {
     private static final long serialVersionUID = -7994311331389155692L;
 
     private static final Logger LOG = LoggerFactory.getLogger(CassandraOutputFormat.class);
@@ -94,16 +115,37 @@ public class CassandraOutputFormat extends RichOutputFormat<Tuple2> {
     protected String[] fieldNames;
     TypeInformation<?>[] fieldTypes;
 
-    private int batchInterval = 5000;
+    //rows buffered before they are sent, 1 sends every row when it arrives
+    private int batchSize = 100;
+    private long batchWaitInterval = 1000;
+    //requests sent and not answered yet, further rows wait for a permit
+    private int maxInFlightRequests = 64;
 
     private Cluster cluster;
     private Session session = null;
 
-    private int batchCount = 0;
+    private transient PreparedStatement insertStatement;
 
-    private transient Counter outRecords;
+    private transient ProtocolVersion protocolVersion;
 
-    private transient Meter outRecordsRate;
+    private transient CodecRegistry codecRegistry;
+
+    //routing key of the partition -> rows of the partition, sent as one unlogged batch
+    private transient Map<ByteBuffer, List<BoundStatement>> partitionBuffer;
+
+    private transient int bufferedRows;
+
+    private transient Semaphore inFlightPermits;
+
+    //rows of failed requests, counted into outDirtyRecords by the task thread
+    private transient AtomicLong failedRows;
+
+    //first failed request, fails the next write or flush so that a checkpoint doesn't pass over lost rows
+    private transient volatile Exception flushException;
+
+    private transient ScheduledExecutorService flushScheduler;
+
+    private static final int DIRTY_PRINT_FREQUENCY = 1000;
 
     public CassandraOutputFormat() {
     }
@@ -161,15 +203,20 @@ public class CassandraOutputFormat extends RichOutputFormat<Tuple2> {
                     serversList.add(InetAddress.getByName(server.split(":")[0]));
                 }
 
+                //batches are sent to a replica of their partition
+                TokenAwarePolicy loadBalancingPolicy = new TokenAwarePolicy(DCAwareRoundRobinPolicy.builder().build());
+
                 if (userName == null || userName.isEmpty() || password == null || password.isEmpty()) {
                     cluster = Cluster.builder().addContactPoints(serversList).withRetryPolicy(retryPolicy)
                             .withPort(cassandraPort)
                             .withPoolingOptions(poolingOptions).withSocketOptions(so)
+                            .withLoadBalancingPolicy(loadBalancingPolicy)
                             .withQueryOptions(queryOptions).build();
                 } else {
                     cluster = Cluster.builder().addContactPoints(serversList).withRetryPolicy(retryPolicy)
                             .withPort(cassandraPort)
                             .withPoolingOptions(poolingOptions).withSocketOptions(so)
+                            .withLoadBalancingPolicy(loadBalancingPolicy)
                             .withCredentials(userName, password)
                             .withQueryOptions(queryOptions).build();
                 }
@@ -178,73 +225,179 @@ public class CassandraOutputFormat extends RichOutputFormat<Tuple2> {
                 LOG.info("connect cassandra is successed!");
                 initMetric();
             }
+
+            //parsed once by cassandra, rows only bind their values
+            String[] placeholders = new String[fieldNames.length];
+            Arrays.fill(placeholders, "?");
+            insertStatement = session.prepare("INSERT INTO " + database + "." + tableName + " (" + StringUtils.join(fieldNames, ",") + ") "
+                    + " VALUES (" + StringUtils.join(placeholders, ",") + ")");
+            protocolVersion = cluster.getConfiguration().getProtocolOptions().getProtocolVersion();
+            codecRegistry = cluster.getConfiguration().getCodecRegistry();
+            partitionBuffer = new LinkedHashMap<>();
+            inFlightPermits = new Semaphore(maxInFlightRequests);
+            failedRows = new AtomicLong();
+
+            if (batchSize > 1 && batchWaitInterval > 0) {
+                flushScheduler = Executors.newSingleThreadScheduledExecutor(new DTThreadFactory("cassandra-sink-flush"));
+                flushScheduler.scheduleWithFixedDelay(() -> {
+                    try {
+                        sendBufferedRows();
+                    } catch (Exception e) {
+                        LOG.error("send rows to cassandra failed", e);
+                    }
+                }, batchWaitInterval, batchWaitInterval, TimeUnit.MILLISECONDS);
+            }
         } catch (Exception e) {
             LOG.error("connect cassandra is error:" + e.getMessage());
+            throw new IOException("connect cassandra failed", e);
         }
     }
 
-    private void initMetric() {
-        outRecords = getRuntimeContext().getMetricGroup().counter(MetricConstant.DT_NUM_RECORDS_OUT);
-        outRecordsRate = getRuntimeContext().getMetricGroup().meter(MetricConstant.DT_NUM_RECORDS_OUT_RATE, new MeterView(outRecords, 20));
-    }
-
     /**
-     * Adds a record to the prepared statement.
+     * Binds a record to the prepared insert and buffers it by partition.
      * <p>
      * When this method is called, the output format is guaranteed to be opened.
      * </p>
      * <p>
-     * WARNING: this may fail when no column types specified (because a best effort approach is attempted in order to
-     * insert a null value but it's not guaranteed that the JDBC driver handles PreparedStatement.setObject(pos, null))
+     * Null fields are left unset instead of being written as null, so that they don't overwrite
+     * the column or create tombstones.
      *
      * @param tuple2 The records to add to the output.
      * @throws IOException Thrown, if the records could not be added due to an I/O problem.
-     * @see PreparedStatement
      */
     @Override
     public void writeRecord(Tuple2 tuple2) throws IOException {
         Tuple2<Boolean, Row> tupleTrans = tuple2;
         Boolean retract = tupleTrans.getField(0);
         Row row = tupleTrans.getField(1);
+        countFailedRows();
+        checkFlushException();
+        if (!retract) {
+            //do nothing
+            return;
+        }
+
+        BoundStatement boundStatement;
         try {
-            if (retract) {
-                insertWrite(row);
-                outRecords.inc();
-            } else {
-                //do nothing
-            }
+            boundStatement = bindRow(row);
         } catch (Exception e) {
-            throw new IllegalArgumentException("writeRecord() failed", e);
+            dirtyRows(1, "bind row " + row + " failed", e);
+            return;
         }
-    }
 
-    private void insertWrite(Row row) {
-        try {
-            String cql = buildSql(row);
-            if (cql != null) {
-                ResultSet resultSet = session.execute(cql);
-                resultSet.wasApplied();
+        synchronized (this) {
+            ByteBuffer routingKey = boundStatement.getRoutingKey(protocolVersion, codecRegistry);
+            partitionBuffer.computeIfAbsent(routingKey, key -> new ArrayList<>()).add(boundStatement);
+            bufferedRows++;
+            outRecords.inc();
+            if (bufferedRows >= batchSize) {
+                try {
+                    sendBufferedRows();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("write cassandra sink is interrupted", e);
+                }
             }
-        } catch (Exception e) {
-            LOG.error("[upsert] is error:" + e.getMessage());
         }
     }
 
-    private String buildSql(Row row) {
-        StringBuffer fields = new StringBuffer();
-        StringBuffer values = new StringBuffer();
+    private BoundStatement bindRow(Row row) {
+        BoundStatement boundStatement = insertStatement.bind();
         for (int index = 0; index < row.getArity(); index++) {
-            if (row.getField(index) == null) {
+            Object value = row.getField(index);
+            if (value == null) {
+                continue;
+            }
+
+            DataType dataType = insertStatement.getVariables().getType(index);
+            if (value instanceof java.sql.Date && dataType.getName() == DataType.Name.DATE) {
+                value = LocalDate.fromDaysSinceEpoch((int) ((java.sql.Date) value).toLocalDate().toEpochDay());
+            }
+            TypeCodec codec = codecRegistry.codecFor(dataType, value);
+            boundStatement.set(index, value, codec);
+        }
+        return boundStatement;
+    }
+
+    /**
+     * Send the rows of each partition as one unlogged batch, asynchronously.
+     * Blocks while maxInFlightRequests requests are unanswered.
+     */
+    private synchronized void sendBufferedRows() throws InterruptedException {
+        for (List<BoundStatement> partitionRows : partitionBuffer.values()) {
+            Statement statement;
+            if (partitionRows.size() == 1) {
+                statement = partitionRows.get(0);
             } else {
-                fields.append(fieldNames[index] + ",");
-                values.append("'" + row.getField(index) + "'" + ",");
+                BatchStatement batchStatement = new BatchStatement(BatchStatement.Type.UNLOGGED);
+                batchStatement.addAll(partitionRows);
+                statement = batchStatement;
             }
+
+            int rowNum = partitionRows.size();
+            inFlightPermits.acquire();
+            GuavaCompatibility.INSTANCE.addCallback(session.executeAsync(statement), new FutureCallback<ResultSet>() {
+                @Override
+                public void onSuccess(ResultSet resultSet) {
+                    inFlightPermits.release();
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    failedRows.addAndGet(rowNum);
+                    LOG.error("[upsert] is error:" + t.getMessage());
+                    if (flushException == null) {
+                        flushException = t instanceof Exception ? (Exception) t : new RuntimeException(t);
+                    }
+                    inFlightPermits.release();
+                }
+            });
+        }
+        partitionBuffer.clear();
+        bufferedRows = 0;
+    }
+
+    /**
+     * Send the buffered rows and wait for every request in flight to be answered.
+     * A failed request fails the flush, the rows it lost are not acknowledged by the checkpoint.
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        if (partitionBuffer == null) {
+            return;
+        }
+
+        try {
+            sendBufferedRows();
+            inFlightPermits.acquire(maxInFlightRequests);
+            inFlightPermits.release(maxInFlightRequests);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("flush cassandra sink is interrupted", e);
+        }
+        countFailedRows();
+        checkFlushException();
+    }
+
+    private void checkFlushException() throws IOException {
+        if (flushException != null) {
+            throw new IOException("write to cassandra failed", flushException);
+        }
+    }
+
+    private void countFailedRows() {
+        long failed = failedRows == null ? 0 : failedRows.getAndSet(0);
+        if (failed > 0) {
+            dirtyRows(failed, "write rows to cassandra failed", null);
+        }
+    }
+
+    private void dirtyRows(long rowNum, String message, Exception e) {
+        long before = outDirtyRecords.getCount();
+        outDirtyRecords.inc(rowNum);
+        if (before == 0 || before / DIRTY_PRINT_FREQUENCY != outDirtyRecords.getCount() / DIRTY_PRINT_FREQUENCY) {
+            LOG.error(message, e);
         }
-        fields.deleteCharAt(fields.length() - 1);
-        values.deleteCharAt(values.length() - 1);
-        String cql = "INSERT INTO " + database + "." + tableName + " (" + fields.toString() + ") "
-                + " VALUES (" + values.toString() + ")";
-        return cql;
     }
 
     /**
@@ -254,6 +407,14 @@ public class CassandraOutputFormat extends RichOutputFormat<Tuple2> {
      */
     @Override
     public void close() throws IOException {
+        if (flushScheduler != null) {
+            flushScheduler.shutdownNow();
+        }
+        try {
+            flush();
+        } catch (Exception e) {
+            LOG.error("Error while flushing rows.", e);
+        }
         try {
             if (session != null) {
                 session.close();
@@ -352,6 +513,27 @@ public class CassandraOutputFormat extends RichOutputFormat<Tuple2> {
             return this;
         }
 
+        public CassandraFormatBuilder setBatchSize(Integer batchSize) {
+            if (batchSize != null) {
+                format.batchSize = batchSize;
+            }
+            return this;
+        }
+
+        public CassandraFormatBuilder setBatchWaitInterval(Long batchWaitInterval) {
+            if (batchWaitInterval != null) {
+                format.batchWaitInterval = batchWaitInterval;
+            }
+            return this;
+        }
+
+        public CassandraFormatBuilder setMaxInFlightRequests(Integer maxInFlightRequests) {
+            if (maxInFlightRequests != null) {
+                format.maxInFlightRequests = maxInFlightRequests;
+            }
+            return this;
+        }
+
         /**
          * Finalizes the configuration and checks validity.
          *
@@ -20,6 +20,7 @@
 package com.dtstack.flink.sql.sink.cassandra;
 
 
+import com.dtstack.flink.sql.sink.CheckpointFlushSinkFunction;
 import com.dtstack.flink.sql.sink.IStreamSinkGener;
 import com.dtstack.flink.sql.sink.cassandra.table.CassandraTableInfo;
 import com.dtstack.flink.sql.table.TargetTableInfo;
@@ -29,7 +30,6 @@ import org.apache.flink.api.java.typeutils.RowTypeInfo;
 import org.apache.flink.api.java.typeutils.TupleTypeInfo;
 import org.apache.flink.streaming.api.datastream.DataStream;
 import org.apache.flink.streaming.api.datastream.DataStreamSink;
-import org.apache.flink.streaming.api.functions.sink.OutputFormatSinkFunction;
 import org.apache.flink.streaming.api.functions.sink.RichSinkFunction;
 import org.apache.flink.table.sinks.RetractStreamTableSink;
 import org.apache.flink.table.sinks.TableSink;
@@ -58,6 +58,9 @@ public class CassandraSink implements RetractStreamTableSink<Row>, IStreamSinkGe
     protected Integer readTimeoutMillis;
     protected Integer connectTimeoutMillis;
     protected Integer poolTimeoutMillis;
+    protected Integer batchSize;
+    protected Long batchWaitInterval;
+    protected Integer maxInFlightRequests;
 
     public CassandraSink() {
         // TO DO NOTHING
@@ -78,6 +81,9 @@ public class CassandraSink implements RetractStreamTableSink<Row>, IStreamSinkGe
         this.readTimeoutMillis = cassandraTableInfo.getReadTimeoutMillis();
         this.connectTimeoutMillis = cassandraTableInfo.getConnectTimeoutMillis();
         this.poolTimeoutMillis = cassandraTableInfo.getPoolTimeoutMillis();
+        this.batchSize = cassandraTableInfo.getBatchSize();
+        this.batchWaitInterval = cassandraTableInfo.getBatchWaitInterval();
+        this.maxInFlightRequests = cassandraTableInfo.getMaxInFlightRequests();
         return this;
     }
 
@@ -101,11 +107,14 @@ public class CassandraSink implements RetractStreamTableSink<Row>, IStreamSinkGe
                 .setReadTimeoutMillis(this.readTimeoutMillis)
                 .setConnectTimeoutMillis(this.connectTimeoutMillis)
                 .setPoolTimeoutMillis(this.poolTimeoutMillis)
+                .setBatchSize(this.batchSize)
+                .setBatchWaitInterval(this.batchWaitInterval)
+                .setMaxInFlightRequests(this.maxInFlightRequests)
                 .setFieldNames(this.fieldNames)
                 .setFieldTypes(this.fieldTypes);
 
         CassandraOutputFormat outputFormat = builder.finish();
-        RichSinkFunction richSinkFunction = new OutputFormatSinkFunction(outputFormat);
+        RichSinkFunction richSinkFunction = new CheckpointFlushSinkFunction(outputFormat);
         DataStreamSink dataStreamSink = dataStream.addSink(richSinkFunction);
         return dataStreamSink;
     }
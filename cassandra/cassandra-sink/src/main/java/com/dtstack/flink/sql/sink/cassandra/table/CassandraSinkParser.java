@@ -59,6 +59,12 @@ public class CassandraSinkParser extends AbsTableParser {
 
     public static final String POOL_TIMEOUT_MILLIS_KEY = "poolTimeoutMillis";
 
+    public static final String BATCH_SIZE_KEY = "batchSize";
+
+    public static final String BATCH_WAIT_INTERVAL_KEY = "batchWaitInterval";
+
+    public static final String MAX_IN_FLIGHT_REQUESTS_KEY = "maxInFlightRequests";
+
     @Override
     public TableInfo getTableInfo(String tableName, String fieldsInfo, Map<String, Object> props) {
         CassandraTableInfo cassandraTableInfo = new CassandraTableInfo();
@@ -78,6 +84,9 @@ public class CassandraSinkParser extends AbsTableParser {
         cassandraTableInfo.setReadTimeoutMillis(MathUtil.getIntegerVal(props.get(READ_TIMEOUT_MILLIS_KEY.toLowerCase())));
         cassandraTableInfo.setConnectTimeoutMillis(MathUtil.getIntegerVal(props.get(CONNECT_TIMEOUT_MILLIS_KEY.toLowerCase())));
         cassandraTableInfo.setPoolTimeoutMillis(MathUtil.getIntegerVal(props.get(POOL_TIMEOUT_MILLIS_KEY.toLowerCase())));
+        cassandraTableInfo.setBatchSize(MathUtil.getIntegerVal(props.get(BATCH_SIZE_KEY.toLowerCase())));
+        cassandraTableInfo.setBatchWaitInterval(MathUtil.getLongVal(props.get(BATCH_WAIT_INTERVAL_KEY.toLowerCase())));
+        cassandraTableInfo.setMaxInFlightRequests(MathUtil.getIntegerVal(props.get(MAX_IN_FLIGHT_REQUESTS_KEY.toLowerCase())));
 
         return cassandraTableInfo;
     }
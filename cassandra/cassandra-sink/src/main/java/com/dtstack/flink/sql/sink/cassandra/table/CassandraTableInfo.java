@@ -44,6 +44,9 @@ public class CassandraTableInfo extends TargetTableInfo {
     private Integer readTimeoutMillis;
     private Integer connectTimeoutMillis;
     private Integer poolTimeoutMillis;
+    private Integer batchSize;
+    private Long batchWaitInterval;
+    private Integer maxInFlightRequests;
 
     public CassandraTableInfo() {
         setType(CURR_TYPE);
@@ -145,11 +148,37 @@ public class CassandraTableInfo extends TargetTableInfo {
         this.poolTimeoutMillis = poolTimeoutMillis;
     }
 
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(Integer batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Long getBatchWaitInterval() {
+        return batchWaitInterval;
+    }
+
+    public void setBatchWaitInterval(Long batchWaitInterval) {
+        this.batchWaitInterval = batchWaitInterval;
+    }
+
+    public Integer getMaxInFlightRequests() {
+        return maxInFlightRequests;
+    }
+
+    public void setMaxInFlightRequests(Integer maxInFlightRequests) {
+        this.maxInFlightRequests = maxInFlightRequests;
+    }
+
     @Override
     public boolean check() {
         Preconditions.checkNotNull(address, "Cassandra field of ADDRESS is required");
         Preconditions.checkNotNull(database, "Cassandra field of database is required");
         Preconditions.checkNotNull(tableName, "Cassandra field of tableName is required");
+        Preconditions.checkArgument(batchSize == null || batchSize > 0, "Cassandra field of batchSize must be greater than 0");
+        Preconditions.checkArgument(maxInFlightRequests == null || maxInFlightRequests > 0, "Cassandra field of maxInFlightRequests must be greater than 0");
         return true;
     }
 
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.dtstack.flink.sql.enums;
+
+import java.util.List;
+
+/**
+ * How the rows of a redis table are stored, shared by the redis sink and the redis side table.
+ * The row key is tableName:key1:value1[:key2:value2...] built from the primary key (sink) or join fields (side).
+ * Company: www.dtstack.com
+ */
+public enum ERedisStorageType {
+    //one string key per field: rowKey:fieldName -> value
+    STRING,
+    //one hash key per row: rowKey -> {fieldName: value}
+    HASH;
+
+    public static boolean isValid(String type){
+        for(ERedisStorageType tmpType : ERedisStorageType.values()){
+            if(tmpType.name().equalsIgnoreCase(type)){
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public static ERedisStorageType of(String type){
+        return type == null ? STRING : valueOf(type.toUpperCase());
+    }
+
+    public static String buildRowKey(String tableName, List<String> keyNames, List<?> keyValues){
+        StringBuilder rowKey = new StringBuilder(tableName);
+        for(int i = 0; i < keyNames.size(); i++){
+            rowKey.append(":").append(keyNames.get(i)).append(":").append(keyValues.get(i));
+        }
+
+        return rowKey.toString();
+    }
+
+    public static String buildFieldKey(String rowKey, String fieldName){
+        return rowKey + ":" + fieldName;
+    }
+}
@@ -58,4 +58,28 @@ public class MetricConstant {
     public static final String DT_PARTITION_GROUP = "partition";
 
     public static final String DT_NUM_SIDE_PARSE_ERROR_RECORDS = "dtNumSideParseErrorRecords";
+
+    /**side lookups served by an identical lookup already in flight*/
+    public static final String DT_NUM_SIDE_COALESCED_REQUESTS = "dtNumSideCoalescedRequests";
+
+    /**lines of side table held by ALL cache*/
+    public static final String DT_SIDE_CACHE_ROWS_GAUGE = "dtSideCacheRows";
+
+    public static final String DT_SIDE_CACHE_OFF_HEAP_BYTES_GAUGE = "dtSideCacheOffHeapBytes";
+
+    /**duration of the last ALL cache load*/
+    public static final String DT_SIDE_CACHE_LOAD_TIME_GAUGE = "dtSideCacheLoadTimeMs";
+
+    /**cpu time spent by the side table store while the last ALL cache load ran*/
+    public static final String DT_SIDE_CACHE_LOAD_STORE_CPU_GAUGE = "dtSideCacheLoadStoreCpuMs";
+
+    /**actions, estimated bytes and duration of the last bulk request of a sink*/
+    public static final String DT_SINK_BULK_ACTIONS_GAUGE = "dtSinkBulkActions";
+
+    public static final String DT_SINK_BULK_BYTES_GAUGE = "dtSinkBulkBytes";
+
+    public static final String DT_SINK_BULK_LATENCY_GAUGE = "dtSinkBulkLatencyMs";
+
+    /**records rejected by the target store as its write queue is full*/
+    public static final String DT_NUM_SINK_REJECTED_RECORDS = "dtNumSinkRejectedRecords";
 }
@@ -20,18 +20,36 @@
 
 package com.dtstack.flink.sql.side;
 
+import com.dtstack.flink.sql.enums.ECacheStoreType;
 import com.dtstack.flink.sql.factory.DTThreadFactory;
+import com.dtstack.flink.sql.metric.MetricConstant;
+import com.dtstack.flink.sql.side.cache.AbsAllCacheStore;
+import com.dtstack.flink.sql.side.cache.HeapAllCacheStore;
+import com.dtstack.flink.sql.side.cache.OffHeapAllCacheStore;
+import com.dtstack.flink.sql.side.cache.SharedAllCache;
+import com.dtstack.flink.sql.side.cache.SharedAllCacheRegistry;
+import com.dtstack.flink.sql.side.cache.SideCacheKey;
+import com.dtstack.flink.sql.util.ClassUtil;
+import com.google.common.collect.Lists;
 import org.apache.flink.api.common.functions.RichFlatMapFunction;
 import org.apache.flink.configuration.Configuration;
+import org.apache.flink.metrics.Gauge;
 import org.apache.flink.table.typeutils.TimeIndicatorTypeInfo;
 import org.apache.flink.types.Row;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Reason:
@@ -42,10 +60,36 @@ import java.util.concurrent.TimeUnit;
 
 public abstract class AllReqRow extends RichFlatMapFunction<Row, Row> implements ISideReqRow {
 
+    private static final Logger LOG = LoggerFactory.getLogger(AllReqRow.class);
+
     protected SideInfo sideInfo;
 
     private ScheduledExecutorService es;
 
+    private transient AtomicReference<AbsAllCacheStore> cacheStoreRef;
+
+    //field names of the positional side lines kept in cache
+    private transient String[] sideRowFields;
+
+    //out row index of each side field -> position of the field in side line
+    private transient int[] sideOutIndex;
+
+    private transient int[] sideRowPosition;
+
+    //position of each equal field in side line
+    private transient int[] sideKeyPosition;
+
+    //type of each equal field in the input stream, side key values are converted to it
+    private transient Class<?>[] keyClasses;
+
+    //only set for partitionedJoin, lines of the key groups of other subtasks are never looked up here
+    private transient SideKeyGroupFilter keyGroupFilter;
+
+    //only set when the cache is shared with the other subtasks of the TaskManager
+    private transient SharedAllCache sharedCache;
+
+    private transient Runnable sharedReloader;
+
     public AllReqRow(SideInfo sideInfo){
         this.sideInfo = sideInfo;
 
@@ -58,15 +102,205 @@ public abstract class AllReqRow extends RichFlatMapFunction<Row, Row> implements
     @Override
     public void open(Configuration parameters) throws Exception {
         super.open(parameters);
+        cacheStoreRef = new AtomicReference<>();
+        initSideRowLayout();
+        initKeyClasses();
+        initKeyGroupFilter();
+        SideTableInfo sideTableInfo = sideInfo.getSideTableInfo();
+        String cacheIdentity = buildCacheIdentity();
+        if(cacheIdentity != null){
+            sharedCache = SharedAllCacheRegistry.acquire(cacheIdentity);
+            cacheStoreRef = sharedCache.getStoreRef();
+            sharedCache.loadIfAbsent(this::initCache);
+            LOG.info("----- all cacheRef init end, shared cache of side table {} -----", sideTableInfo.getName());
+            initMetric();
+
+            sharedReloader = this::reloadCache;
+            sharedCache.addReloader(sharedReloader, sideTableInfo.getCacheTimeout());
+            return;
+        }
+
         initCache();
         System.out.println("----- all cacheRef init end-----");
+        initMetric();
 
         //start reload cache thread
-        SideTableInfo sideTableInfo = sideInfo.getSideTableInfo();
         es = Executors.newSingleThreadScheduledExecutor(new DTThreadFactory("cache-all-reload"));
         es.scheduleAtFixedRate(() -> reloadCache(), sideTableInfo.getCacheTimeout(), sideTableInfo.getCacheTimeout(), TimeUnit.MILLISECONDS);
     }
 
+    @Override
+    public void close() throws Exception {
+        if(sharedCache != null){
+            SharedAllCacheRegistry.release(sharedCache, sharedReloader);
+            sharedCache = null;
+        }
+
+        if(es != null){
+            es.shutdownNow();
+        }
+        super.close();
+    }
+
+    /**
+     * Subtasks loading the same data with the same line layout share one cache, not possible with partitionedJoin
+     * as every subtask only loads its own key groups.
+     * @return null if the cache is not shared
+     */
+    private String buildCacheIdentity(){
+        String sourceIdentity = getCacheSourceIdentity();
+        if(sourceIdentity == null || keyGroupFilter != null){
+            return null;
+        }
+
+        SideTableInfo sideTableInfo = sideInfo.getSideTableInfo();
+        return getClass().getName() + "|" + sourceIdentity + "|" + String.join(",", sideRowFields)
+                + "|" + sideInfo.getEqualFieldList() + "|" + sideTableInfo.getCacheStore() + "|" + sideTableInfo.getCacheTimeout();
+    }
+
+    /**
+     * Identity of the data loaded into cache, e.g. url, table and query.
+     * Subtasks of the TaskManager with the same identity share one cache and one reload thread,
+     * the reload of a subtask must then only work on the store given by {@link #getCacheStore()} and {@link #switchCacheStore}.
+     * @return null if the cache can't be shared
+     */
+    protected String getCacheSourceIdentity(){
+        return null;
+    }
+
+    /**
+     * Side lines are cached as Object[] instead of a map per line.
+     * The selected side fields take the positions given by sideFieldIndex, equal fields which are not selected are appended.
+     */
+    private void initSideRowLayout(){
+        Map<Integer, Integer> sideFieldIndex = sideInfo.getSideFieldIndex();
+        String[] selectFields = new String[sideFieldIndex.size()];
+        sideOutIndex = new int[sideFieldIndex.size()];
+        sideRowPosition = new int[sideFieldIndex.size()];
+        int i = 0;
+        for(Map.Entry<Integer, Integer> entry : sideFieldIndex.entrySet()){
+            sideOutIndex[i] = entry.getKey();
+            sideRowPosition[i] = entry.getValue();
+            selectFields[entry.getValue()] = sideInfo.getSideFieldNameIndex().get(entry.getKey());
+            i++;
+        }
+
+        List<String> fields = Lists.newArrayList(selectFields);
+        List<String> equalFieldList = sideInfo.getEqualFieldList();
+        sideKeyPosition = new int[equalFieldList.size()];
+        for(int j = 0; j < equalFieldList.size(); j++){
+            int position = fields.indexOf(equalFieldList.get(j));
+            if(position == -1){
+                position = fields.size();
+                fields.add(equalFieldList.get(j));
+            }
+            sideKeyPosition[j] = position;
+        }
+
+        for(String extraField : getExtraSideRowFields()){
+            if(!fields.contains(extraField)){
+                fields.add(extraField);
+            }
+        }
+
+        sideRowFields = fields.toArray(new String[0]);
+    }
+
+    private void initKeyClasses(){
+        List<Integer> equalValIndex = sideInfo.getEqualValIndex();
+        keyClasses = new Class<?>[equalValIndex.size()];
+        for(int i = 0; i < keyClasses.length; i++){
+            keyClasses[i] = sideInfo.getRowTypeInfo().getTypeAt(equalValIndex.get(i)).getTypeClass();
+        }
+    }
+
+    private void initKeyGroupFilter(){
+        if(!sideInfo.getSideTableInfo().isPartitionedJoin()){
+            return;
+        }
+
+        keyGroupFilter = new SideKeyGroupFilter(getRuntimeContext().getIndexOfThisSubtask(),
+                getRuntimeContext().getNumberOfParallelSubtasks(), getRuntimeContext().getMaxNumberOfParallelSubtasks(), keyClasses);
+    }
+
+    /**
+     * Fields to keep in the cached side line besides the selected and equal fields.
+     */
+    protected List<String> getExtraSideRowFields(){
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return field names of the side line, the name at index i is the field to put at position i of the line
+     */
+    protected String[] getSideRowFields(){
+        return sideRowFields;
+    }
+
+    /**
+     * @return position of the side field in side line, -1 if the field is not cached
+     */
+    protected int getSideRowPosition(String fieldName){
+        for(int i = 0; i < sideRowFields.length; i++){
+            if(sideRowFields[i].equals(fieldName)){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Row fillData(Row input, Object sideInput) {
+        Object[] sideRow = (Object[]) sideInput;
+        Row row = new Row(sideInfo.getOutFieldInfoList().size());
+        for (Map.Entry<Integer, Integer> entry : sideInfo.getInFieldIndex().entrySet()) {
+            Object obj = input.getField(entry.getValue());
+            obj = convertTimeIndictorTypeInfo(entry.getValue(), obj);
+            row.setField(entry.getKey(), obj);
+        }
+
+        if (sideRow != null) {
+            for (int i = 0; i < sideOutIndex.length; i++) {
+                row.setField(sideOutIndex[i], sideRow[sideRowPosition[i]]);
+            }
+        }
+
+        return row;
+    }
+
+    private void initMetric(){
+        getRuntimeContext().getMetricGroup().gauge(MetricConstant.DT_SIDE_CACHE_ROWS_GAUGE, (Gauge<Long>) () -> {
+            AbsAllCacheStore cacheStore = cacheStoreRef.get();
+            return cacheStore == null ? 0L : cacheStore.getRowCount();
+        });
+        getRuntimeContext().getMetricGroup().gauge(MetricConstant.DT_SIDE_CACHE_OFF_HEAP_BYTES_GAUGE, (Gauge<Long>) () -> {
+            AbsAllCacheStore cacheStore = cacheStoreRef.get();
+            return cacheStore == null ? 0L : cacheStore.getOffHeapBytes();
+        });
+    }
+
+    /**
+     * Empty store of the type configured by cacheStore, to load the side table into.
+     */
+    protected AbsAllCacheStore newCacheStore(){
+        if(ECacheStoreType.OFFHEAP.name().equalsIgnoreCase(sideInfo.getSideTableInfo().getCacheStore())){
+            return new OffHeapAllCacheStore();
+        }
+
+        return new HeapAllCacheStore();
+    }
+
+    /**
+     * Publish a fully loaded store, the old one is released once no lookup holds it.
+     */
+    protected void switchCacheStore(AbsAllCacheStore cacheStore){
+        cacheStoreRef.set(cacheStore);
+    }
+
+    protected AbsAllCacheStore getCacheStore(){
+        return cacheStoreRef.get();
+    }
+
     protected Object convertTimeIndictorTypeInfo(Integer index, Object obj) {
         boolean isTimeIndicatorTypeInfo = TimeIndicatorTypeInfo.class.isAssignableFrom(sideInfo.getRowTypeInfo().getTypeAt(index).getClass());
 
@@ -77,5 +311,52 @@ public abstract class AllReqRow extends RichFlatMapFunction<Row, Row> implements
         return obj;
     }
 
+    /**
+     * Key of the input row to look up the cached side data.
+     * @return null if any equal field of the input row is null
+     */
+    protected SideCacheKey buildInputKey(Row input){
+        List<Integer> equalValIndex = sideInfo.getEqualValIndex();
+        if(equalValIndex.size() == 1){
+            Object equalObj = input.getField(equalValIndex.get(0));
+            return equalObj == null ? null : SideCacheKey.of(equalObj);
+        }
+
+        Object[] equalValues = new Object[equalValIndex.size()];
+        for(int i = 0; i < equalValues.length; i++){
+            equalValues[i] = input.getField(equalValIndex.get(i));
+            if(equalValues[i] == null){
+                return null;
+            }
+        }
+
+        return SideCacheKey.of(Arrays.asList(equalValues));
+    }
+
+    /**
+     * Key of one side table line loaded into cache, the counterpart of {@link #buildInputKey(Row)}.
+     * The side values are converted to the types of the input fields first, e.g. an int column joined with a varchar field.
+     */
+    protected SideCacheKey buildSideKey(Object[] sideRow){
+        if(sideKeyPosition.length == 1){
+            return SideCacheKey.of(ClassUtil.convertToClass(sideRow[sideKeyPosition[0]], keyClasses[0]));
+        }
+
+        Object[] keyValues = new Object[sideKeyPosition.length];
+        for(int i = 0; i < keyValues.length; i++){
+            keyValues[i] = ClassUtil.convertToClass(sideRow[sideKeyPosition[i]], keyClasses[i]);
+        }
+
+        return SideCacheKey.of(Arrays.asList(keyValues));
+    }
+
+    /**
+     * With partitionedJoin the input is keyed by the join fields, a line only needs to be cached by the subtask its join key is routed to.
+     * @return false if the side line can be skipped by this subtask
+     */
+    protected boolean isLocalSideRow(Object[] sideRow){
+        return keyGroupFilter == null || keyGroupFilter.isLocalKey(sideRow, sideKeyPosition);
+    }
+
 
 }
@@ -20,11 +20,16 @@
 
 package com.dtstack.flink.sql.side;
 
+import com.dtstack.flink.sql.enums.ECacheContentType;
 import com.dtstack.flink.sql.enums.ECacheType;
 import com.dtstack.flink.sql.metric.MetricConstant;
 import com.dtstack.flink.sql.side.cache.AbsSideCache;
 import com.dtstack.flink.sql.side.cache.CacheObj;
+import com.dtstack.flink.sql.side.cache.LFUSideCache;
 import com.dtstack.flink.sql.side.cache.LRUSideCache;
+import com.dtstack.flink.sql.side.cache.SideCacheKey;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.apache.calcite.sql.JoinType;
 import org.apache.flink.configuration.Configuration;
 import org.apache.flink.metrics.Counter;
@@ -40,6 +45,9 @@ import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * All interfaces inherit naming rules: type + "AsyncReqRow" such as == "MysqlAsyncReqRow
@@ -59,6 +67,13 @@ public abstract class AsyncReqRow extends RichAsyncFunction<Row, Row> implements
 
     protected transient Counter parseErrorRecords;
 
+    protected transient Counter coalescedRequests;
+
+    private transient SideLookupBatcher lookupBatcher;
+
+    /** key: cache key, value: the lookup being queried; later misses of the same key wait on it */
+    private transient Map<SideCacheKey, SideLookupReq> inFlightLookups;
+
     private static int TIMEOUT_LOG_FLUSH_NUM = 10;
     private int timeOutNum = 0;
 
@@ -73,11 +88,32 @@ public abstract class AsyncReqRow extends RichAsyncFunction<Row, Row> implements
         }
 
         timeOutNum++;
+        detachWaiter(input, resultFuture);
         resultFuture.complete(null);
     }
 
+    /**
+     * Detach the timed out row from the lookup it waits on; a lookup left without waiters is not joined
+     * by later misses any more, otherwise a lookup never answered would make every later miss of its key time out too.
+     */
+    private void detachWaiter(Row input, ResultFuture<Row> resultFuture){
+        Map<String, Object> inputParams = parseInputParam(input);
+        if(inputParams == null || inFlightLookups == null){
+            return;
+        }
+
+        SideCacheKey key = buildCacheKey(inputParams);
+        synchronized (inFlightLookups){
+            SideLookupReq pending = inFlightLookups.get(key);
+            if(pending != null && pending.removeWaiter(resultFuture) && pending.getWaiters().isEmpty()){
+                inFlightLookups.remove(key);
+            }
+        }
+    }
+
     private void initMetric() {
         parseErrorRecords = getRuntimeContext().getMetricGroup().counter(MetricConstant.DT_NUM_SIDE_PARSE_ERROR_RECORDS);
+        coalescedRequests = getRuntimeContext().getMetricGroup().counter(MetricConstant.DT_NUM_SIDE_COALESCED_REQUESTS);
     }
 
     private void initCache(){
@@ -90,6 +126,9 @@ public abstract class AsyncReqRow extends RichAsyncFunction<Row, Row> implements
         if(ECacheType.LRU.name().equalsIgnoreCase(sideTableInfo.getCacheType())){
             sideCache = new LRUSideCache(sideTableInfo);
             sideInfo.setSideCache(sideCache);
+        }else if(ECacheType.LFU.name().equalsIgnoreCase(sideTableInfo.getCacheType())){
+            sideCache = new LFUSideCache(sideTableInfo, this::reloadCache);
+            sideInfo.setSideCache(sideCache);
         }else{
             throw new RuntimeException("not support side cache with type:" + sideTableInfo.getCacheType());
         }
@@ -97,6 +136,20 @@ public abstract class AsyncReqRow extends RichAsyncFunction<Row, Row> implements
         sideCache.initCache();
     }
 
+    private void initBatch(){
+        SideTableInfo sideTableInfo = sideInfo.getSideTableInfo();
+        if(sideTableInfo.getAsyncBatchSize() <= 1){
+            return;
+        }
+
+        if(!supportBatch()){
+            LOG.warn("side table {} not support batch lookup, ignore {}", sideTableInfo.getName(), SideTableInfo.ASYNC_BATCH_SIZE_KEY);
+            return;
+        }
+
+        lookupBatcher = new SideLookupBatcher(sideTableInfo.getAsyncBatchSize(), sideTableInfo.getAsyncBatchLingerMs(), this::dealBatch);
+    }
+
 
     protected Object convertTimeIndictorTypeInfo(Integer index, Object obj) {
         boolean isTimeIndicatorTypeInfo = TimeIndicatorTypeInfo.class.isAssignableFrom(sideInfo.getRowTypeInfo().getTypeAt(index).getClass());
@@ -112,11 +165,11 @@ public abstract class AsyncReqRow extends RichAsyncFunction<Row, Row> implements
         return obj;
     }
 
-    protected CacheObj getFromCache(String key){
+    protected CacheObj getFromCache(SideCacheKey key){
         return sideInfo.getSideCache().getFromCache(key);
     }
 
-    protected void putCache(String key, CacheObj value){
+    protected void putCache(SideCacheKey key, CacheObj value){
         sideInfo.getSideCache().putCache(key, value);
     }
 
@@ -124,6 +177,196 @@ public abstract class AsyncReqRow extends RichAsyncFunction<Row, Row> implements
         return sideInfo.getSideCache() != null;
     }
 
+    @Override
+    public void asyncInvoke(Row input, ResultFuture<Row> resultFuture) throws Exception {
+        Map<String, Object> inputParams = parseInputParam(input);
+        if(inputParams == null){
+            dealMissKey(input, resultFuture);
+            return;
+        }
+
+        SideCacheKey key = buildCacheKey(inputParams);
+        if(openCache()){
+            CacheObj val = getFromCache(key);
+            if(val != null){
+                dealCacheData(input, val, resultFuture);
+                return;
+            }
+        }
+
+        SideLookupReq req = new SideLookupReq(key, inputParams);
+        req.addWaiter(input, resultFuture);
+        synchronized (inFlightLookups){
+            SideLookupReq pending = inFlightLookups.get(key);
+            if(pending != null){
+                pending.addWaiters(req.getWaiters());
+                coalescedRequests.inc();
+                return;
+            }
+
+            inFlightLookups.put(key, req);
+        }
+
+        if(lookupBatcher != null){
+            lookupBatcher.add(req);
+            return;
+        }
+
+        try {
+            handleAsyncInvoke(req);
+        } catch (Exception e) {
+            failLookup(req, e);
+        }
+    }
+
+    /**
+     * Query the key again in background; not batched or coalesced so the cache keeps serving the old value meanwhile.
+     */
+    private CompletableFuture<CacheObj> reloadCache(SideCacheKey key, Map<String, Object> lookupParams){
+        SideLookupReq req = SideLookupReq.forRefresh(key, lookupParams);
+        try {
+            handleAsyncInvoke(req);
+        } catch (Exception e) {
+            failLookup(req, e);
+        }
+
+        return req.getRefreshFuture();
+    }
+
+    /**
+     * Extract the equal field values of the join condition from the input row.
+     * @return key:side table equal field name, value: value in the input row; null if any of them is null
+     */
+    protected Map<String, Object> parseInputParam(Row input){
+        Map<String, Object> inputParams = Maps.newLinkedHashMap();
+        for (int i = 0; i < sideInfo.getEqualValIndex().size(); i++) {
+            Integer conValIndex = sideInfo.getEqualValIndex().get(i);
+            Object equalObj = input.getField(conValIndex);
+            if(equalObj == null){
+                return null;
+            }
+
+            inputParams.put(sideInfo.getEqualFieldList().get(i), equalObj);
+        }
+
+        return inputParams;
+    }
+
+    protected SideCacheKey buildCacheKey(Map<String, Object> inputParams){
+        return SideCacheKey.of(inputParams.values());
+    }
+
+    /**
+     * Query the side table for one key; the implementation must finish the request
+     * with {@link #completeLookup} or {@link #failLookup}.
+     */
+    protected abstract void handleAsyncInvoke(SideLookupReq req) throws Exception;
+
+    protected boolean supportBatch(){
+        return false;
+    }
+
+    /**
+     * Query the side table for several keys with one request; every request of the batch must be
+     * finished with {@link #completeLookup} or {@link #failLookup}.
+     */
+    protected void handleBatchInvoke(List<SideLookupReq> reqs) throws Exception {
+        throw new UnsupportedOperationException("batch lookup not support by " + getClass().getSimpleName());
+    }
+
+    private void dealBatch(List<SideLookupReq> reqs){
+        try {
+            handleBatchInvoke(reqs);
+        } catch (Throwable e) {
+            LOG.error("batch lookup side table error", e);
+            for(SideLookupReq req : reqs){
+                failLookup(req, e);
+            }
+        }
+    }
+
+    /**
+     * Put the result of the key into cache and fill every row waiting on it.
+     */
+    protected void completeLookup(SideLookupReq req, CacheObj val){
+        if(req.isRefresh()){
+            //the cache replaces the entry itself
+            req.getRefreshFuture().complete(val);
+            return;
+        }
+
+        if(openCache()){
+            sideInfo.getSideCache().putCache(req.getCacheKey(), val, req.getInputParams());
+        }
+
+        for(SideLookupReq.Waiter waiter : finishInFlight(req)){
+            dealCacheData(waiter.getInput(), val, waiter.getResultFuture());
+        }
+    }
+
+    protected void failLookup(SideLookupReq req, Throwable t){
+        if(req.isRefresh()){
+            req.getRefreshFuture().completeExceptionally(t);
+            return;
+        }
+
+        for(SideLookupReq.Waiter waiter : finishInFlight(req)){
+            waiter.getResultFuture().completeExceptionally(t);
+        }
+    }
+
+    /**
+     * Finish every row waiting on the key without output, for connectors skipping records on lookup error.
+     */
+    protected void dropLookup(SideLookupReq req){
+        if(req.isRefresh()){
+            req.getRefreshFuture().completeExceptionally(new RuntimeException("reload side table key:" + req.getCacheKey() + " error"));
+            return;
+        }
+
+        for(SideLookupReq.Waiter waiter : finishInFlight(req)){
+            waiter.getResultFuture().complete(null);
+        }
+    }
+
+    /**
+     * Stop coalescing new misses into the request; waiters can't be attached any more after this.
+     */
+    private List<SideLookupReq.Waiter> finishInFlight(SideLookupReq req){
+        synchronized (inFlightLookups){
+            inFlightLookups.remove(req.getCacheKey(), req);
+        }
+
+        return req.getWaiters();
+    }
+
+    protected void dealCacheData(Row input, CacheObj val, ResultFuture<Row> resultFuture){
+        if(ECacheContentType.MissVal == val.getType()){
+            dealMissKey(input, resultFuture);
+        }else if(ECacheContentType.SingleLine == val.getType()){
+            try {
+                Row row = fillData(input, val.getContent());
+                resultFuture.complete(Collections.singleton(row));
+            } catch (Exception e) {
+                dealFillDataError(resultFuture, e, input, val.getContent());
+            }
+        }else if(ECacheContentType.MultiLine == val.getType()){
+            List<Row> rowList = Lists.newArrayList();
+            Object debugData = null;
+            try {
+                for(Object one : (List) val.getContent()){
+                    debugData = one;
+                    rowList.add(fillData(input, one));
+                }
+                resultFuture.complete(rowList);
+            } catch (Exception e) {
+                dealFillDataError(resultFuture, e, input, debugData);
+            }
+        }else{
+            resultFuture.completeExceptionally(new RuntimeException("not support cache obj type " + val.getType()));
+        }
+    }
+
     protected void dealMissKey(Row input, ResultFuture<Row> resultFuture){
         if(sideInfo.getJoinType() == JoinType.LEFT){
             //Reserved left table data
@@ -149,12 +392,17 @@ public abstract class AsyncReqRow extends RichAsyncFunction<Row, Row> implements
     @Override
     public void open(Configuration parameters) throws Exception {
         super.open(parameters);
+        inFlightLookups = Maps.newHashMap();
         initCache();
         initMetric();
+        initBatch();
     }
 
     @Override
     public void close() throws Exception {
+        if(lookupBatcher != null){
+            lookupBatcher.close();
+        }
         super.close();
     }
 }
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.dtstack.flink.sql.side;
+
+import org.apache.flink.api.java.tuple.Tuple;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Decide whether a side table line can be joined by this subtask when the input stream is keyed by the join fields
+ * before the join (partitionedJoin), so that a subtask only needs to cache the lines of its own key groups.
+ * The key is hashed the way keyBy(String...) hashes a row: a tuple of the field values, assigned by key group.
+ * Company: www.dtstack.com
+ */
+
+public class SideKeyGroupFilter implements Serializable {
+
+    private static final long serialVersionUID = -6524717409781256301L;
+
+    private final int subtaskIndex;
+
+    private final int parallelism;
+
+    private final int maxParallelism;
+
+    //type of each join field in the input stream, side values are converted to it before hashing
+    private final Class<?>[] keyClasses;
+
+    public SideKeyGroupFilter(int subtaskIndex, int parallelism, int maxParallelism, Class<?>[] keyClasses){
+        this.subtaskIndex = subtaskIndex;
+        this.parallelism = parallelism;
+        this.maxParallelism = maxParallelism;
+        this.keyClasses = keyClasses;
+    }
+
+    /**
+     * @param sideRow side table line
+     * @param keyPositions position of each join field in the line, in the order of the join fields
+     * @return true if a row of the input stream with the same join key is routed to this subtask,
+     * false for lines with a null join field as they never match
+     */
+    public boolean isLocalKey(Object[] sideRow, int[] keyPositions){
+        Tuple key = Tuple.newInstance(keyPositions.length);
+        for(int i = 0; i < keyPositions.length; i++){
+            Object value = sideRow[keyPositions[i]];
+            if(value == null){
+                return false;
+            }
+            key.setField(convert(value, keyClasses[i]), i);
+        }
+
+        return KeyGroupRangeAssignment.assignKeyToParallelOperator(key, maxParallelism, parallelism) == subtaskIndex;
+    }
+
+    /**
+     * Numbers of the same value hash differently by type, e.g. Long -1 and Integer -1.
+     * Side tables storing everything as text (e.g. redis) have numeric strings parsed first.
+     */
+    private static Object convert(Object value, Class<?> targetClass){
+        if(targetClass == null || targetClass.isInstance(value) || !Number.class.isAssignableFrom(targetClass)){
+            return value;
+        }
+
+        Number number;
+        if(value instanceof Number){
+            number = (Number) value;
+        } else if(value instanceof String){
+            try{
+                number = new BigDecimal(((String) value).trim());
+            }catch (NumberFormatException e){
+                return value;
+            }
+        } else {
+            return value;
+        }
+
+        if(targetClass == Integer.class){
+            return number.intValue();
+        } else if(targetClass == Long.class){
+            return number.longValue();
+        } else if(targetClass == Short.class){
+            return number.shortValue();
+        } else if(targetClass == Byte.class){
+            return number.byteValue();
+        } else if(targetClass == Double.class){
+            return number.doubleValue();
+        } else if(targetClass == Float.class){
+            return number.floatValue();
+        } else if(targetClass == BigDecimal.class){
+            return new BigDecimal(number.toString());
+        } else if(targetClass == BigInteger.class){
+            return new BigDecimal(number.toString()).toBigInteger();
+        }
+
+        return value;
+    }
+}
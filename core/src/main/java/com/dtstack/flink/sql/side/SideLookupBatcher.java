@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.dtstack.flink.sql.side;
+
+import com.dtstack.flink.sql.factory.DTThreadFactory;
+import com.dtstack.flink.sql.side.cache.SideCacheKey;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Buffer cache-miss lookups of one async side operator and hand them over as one batch
+ * when the batch size is reached or the linger time is up.
+ * Lookups of the same key inside one batch are merged into a single request.
+ * Company: www.dtstack.com
+ */
+
+public class SideLookupBatcher {
+
+    private final int batchSize;
+
+    private final Consumer<List<SideLookupReq>> batchHandler;
+
+    private final Object lock = new Object();
+
+    private Map<SideCacheKey, SideLookupReq> buffer = Maps.newLinkedHashMap();
+
+    private ScheduledExecutorService flushScheduler;
+
+    public SideLookupBatcher(int batchSize, long lingerMs, Consumer<List<SideLookupReq>> batchHandler){
+        this.batchSize = batchSize;
+        this.batchHandler = batchHandler;
+        this.flushScheduler = Executors.newSingleThreadScheduledExecutor(new DTThreadFactory("side-batch-flush"));
+        this.flushScheduler.scheduleWithFixedDelay(this::flush, lingerMs, lingerMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void add(SideLookupReq req){
+        List<SideLookupReq> batch = null;
+        synchronized (lock){
+            SideLookupReq pending = buffer.get(req.getCacheKey());
+            if(pending != null){
+                pending.addWaiters(req.getWaiters());
+                return;
+            }
+
+            buffer.put(req.getCacheKey(), req);
+            if(buffer.size() >= batchSize){
+                batch = drain();
+            }
+        }
+
+        if(batch != null){
+            batchHandler.accept(batch);
+        }
+    }
+
+    public void flush(){
+        List<SideLookupReq> batch;
+        synchronized (lock){
+            if(buffer.isEmpty()){
+                return;
+            }
+            batch = drain();
+        }
+
+        batchHandler.accept(batch);
+    }
+
+    public void close(){
+        flushScheduler.shutdown();
+        flush();
+    }
+
+    private List<SideLookupReq> drain(){
+        List<SideLookupReq> batch = Lists.newArrayList(buffer.values());
+        buffer = Maps.newLinkedHashMap();
+        return batch;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.dtstack.flink.sql.side;
+
+import com.dtstack.flink.sql.side.cache.CacheObj;
+import com.dtstack.flink.sql.side.cache.SideCacheKey;
+import com.google.common.collect.Lists;
+import org.apache.flink.streaming.api.functions.async.ResultFuture;
+import org.apache.flink.types.Row;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * One pending lookup of a side table key.
+ * Every input row waiting for the same key is attached as a waiter and
+ * is filled from the single result once the lookup is completed.
+ * Company: www.dtstack.com
+ */
+
+public class SideLookupReq {
+
+    private SideCacheKey cacheKey;
+
+    //key: equal field name of the side table, value: the value from the input row
+    private Map<String, Object> inputParams;
+
+    private List<Waiter> waiters = Lists.newArrayList();
+
+    //only set when the lookup reloads a cached entry, completed with the new value instead of filling waiters
+    private CompletableFuture<CacheObj> refreshFuture;
+
+    public SideLookupReq(SideCacheKey cacheKey, Map<String, Object> inputParams){
+        this.cacheKey = cacheKey;
+        this.inputParams = inputParams;
+    }
+
+    public static SideLookupReq forRefresh(SideCacheKey cacheKey, Map<String, Object> inputParams){
+        SideLookupReq req = new SideLookupReq(cacheKey, inputParams);
+        req.refreshFuture = new CompletableFuture<>();
+        return req;
+    }
+
+    public boolean isRefresh(){
+        return refreshFuture != null;
+    }
+
+    public CompletableFuture<CacheObj> getRefreshFuture() {
+        return refreshFuture;
+    }
+
+    public void addWaiter(Row input, ResultFuture<Row> resultFuture){
+        waiters.add(new Waiter(input, resultFuture));
+    }
+
+    public void addWaiters(List<Waiter> others){
+        waiters.addAll(others);
+    }
+
+    /**
+     * @return true if a row waited on the result future
+     */
+    public boolean removeWaiter(ResultFuture<Row> resultFuture){
+        return waiters.removeIf(waiter -> waiter.resultFuture == resultFuture);
+    }
+
+    public SideCacheKey getCacheKey() {
+        return cacheKey;
+    }
+
+    public Map<String, Object> getInputParams() {
+        return inputParams;
+    }
+
+    public List<Waiter> getWaiters() {
+        return waiters;
+    }
+
+    public static class Waiter {
+
+        private Row input;
+
+        private ResultFuture<Row> resultFuture;
+
+        Waiter(Row input, ResultFuture<Row> resultFuture){
+            this.input = input;
+            this.resultFuture = resultFuture;
+        }
+
+        public Row getInput() {
+            return input;
+        }
+
+        public ResultFuture<Row> getResultFuture() {
+            return resultFuture;
+        }
+    }
+}
@@ -51,7 +51,7 @@ public abstract class SideTableInfo extends TableInfo implements Serializable {
 
     public static final String ASYNC_TIMEOUT_KEY = "asyncTimeout";
 
-    private String cacheType = "none";//None or LRU or ALL
+    private String cacheType = "none";//None or LRU or LFU or ALL
 
     private int cacheSize = 10000;
 
@@ -69,6 +69,25 @@ public abstract class SideTableInfo extends TableInfo implements Serializable {
 
     private int asyncPoolSize = 0;
 
+    public static final String ASYNC_BATCH_SIZE_KEY = "asyncBatchSize";
+
+    public static final String ASYNC_BATCH_LINGER_MS_KEY = "asyncBatchLingerMs";
+
+    //batch lookup is off when less than 2
+    private int asyncBatchSize = 1;
+
+    private long asyncBatchLingerMs = 5;
+
+    public static final String CACHE_REFRESH_MS_KEY = "cacheRefreshMs";
+
+    //LFU cache only, refresh ahead is off when 0
+    private long cacheRefreshMs = 0;
+
+    public static final String CACHE_STORE_KEY = "cacheStore";
+
+    //ALL cache only, heap or offheap
+    private String cacheStore = "heap";
+
     public int getAsyncPoolSize() {
         return asyncPoolSize;
     }
@@ -77,6 +96,38 @@ public abstract class SideTableInfo extends TableInfo implements Serializable {
         this.asyncPoolSize = asyncPoolSize;
     }
 
+    public int getAsyncBatchSize() {
+        return asyncBatchSize;
+    }
+
+    public void setAsyncBatchSize(int asyncBatchSize) {
+        this.asyncBatchSize = asyncBatchSize;
+    }
+
+    public long getAsyncBatchLingerMs() {
+        return asyncBatchLingerMs;
+    }
+
+    public void setAsyncBatchLingerMs(long asyncBatchLingerMs) {
+        this.asyncBatchLingerMs = asyncBatchLingerMs;
+    }
+
+    public long getCacheRefreshMs() {
+        return cacheRefreshMs;
+    }
+
+    public void setCacheRefreshMs(long cacheRefreshMs) {
+        this.cacheRefreshMs = cacheRefreshMs;
+    }
+
+    public String getCacheStore() {
+        return cacheStore;
+    }
+
+    public void setCacheStore(String cacheStore) {
+        this.cacheStore = cacheStore;
+    }
+
     public RowTypeInfo getRowTypeInfo() {
         Class[] fieldClass = getFieldClasses();
         TypeInformation<?>[] types = new TypeInformation[fieldClass.length];
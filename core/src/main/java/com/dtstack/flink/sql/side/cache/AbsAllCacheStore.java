@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.dtstack.flink.sql.side.cache;
+
+import java.util.List;
+
+/**
+ * Storage of the whole side table for ALL mode.
+ * A store is filled by the loading thread first and is only read after it is published,
+ * so implementations need no synchronization between put and get.
+ * A published store can be shared by the subtasks of a TaskManager, get must allow concurrent callers.
+ * Company: www.dtstack.com
+ */
+
+public abstract class AbsAllCacheStore {
+
+    /**
+     * Add one side table line under the key, lines of the same key are kept in insert order.
+     * @param sideRow values of the line in the positions given by AllReqRow#getSideRowFields
+     */
+    public abstract void put(SideCacheKey key, Object[] sideRow);
+
+    /**
+     * @return lines of the key, null if not exists
+     */
+    public abstract List<Object[]> get(SideCacheKey key);
+
+    /**
+     * Replace all lines of the key, an empty list removes the key.
+     * Unlike put, it is called on a published store while lookups are reading it.
+     */
+    public void replace(SideCacheKey key, List<Object[]> sideRows) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " can't be changed after loaded");
+    }
+
+    public abstract long getRowCount();
+
+    /**
+     * @return bytes of memory held outside the java heap
+     */
+    public abstract long getOffHeapBytes();
+}
@@ -22,6 +22,8 @@ package com.dtstack.flink.sql.side.cache;
 
 import com.dtstack.flink.sql.side.SideTableInfo;
 
+import java.util.Map;
+
 /**
  * Reason:
  * Date: 2018/9/10
@@ -40,7 +42,14 @@ public abstract class AbsSideCache {
 
     public abstract void initCache();
 
-    public abstract CacheObj getFromCache(String key);
+    public abstract CacheObj getFromCache(SideCacheKey key);
+
+    public abstract void putCache(SideCacheKey key, CacheObj value);
 
-    public abstract void putCache(String key, CacheObj value);
+    /**
+     * @param lookupParams the join values the value was queried with, kept by caches able to reload entries
+     */
+    public void putCache(SideCacheKey key, CacheObj value, Map<String, Object> lookupParams){
+        putCache(key, value);
+    }
 }
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.dtstack.flink.sql.side.cache;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ALL cache store keeping side table lines as java objects on heap
+ * Company: www.dtstack.com
+ */
+
+public class HeapAllCacheStore extends AbsAllCacheStore {
+
+    private Map<SideCacheKey, List<Object[]>> cache = Maps.newConcurrentMap();
+
+    private long rowCount = 0;
+
+    @Override
+    public void put(SideCacheKey key, Object[] sideRow) {
+        cache.computeIfAbsent(key, k -> Lists.newArrayList()).add(sideRow);
+        rowCount++;
+    }
+
+    @Override
+    public List<Object[]> get(SideCacheKey key) {
+        return cache.get(key);
+    }
+
+    /**
+     * The list is swapped as a whole, a lookup keeps seeing the lines it got before.
+     */
+    @Override
+    public void replace(SideCacheKey key, List<Object[]> sideRows) {
+        List<Object[]> oldRows = sideRows.isEmpty() ? cache.remove(key) : cache.put(key, sideRows);
+        rowCount += sideRows.size() - (oldRows == null ? 0 : oldRows.size());
+    }
+
+    @Override
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public long getOffHeapBytes() {
+        return 0;
+    }
+}
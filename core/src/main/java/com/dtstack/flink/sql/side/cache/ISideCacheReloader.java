@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.dtstack.flink.sql.side.cache;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Query the side table again for a cached key, used by caches refreshing entries in background.
+ * Company: www.dtstack.com
+ */
+
+public interface ISideCacheReloader {
+
+    /**
+     * @param key cache key
+     * @param lookupParams key: side table equal field name, value: the join value the entry was loaded with
+     */
+    CompletableFuture<CacheObj> reload(SideCacheKey key, Map<String, Object> lookupParams);
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.dtstack.flink.sql.side.cache;
+
+import com.dtstack.flink.sql.side.SideTableInfo;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Side cache with W-TinyLFU admission (caffeine), so hot keys are not evicted by one-off keys.
+ * When cacheRefreshMs is set, an entry older than it is still served while it is reloaded in background,
+ * and is only dropped once cacheTTLMs has passed without a successful reload.
+ * Company: www.dtstack.com
+ */
+
+public class LFUSideCache extends AbsSideCache {
+
+    protected transient LoadingCache<SideCacheKey, LookupEntry> cache;
+
+    private transient ISideCacheReloader reloader;
+
+    public LFUSideCache(SideTableInfo sideTableInfo, ISideCacheReloader reloader) {
+        super(sideTableInfo);
+        this.reloader = reloader;
+    }
+
+    @Override
+    public void initCache() {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(sideTableInfo.getCacheSize())
+                .expireAfterWrite(sideTableInfo.getCacheTimeout(), TimeUnit.MILLISECONDS)
+                //reload is asynchronous itself, trigger it from the reading thread
+                .executor(Runnable::run);
+
+        if(sideTableInfo.getCacheRefreshMs() > 0){
+            builder.refreshAfterWrite(sideTableInfo.getCacheRefreshMs(), TimeUnit.MILLISECONDS);
+        }
+
+        cache = builder.build(new RefreshLoader());
+    }
+
+    @Override
+    public CacheObj getFromCache(SideCacheKey key) {
+        if(cache == null){
+            return null;
+        }
+
+        LookupEntry entry = cache.getIfPresent(key);
+        return entry == null ? null : entry.value;
+    }
+
+    @Override
+    public void putCache(SideCacheKey key, CacheObj value) {
+        putCache(key, value, null);
+    }
+
+    @Override
+    public void putCache(SideCacheKey key, CacheObj value, Map<String, Object> lookupParams) {
+        if(cache == null){
+            return;
+        }
+
+        cache.put(key, new LookupEntry(value, lookupParams));
+    }
+
+    private class RefreshLoader implements CacheLoader<SideCacheKey, LookupEntry> {
+
+        @Override
+        public LookupEntry load(SideCacheKey key) {
+            //entries are only put after a lookup, never loaded on read
+            throw new UnsupportedOperationException("side cache not support load key:" + key);
+        }
+
+        @Override
+        public CompletableFuture<LookupEntry> asyncReload(SideCacheKey key, LookupEntry oldValue, Executor executor) {
+            if(oldValue.lookupParams == null){
+                //keep the old value until it expires
+                return CompletableFuture.completedFuture(oldValue);
+            }
+
+            return reloader.reload(key, oldValue.lookupParams)
+                    .thenApply(value -> new LookupEntry(value, oldValue.lookupParams));
+        }
+    }
+
+    private static class LookupEntry {
+
+        private final CacheObj value;
+
+        private final Map<String, Object> lookupParams;
+
+        LookupEntry(CacheObj value, Map<String, Object> lookupParams){
+            this.value = value;
+            this.lookupParams = lookupParams;
+        }
+    }
+}
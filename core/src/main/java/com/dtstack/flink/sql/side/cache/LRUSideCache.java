@@ -35,7 +35,7 @@ import java.util.concurrent.TimeUnit;
 
 public class LRUSideCache extends AbsSideCache{
 
-    protected transient Cache<String, CacheObj> cache;
+    protected transient Cache<SideCacheKey, CacheObj> cache;
 
     public LRUSideCache(SideTableInfo sideTableInfo) {
         super(sideTableInfo);
@@ -51,7 +51,7 @@ public class LRUSideCache extends AbsSideCache{
     }
 
     @Override
-    public CacheObj getFromCache(String key) {
+    public CacheObj getFromCache(SideCacheKey key) {
         if(cache == null){
             return null;
         }
@@ -60,7 +60,7 @@ public class LRUSideCache extends AbsSideCache{
     }
 
     @Override
-    public void putCache(String key, CacheObj value) {
+    public void putCache(SideCacheKey key, CacheObj value) {
         if(cache == null){
             return;
         }
@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.dtstack.flink.sql.side.cache;
+
+import com.google.common.collect.Lists;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ALL cache store keeping side table lines serialized in direct memory, so a large table costs
+ * neither heap nor GC time. Lines are decoded into java objects only when their key is hit.
+ *
+ * Lines are appended to direct buffer chunks as records:
+ * [long address of previous line of the same key][int key hash][int key length][int line length][key][line]
+ * An open addressing hash index in direct memory points to the latest record of every key,
+ * lookups compare the serialized key bytes.
+ * Company: www.dtstack.com
+ */
+
+public class OffHeapAllCacheStore extends AbsAllCacheStore {
+
+    private static final int DEFAULT_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    private static final int INIT_INDEX_CAPACITY = 1024;
+
+    private static final long EMPTY = -1L;
+
+    private static final int RECORD_HEADER_SIZE = 8 + 4 + 4 + 4;
+
+    //a shared store is read by the subtasks of the TaskManager at the same time, each thread gets its own buffers
+    private static final ThreadLocal<LookupBuffers> LOOKUP_BUFFERS = ThreadLocal.withInitial(LookupBuffers::new);
+
+    private final int chunkSize;
+
+    private OffHeapCodec codec = new OffHeapCodec();
+
+    private List<ByteBuffer> chunks = Lists.newArrayList();
+
+    private ByteBuffer currChunk;
+
+    private LongBuffer index;
+
+    private int indexMask;
+
+    private long keyCount = 0;
+
+    private long rowCount = 0;
+
+    private long offHeapBytes = 0;
+
+    //only used by put, which is called by the loading thread alone
+    private DataOutputSerializer keyOut = new DataOutputSerializer(64);
+
+    private DataOutputSerializer rowOut = new DataOutputSerializer(256);
+
+    public OffHeapAllCacheStore(){
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    OffHeapAllCacheStore(int chunkSize){
+        this.chunkSize = chunkSize;
+        index = allocateIndex(INIT_INDEX_CAPACITY);
+        indexMask = INIT_INDEX_CAPACITY - 1;
+    }
+
+    @Override
+    public void put(SideCacheKey key, Object[] sideRow) {
+        try {
+            keyOut.clear();
+            codec.writeKey(key, keyOut);
+            rowOut.clear();
+            codec.writeRow(sideRow, rowOut);
+        } catch (IOException e) {
+            throw new RuntimeException("serialize side row error", e);
+        }
+
+        int hash = spread(key.hashCode());
+        int slot = findSlot(hash, keyOut.getSharedBuffer(), keyOut.length());
+        long prevAddr = index.get(slot);
+        long addr = append(prevAddr, hash);
+        index.put(slot, addr);
+        rowCount++;
+
+        if(prevAddr == EMPTY){
+            keyCount++;
+            if(keyCount * 2 > index.capacity()){
+                resize();
+            }
+        }
+    }
+
+    @Override
+    public List<Object[]> get(SideCacheKey key) {
+        LookupBuffers buffers = LOOKUP_BUFFERS.get();
+        DataOutputSerializer lookupKeyOut = buffers.keyOut;
+        try {
+            lookupKeyOut.clear();
+            codec.writeKey(key, lookupKeyOut);
+        } catch (IOException e) {
+            throw new RuntimeException("serialize side key error", e);
+        }
+
+        int hash = spread(key.hashCode());
+        long addr = index.get(findSlot(hash, lookupKeyOut.getSharedBuffer(), lookupKeyOut.length()));
+        if(addr == EMPTY){
+            return null;
+        }
+
+        List<Object[]> sideRows = Lists.newArrayList();
+        while (addr != EMPTY){
+            ByteBuffer chunk = chunks.get(chunkIndex(addr));
+            int offset = chunkOffset(addr);
+            int keyLength = chunk.getInt(offset + 12);
+            int rowLength = chunk.getInt(offset + 16);
+            sideRows.add(readRow(chunk, offset + RECORD_HEADER_SIZE + keyLength, rowLength, buffers));
+            addr = chunk.getLong(offset);
+        }
+
+        //records of one key are linked from the latest one
+        Collections.reverse(sideRows);
+        return sideRows;
+    }
+
+    @Override
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public long getOffHeapBytes() {
+        return offHeapBytes;
+    }
+
+    private long append(long prevAddr, int hash){
+        int keyLength = keyOut.length();
+        int rowLength = rowOut.length();
+        int recordSize = RECORD_HEADER_SIZE + keyLength + rowLength;
+        if(currChunk == null || currChunk.remaining() < recordSize){
+            currChunk = ByteBuffer.allocateDirect(Math.max(chunkSize, recordSize));
+            chunks.add(currChunk);
+            offHeapBytes += currChunk.capacity();
+        }
+
+        int offset = currChunk.position();
+        currChunk.putLong(prevAddr)
+                .putInt(hash)
+                .putInt(keyLength)
+                .putInt(rowLength)
+                .put(keyOut.getSharedBuffer(), 0, keyLength)
+                .put(rowOut.getSharedBuffer(), 0, rowLength);
+        return ((long) (chunks.size() - 1) << 32) | offset;
+    }
+
+    /**
+     * @return slot holding the key, or the empty slot to put it
+     */
+    private int findSlot(int hash, byte[] keyBytes, int keyLength){
+        int slot = hash & indexMask;
+        while (true){
+            long addr = index.get(slot);
+            if(addr == EMPTY || keyEquals(addr, hash, keyBytes, keyLength)){
+                return slot;
+            }
+
+            slot = (slot + 1) & indexMask;
+        }
+    }
+
+    private boolean keyEquals(long addr, int hash, byte[] keyBytes, int keyLength){
+        ByteBuffer chunk = chunks.get(chunkIndex(addr));
+        int offset = chunkOffset(addr);
+        if(chunk.getInt(offset + 8) != hash || chunk.getInt(offset + 12) != keyLength){
+            return false;
+        }
+
+        int keyOffset = offset + RECORD_HEADER_SIZE;
+        for(int i = 0; i < keyLength; i++){
+            if(chunk.get(keyOffset + i) != keyBytes[i]){
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private Object[] readRow(ByteBuffer chunk, int rowOffset, int rowLength, LookupBuffers buffers){
+        if(buffers.readBuffer.length < rowLength){
+            buffers.readBuffer = new byte[rowLength];
+        }
+
+        ByteBuffer rowBuffer = chunk.duplicate();
+        rowBuffer.position(rowOffset);
+        rowBuffer.get(buffers.readBuffer, 0, rowLength);
+
+        buffers.rowIn.setBuffer(buffers.readBuffer, 0, rowLength);
+        try {
+            return codec.readRow(buffers.rowIn);
+        } catch (IOException e) {
+            throw new RuntimeException("deserialize side row error", e);
+        }
+    }
+
+    private void resize(){
+        LongBuffer oldIndex = index;
+        int newCapacity = oldIndex.capacity() * 2;
+        offHeapBytes -= (long) oldIndex.capacity() * 8;
+        index = allocateIndex(newCapacity);
+        indexMask = newCapacity - 1;
+        for(int i = 0; i < oldIndex.capacity(); i++){
+            long addr = oldIndex.get(i);
+            if(addr == EMPTY){
+                continue;
+            }
+
+            int hash = chunks.get(chunkIndex(addr)).getInt(chunkOffset(addr) + 8);
+            int slot = hash & indexMask;
+            while (index.get(slot) != EMPTY){
+                slot = (slot + 1) & indexMask;
+            }
+
+            index.put(slot, addr);
+        }
+    }
+
+    private LongBuffer allocateIndex(int capacity){
+        LongBuffer newIndex = ByteBuffer.allocateDirect(capacity * 8).asLongBuffer();
+        for(int i = 0; i < capacity; i++){
+            newIndex.put(i, EMPTY);
+        }
+
+        offHeapBytes += (long) capacity * 8;
+        return newIndex;
+    }
+
+    private static int spread(int hash){
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int chunkIndex(long addr){
+        return (int) (addr >>> 32);
+    }
+
+    private static int chunkOffset(long addr){
+        return (int) addr;
+    }
+
+    private static class LookupBuffers {
+
+        private final DataOutputSerializer keyOut = new DataOutputSerializer(64);
+
+        private final DataInputDeserializer rowIn = new DataInputDeserializer();
+
+        private byte[] readBuffer = new byte[256];
+    }
+}
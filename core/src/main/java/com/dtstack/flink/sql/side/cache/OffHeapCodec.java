@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.dtstack.flink.sql.side.cache;
+
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.util.InstantiationUtil;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+
+/**
+ * Binary form of side cache keys and lines for the off-heap store.
+ * Lines are positional, values are written in order with a type tag.
+ * Keys are compared by their bytes, so a key value must always be written the same way.
+ * Company: www.dtstack.com
+ */
+
+class OffHeapCodec {
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INT = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte FLOAT = 5;
+    private static final byte BOOLEAN = 6;
+    private static final byte SHORT = 7;
+    private static final byte BYTE = 8;
+    private static final byte DECIMAL = 9;
+    private static final byte TIMESTAMP = 10;
+    private static final byte DATE = 11;
+    private static final byte TIME = 12;
+    private static final byte UTIL_DATE = 13;
+    private static final byte BYTES = 14;
+    private static final byte SERIALIZED = 15;
+
+    void writeKey(SideCacheKey key, DataOutputView out) throws IOException {
+        for(int i = 0; i < key.size(); i++){
+            writeValue(key.get(i), out);
+        }
+    }
+
+    void writeRow(Object[] sideRow, DataOutputView out) throws IOException {
+        out.writeInt(sideRow.length);
+        for(Object value : sideRow){
+            writeValue(value, out);
+        }
+    }
+
+    Object[] readRow(DataInputView in) throws IOException {
+        Object[] sideRow = new Object[in.readInt()];
+        for(int i = 0; i < sideRow.length; i++){
+            sideRow[i] = readValue(in);
+        }
+
+        return sideRow;
+    }
+
+    private void writeValue(Object value, DataOutputView out) throws IOException {
+        if(value == null){
+            out.writeByte(NULL);
+        }else if(value instanceof String){
+            out.writeByte(STRING);
+            writeBytes(((String) value).getBytes(StandardCharsets.UTF_8), out);
+        }else if(value instanceof Integer){
+            out.writeByte(INT);
+            out.writeInt((Integer) value);
+        }else if(value instanceof Long){
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        }else if(value instanceof Double){
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        }else if(value instanceof Float){
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        }else if(value instanceof Boolean){
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        }else if(value instanceof Short){
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        }else if(value instanceof Byte){
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        }else if(value instanceof BigDecimal){
+            out.writeByte(DECIMAL);
+            writeBytes(value.toString().getBytes(StandardCharsets.UTF_8), out);
+        }else if(value instanceof Timestamp){
+            out.writeByte(TIMESTAMP);
+            out.writeLong(((Timestamp) value).getTime());
+            out.writeInt(((Timestamp) value).getNanos());
+        }else if(value instanceof Date){
+            out.writeByte(DATE);
+            out.writeLong(((Date) value).getTime());
+        }else if(value instanceof Time){
+            out.writeByte(TIME);
+            out.writeLong(((Time) value).getTime());
+        }else if(value.getClass() == java.util.Date.class){
+            out.writeByte(UTIL_DATE);
+            out.writeLong(((java.util.Date) value).getTime());
+        }else if(value instanceof byte[]){
+            out.writeByte(BYTES);
+            writeBytes((byte[]) value, out);
+        }else if(value instanceof Serializable){
+            out.writeByte(SERIALIZED);
+            writeBytes(InstantiationUtil.serializeObject(value), out);
+        }else{
+            throw new RuntimeException("not support value type in off-heap side cache:" + value.getClass().getName());
+        }
+    }
+
+    private Object readValue(DataInputView in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag){
+            case NULL:
+                return null;
+            case STRING:
+                return new String(readBytes(in), StandardCharsets.UTF_8);
+            case INT:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case DOUBLE:
+                return in.readDouble();
+            case FLOAT:
+                return in.readFloat();
+            case BOOLEAN:
+                return in.readBoolean();
+            case SHORT:
+                return in.readShort();
+            case BYTE:
+                return in.readByte();
+            case DECIMAL:
+                return new BigDecimal(new String(readBytes(in), StandardCharsets.UTF_8));
+            case TIMESTAMP:
+                Timestamp timestamp = new Timestamp(in.readLong());
+                timestamp.setNanos(in.readInt());
+                return timestamp;
+            case DATE:
+                return new Date(in.readLong());
+            case TIME:
+                return new Time(in.readLong());
+            case UTIL_DATE:
+                return new java.util.Date(in.readLong());
+            case BYTES:
+                return readBytes(in);
+            case SERIALIZED:
+                try {
+                    return InstantiationUtil.deserializeObject(readBytes(in), Thread.currentThread().getContextClassLoader());
+                } catch (ClassNotFoundException e) {
+                    throw new IOException(e);
+                }
+            default:
+                throw new IOException("unknown value tag in off-heap side cache:" + tag);
+        }
+    }
+
+    private void writeBytes(byte[] bytes, DataOutputView out) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private byte[] readBytes(DataInputView in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
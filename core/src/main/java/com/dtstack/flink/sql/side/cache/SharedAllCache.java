@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.dtstack.flink.sql.side.cache;
+
+import com.dtstack.flink.sql.factory.DTThreadFactory;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * One ALL side table snapshot shared by the subtasks of a TaskManager, see {@link SharedAllCacheRegistry}.
+ * The first subtask loads it, reloads are run by a single scheduler with the reload of one subtask still open.
+ * Company: www.dtstack.com
+ */
+
+public class SharedAllCache {
+
+    private final String identity;
+
+    private final AtomicReference<AbsAllCacheStore> storeRef = new AtomicReference<>();
+
+    //reload of every subtask holding the cache, the first one is run
+    private final List<Runnable> reloaders = Lists.newArrayList();
+
+    //held while loading, apart from the lock of the reloaders so that a long load doesn't block releasing
+    private final Object loadLock = new Object();
+
+    private volatile boolean loaded;
+
+    private ScheduledExecutorService scheduler;
+
+    //guarded by SharedAllCacheRegistry
+    int refCount;
+
+    SharedAllCache(String identity) {
+        this.identity = identity;
+    }
+
+    public String getIdentity() {
+        return identity;
+    }
+
+    /**
+     * Store published to every subtask holding the cache.
+     */
+    public AtomicReference<AbsAllCacheStore> getStoreRef() {
+        return storeRef;
+    }
+
+    /**
+     * Run the loader if the cache is not loaded yet, subtasks opening at the same time wait for the first load.
+     * A failed load is tried again by the next subtask.
+     */
+    public void loadIfAbsent(Loader loader) throws Exception {
+        synchronized (loadLock) {
+            if (loaded) {
+                return;
+            }
+
+            loader.load();
+            loaded = true;
+        }
+    }
+
+    /**
+     * Take part in reloading the cache, the reload scheduler is started with the first reloader.
+     */
+    public synchronized void addReloader(Runnable reloader, long reloadIntervalMs) {
+        reloaders.add(reloader);
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new DTThreadFactory("cache-all-reload"));
+            scheduler.scheduleAtFixedRate(this::reload, reloadIntervalMs, reloadIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    synchronized void removeReloader(Runnable reloader) {
+        reloaders.remove(reloader);
+    }
+
+    private void reload() {
+        Runnable reloader;
+        synchronized (this) {
+            if (reloaders.isEmpty()) {
+                return;
+            }
+            reloader = reloaders.get(0);
+        }
+
+        reloader.run();
+    }
+
+    synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        reloaders.clear();
+        storeRef.set(null);
+    }
+
+    @FunctionalInterface
+    public interface Loader {
+
+        void load() throws Exception;
+    }
+}
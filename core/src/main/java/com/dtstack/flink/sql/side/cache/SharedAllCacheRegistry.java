@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.dtstack.flink.sql.side.cache;
+
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+/**
+ * Reference counted ALL side caches of the TaskManager, so that subtasks joining the same side table
+ * load it and reload it once instead of once per slot.
+ * The registry is held by the class loader of the job, caches are never shared between jobs.
+ * Company: www.dtstack.com
+ */
+
+public class SharedAllCacheRegistry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedAllCacheRegistry.class);
+
+    //side table identity -> cache
+    private static final Map<String, SharedAllCache> CACHES = Maps.newHashMap();
+
+    private SharedAllCacheRegistry() {
+    }
+
+    /**
+     * Get the cache of the side table identity, created if absent. Every acquire must be paired with a release.
+     */
+    public static synchronized SharedAllCache acquire(String identity) {
+        SharedAllCache cache = CACHES.computeIfAbsent(identity, SharedAllCache::new);
+        cache.refCount++;
+        LOG.info("acquire shared all cache:{}, refCount:{}", identity, cache.refCount);
+        return cache;
+    }
+
+    /**
+     * Give up the cache, the last subtask releasing it stops the reload and drops the snapshot.
+     * @param reloader the reloader added by the subtask, null if it added none
+     */
+    public static synchronized void release(SharedAllCache cache, Runnable reloader) {
+        if (reloader != null) {
+            cache.removeReloader(reloader);
+        }
+
+        cache.refCount--;
+        LOG.info("release shared all cache:{}, refCount:{}", cache.getIdentity(), cache.refCount);
+        if (cache.refCount <= 0) {
+            CACHES.remove(cache.getIdentity());
+            cache.close();
+        }
+    }
+}
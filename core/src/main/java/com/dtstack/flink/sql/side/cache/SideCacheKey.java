@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.dtstack.flink.sql.side.cache;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * Key of side table data in cache, built from the values of the join equal fields.
+ * Hash code is computed once; values are compared by type instead of by string form,
+ * so ("a_b", "c") and ("a", "b_c") are different keys.
+ * Integral numbers (and decimals without fraction) are compared by value, no matter
+ * whether they come from the stream as int or from the side table as bigint.
+ * Company: www.dtstack.com
+ */
+
+public abstract class SideCacheKey implements Serializable {
+
+    private static final long serialVersionUID = -3473958225536287011L;
+
+    public static SideCacheKey of(Object value){
+        Object normalized = normalize(value);
+        if(normalized instanceof Long){
+            return new LongKey((Long) normalized);
+        }
+
+        if(normalized instanceof String){
+            return new StringKey((String) normalized);
+        }
+
+        return new ObjectKey(normalized);
+    }
+
+    /**
+     * @param values equal field values in the order of the join condition
+     */
+    public static SideCacheKey of(Collection<?> values){
+        Iterator<?> it = values.iterator();
+        if(values.size() == 1){
+            return of(it.next());
+        }
+
+        Object[] keyValues = new Object[values.size()];
+        for(int i = 0; it.hasNext(); i++){
+            keyValues[i] = normalize(it.next());
+        }
+
+        return new CompositeKey(keyValues);
+    }
+
+    /**
+     * @param row one positional line of the side table
+     * @param positions positions of the equal fields in the line, in the order of the join condition
+     */
+    public static SideCacheKey of(Object[] row, int[] positions){
+        if(positions.length == 1){
+            return of(row[positions[0]]);
+        }
+
+        Object[] keyValues = new Object[positions.length];
+        for(int i = 0; i < keyValues.length; i++){
+            keyValues[i] = normalize(row[positions[i]]);
+        }
+
+        return new CompositeKey(keyValues);
+    }
+
+    /**
+     * number of values in the key, for serializing it
+     */
+    abstract int size();
+
+    abstract Object get(int index);
+
+    private static Object normalize(Object value){
+        if(value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte){
+            return ((Number) value).longValue();
+        }
+
+        if(value instanceof BigDecimal){
+            BigDecimal decimal = ((BigDecimal) value).stripTrailingZeros();
+            if(decimal.scale() > 0){
+                return decimal;
+            }
+
+            try {
+                return decimal.longValueExact();
+            } catch (ArithmeticException e) {
+                //out of long range
+                return decimal;
+            }
+        }
+
+        return value;
+    }
+
+    private static final class LongKey extends SideCacheKey {
+
+        private static final long serialVersionUID = 7017414218757498478L;
+
+        private final long value;
+
+        LongKey(long value){
+            this.value = value;
+        }
+
+        @Override
+        int size() {
+            return 1;
+        }
+
+        @Override
+        Object get(int index) {
+            return value;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(value);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof LongKey && ((LongKey) obj).value == value;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(value);
+        }
+    }
+
+    private static final class StringKey extends SideCacheKey {
+
+        private static final long serialVersionUID = 1529427035395914373L;
+
+        private final String value;
+
+        StringKey(String value){
+            this.value = value;
+        }
+
+        @Override
+        int size() {
+            return 1;
+        }
+
+        @Override
+        Object get(int index) {
+            return value;
+        }
+
+        @Override
+        public int hashCode() {
+            return value.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof StringKey && ((StringKey) obj).value.equals(value);
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+    }
+
+    private static final class ObjectKey extends SideCacheKey {
+
+        private static final long serialVersionUID = -1862357407914451376L;
+
+        private final Object value;
+
+        private final int hash;
+
+        ObjectKey(Object value){
+            this.value = value;
+            this.hash = Arrays.deepHashCode(new Object[]{value});
+        }
+
+        @Override
+        int size() {
+            return 1;
+        }
+
+        @Override
+        Object get(int index) {
+            return value;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(!(obj instanceof ObjectKey)){
+                return false;
+            }
+
+            ObjectKey other = (ObjectKey) obj;
+            return other.hash == hash && Objects.deepEquals(other.value, value);
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(value);
+        }
+    }
+
+    private static final class CompositeKey extends SideCacheKey {
+
+        private static final long serialVersionUID = 4904512409867931052L;
+
+        private final Object[] values;
+
+        private final int hash;
+
+        CompositeKey(Object[] values){
+            this.values = values;
+            this.hash = Arrays.deepHashCode(values);
+        }
+
+        @Override
+        int size() {
+            return values.length;
+        }
+
+        @Override
+        Object get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(!(obj instanceof CompositeKey)){
+                return false;
+            }
+
+            CompositeKey other = (CompositeKey) obj;
+            return other.hash == hash && Arrays.deepEquals(other.values, values);
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.deepToString(values);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.dtstack.flink.sql.sink;
+
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.runtime.state.FunctionInitializationContext;
+import org.apache.flink.runtime.state.FunctionSnapshotContext;
+import org.apache.flink.streaming.api.checkpoint.CheckpointedFunction;
+import org.apache.flink.streaming.api.functions.sink.OutputFormatSinkFunction;
+
+/**
+ * Sink of a buffering output format which flushes the format on checkpoint,
+ * so that a completed checkpoint never leaves records only buffered in the sink (at least once).
+ * Company: www.dtstack.com
+ */
+
+public class CheckpointFlushSinkFunction extends OutputFormatSinkFunction<Tuple2> implements CheckpointedFunction {
+
+    private static final long serialVersionUID = 4207373593545378315L;
+
+    private final IFlushableOutputFormat flushableFormat;
+
+    public <T extends MetricOutputFormat & IFlushableOutputFormat> CheckpointFlushSinkFunction(T format) {
+        super(format);
+        this.flushableFormat = format;
+    }
+
+    @Override
+    public void snapshotState(FunctionSnapshotContext context) throws Exception {
+        flushableFormat.flush();
+    }
+
+    @Override
+    public void initializeState(FunctionInitializationContext context) throws Exception {
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.dtstack.flink.sql.sink;
+
+import java.io.IOException;
+
+/**
+ * Output format buffering records, the buffer is written out before each checkpoint completes
+ * when the format is run by {@link CheckpointFlushSinkFunction}.
+ * Company: www.dtstack.com
+ */
+
+public interface IFlushableOutputFormat {
+
+    /**
+     * Write out the buffered records, failing if any of them could not be written.
+     */
+    void flush() throws IOException;
+}
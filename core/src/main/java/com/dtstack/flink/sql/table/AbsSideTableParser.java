@@ -19,6 +19,7 @@
 
 package com.dtstack.flink.sql.table;
 
+import com.dtstack.flink.sql.enums.ECacheStoreType;
 import com.dtstack.flink.sql.enums.ECacheType;
 import com.dtstack.flink.sql.side.SideTableInfo;
 import com.dtstack.flink.sql.util.MathUtil;
@@ -118,6 +119,42 @@ public abstract class AbsSideTableParser extends AbsTableParser {
                 }
                 sideTableInfo.setAsyncPoolSize(asyncPoolSize);
             }
+
+            if (props.containsKey(SideTableInfo.ASYNC_BATCH_SIZE_KEY.toLowerCase())) {
+                Integer asyncBatchSize = MathUtil.getIntegerVal(props.get(SideTableInfo.ASYNC_BATCH_SIZE_KEY.toLowerCase()));
+                if (asyncBatchSize < 1) {
+                    throw new RuntimeException("asyncBatchSize size need > 0.");
+                }
+                sideTableInfo.setAsyncBatchSize(asyncBatchSize);
+            }
+
+            if (props.containsKey(SideTableInfo.ASYNC_BATCH_LINGER_MS_KEY.toLowerCase())) {
+                Long asyncBatchLingerMs = MathUtil.getLongVal(props.get(SideTableInfo.ASYNC_BATCH_LINGER_MS_KEY.toLowerCase()));
+                if (asyncBatchLingerMs < 1) {
+                    throw new RuntimeException("asyncBatchLingerMs need > 0.");
+                }
+                sideTableInfo.setAsyncBatchLingerMs(asyncBatchLingerMs);
+            }
+
+            if (props.containsKey(SideTableInfo.CACHE_REFRESH_MS_KEY.toLowerCase())) {
+                Long cacheRefreshMs = MathUtil.getLongVal(props.get(SideTableInfo.CACHE_REFRESH_MS_KEY.toLowerCase()));
+                if (cacheRefreshMs < 1) {
+                    throw new RuntimeException("cacheRefreshMs need > 0.");
+                }
+
+                if (cacheRefreshMs >= sideTableInfo.getCacheTimeout()) {
+                    throw new RuntimeException("cacheRefreshMs need < " + SideTableInfo.CACHE_TTLMS_KEY + ".");
+                }
+                sideTableInfo.setCacheRefreshMs(cacheRefreshMs);
+            }
+
+            if (props.containsKey(SideTableInfo.CACHE_STORE_KEY.toLowerCase())) {
+                String cacheStore = MathUtil.getString(props.get(SideTableInfo.CACHE_STORE_KEY.toLowerCase()));
+                if (!ECacheStoreType.isValid(cacheStore)) {
+                    throw new RuntimeException("can't not support cache store :" + cacheStore);
+                }
+                sideTableInfo.setCacheStore(cacheStore.toLowerCase());
+            }
         }
     }
 }
@@ -24,6 +24,10 @@ import java.math.BigDecimal;
 import java.sql.Date;
 import java.sql.Time;
 import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
 
 /**
  * Reason: TODO ADD REASON(可选)
@@ -125,6 +129,102 @@ public class ClassUtil {
 
     }
 
+    /**
+     * Convert a value read back from a side table to the java class of the value it was looked up with,
+     * so that both compare equal when the column type differs from the stream type, e.g. a decimal
+     * column queried with an int, or a timestamp column returned as an iso string.
+     * @return null if the value can't be represented exactly in the class
+     */
+    public static Object convertToClass(Object value, Class<?> clazz) {
+        if (value == null || clazz.isInstance(value)) {
+            return value;
+        }
+
+        try {
+            if (clazz == String.class) {
+                return value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString();
+            } else if (clazz == Integer.class || clazz == Long.class || clazz == Short.class || clazz == Byte.class) {
+                BigDecimal decimal = toBigDecimal(value);
+                if (decimal == null) {
+                    return null;
+                } else if (clazz == Long.class) {
+                    return decimal.longValueExact();
+                } else if (clazz == Integer.class) {
+                    return decimal.intValueExact();
+                } else if (clazz == Short.class) {
+                    return decimal.shortValueExact();
+                }
+                return decimal.byteValueExact();
+            } else if (clazz == BigDecimal.class) {
+                return toBigDecimal(value);
+            } else if (clazz == Double.class) {
+                BigDecimal decimal = toBigDecimal(value);
+                return decimal == null ? null : decimal.doubleValue();
+            } else if (clazz == Float.class) {
+                BigDecimal decimal = toBigDecimal(value);
+                return decimal == null ? null : decimal.floatValue();
+            } else if (clazz == Boolean.class) {
+                if (value instanceof Number) {
+                    return ((Number) value).intValue() != 0;
+                }
+                String str = value.toString().trim();
+                return "1".equals(str) || Boolean.parseBoolean(str);
+            } else if (clazz == Timestamp.class) {
+                return toTimestamp(value);
+            } else if (clazz == Date.class) {
+                if (value instanceof String) {
+                    String str = ((String) value).trim();
+                    return Date.valueOf(LocalDate.parse(str.length() > 10 ? str.substring(0, 10) : str));
+                }
+                Timestamp timestamp = toTimestamp(value);
+                return timestamp == null ? null : Date.valueOf(timestamp.toLocalDateTime().toLocalDate());
+            }
+        } catch (ArithmeticException | IllegalArgumentException | DateTimeParseException e) {
+            return null;
+        }
+
+        return value;
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        } else if (value instanceof Number || value instanceof String) {
+            //toString keeps the exact decimal digits of a double and supports Decimal128 of mongo
+            return new BigDecimal(value.toString().trim());
+        } else if (value instanceof Boolean) {
+            return (Boolean) value ? BigDecimal.ONE : BigDecimal.ZERO;
+        }
+        return null;
+    }
+
+    private static Timestamp toTimestamp(Object value) {
+        if (value instanceof Timestamp) {
+            return (Timestamp) value;
+        } else if (value instanceof java.util.Date) {
+            return new Timestamp(((java.util.Date) value).getTime());
+        } else if (value instanceof Long || value instanceof Integer) {
+            return new Timestamp(((Number) value).longValue());
+        } else if (!(value instanceof String)) {
+            return null;
+        }
+
+        String str = ((String) value).trim();
+        try {
+            //iso string with offset, as vertx returns a timestamp column
+            return Timestamp.from(OffsetDateTime.parse(str).toInstant());
+        } catch (DateTimeParseException ignored) {
+        }
+        try {
+            return Timestamp.valueOf(LocalDateTime.parse(str));
+        } catch (DateTimeParseException ignored) {
+        }
+        if (str.length() == 10) {
+            return Timestamp.valueOf(LocalDate.parse(str).atStartOfDay());
+        }
+        return Timestamp.valueOf(str);
+    }
+
     public static String getTypeFromClass(Class<?> clz) {
 
         if(clz == Byte.class){
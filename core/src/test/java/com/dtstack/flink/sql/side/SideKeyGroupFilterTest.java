@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.flink.sql.side;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeinfo.Types;
+import org.apache.flink.api.common.operators.Keys;
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.api.java.tuple.Tuple;
+import org.apache.flink.api.java.typeutils.RowTypeInfo;
+import org.apache.flink.runtime.plugable.SerializationDelegate;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.streaming.runtime.partitioner.KeyGroupStreamPartitioner;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.util.keys.KeySelectorUtil;
+import org.apache.flink.types.Row;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * A side line must be cached by exactly the subtask that keyBy(String...) of partitionedJoin
+ * routes the input rows with the same join key to, otherwise those rows find no side line.
+ * Company: www.dtstack.com
+ */
+
+public class SideKeyGroupFilterTest {
+
+    private static final int[] PARALLELISMS = new int[]{1, 2, 3, 4, 7, 16, 100};
+
+    private static final int ROW_NUM = 500;
+
+    /**
+     * @param keyTypes types of the join fields in the input stream
+     * @param inputKey join field values of the i-th input row
+     * @param sideKey the same join key as the side table stores it
+     */
+    private void assertSameSubtask(TypeInformation<?>[] keyTypes, Function<Integer, Object[]> inputKey, Function<Integer, Object[]> sideKey) throws Exception {
+        //input rows are (k0, k1, .., payload), the side lines store the key reversed after one other field
+        int keyNum = keyTypes.length;
+        TypeInformation<?>[] fieldTypes = new TypeInformation<?>[keyNum + 1];
+        String[] fieldNames = new String[keyNum + 1];
+        String[] keyFields = new String[keyNum];
+        Class<?>[] keyClasses = new Class<?>[keyNum];
+        int[] keyPositions = new int[keyNum];
+        for (int i = 0; i < keyNum; i++) {
+            fieldTypes[i] = keyTypes[i];
+            fieldNames[i] = "k" + i;
+            keyFields[i] = fieldNames[i];
+            keyClasses[i] = keyTypes[i].getTypeClass();
+            keyPositions[i] = keyNum - i;
+        }
+        fieldTypes[keyNum] = Types.STRING;
+        fieldNames[keyNum] = "payload";
+        RowTypeInfo rowTypeInfo = new RowTypeInfo(fieldTypes, fieldNames);
+
+        KeySelector<Row, Tuple> keySelector = KeySelectorUtil.getSelectorForKeys(
+                new Keys.ExpressionKeys<>(keyFields, rowTypeInfo), rowTypeInfo, new ExecutionConfig());
+
+        for (int parallelism : PARALLELISMS) {
+            for (int maxParallelism : new int[]{KeyGroupRangeAssignment.computeDefaultMaxParallelism(parallelism), 4096}) {
+                KeyGroupStreamPartitioner<Row, Tuple> partitioner = new KeyGroupStreamPartitioner<>(keySelector, maxParallelism);
+                partitioner.setup(parallelism);
+                SerializationDelegate<StreamRecord<Row>> record = new SerializationDelegate<>(null);
+
+                SideKeyGroupFilter[] filters = new SideKeyGroupFilter[parallelism];
+                for (int subtask = 0; subtask < parallelism; subtask++) {
+                    filters[subtask] = new SideKeyGroupFilter(subtask, parallelism, maxParallelism, keyClasses);
+                }
+
+                for (int i = 0; i < ROW_NUM; i++) {
+                    Object[] inputValues = inputKey.apply(i);
+                    Row input = new Row(keyNum + 1);
+                    for (int j = 0; j < keyNum; j++) {
+                        input.setField(j, inputValues[j]);
+                    }
+                    input.setField(keyNum, "row" + i);
+                    record.setInstance(new StreamRecord<>(input));
+                    int channel = partitioner.selectChannel(record);
+
+                    Object[] sideValues = sideKey.apply(i);
+                    Object[] sideRow = new Object[keyNum + 1];
+                    sideRow[0] = "side" + i;
+                    for (int j = 0; j < keyNum; j++) {
+                        sideRow[keyPositions[j]] = sideValues[j];
+                    }
+
+                    for (int subtask = 0; subtask < parallelism; subtask++) {
+                        assertEquals("row " + i + " parallelism " + parallelism + " maxParallelism " + maxParallelism + " subtask " + subtask,
+                                subtask == channel, filters[subtask].isLocalKey(sideRow, keyPositions));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void intKeyStoredAsIntLongDecimalOrString() throws Exception {
+        TypeInformation<?>[] keyTypes = new TypeInformation<?>[]{Types.INT};
+        Function<Integer, Object[]> inputKey = i -> new Object[]{i * 31 - 1000};
+        assertSameSubtask(keyTypes, inputKey, inputKey);
+        assertSameSubtask(keyTypes, inputKey, i -> new Object[]{(long) (i * 31 - 1000)});
+        assertSameSubtask(keyTypes, inputKey, i -> new Object[]{new BigDecimal(i * 31 - 1000)});
+        assertSameSubtask(keyTypes, inputKey, i -> new Object[]{String.valueOf(i * 31 - 1000)});
+    }
+
+    @Test
+    public void longKeyStoredAsIntOrLong() throws Exception {
+        TypeInformation<?>[] keyTypes = new TypeInformation<?>[]{Types.LONG};
+        assertSameSubtask(keyTypes, i -> new Object[]{(long) i * 1000003L}, i -> new Object[]{(long) i * 1000003L});
+        assertSameSubtask(keyTypes, i -> new Object[]{(long) i - 250}, i -> new Object[]{i - 250});
+    }
+
+    @Test
+    public void stringKey() throws Exception {
+        Function<Integer, Object[]> key = i -> new Object[]{"key-" + i};
+        assertSameSubtask(new TypeInformation<?>[]{Types.STRING}, key, key);
+    }
+
+    @Test
+    public void doubleAndDecimalKeys() throws Exception {
+        assertSameSubtask(new TypeInformation<?>[]{Types.DOUBLE}, i -> new Object[]{i / 4.0d}, i -> new Object[]{new BigDecimal(i / 4.0d)});
+        assertSameSubtask(new TypeInformation<?>[]{Types.BIG_DEC}, i -> new Object[]{new BigDecimal(i).movePointLeft(2)},
+                i -> new Object[]{new BigDecimal(i).movePointLeft(2)});
+    }
+
+    @Test
+    public void timestampKey() throws Exception {
+        Function<Integer, Object[]> key = i -> new Object[]{new Timestamp(1576800000000L + i * 1000L)};
+        assertSameSubtask(new TypeInformation<?>[]{Types.SQL_TIMESTAMP}, key, key);
+    }
+
+    @Test
+    public void compositeKey() throws Exception {
+        TypeInformation<?>[] keyTypes = new TypeInformation<?>[]{Types.STRING, Types.INT, Types.LONG};
+        assertSameSubtask(keyTypes, i -> new Object[]{"k" + (i % 17), i, (long) i * 7},
+                i -> new Object[]{"k" + (i % 17), (long) i, new BigDecimal(i * 7)});
+    }
+
+    @Test
+    public void nullKeyIsNeverLocal() {
+        SideKeyGroupFilter filter = new SideKeyGroupFilter(0, 1, 128, new Class<?>[]{String.class, Integer.class});
+        assertFalse(filter.isLocalKey(new Object[]{"a", null}, new int[]{0, 1}));
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.flink.sql.side.cache;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Lines put into the off-heap store are read back unchanged, in insert order per key.
+ * Company: www.dtstack.com
+ */
+
+public class OffHeapAllCacheStoreTest {
+
+    private static final int MB = 1024 * 1024;
+
+    private static void assertLines(List<Object[]> expected, List<Object[]> actual) {
+        assertNotNull(actual);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
+
+    @Test
+    public void linesOfAKeyKeepInsertOrder() {
+        OffHeapAllCacheStore store = new OffHeapAllCacheStore();
+        Object[] first = new Object[]{1, "a", null};
+        Object[] second = new Object[]{1, "b", new BigDecimal("2.5")};
+        Object[] third = new Object[]{1, null, new Timestamp(1000L)};
+        store.put(SideCacheKey.of(1), first);
+        store.put(SideCacheKey.of(2), new Object[]{2, "other", null});
+        store.put(SideCacheKey.of(1L), second);
+        store.put(SideCacheKey.of(new BigDecimal("1.0")), third);
+
+        assertLines(Arrays.asList(first, second, third), store.get(SideCacheKey.of(1)));
+        assertEquals(1, store.get(SideCacheKey.of(2)).size());
+        assertNull(store.get(SideCacheKey.of(3)));
+        assertNull(store.get(SideCacheKey.of("1")));
+        assertEquals(4, store.getRowCount());
+    }
+
+    @Test
+    public void compositeAndNullKeys() {
+        OffHeapAllCacheStore store = new OffHeapAllCacheStore();
+        store.put(SideCacheKey.of(Arrays.asList("a_b", "c")), new Object[]{"first"});
+        store.put(SideCacheKey.of(Arrays.asList("a", "b_c")), new Object[]{"second"});
+        store.put(SideCacheKey.of(Arrays.asList("a", null)), new Object[]{"third"});
+
+        assertEquals("first", store.get(SideCacheKey.of(Arrays.asList("a_b", "c"))).get(0)[0]);
+        assertEquals("second", store.get(SideCacheKey.of(Arrays.asList("a", "b_c"))).get(0)[0]);
+        assertEquals("third", store.get(SideCacheKey.of(Arrays.asList("a", null))).get(0)[0]);
+        assertNull(store.get(SideCacheKey.of(Arrays.asList("a", "null"))));
+    }
+
+    @Test
+    public void keysOfTheSameSlotAndHash() {
+        OffHeapAllCacheStore store = new OffHeapAllCacheStore();
+        //1 and 1 << 32 have the same hash code, 5 and 5 + 1024 land in the same slot of the initial index
+        long[] keys = new long[]{1L, 1L << 32, 5L, 5L + 1024, 5L + 2048};
+        assertEquals(SideCacheKey.of(keys[0]).hashCode(), SideCacheKey.of(keys[1]).hashCode());
+        for (long key : keys) {
+            store.put(SideCacheKey.of(key), new Object[]{key});
+        }
+
+        for (long key : keys) {
+            List<Object[]> lines = store.get(SideCacheKey.of(key));
+            assertEquals(1, lines.size());
+            assertEquals(key, lines.get(0)[0]);
+        }
+        assertNull(store.get(SideCacheKey.of((1L << 32) + 1)));
+        assertNull(store.get(SideCacheKey.of(5L + 3072)));
+    }
+
+    @Test
+    public void indexGrowsWithManyKeys() {
+        OffHeapAllCacheStore store = new OffHeapAllCacheStore();
+        int keyNum = 50000;
+        for (int i = 0; i < keyNum; i++) {
+            store.put(SideCacheKey.of(i), new Object[]{i, "v" + i});
+            if (i % 3 == 0) {
+                store.put(SideCacheKey.of(i), new Object[]{i, "w" + i});
+            }
+        }
+
+        for (int i = 0; i < keyNum; i++) {
+            List<Object[]> lines = store.get(SideCacheKey.of(i));
+            assertEquals(i % 3 == 0 ? 2 : 1, lines.size());
+            assertEquals("v" + i, lines.get(0)[1]);
+        }
+        assertNull(store.get(SideCacheKey.of(keyNum)));
+        assertEquals(keyNum + (keyNum + 2) / 3, store.getRowCount());
+    }
+
+    @Test
+    public void recordsRollOverToNewChunks() {
+        //small chunks so that records and the lines of one key spread over many chunks
+        OffHeapAllCacheStore store = new OffHeapAllCacheStore(1024);
+        for (int i = 0; i < 2000; i++) {
+            store.put(SideCacheKey.of(i % 100), new Object[]{i, "line-" + i});
+        }
+
+        for (int key = 0; key < 100; key++) {
+            List<Object[]> lines = store.get(SideCacheKey.of(key));
+            assertEquals(20, lines.size());
+            for (int j = 0; j < lines.size(); j++) {
+                assertEquals("line-" + (key + j * 100), lines.get(j)[1]);
+            }
+        }
+        assertTrue(store.getOffHeapBytes() > 100 * 1024);
+    }
+
+    @Test
+    public void recordLargerThanAChunk() {
+        OffHeapAllCacheStore store = new OffHeapAllCacheStore(1024);
+        byte[] large = new byte[10 * 1024];
+        Arrays.fill(large, (byte) 9);
+        store.put(SideCacheKey.of("small"), new Object[]{"a"});
+        store.put(SideCacheKey.of("large"), new Object[]{large});
+        store.put(SideCacheKey.of("small"), new Object[]{"b"});
+
+        assertArrayEquals(large, (byte[]) store.get(SideCacheKey.of("large")).get(0)[0]);
+        assertEquals(2, store.get(SideCacheKey.of("small")).size());
+    }
+
+    @Test
+    public void linesPastTheDefaultChunkBoundary() {
+        OffHeapAllCacheStore store = new OffHeapAllCacheStore();
+        byte[] value = new byte[MB];
+        int lineNum = 70;
+        for (int i = 0; i < lineNum; i++) {
+            value[0] = (byte) i;
+            store.put(SideCacheKey.of(i % 7), new Object[]{i, value});
+        }
+
+        assertTrue(store.getOffHeapBytes() > 64L * MB);
+        for (int i = 0; i < lineNum; i++) {
+            Object[] line = store.get(SideCacheKey.of(i % 7)).get(i / 7);
+            assertEquals(i, line[0]);
+            assertEquals((byte) i, ((byte[]) line[1])[0]);
+            assertEquals(MB, ((byte[]) line[1]).length);
+        }
+    }
+
+    @Test
+    public void concurrentLookupsOfASharedStore() throws Exception {
+        OffHeapAllCacheStore store = new OffHeapAllCacheStore(64 * 1024);
+        int keyNum = 5000;
+        for (int i = 0; i < keyNum; i++) {
+            //lines of different lengths, so that a row decoded from another thread's buffer doesn't look right by chance
+            store.put(SideCacheKey.of("key-" + i), new Object[]{i, repeat('a' + i % 26, i % 300)});
+        }
+
+        int threadNum = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[threadNum];
+        for (int t = 0; t < threadNum; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int n = 0; n < 100000 && failure.get() == null; n++) {
+                        int i = random.nextInt(keyNum + 100);
+                        List<Object[]> lines = store.get(SideCacheKey.of("key-" + i));
+                        if (i >= keyNum) {
+                            assertNull(lines);
+                            continue;
+                        }
+                        assertEquals(1, lines.size());
+                        assertEquals(i, lines.get(0)[0]);
+                        assertEquals(repeat('a' + i % 26, i % 300), lines.get(0)[1]);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            threads[t].start();
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError("concurrent lookup failed", failure.get());
+        }
+    }
+
+    private static String repeat(int c, int times) {
+        char[] chars = new char[times];
+        Arrays.fill(chars, (char) c);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.flink.sql.side.cache;
+
+import com.google.common.collect.Lists;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Round trip of side lines and keys through the binary form of the off-heap store.
+ * Company: www.dtstack.com
+ */
+
+public class OffHeapCodecTest {
+
+    private final OffHeapCodec codec = new OffHeapCodec();
+
+    private Object[] roundTrip(Object[] sideRow) throws IOException {
+        DataOutputSerializer out = new DataOutputSerializer(16);
+        codec.writeRow(sideRow, out);
+
+        DataInputDeserializer in = new DataInputDeserializer();
+        in.setBuffer(out.getSharedBuffer(), 0, out.length());
+        return codec.readRow(in);
+    }
+
+    private byte[] keyBytes(SideCacheKey key) throws IOException {
+        DataOutputSerializer out = new DataOutputSerializer(16);
+        codec.writeKey(key, out);
+        return Arrays.copyOf(out.getSharedBuffer(), out.length());
+    }
+
+    @Test
+    public void everySupportedTypeRoundTrips() throws IOException {
+        Timestamp timestamp = new Timestamp(1576800000123L);
+        timestamp.setNanos(123456789);
+        Object[] sideRow = new Object[]{
+                "abc", "", "中文 ünïcödé", 1, Integer.MIN_VALUE, Long.MAX_VALUE, -1.5d, Double.NaN, 2.25f,
+                true, false, (short) -3, (byte) 7, new BigDecimal("12345678901234567890.000123"),
+                timestamp, new Date(1576800000000L), new Time(36000000L), new java.util.Date(1576800000456L),
+                new byte[]{0, -1, 127}, Lists.newArrayList("a", 1)
+        };
+
+        Object[] decoded = roundTrip(sideRow);
+        assertArrayEquals(sideRow, decoded);
+        for (int i = 0; i < sideRow.length; i++) {
+            assertEquals("type of position " + i, sideRow[i].getClass(), decoded[i].getClass());
+        }
+        assertEquals(123456789, ((Timestamp) decoded[14]).getNanos());
+    }
+
+    @Test
+    public void nullsAndEmptyLinesRoundTrip() throws IOException {
+        assertArrayEquals(new Object[]{null, "a", null}, roundTrip(new Object[]{null, "a", null}));
+        assertArrayEquals(new Object[0], roundTrip(new Object[0]));
+    }
+
+    @Test
+    public void largeValuesRoundTrip() throws IOException {
+        char[] chars = new char[100000];
+        Arrays.fill(chars, 'x');
+        byte[] bytes = new byte[200000];
+        Arrays.fill(bytes, (byte) 3);
+        Object[] sideRow = new Object[]{new String(chars), bytes};
+        assertArrayEquals(sideRow, roundTrip(sideRow));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void notSerializableValueIsRejected() throws IOException {
+        roundTrip(new Object[]{new Object()});
+    }
+
+    @Test
+    public void equalKeysHaveEqualBytes() throws IOException {
+        //keys are compared by their bytes in the store
+        assertArrayEquals(keyBytes(SideCacheKey.of(10)), keyBytes(SideCacheKey.of(new BigDecimal("10.0"))));
+        assertArrayEquals(keyBytes(SideCacheKey.of(Arrays.asList("a", 1))), keyBytes(SideCacheKey.of(Arrays.asList("a", 1L))));
+        assertFalse(Arrays.equals(keyBytes(SideCacheKey.of(Arrays.asList("a_b", "c"))), keyBytes(SideCacheKey.of(Arrays.asList("a", "b_c")))));
+        assertFalse(Arrays.equals(keyBytes(SideCacheKey.of("1")), keyBytes(SideCacheKey.of(1))));
+        assertTrue(keyBytes(SideCacheKey.of(Arrays.asList("a", null))).length > 0);
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.flink.sql.side.cache;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Subtasks of one TaskManager joining the same side table share one loaded cache until the last of them releases it.
+ * Company: www.dtstack.com
+ */
+
+public class SharedAllCacheRegistryTest {
+
+    @Test
+    public void sameIdentitySharesTheCache() {
+        SharedAllCache first = SharedAllCacheRegistry.acquire("same");
+        SharedAllCache second = SharedAllCacheRegistry.acquire("same");
+        SharedAllCache other = SharedAllCacheRegistry.acquire("other");
+        try {
+            assertSame(first, second);
+            assertEquals(2, first.refCount);
+            assertNotSame(first, other);
+            assertEquals(1, other.refCount);
+        } finally {
+            SharedAllCacheRegistry.release(first, null);
+            SharedAllCacheRegistry.release(second, null);
+            SharedAllCacheRegistry.release(other, null);
+        }
+    }
+
+    @Test
+    public void concurrentAcquireLoadsOnce() throws Exception {
+        int subtaskNum = 8;
+        AtomicInteger loadNum = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        SharedAllCache[] caches = new SharedAllCache[subtaskNum];
+        Thread[] subtasks = new Thread[subtaskNum];
+        for (int i = 0; i < subtaskNum; i++) {
+            int subtask = i;
+            subtasks[i] = new Thread(() -> {
+                try {
+                    start.await();
+                    SharedAllCache cache = SharedAllCacheRegistry.acquire("concurrent");
+                    caches[subtask] = cache;
+                    cache.loadIfAbsent(() -> {
+                        loadNum.incrementAndGet();
+                        //slow load, so that the other subtasks open while it is running
+                        Thread.sleep(50);
+                        HeapAllCacheStore store = new HeapAllCacheStore();
+                        store.put(SideCacheKey.of(1), new Object[]{"line"});
+                        cache.getStoreRef().set(store);
+                    });
+                    //every subtask sees the store once loadIfAbsent returns
+                    assertEquals("line", cache.getStoreRef().get().get(SideCacheKey.of(1)).get(0)[0]);
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            subtasks[i].start();
+        }
+
+        start.countDown();
+        for (Thread subtask : subtasks) {
+            subtask.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError("subtask failed", failure.get());
+        }
+
+        assertEquals(1, loadNum.get());
+        for (SharedAllCache cache : caches) {
+            assertSame(caches[0], cache);
+        }
+        assertEquals(subtaskNum, caches[0].refCount);
+        for (SharedAllCache cache : caches) {
+            SharedAllCacheRegistry.release(cache, null);
+        }
+    }
+
+    @Test
+    public void failedLoadIsTriedAgain() throws Exception {
+        SharedAllCache first = SharedAllCacheRegistry.acquire("failed");
+        SharedAllCache second = SharedAllCacheRegistry.acquire("failed");
+        AtomicInteger loadNum = new AtomicInteger();
+        try {
+            try {
+                first.loadIfAbsent(() -> {
+                    loadNum.incrementAndGet();
+                    throw new RuntimeException("side table not reachable");
+                });
+                fail("load failure must reach the subtask");
+            } catch (RuntimeException e) {
+                assertEquals("side table not reachable", e.getMessage());
+            }
+
+            second.loadIfAbsent(loadNum::incrementAndGet);
+            second.loadIfAbsent(loadNum::incrementAndGet);
+            assertEquals(2, loadNum.get());
+        } finally {
+            SharedAllCacheRegistry.release(first, null);
+            SharedAllCacheRegistry.release(second, null);
+        }
+    }
+
+    @Test
+    public void releasedReloaderIsNoLongerRun() throws Exception {
+        SharedAllCache first = SharedAllCacheRegistry.acquire("reload");
+        SharedAllCache second = SharedAllCacheRegistry.acquire("reload");
+        AtomicInteger firstReloadNum = new AtomicInteger();
+        AtomicInteger secondReloadNum = new AtomicInteger();
+        Runnable firstReloader = firstReloadNum::incrementAndGet;
+        first.addReloader(firstReloader, 10);
+        second.addReloader(secondReloadNum::incrementAndGet, 10);
+
+        //only the first reloader runs while it is held, the reload thread moves to the next one after the release
+        SharedAllCacheRegistry.release(first, firstReloader);
+        waitUntil(() -> secondReloadNum.get() >= 1);
+        int firstReloadNumAtRelease = firstReloadNum.get();
+        waitUntil(() -> secondReloadNum.get() >= 3);
+        assertEquals(firstReloadNumAtRelease, firstReloadNum.get());
+        assertEquals(1, second.refCount);
+
+        SharedAllCacheRegistry.release(second, null);
+    }
+
+    @Test
+    public void lastReleaseTearsTheCacheDown() throws Exception {
+        SharedAllCache first = SharedAllCacheRegistry.acquire("teardown");
+        SharedAllCache second = SharedAllCacheRegistry.acquire("teardown");
+        first.loadIfAbsent(() -> first.getStoreRef().set(new HeapAllCacheStore()));
+        AtomicInteger reloadNum = new AtomicInteger();
+        first.addReloader(reloadNum::incrementAndGet, 10);
+
+        SharedAllCacheRegistry.release(second, null);
+        assertTrue(first.getStoreRef().get() != null);
+
+        //the reloader is left registered, closing the cache alone must stop the reload
+        SharedAllCacheRegistry.release(first, null);
+        assertEquals(0, first.refCount);
+        assertNull(first.getStoreRef().get());
+        //a reload already running when the scheduler is stopped may still finish
+        Thread.sleep(50);
+        int reloadNumAtRelease = reloadNum.get();
+        Thread.sleep(100);
+        assertEquals(reloadNumAtRelease, reloadNum.get());
+
+        //the identity is not registered anymore, the next subtask gets a cache to load anew
+        SharedAllCache next = SharedAllCacheRegistry.acquire("teardown");
+        try {
+            assertNotSame(first, next);
+            assertEquals(1, next.refCount);
+            assertNull(next.getStoreRef().get());
+        } finally {
+            SharedAllCacheRegistry.release(next, null);
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("condition not reached in time");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
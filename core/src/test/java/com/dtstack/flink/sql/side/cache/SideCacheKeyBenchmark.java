@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.dtstack.flink.sql.side.cache;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the typed side cache key with the string key ("v1_v2_") used before,
+ * for building a key from the join values and looking it up in a hash map.
+ * Run with main(), it is not part of the unit tests.
+ * Company: www.dtstack.com
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SideCacheKeyBenchmark {
+
+    private static final int KEY_NUM = 100000;
+
+    private Map<String, Object> stringKeyCache = Maps.newHashMap();
+
+    private Map<SideCacheKey, Object> typedKeyCache = Maps.newHashMap();
+
+    private Long[] longValues = new Long[KEY_NUM];
+
+    private String[] stringValues = new String[KEY_NUM];
+
+    @Setup
+    public void setup(){
+        for(int i = 0; i < KEY_NUM; i++){
+            longValues[i] = (long) i;
+            stringValues[i] = "channel" + i;
+
+            stringKeyCache.put(buildStringKey(Lists.newArrayList(longValues[i])), i);
+            stringKeyCache.put(buildStringKey(Lists.newArrayList(stringValues[i], longValues[i])), i);
+            typedKeyCache.put(SideCacheKey.of(longValues[i]), i);
+            typedKeyCache.put(SideCacheKey.of(Lists.newArrayList(stringValues[i], longValues[i])), i);
+        }
+    }
+
+    @Benchmark
+    public Object stringKeySingleLong(){
+        int i = ThreadLocalRandom.current().nextInt(KEY_NUM);
+        List<Object> equalValues = Lists.newArrayList(longValues[i]);
+        return stringKeyCache.get(buildStringKey(equalValues));
+    }
+
+    @Benchmark
+    public Object typedKeySingleLong(){
+        int i = ThreadLocalRandom.current().nextInt(KEY_NUM);
+        return typedKeyCache.get(SideCacheKey.of(longValues[i]));
+    }
+
+    @Benchmark
+    public Object stringKeyComposite(){
+        int i = ThreadLocalRandom.current().nextInt(KEY_NUM);
+        List<Object> equalValues = Lists.newArrayList(stringValues[i], longValues[i]);
+        return stringKeyCache.get(buildStringKey(equalValues));
+    }
+
+    @Benchmark
+    public Object typedKeyComposite(){
+        int i = ThreadLocalRandom.current().nextInt(KEY_NUM);
+        List<Object> equalValues = Lists.newArrayList(stringValues[i], longValues[i]);
+        return typedKeyCache.get(SideCacheKey.of(equalValues));
+    }
+
+    private static String buildStringKey(List<Object> equalValList) {
+        StringBuilder sb = new StringBuilder("");
+        for (Object equalVal : equalValList) {
+            sb.append(equalVal).append("_");
+        }
+
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(SideCacheKeyBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.flink.sql.side.cache;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Equality and hashing of side cache keys built from stream values and from side table values.
+ * Company: www.dtstack.com
+ */
+
+public class SideCacheKeyTest {
+
+    private static void assertSameKey(SideCacheKey expected, SideCacheKey actual) {
+        assertEquals(expected, actual);
+        assertEquals(actual, expected);
+        assertEquals(expected.hashCode(), actual.hashCode());
+    }
+
+    private static void assertDifferentKey(SideCacheKey first, SideCacheKey second) {
+        assertNotEquals(first, second);
+        assertNotEquals(second, first);
+    }
+
+    @Test
+    public void integralNumbersCompareByValue() {
+        SideCacheKey longKey = SideCacheKey.of(10L);
+        assertSameKey(longKey, SideCacheKey.of(10));
+        assertSameKey(longKey, SideCacheKey.of((short) 10));
+        assertSameKey(longKey, SideCacheKey.of((byte) 10));
+        assertDifferentKey(longKey, SideCacheKey.of(11));
+    }
+
+    @Test
+    public void decimalsWithoutFractionCompareAsIntegral() {
+        assertSameKey(SideCacheKey.of(10L), SideCacheKey.of(new BigDecimal("10")));
+        assertSameKey(SideCacheKey.of(10), SideCacheKey.of(new BigDecimal("10.000")));
+        assertSameKey(SideCacheKey.of(-7), SideCacheKey.of(new BigDecimal("-7.0")));
+        assertSameKey(SideCacheKey.of(1000), SideCacheKey.of(new BigDecimal("1E+3")));
+    }
+
+    @Test
+    public void decimalsWithFractionIgnoreTrailingZeros() {
+        assertSameKey(SideCacheKey.of(new BigDecimal("1.5")), SideCacheKey.of(new BigDecimal("1.500")));
+        assertDifferentKey(SideCacheKey.of(new BigDecimal("1.5")), SideCacheKey.of(new BigDecimal("1.05")));
+        assertDifferentKey(SideCacheKey.of(new BigDecimal("1.5")), SideCacheKey.of(1));
+    }
+
+    @Test
+    public void decimalsOutOfLongRangeStayDecimals() {
+        BigDecimal big = new BigDecimal("123456789012345678901234567890");
+        assertSameKey(SideCacheKey.of(big), SideCacheKey.of(new BigDecimal("123456789012345678901234567890.00")));
+        assertDifferentKey(SideCacheKey.of(big), SideCacheKey.of(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void floatingNumbersAreNotNormalized() {
+        //double and float keep their own type, 1.0 is not the integral 1 nor the decimal 1.5
+        assertSameKey(SideCacheKey.of(1.5d), SideCacheKey.of(1.5d));
+        assertDifferentKey(SideCacheKey.of(1.0d), SideCacheKey.of(1));
+        assertDifferentKey(SideCacheKey.of(1.0d), SideCacheKey.of(1L));
+        assertDifferentKey(SideCacheKey.of(1.5d), SideCacheKey.of(new BigDecimal("1.5")));
+        assertDifferentKey(SideCacheKey.of(1.5d), SideCacheKey.of(1.5f));
+    }
+
+    @Test
+    public void stringsAreNotNumbers() {
+        assertSameKey(SideCacheKey.of("abc"), SideCacheKey.of(new String("abc")));
+        assertDifferentKey(SideCacheKey.of("1"), SideCacheKey.of(1));
+        assertDifferentKey(SideCacheKey.of("1"), SideCacheKey.of(1L));
+        assertDifferentKey(SideCacheKey.of("abc"), SideCacheKey.of("ABC"));
+    }
+
+    @Test
+    public void otherTypesUseTheirEquals() {
+        assertSameKey(SideCacheKey.of(new Timestamp(1000L)), SideCacheKey.of(new Timestamp(1000L)));
+        assertDifferentKey(SideCacheKey.of(new Timestamp(1000L)), SideCacheKey.of(new Timestamp(2000L)));
+        assertSameKey(SideCacheKey.of(true), SideCacheKey.of(Boolean.TRUE));
+        assertSameKey(SideCacheKey.of(new byte[]{1, 2}), SideCacheKey.of(new byte[]{1, 2}));
+        assertSameKey(SideCacheKey.of((Object) null), SideCacheKey.of((Object) null));
+    }
+
+    @Test
+    public void singleValueCollectionIsThePlainKey() {
+        assertSameKey(SideCacheKey.of("abc"), SideCacheKey.of(Collections.singletonList("abc")));
+        assertSameKey(SideCacheKey.of(5L), SideCacheKey.of(Collections.singletonList(5)));
+        assertSameKey(SideCacheKey.of(5L), SideCacheKey.of(new Object[]{"x", 5}, new int[]{1}));
+    }
+
+    @Test
+    public void compositeKeysCompareEveryValue() {
+        SideCacheKey key = SideCacheKey.of(Arrays.asList("a", 1, new BigDecimal("2.0")));
+        assertSameKey(key, SideCacheKey.of(Arrays.asList("a", 1L, 2)));
+        assertDifferentKey(key, SideCacheKey.of(Arrays.asList("a", 1L, 3)));
+        assertDifferentKey(key, SideCacheKey.of(Arrays.asList("a", 1L)));
+        assertDifferentKey(SideCacheKey.of(Arrays.asList(1, 2)), SideCacheKey.of(Arrays.asList(2, 1)));
+    }
+
+    @Test
+    public void compositeKeysDoNotConcatenateValues() {
+        assertDifferentKey(SideCacheKey.of(Arrays.asList("a_b", "c")), SideCacheKey.of(Arrays.asList("a", "b_c")));
+        assertDifferentKey(SideCacheKey.of(Arrays.asList("1", 2)), SideCacheKey.of(Arrays.asList(1, "2")));
+        assertDifferentKey(SideCacheKey.of(Arrays.asList("a", null)), SideCacheKey.of(Arrays.asList("a", "null")));
+    }
+
+    @Test
+    public void compositeKeyOfLinePositions() {
+        Object[] line = new Object[]{"ignored", new BigDecimal("3"), "b", 9.5d};
+        SideCacheKey key = SideCacheKey.of(line, new int[]{2, 1});
+        assertSameKey(SideCacheKey.of(Lists.newArrayList("b", 3)), key);
+        assertDifferentKey(SideCacheKey.of(Lists.newArrayList(3, "b")), key);
+        assertEquals(2, key.size());
+        assertEquals("b", key.get(0));
+        assertEquals(3L, key.get(1));
+    }
+
+    @Test
+    public void keysSurviveJavaSerialization() throws Exception {
+        for (SideCacheKey key : Arrays.asList(SideCacheKey.of(42), SideCacheKey.of("abc"),
+                SideCacheKey.of(new BigDecimal("1.25")), SideCacheKey.of(Arrays.asList("a", 1)))) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(key);
+            }
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                assertSameKey(key, (SideCacheKey) in.readObject());
+            }
+        }
+    }
+}
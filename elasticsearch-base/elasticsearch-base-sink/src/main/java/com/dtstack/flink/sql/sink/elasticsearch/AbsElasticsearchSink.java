@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.dtstack.flink.sql.sink.elasticsearch;
+
+import com.dtstack.flink.sql.sink.CheckpointFlushSinkFunction;
+import com.dtstack.flink.sql.sink.IStreamSinkGener;
+import com.dtstack.flink.sql.sink.elasticsearch.table.ElasticsearchTableInfo;
+import com.dtstack.flink.sql.table.TargetTableInfo;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.api.java.typeutils.RowTypeInfo;
+import org.apache.flink.api.java.typeutils.TupleTypeInfo;
+import org.apache.flink.streaming.api.datastream.DataStream;
+import org.apache.flink.streaming.api.datastream.DataStreamSink;
+import org.apache.flink.streaming.api.functions.sink.RichSinkFunction;
+import org.apache.flink.table.sinks.RetractStreamTableSink;
+import org.apache.flink.table.sinks.TableSink;
+import org.apache.flink.types.Row;
+
+/**
+ * table output of elasticsearch through the http rest api, the sink of each version creates the output format
+ * Company: www.dtstack.com
+ */
+
+public abstract class AbsElasticsearchSink implements RetractStreamTableSink<Row>, IStreamSinkGener<AbsElasticsearchSink> {
+
+    protected String[] fieldNames;
+
+    private TypeInformation[] fieldTypes;
+
+    private int parallelism = -1;
+
+    private ElasticsearchTableInfo esTableInfo;
+
+    @Override
+    public TableSink<Tuple2<Boolean, Row>> configure(String[] fieldNames, TypeInformation<?>[] fieldTypes) {
+        this.fieldNames = fieldNames;
+        this.fieldTypes = fieldTypes;
+        return this;
+    }
+
+    @Override
+    public TupleTypeInfo<Tuple2<Boolean, Row>> getOutputType() {
+        return new TupleTypeInfo(org.apache.flink.table.api.Types.BOOLEAN(), getRecordType());
+    }
+
+    @Override
+    public TypeInformation<Row> getRecordType() {
+        return new RowTypeInfo(fieldTypes, fieldNames);
+    }
+
+    @Override
+    public String[] getFieldNames() {
+        return fieldNames;
+    }
+
+    @Override
+    public TypeInformation<?>[] getFieldTypes() {
+        return fieldTypes;
+    }
+
+    @Override
+    public void emitDataStream(DataStream<Tuple2<Boolean, Row>> dataStream) {
+        consumeDataStream(dataStream);
+    }
+
+    @Override
+    public DataStreamSink<Tuple2<Boolean, Row>> consumeDataStream(DataStream<Tuple2<Boolean, Row>> dataStream) {
+        ElasticsearchOutputFormat outputFormat = createOutputFormat(esTableInfo, fieldNames);
+        RichSinkFunction richSinkFunction = new CheckpointFlushSinkFunction(outputFormat);
+        DataStreamSink streamSink = dataStream.addSink(richSinkFunction);
+        if(parallelism > 0){
+            streamSink.setParallelism(parallelism);
+        }
+
+        return streamSink;
+    }
+
+    /**
+     * @return output format writing the bulk action lines of the elasticsearch version
+     */
+    protected abstract ElasticsearchOutputFormat createOutputFormat(ElasticsearchTableInfo esTableInfo, String[] fieldNames);
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public AbsElasticsearchSink genStreamSink(TargetTableInfo targetTableInfo) {
+        esTableInfo = (ElasticsearchTableInfo) targetTableInfo;
+        if (esTableInfo.getParallelism() != null) {
+            parallelism = esTableInfo.getParallelism();
+        }
+        return this;
+    }
+}
@@ -0,0 +1,445 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.dtstack.flink.sql.sink.elasticsearch;
+
+import com.dtstack.flink.sql.metric.MetricConstant;
+import com.dtstack.flink.sql.sink.IFlushableOutputFormat;
+import com.dtstack.flink.sql.sink.MetricOutputFormat;
+import com.dtstack.flink.sql.sink.elasticsearch.table.ElasticsearchTableInfo;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.Gauge;
+import org.apache.flink.types.Row;
+import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Requests;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.ResponseListener;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.rest.RestStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Write rows through the elasticsearch http _bulk api, batched by an elasticsearch BulkProcessor.
+ * Bulk bodies are built here from the buffered actions so that they can be sent gzipped by the low level rest client.
+ * The action line differences of the elasticsearch versions are given by the sink of each version.
+ * Company: www.dtstack.com
+ */
+
+public class ElasticsearchOutputFormat extends MetricOutputFormat implements IFlushableOutputFormat {
+
+    private static final long serialVersionUID = -3286014275313752417L;
+
+    private static final Logger LOG = LoggerFactory.getLogger(ElasticsearchOutputFormat.class);
+
+    private static final int DEFAULT_PORT = 9200;
+
+    private static final int DIRTY_PRINT_FREQUENCY = 1000;
+
+    private static final ContentType NDJSON_CONTENT_TYPE = ContentType.create("application/x-ndjson");
+
+    private static final char ID_SEPARATOR = '_';
+
+    private final ElasticsearchTableInfo esTableInfo;
+
+    //see EsUtil#writeBulkAction
+    private final String bulkRoutingKey;
+
+    private final boolean writeDefaultType;
+
+    //field names split by '.', see EsUtil
+    private final String[][] fieldPaths;
+
+    private final int[] idFieldIndexes;
+
+    //-1 if no routing field
+    private final int routingFieldIndex;
+
+    private transient RestClient restClient;
+
+    private transient BulkProcessor bulkProcessor;
+
+    private transient volatile Exception flushException;
+
+    //bulk requests sent but not answered yet, guarded by itself
+    private transient Object pendingLock;
+
+    private transient int pendingBulks;
+
+    //execution id -> start time of the bulk request
+    private transient Map<Long, Long> bulkStartTimes;
+
+    private transient Counter outRejectedRecords;
+
+    private transient volatile long lastBulkActions;
+
+    private transient volatile long lastBulkBytes;
+
+    private transient volatile long lastBulkLatencyMs;
+
+    public ElasticsearchOutputFormat(ElasticsearchTableInfo esTableInfo, String[] fieldNames, String bulkRoutingKey, boolean writeDefaultType) {
+        this.esTableInfo = esTableInfo;
+        this.bulkRoutingKey = bulkRoutingKey;
+        this.writeDefaultType = writeDefaultType;
+        this.fieldPaths = EsUtil.splitFieldPaths(Arrays.asList(fieldNames));
+        this.idFieldIndexes = EsUtil.resolveFieldIndexes(esTableInfo.getId(), fieldNames);
+        int[] routingIndexes = EsUtil.resolveFieldIndexes(esTableInfo.getRouting(), fieldNames);
+        if (routingIndexes.length > 1) {
+            throw new IllegalArgumentException("elasticsearch routing must be one field");
+        }
+        this.routingFieldIndex = routingIndexes.length == 0 ? -1 : routingIndexes[0];
+    }
+
+    @Override
+    public void configure(Configuration parameters) {
+    }
+
+    @Override
+    public void open(int taskNumber, int numTasks) throws IOException {
+        initMetric();
+        pendingLock = new Object();
+        bulkStartTimes = new ConcurrentHashMap<>();
+        restClient = createRestClient();
+
+        BulkProcessor.Builder builder = BulkProcessor.builder(this::sendBulk, new BulkListener())
+                .setBulkActions(esTableInfo.getBulkFlushMaxActions())
+                .setBulkSize(new ByteSizeValue(esTableInfo.getBulkFlushMaxSizeMb(), ByteSizeUnit.MB))
+                .setConcurrentRequests(esTableInfo.getBulkConcurrentRequests())
+                .setBackoffPolicy(buildBackoffPolicy());
+        if (esTableInfo.getBulkFlushIntervalMs() > 0) {
+            builder.setFlushInterval(TimeValue.timeValueMillis(esTableInfo.getBulkFlushIntervalMs()));
+        }
+        bulkProcessor = builder.build();
+    }
+
+    @Override
+    public void initMetric() {
+        super.initMetric();
+        outRejectedRecords = getRuntimeContext().getMetricGroup().counter(MetricConstant.DT_NUM_SINK_REJECTED_RECORDS);
+        getRuntimeContext().getMetricGroup().gauge(MetricConstant.DT_SINK_BULK_ACTIONS_GAUGE, (Gauge<Long>) () -> lastBulkActions);
+        getRuntimeContext().getMetricGroup().gauge(MetricConstant.DT_SINK_BULK_BYTES_GAUGE, (Gauge<Long>) () -> lastBulkBytes);
+        getRuntimeContext().getMetricGroup().gauge(MetricConstant.DT_SINK_BULK_LATENCY_GAUGE, (Gauge<Long>) () -> lastBulkLatencyMs);
+    }
+
+    private RestClient createRestClient() throws IOException {
+        String[] addresses = esTableInfo.getAddress().split(",");
+        HttpHost[] httpHosts = new HttpHost[addresses.length];
+        for (int i = 0; i < addresses.length; i++) {
+            HttpHost httpHost = HttpHost.create(addresses[i].trim());
+            httpHosts[i] = httpHost.getPort() == -1 ? new HttpHost(httpHost.getHostName(), DEFAULT_PORT, httpHost.getSchemeName()) : httpHost;
+        }
+
+        RestClient client = RestClient.builder(httpHosts)
+                .setHttpClientConfigCallback(httpClientBuilder -> {
+                    httpClientBuilder.setMaxConnTotal(esTableInfo.getMaxConnTotal())
+                            .setMaxConnPerRoute(esTableInfo.getMaxConnPerRoute());
+                    if (esTableInfo.isAuthMesh()) {
+                        CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+                        credentialsProvider.setCredentials(AuthScope.ANY,
+                                new UsernamePasswordCredentials(esTableInfo.getUserName(), esTableInfo.getPassword()));
+                        httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider);
+                    }
+                    return httpClientBuilder;
+                })
+                .build();
+
+        try {
+            client.performRequest(new Request("HEAD", "/"));
+        } catch (IOException e) {
+            client.close();
+            throw new IOException("elasticsearch is not reachable at " + esTableInfo.getAddress(), e);
+        }
+
+        LOG.info("elasticsearch rest client connected to {}", Arrays.toString(httpHosts));
+        return client;
+    }
+
+    private BackoffPolicy buildBackoffPolicy() {
+        String backoffType = esTableInfo.getBulkFlushBackoffType();
+        if (backoffType == null) {
+            return BackoffPolicy.noBackoff();
+        }
+
+        TimeValue delay = TimeValue.timeValueMillis(esTableInfo.getBulkFlushBackoffDelayMs());
+        if ("constant".equalsIgnoreCase(backoffType)) {
+            return BackoffPolicy.constantBackoff(delay, esTableInfo.getBulkFlushBackoffRetries());
+        }
+        return BackoffPolicy.exponentialBackoff(delay, esTableInfo.getBulkFlushBackoffRetries());
+    }
+
+    @Override
+    public void writeRecord(Tuple2 tuple2) throws IOException {
+        checkFlushException();
+
+        Tuple2<Boolean, Row> tupleTrans = tuple2;
+        Boolean retract = tupleTrans.getField(0);
+        Row row = tupleTrans.getField(1);
+        String id = buildId(row);
+        if (id == null && idFieldIndexes.length > 0) {
+            dirtyRows(1, "id field is null, row:" + row);
+            return;
+        }
+
+        if (retract) {
+            IndexRequest indexRequest = Requests.indexRequest()
+                    .index(esTableInfo.getIndex())
+                    .id(id)
+                    .source(EsUtil.rowToJsonMap(row, fieldPaths));
+            if (esTableInfo.getEsType() != null) {
+                indexRequest.type(esTableInfo.getEsType());
+            }
+            indexRequest.routing(buildRouting(row));
+            bulkProcessor.add(indexRequest);
+        } else {
+            //a generated id can't be deleted, the row of an update is indexed right after the delete
+            if (id == null) {
+                return;
+            }
+            DeleteRequest deleteRequest = Requests.deleteRequest(esTableInfo.getIndex())
+                    .id(id);
+            if (esTableInfo.getEsType() != null) {
+                deleteRequest.type(esTableInfo.getEsType());
+            }
+            deleteRequest.routing(buildRouting(row));
+            bulkProcessor.add(deleteRequest);
+        }
+
+        outRecords.inc();
+    }
+
+    /**
+     * @return values of the id fields joined by '_', null if no id field is given or an id field is null
+     */
+    private String buildId(Row row) {
+        if (idFieldIndexes.length == 0) {
+            return null;
+        }
+
+        StringBuilder id = new StringBuilder();
+        for (int fieldIndex : idFieldIndexes) {
+            Object value = row.getField(fieldIndex);
+            if (value == null) {
+                return null;
+            }
+            if (id.length() > 0) {
+                id.append(ID_SEPARATOR);
+            }
+            id.append(value);
+        }
+
+        return id.toString();
+    }
+
+    private String buildRouting(Row row) {
+        if (routingFieldIndex == -1) {
+            return null;
+        }
+
+        Object routing = row.getField(routingFieldIndex);
+        return routing == null ? null : routing.toString();
+    }
+
+    /**
+     * Send the actions of the bulk request with one http request, the body gzipped if compression is enabled.
+     */
+    private void sendBulk(BulkRequest bulkRequest, ActionListener<BulkResponse> listener) {
+        Request request = new Request("POST", "/_bulk");
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream((int) Math.min(bulkRequest.estimatedSizeInBytes() + 1024, Integer.MAX_VALUE));
+            try (OutputStream out = esTableInfo.isCompression() ? new GZIPOutputStream(body, 8192) : body) {
+                for (DocWriteRequest<?> action : bulkRequest.requests()) {
+                    EsUtil.writeBulkAction(action, bulkRoutingKey, writeDefaultType, out);
+                }
+            }
+
+            ByteArrayEntity entity = new ByteArrayEntity(body.toByteArray(), NDJSON_CONTENT_TYPE);
+            if (esTableInfo.isCompression()) {
+                entity.setContentEncoding("gzip");
+            }
+            request.setEntity(entity);
+        } catch (Exception e) {
+            listener.onFailure(e);
+            return;
+        }
+
+        restClient.performRequestAsync(request, new ResponseListener() {
+            @Override
+            public void onSuccess(Response response) {
+                BulkResponse bulkResponse;
+                try (InputStream content = response.getEntity().getContent();
+                     XContentParser parser = XContentType.JSON.xContent()
+                             .createParser(NamedXContentRegistry.EMPTY, DeprecationHandler.THROW_UNSUPPORTED_OPERATION, content)) {
+                    bulkResponse = BulkResponse.fromXContent(parser);
+                } catch (Exception e) {
+                    listener.onFailure(e);
+                    return;
+                }
+                listener.onResponse(bulkResponse);
+            }
+
+            @Override
+            public void onFailure(Exception exception) {
+                listener.onFailure(exception);
+            }
+        });
+    }
+
+    /**
+     * Send the pending actions and wait for every bulk request in flight.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (bulkProcessor == null) {
+            return;
+        }
+
+        bulkProcessor.flush();
+        synchronized (pendingLock) {
+            while (pendingBulks > 0) {
+                try {
+                    pendingLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrupted while waiting for elasticsearch bulk requests", e);
+                }
+            }
+        }
+        checkFlushException();
+    }
+
+    private void checkFlushException() throws IOException {
+        if (flushException != null) {
+            throw new IOException("write to elasticsearch failed", flushException);
+        }
+    }
+
+    private void dirtyRows(int rowNum, String failureMessage) {
+        long before = outDirtyRecords.getCount();
+        outDirtyRecords.inc(rowNum);
+        if (before == 0 || before / DIRTY_PRINT_FREQUENCY != outDirtyRecords.getCount() / DIRTY_PRINT_FREQUENCY) {
+            LOG.error("write rows to elasticsearch failed: {}", failureMessage);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            if (bulkProcessor != null) {
+                bulkProcessor.close();
+            }
+            if (restClient != null) {
+                restClient.close();
+            }
+        }
+    }
+
+    /**
+     * Counts the bulk requests in flight for flush, records the bulk metrics.
+     * Failed actions are dirty, a failed bulk request fails the sink.
+     */
+    private class BulkListener implements BulkProcessor.Listener {
+
+        @Override
+        public void beforeBulk(long executionId, BulkRequest request) {
+            synchronized (pendingLock) {
+                pendingBulks++;
+            }
+            bulkStartTimes.put(executionId, System.currentTimeMillis());
+            lastBulkActions = request.numberOfActions();
+            lastBulkBytes = request.estimatedSizeInBytes();
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+            if (response.hasFailures()) {
+                int failedNum = 0;
+                for (BulkItemResponse itemResponse : response.getItems()) {
+                    if (!itemResponse.isFailed()) {
+                        continue;
+                    }
+                    failedNum++;
+                    if (itemResponse.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS) {
+                        outRejectedRecords.inc();
+                    }
+                }
+                dirtyRows(failedNum, response.buildFailureMessage());
+            }
+            finishBulk(executionId);
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+            if (failure instanceof ResponseException
+                    && ((ResponseException) failure).getResponse().getStatusLine().getStatusCode() == RestStatus.TOO_MANY_REQUESTS.getStatus()) {
+                outRejectedRecords.inc(request.numberOfActions());
+            }
+            flushException = failure instanceof Exception ? (Exception) failure : new RuntimeException(failure);
+            finishBulk(executionId);
+        }
+
+        private void finishBulk(long executionId) {
+            Long startTime = bulkStartTimes.remove(executionId);
+            if (startTime != null) {
+                lastBulkLatencyMs = System.currentTimeMillis() - startTime;
+            }
+            synchronized (pendingLock) {
+                pendingBulks--;
+                pendingLock.notifyAll();
+            }
+        }
+    }
+}
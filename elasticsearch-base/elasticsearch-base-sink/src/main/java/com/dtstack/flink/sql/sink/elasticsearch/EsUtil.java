@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.flink.sql.sink.elasticsearch;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.flink.types.Row;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Utilities for ElasticSearch
+ *
+ * Company: www.dtstack.com
+ */
+public class EsUtil {
+
+    private static final String DEFAULT_TYPE = "_doc";
+
+    /**
+     * Split the field names by '.' once, a field a.b is written as the field b of the object a.
+     */
+    public static String[][] splitFieldPaths(List<String> fields) {
+        String[][] fieldPaths = new String[fields.size()][];
+        for (int i = 0; i < fieldPaths.length; i++) {
+            fieldPaths[i] = fields.get(i).split("\\.");
+        }
+
+        return fieldPaths;
+    }
+
+    /**
+     * Build the document source of the row in one pass, values are kept as their java type.
+     * @param fieldPaths field names split by {@link #splitFieldPaths(List)}
+     */
+    public static Map<String, Object> rowToJsonMap(Row row, String[][] fieldPaths) {
+        int length = Math.min(row.getArity(), fieldPaths.length);
+        Map<String, Object> jsonMap = new HashMap<>(length * 4 / 3 + 1);
+        for (int i = 0; i < length; i++) {
+            String[] parts = fieldPaths[i];
+            Map<String, Object> currMap = jsonMap;
+            for (int j = 0; j < parts.length - 1; j++) {
+                Object child = currMap.get(parts[j]);
+                if (!(child instanceof Map)) {
+                    child = new HashMap<String, Object>();
+                    currMap.put(parts[j], child);
+                }
+                currMap = (Map<String, Object>) child;
+            }
+            currMap.put(parts[parts.length - 1], row.getField(i));
+        }
+
+        return jsonMap;
+    }
+
+    /**
+     * Positions of the fields given as "field[,field]", a field is either its position or its name.
+     * @return empty array if fields is blank
+     */
+    public static int[] resolveFieldIndexes(String fields, String[] fieldNames) {
+        if (StringUtils.isBlank(fields)) {
+            return new int[0];
+        }
+
+        List<String> fieldNameList = Arrays.asList(fieldNames);
+        String[] fieldArr = fields.split(",");
+        int[] fieldIndexes = new int[fieldArr.length];
+        for (int i = 0; i < fieldArr.length; i++) {
+            String field = fieldArr[i].trim();
+            fieldIndexes[i] = NumberUtils.isDigits(field) ? Integer.parseInt(field) : fieldNameList.indexOf(field);
+            if (fieldIndexes[i] < 0 || fieldIndexes[i] >= fieldNames.length) {
+                throw new IllegalArgumentException("elasticsearch field " + field + " not found in " + fieldNameList);
+            }
+        }
+
+        return fieldIndexes;
+    }
+
+    /**
+     * Write one action of a bulk request in the ndjson format of the _bulk api:
+     * the action line and, for an index action, the document source line.
+     * @param routingKey key of the routing in the action line, _routing before elasticsearch 7 and routing since
+     * @param writeDefaultType whether the type _doc is written as well, the type is optional only since elasticsearch 7
+     */
+    public static void writeBulkAction(DocWriteRequest<?> request, String routingKey, boolean writeDefaultType, OutputStream out) throws IOException {
+        XContentBuilder actionLine = XContentFactory.jsonBuilder();
+        actionLine.startObject().startObject(request.opType().getLowercase());
+        actionLine.field("_index", request.index());
+        if (request.type() != null && (writeDefaultType || !DEFAULT_TYPE.equals(request.type()))) {
+            actionLine.field("_type", request.type());
+        }
+        if (request.id() != null) {
+            actionLine.field("_id", request.id());
+        }
+        if (request.routing() != null) {
+            actionLine.field(routingKey, request.routing());
+        }
+        actionLine.endObject().endObject();
+        BytesReference.bytes(actionLine).writeTo(out);
+        out.write('\n');
+
+        if (request instanceof IndexRequest) {
+            ((IndexRequest) request).source().writeTo(out);
+            out.write('\n');
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.dtstack.flink.sql.sink.elasticsearch.table;
+
+
+import com.dtstack.flink.sql.table.AbsTableParser;
+import com.dtstack.flink.sql.table.TableInfo;
+import com.dtstack.flink.sql.util.MathUtil;
+
+import java.util.Map;
+
+/**
+ * Options of the elasticsearch sinks written through the http rest api, the parser of each version sets the table type
+ * Company: www.dtstack.com
+ */
+public abstract class AbsElasticsearchSinkParser extends AbsTableParser {
+
+    private static final String KEY_ES_ADDRESS = "address";
+
+    private static final String KEY_ES_INDEX = "index";
+
+    private static final String KEY_ES_TYPE = "estype";
+
+    private static final String KEY_ES_ID_FIELD_INDEX_LIST = "id";
+
+    private static final String KEY_ES_ROUTING = "routing";
+
+    private static final String KEY_ES_AUTHMESH = "authMesh";
+
+    private static final String KEY_ES_USERNAME = "userName";
+
+    private static final String KEY_ES_PASSWORD = "password";
+
+    private static final String KEY_ES_BULK_FLUSH_MAX_ACTIONS = "bulkFlushMaxActions";
+
+    private static final String KEY_ES_BULK_FLUSH_MAX_SIZE_MB = "bulkFlushMaxSizeMb";
+
+    private static final String KEY_ES_BULK_FLUSH_INTERVAL_MS = "bulkFlushIntervalMs";
+
+    private static final String KEY_ES_BULK_CONCURRENT_REQUESTS = "bulkConcurrentRequests";
+
+    private static final String KEY_ES_BULK_FLUSH_BACKOFF_TYPE = "bulkFlushBackoffType";
+
+    private static final String KEY_ES_BULK_FLUSH_BACKOFF_RETRIES = "bulkFlushBackoffRetries";
+
+    private static final String KEY_ES_BULK_FLUSH_BACKOFF_DELAY_MS = "bulkFlushBackoffDelayMs";
+
+    private static final String KEY_ES_MAX_CONN_TOTAL = "maxConnTotal";
+
+    private static final String KEY_ES_MAX_CONN_PER_ROUTE = "maxConnPerRoute";
+
+    private static final String KEY_ES_COMPRESSION = "compression";
+
+    @Override
+    protected boolean fieldNameNeedsUpperCase() {
+        return false;
+    }
+
+    @Override
+    public TableInfo getTableInfo(String tableName, String fieldsInfo, Map<String, Object> props) {
+        ElasticsearchTableInfo elasticsearchTableInfo = new ElasticsearchTableInfo();
+        elasticsearchTableInfo.setName(tableName);
+        parseFieldsInfo(fieldsInfo, elasticsearchTableInfo);
+        elasticsearchTableInfo.setAddress((String) props.get(KEY_ES_ADDRESS.toLowerCase()));
+        elasticsearchTableInfo.setId((String) props.get(KEY_ES_ID_FIELD_INDEX_LIST.toLowerCase()));
+        elasticsearchTableInfo.setIndex((String) props.get(KEY_ES_INDEX.toLowerCase()));
+        elasticsearchTableInfo.setEsType((String) props.get(KEY_ES_TYPE.toLowerCase()));
+        elasticsearchTableInfo.setRouting(MathUtil.getString(props.get(KEY_ES_ROUTING.toLowerCase())));
+
+        String authMeshStr = (String)props.get(KEY_ES_AUTHMESH.toLowerCase());
+        if (authMeshStr != null & "true".equals(authMeshStr)) {
+            elasticsearchTableInfo.setAuthMesh(MathUtil.getBoolean(authMeshStr));
+            elasticsearchTableInfo.setUserName(MathUtil.getString(props.get(KEY_ES_USERNAME.toLowerCase())));
+            elasticsearchTableInfo.setPassword(MathUtil.getString(props.get(KEY_ES_PASSWORD.toLowerCase())));
+        }
+
+        Integer bulkFlushMaxActions = MathUtil.getIntegerVal(props.get(KEY_ES_BULK_FLUSH_MAX_ACTIONS.toLowerCase()));
+        if (bulkFlushMaxActions != null) {
+            elasticsearchTableInfo.setBulkFlushMaxActions(bulkFlushMaxActions);
+        }
+        Integer bulkFlushMaxSizeMb = MathUtil.getIntegerVal(props.get(KEY_ES_BULK_FLUSH_MAX_SIZE_MB.toLowerCase()));
+        if (bulkFlushMaxSizeMb != null) {
+            elasticsearchTableInfo.setBulkFlushMaxSizeMb(bulkFlushMaxSizeMb);
+        }
+        Long bulkFlushIntervalMs = MathUtil.getLongVal(props.get(KEY_ES_BULK_FLUSH_INTERVAL_MS.toLowerCase()));
+        if (bulkFlushIntervalMs != null) {
+            elasticsearchTableInfo.setBulkFlushIntervalMs(bulkFlushIntervalMs);
+        }
+        Integer bulkConcurrentRequests = MathUtil.getIntegerVal(props.get(KEY_ES_BULK_CONCURRENT_REQUESTS.toLowerCase()));
+        if (bulkConcurrentRequests != null) {
+            elasticsearchTableInfo.setBulkConcurrentRequests(bulkConcurrentRequests);
+        }
+        elasticsearchTableInfo.setBulkFlushBackoffType(MathUtil.getString(props.get(KEY_ES_BULK_FLUSH_BACKOFF_TYPE.toLowerCase())));
+        Integer bulkFlushBackoffRetries = MathUtil.getIntegerVal(props.get(KEY_ES_BULK_FLUSH_BACKOFF_RETRIES.toLowerCase()));
+        if (bulkFlushBackoffRetries != null) {
+            elasticsearchTableInfo.setBulkFlushBackoffRetries(bulkFlushBackoffRetries);
+        }
+        Long bulkFlushBackoffDelayMs = MathUtil.getLongVal(props.get(KEY_ES_BULK_FLUSH_BACKOFF_DELAY_MS.toLowerCase()));
+        if (bulkFlushBackoffDelayMs != null) {
+            elasticsearchTableInfo.setBulkFlushBackoffDelayMs(bulkFlushBackoffDelayMs);
+        }
+        Integer maxConnTotal = MathUtil.getIntegerVal(props.get(KEY_ES_MAX_CONN_TOTAL.toLowerCase()));
+        if (maxConnTotal != null) {
+            elasticsearchTableInfo.setMaxConnTotal(maxConnTotal);
+        }
+        Integer maxConnPerRoute = MathUtil.getIntegerVal(props.get(KEY_ES_MAX_CONN_PER_ROUTE.toLowerCase()));
+        if (maxConnPerRoute != null) {
+            elasticsearchTableInfo.setMaxConnPerRoute(maxConnPerRoute);
+        }
+        elasticsearchTableInfo.setCompression(MathUtil.getBoolean(props.get(KEY_ES_COMPRESSION.toLowerCase()), true));
+        elasticsearchTableInfo.check();
+        return elasticsearchTableInfo;
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.dtstack.flink.sql.sink.elasticsearch.table;
+
+
+import com.dtstack.flink.sql.table.TargetTableInfo;
+import com.google.common.base.Preconditions;
+
+/**
+ * Elasticsearch table written through the http rest api, options of the elasticsearch5 sink plus routing and http settings
+ * Company: www.dtstack.com
+ */
+public class ElasticsearchTableInfo extends TargetTableInfo {
+
+    //http address ip:port[,ip:port], a scheme such as https:// may be given
+    private String address;
+
+    private String index;
+
+    //fields joined by '_' into the document id, given by position or by name; the id is generated by elasticsearch if null
+    private String id;
+
+    //mapping type of the documents, required by elasticsearch 6; mapping types are removed in elasticsearch 7, _doc if null
+    private String esType;
+
+    //field whose value routes the document to a shard
+    private String routing;
+
+    private boolean authMesh = false;
+
+    private String userName;
+
+    private String password;
+
+    //actions of one bulk request, -1 to flush by size or interval only
+    private int bulkFlushMaxActions = 1000;
+
+    //estimated size of one bulk request, -1 to flush by actions or interval only
+    private int bulkFlushMaxSizeMb = 5;
+
+    //flush of the pending actions, no periodic flush if not positive
+    private long bulkFlushIntervalMs = 1000;
+
+    //bulk requests sent while new actions are added, 0 to send them one by one in the writing thread
+    private int bulkConcurrentRequests = 1;
+
+    //constant or exponential retry of the actions rejected by a full write queue, no retry if null
+    private String bulkFlushBackoffType;
+
+    private int bulkFlushBackoffRetries = 3;
+
+    private long bulkFlushBackoffDelayMs = 100;
+
+    //pooled http connections of a sink subtask
+    private int maxConnTotal = 30;
+
+    private int maxConnPerRoute = 10;
+
+    //gzip the body of the bulk requests
+    private boolean compression = true;
+
+    public String getEsType() {
+        return esType;
+    }
+
+    public void setEsType(String esType) {
+        this.esType = esType;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public void setAddress(String address) {
+        this.address = address;
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    public void setIndex(String index) {
+        this.index = index;
+    }
+
+    public String getRouting() {
+        return routing;
+    }
+
+    public void setRouting(String routing) {
+        this.routing = routing;
+    }
+
+    @Override
+    public String getType() {
+        return super.getType().toLowerCase();
+    }
+
+    public boolean isAuthMesh() {
+        return authMesh;
+    }
+
+    public void setAuthMesh(boolean authMesh) {
+        this.authMesh = authMesh;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public void setUserName(String userName) {
+        this.userName = userName;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public int getBulkFlushMaxActions() {
+        return bulkFlushMaxActions;
+    }
+
+    public void setBulkFlushMaxActions(int bulkFlushMaxActions) {
+        this.bulkFlushMaxActions = bulkFlushMaxActions;
+    }
+
+    public int getBulkFlushMaxSizeMb() {
+        return bulkFlushMaxSizeMb;
+    }
+
+    public void setBulkFlushMaxSizeMb(int bulkFlushMaxSizeMb) {
+        this.bulkFlushMaxSizeMb = bulkFlushMaxSizeMb;
+    }
+
+    public long getBulkFlushIntervalMs() {
+        return bulkFlushIntervalMs;
+    }
+
+    public void setBulkFlushIntervalMs(long bulkFlushIntervalMs) {
+        this.bulkFlushIntervalMs = bulkFlushIntervalMs;
+    }
+
+    public int getBulkConcurrentRequests() {
+        return bulkConcurrentRequests;
+    }
+
+    public void setBulkConcurrentRequests(int bulkConcurrentRequests) {
+        this.bulkConcurrentRequests = bulkConcurrentRequests;
+    }
+
+    public String getBulkFlushBackoffType() {
+        return bulkFlushBackoffType;
+    }
+
+    public void setBulkFlushBackoffType(String bulkFlushBackoffType) {
+        this.bulkFlushBackoffType = bulkFlushBackoffType;
+    }
+
+    public int getBulkFlushBackoffRetries() {
+        return bulkFlushBackoffRetries;
+    }
+
+    public void setBulkFlushBackoffRetries(int bulkFlushBackoffRetries) {
+        this.bulkFlushBackoffRetries = bulkFlushBackoffRetries;
+    }
+
+    public long getBulkFlushBackoffDelayMs() {
+        return bulkFlushBackoffDelayMs;
+    }
+
+    public void setBulkFlushBackoffDelayMs(long bulkFlushBackoffDelayMs) {
+        this.bulkFlushBackoffDelayMs = bulkFlushBackoffDelayMs;
+    }
+
+    public int getMaxConnTotal() {
+        return maxConnTotal;
+    }
+
+    public void setMaxConnTotal(int maxConnTotal) {
+        this.maxConnTotal = maxConnTotal;
+    }
+
+    public int getMaxConnPerRoute() {
+        return maxConnPerRoute;
+    }
+
+    public void setMaxConnPerRoute(int maxConnPerRoute) {
+        this.maxConnPerRoute = maxConnPerRoute;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
+    @Override
+    public boolean check() {
+        Preconditions.checkNotNull(address, "elasticsearch type of address is required");
+        Preconditions.checkNotNull(index, "elasticsearch type of index is required");
+
+        if (isAuthMesh()) {
+            Preconditions.checkNotNull(userName, "elasticsearch type of userName is required");
+            Preconditions.checkNotNull(password, "elasticsearch type of password is required");
+        }
+
+        Preconditions.checkArgument(bulkFlushMaxActions > 0 || bulkFlushMaxActions == -1,
+                "elasticsearch type of bulkFlushMaxActions must be positive or -1");
+        Preconditions.checkArgument(bulkFlushMaxSizeMb > 0 || bulkFlushMaxSizeMb == -1,
+                "elasticsearch type of bulkFlushMaxSizeMb must be positive or -1");
+        Preconditions.checkArgument(bulkConcurrentRequests >= 0, "elasticsearch type of bulkConcurrentRequests must not be negative");
+        if (bulkFlushBackoffType != null) {
+            Preconditions.checkArgument("constant".equalsIgnoreCase(bulkFlushBackoffType) || "exponential".equalsIgnoreCase(bulkFlushBackoffType),
+                    "elasticsearch type of bulkFlushBackoffType must be constant or exponential");
+            Preconditions.checkArgument(bulkFlushBackoffRetries > 0, "elasticsearch type of bulkFlushBackoffRetries must be positive");
+            Preconditions.checkArgument(bulkFlushBackoffDelayMs >= 0, "elasticsearch type of bulkFlushBackoffDelayMs must not be negative");
+        }
+        Preconditions.checkArgument(maxConnTotal > 0 && maxConnPerRoute > 0,
+                "elasticsearch type of maxConnTotal and maxConnPerRoute must be positive");
+
+        return true;
+    }
+
+}
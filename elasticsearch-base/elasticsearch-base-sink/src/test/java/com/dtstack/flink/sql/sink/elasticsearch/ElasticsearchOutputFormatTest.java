@@ -0,0 +1,375 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.flink.sql.sink.elasticsearch;
+
+import com.dtstack.flink.sql.metric.MetricConstant;
+import com.dtstack.flink.sql.sink.elasticsearch.table.ElasticsearchTableInfo;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.TaskInfo;
+import org.apache.flink.api.common.functions.util.RuntimeUDFContext;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.SimpleCounter;
+import org.apache.flink.metrics.groups.UnregisteredMetricsGroup;
+import org.apache.flink.types.Row;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Bulk requests of the elasticsearch sink as an elasticsearch node receives them, served by a local http server.
+ * Company: www.dtstack.com
+ */
+
+public class ElasticsearchOutputFormatTest {
+
+    private static final String[] FIELD_NAMES = new String[]{"id", "tenant", "detail.name"};
+
+    private static final String INDEX = "orders";
+
+    private static final String CREATED_ITEM = "{\"index\":{\"_index\":\"orders\",\"_type\":\"_doc\",\"_id\":\"%s\",\"_version\":1,\"result\":\"created\","
+            + "\"_shards\":{\"total\":2,\"successful\":1,\"failed\":0},\"_seq_no\":0,\"_primary_term\":1,\"status\":201}}";
+
+    private static final String FAILED_ITEM = "{\"index\":{\"_index\":\"orders\",\"_type\":\"_doc\",\"_id\":\"%s\",\"status\":%d,"
+            + "\"error\":{\"type\":\"%s\",\"reason\":\"item failed\"}}}";
+
+    private HttpServer server;
+
+    private final List<BulkHttpRequest> bulkRequests = new CopyOnWriteArrayList<>();
+
+    private volatile int bulkStatus = 200;
+
+    //answer of the _bulk requests, every action is created if null
+    private volatile String bulkResponse;
+
+    private final CountingMetricGroup metricGroup = new CountingMetricGroup();
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"/_bulk".equals(exchange.getRequestURI().getPath())) {
+                //connection probe of open
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+
+            BulkHttpRequest request = new BulkHttpRequest(exchange.getRequestHeaders().getFirst("Content-Type"),
+                    exchange.getRequestHeaders().getFirst("Content-Encoding"), readAll(exchange.getRequestBody()));
+            bulkRequests.add(request);
+
+            String response = bulkResponse;
+            if (response == null) {
+                List<String> items = new ArrayList<>();
+                for (Map<String, Object> line : request.lines()) {
+                    if (line.containsKey("index") || line.containsKey("delete")) {
+                        items.add(String.format(CREATED_ITEM, items.size()));
+                    }
+                }
+                response = bulkResponse(items);
+            }
+            byte[] responseBytes = response.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+            exchange.sendResponseHeaders(bulkStatus, responseBytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(responseBytes);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private ElasticsearchTableInfo tableInfo(String esType) {
+        ElasticsearchTableInfo tableInfo = new ElasticsearchTableInfo();
+        tableInfo.setAddress("http://127.0.0.1:" + server.getAddress().getPort());
+        tableInfo.setIndex(INDEX);
+        tableInfo.setEsType(esType);
+        tableInfo.setId("id");
+        tableInfo.setRouting("tenant");
+        //bulk requests are sent by flush of the test only
+        tableInfo.setBulkFlushIntervalMs(0);
+        return tableInfo;
+    }
+
+    private ElasticsearchOutputFormat openFormat(ElasticsearchTableInfo tableInfo, String bulkRoutingKey, boolean writeDefaultType) throws IOException {
+        ElasticsearchOutputFormat outputFormat = new ElasticsearchOutputFormat(tableInfo, FIELD_NAMES, bulkRoutingKey, writeDefaultType);
+        outputFormat.setRuntimeContext(new RuntimeUDFContext(new TaskInfo("elasticsearch sink", 1, 0, 1, 0),
+                getClass().getClassLoader(), new ExecutionConfig(), new HashMap<>(), new HashMap<>(), metricGroup));
+        outputFormat.open(0, 1);
+        return outputFormat;
+    }
+
+    @Test
+    public void bulkBodyIsGzippedNdjson() throws Exception {
+        ElasticsearchOutputFormat outputFormat = openFormat(tableInfo("doc"), "_routing", true);
+        outputFormat.writeRecord(new Tuple2<>(true, Row.of(1, "t1", "a")));
+        outputFormat.writeRecord(new Tuple2<>(true, Row.of(2, null, "b")));
+        outputFormat.flush();
+        outputFormat.close();
+
+        assertEquals(1, bulkRequests.size());
+        BulkHttpRequest request = bulkRequests.get(0);
+        assertEquals("gzip", request.contentEncoding);
+        assertTrue(request.contentType, request.contentType.startsWith("application/x-ndjson"));
+        List<Map<String, Object>> lines = request.lines();
+        assertEquals(4, lines.size());
+        assertEquals(actionLine("index", "doc", "1", "_routing", "t1"), lines.get(0));
+        assertEquals(source(1, "t1", "a"), lines.get(1));
+        assertEquals(actionLine("index", "doc", "2", null, null), lines.get(2));
+        assertEquals(source(2, null, "b"), lines.get(3));
+        assertEquals(2, metricGroup.count(MetricConstant.DT_NUM_RECORDS_OUT));
+        assertEquals(0, metricGroup.count(MetricConstant.DT_NUM_DIRTY_RECORDS_OUT));
+    }
+
+    @Test
+    public void actionLinesOfElasticsearch7() throws Exception {
+        ElasticsearchTableInfo tableInfo = tableInfo("_doc");
+        tableInfo.setCompression(false);
+        ElasticsearchOutputFormat outputFormat = openFormat(tableInfo, "routing", false);
+        outputFormat.writeRecord(new Tuple2<>(true, Row.of(1, "t1", "a")));
+        outputFormat.flush();
+        outputFormat.close();
+
+        BulkHttpRequest request = bulkRequests.get(0);
+        assertNull(request.contentEncoding);
+        List<Map<String, Object>> lines = request.lines();
+        assertEquals(2, lines.size());
+        //the type _doc is left out, the routing has no leading underscore
+        assertEquals(actionLine("index", null, "1", "routing", "t1"), lines.get(0));
+        assertEquals(source(1, "t1", "a"), lines.get(1));
+    }
+
+    @Test
+    public void retractedRowIsDeleted() throws Exception {
+        ElasticsearchOutputFormat outputFormat = openFormat(tableInfo("doc"), "_routing", true);
+        outputFormat.writeRecord(new Tuple2<>(false, Row.of(1, "t1", "a")));
+        outputFormat.writeRecord(new Tuple2<>(true, Row.of(1, "t1", "b")));
+        //no document of a null id, the row is dirty
+        outputFormat.writeRecord(new Tuple2<>(false, Row.of(null, "t1", "c")));
+        outputFormat.flush();
+        outputFormat.close();
+
+        List<Map<String, Object>> lines = bulkRequests.get(0).lines();
+        assertEquals(3, lines.size());
+        //a delete action has no source line
+        assertEquals(actionLine("delete", "doc", "1", "_routing", "t1"), lines.get(0));
+        assertEquals(actionLine("index", "doc", "1", "_routing", "t1"), lines.get(1));
+        assertEquals(source(1, "t1", "b"), lines.get(2));
+        assertEquals(2, metricGroup.count(MetricConstant.DT_NUM_RECORDS_OUT));
+        assertEquals(1, metricGroup.count(MetricConstant.DT_NUM_DIRTY_RECORDS_OUT));
+    }
+
+    @Test
+    public void retractOfAGeneratedIdIsSkipped() throws Exception {
+        ElasticsearchTableInfo tableInfo = tableInfo("doc");
+        tableInfo.setId(null);
+        ElasticsearchOutputFormat outputFormat = openFormat(tableInfo, "_routing", true);
+        outputFormat.writeRecord(new Tuple2<>(false, Row.of(1, "t1", "a")));
+        outputFormat.writeRecord(new Tuple2<>(true, Row.of(1, "t1", "b")));
+        outputFormat.flush();
+        outputFormat.close();
+
+        List<Map<String, Object>> lines = bulkRequests.get(0).lines();
+        assertEquals(2, lines.size());
+        assertEquals(actionLine("index", "doc", null, "_routing", "t1"), lines.get(0));
+        assertEquals(0, metricGroup.count(MetricConstant.DT_NUM_DIRTY_RECORDS_OUT));
+    }
+
+    @Test
+    public void failedItemsAreDirty() throws Exception {
+        List<String> items = new ArrayList<>();
+        items.add(String.format(CREATED_ITEM, 1));
+        items.add(String.format(FAILED_ITEM, 2, 400, "mapper_parsing_exception"));
+        items.add(String.format(FAILED_ITEM, 3, 429, "es_rejected_execution_exception"));
+        bulkResponse = bulkResponse(items);
+
+        ElasticsearchOutputFormat outputFormat = openFormat(tableInfo("doc"), "_routing", true);
+        for (int i = 1; i <= 3; i++) {
+            outputFormat.writeRecord(new Tuple2<>(true, Row.of(i, "t1", "a")));
+        }
+        //failed items don't fail the sink
+        outputFormat.flush();
+        outputFormat.close();
+
+        assertEquals(3, metricGroup.count(MetricConstant.DT_NUM_RECORDS_OUT));
+        assertEquals(2, metricGroup.count(MetricConstant.DT_NUM_DIRTY_RECORDS_OUT));
+        assertEquals(1, metricGroup.count(MetricConstant.DT_NUM_SINK_REJECTED_RECORDS));
+    }
+
+    @Test
+    public void failedBulkRequestFailsTheSink() throws Exception {
+        bulkStatus = 500;
+        bulkResponse = "{\"error\":\"node failed\"}";
+
+        ElasticsearchOutputFormat outputFormat = openFormat(tableInfo("doc"), "_routing", true);
+        outputFormat.writeRecord(new Tuple2<>(true, Row.of(1, "t1", "a")));
+        try {
+            outputFormat.flush();
+            fail("a failed bulk request must reach the sink");
+        } catch (IOException e) {
+            assertTrue(e.getCause() instanceof ResponseException);
+        }
+        try {
+            outputFormat.writeRecord(new Tuple2<>(true, Row.of(2, "t1", "a")));
+            fail("no row is written after a failed bulk request");
+        } catch (IOException e) {
+            assertTrue(e.getCause() instanceof ResponseException);
+        }
+        try {
+            outputFormat.close();
+            fail("close flushes and reports the failure as well");
+        } catch (IOException e) {
+            assertTrue(e.getCause() instanceof ResponseException);
+        }
+        assertEquals(0, metricGroup.count(MetricConstant.DT_NUM_SINK_REJECTED_RECORDS));
+    }
+
+    private static Map<String, Object> actionLine(String opType, String type, String id, String routingKey, String routing) {
+        Map<String, Object> action = new HashMap<>();
+        action.put("_index", INDEX);
+        if (type != null) {
+            action.put("_type", type);
+        }
+        if (id != null) {
+            action.put("_id", id);
+        }
+        if (routing != null) {
+            action.put(routingKey, routing);
+        }
+        Map<String, Object> actionLine = new HashMap<>();
+        actionLine.put(opType, action);
+        return actionLine;
+    }
+
+    private static Map<String, Object> source(int id, String tenant, String name) {
+        Map<String, Object> detail = new HashMap<>();
+        detail.put("name", name);
+        Map<String, Object> source = new HashMap<>();
+        source.put("id", id);
+        source.put("tenant", tenant);
+        source.put("detail", detail);
+        return source;
+    }
+
+    private static String bulkResponse(List<String> items) {
+        boolean errors = items.stream().anyMatch(item -> item.contains("\"error\""));
+        return "{\"took\":3,\"errors\":" + errors + ",\"items\":[" + String.join(",", items) + "]}";
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int length;
+        while ((length = in.read(buffer)) != -1) {
+            out.write(buffer, 0, length);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * A _bulk request as received, the body is kept as sent.
+     */
+    private static class BulkHttpRequest {
+
+        private final String contentType;
+
+        private final String contentEncoding;
+
+        private final byte[] body;
+
+        BulkHttpRequest(String contentType, String contentEncoding, byte[] body) {
+            this.contentType = contentType;
+            this.contentEncoding = contentEncoding;
+            this.body = body;
+        }
+
+        /**
+         * @return lines of the ndjson body, parsed
+         */
+        List<Map<String, Object>> lines() throws IOException {
+            byte[] ndjson = body;
+            if ("gzip".equals(contentEncoding)) {
+                try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                    ndjson = readAll(in);
+                }
+            }
+
+            String text = new String(ndjson, StandardCharsets.UTF_8);
+            assertTrue("every line of the _bulk body ends with a newline", text.endsWith("\n"));
+            List<Map<String, Object>> lines = new ArrayList<>();
+            for (String line : text.split("\n")) {
+                lines.add(XContentHelper.convertToMap(XContentType.JSON.xContent(), line, false));
+            }
+            return lines;
+        }
+    }
+
+    /**
+     * Keeps the counters of the sink by name.
+     */
+    private static class CountingMetricGroup extends UnregisteredMetricsGroup {
+
+        private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+        @Override
+        public Counter counter(String name) {
+            return counters.computeIfAbsent(name, key -> new SimpleCounter());
+        }
+
+        long count(String name) {
+            Counter counter = counters.get(name);
+            return counter == null ? 0 : counter.getCount();
+        }
+    }
+}
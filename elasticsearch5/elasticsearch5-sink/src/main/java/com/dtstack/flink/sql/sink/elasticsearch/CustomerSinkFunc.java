@@ -20,21 +20,19 @@
 
 package com.dtstack.flink.sql.sink.elasticsearch;
 
-import org.apache.commons.lang3.StringUtils;
 import org.apache.flink.api.common.functions.RuntimeContext;
 import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.metrics.Counter;
 import org.apache.flink.streaming.connectors.elasticsearch.ElasticsearchSinkFunction;
 import org.apache.flink.streaming.connectors.elasticsearch.RequestIndexer;
 import org.apache.flink.types.Row;
+import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.client.Requests;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Reason:
@@ -53,20 +51,18 @@ public class CustomerSinkFunc implements ElasticsearchSinkFunction<Tuple2> {
 
     private List<Integer> idFieldIndexList;
 
-    private List<String> fieldNames;
-
-    private List<String> fieldTypes;
+    //field names split by '.', see EsUtil
+    private String[][] fieldPaths;
 
     public transient Counter outRecords;
 
     /** 默认分隔符为'_' */
     private char sp = '_';
 
-    public CustomerSinkFunc(String index, String type, List<String> fieldNames, List<String> fieldTypes, List<Integer> idFieldIndexes){
+    public CustomerSinkFunc(String index, String type, List<String> fieldNames, List<Integer> idFieldIndexes){
         this.index = index;
         this.type = type;
-        this.fieldNames = fieldNames;
-        this.fieldTypes = fieldTypes;
+        this.fieldPaths = EsUtil.splitFieldPaths(fieldNames);
         this.idFieldIndexList = idFieldIndexes;
     }
 
@@ -76,12 +72,16 @@ public class CustomerSinkFunc implements ElasticsearchSinkFunction<Tuple2> {
             Tuple2<Boolean, Row> tupleTrans = tuple2;
             Boolean retract = tupleTrans.getField(0);
             Row element = tupleTrans.getField(1);
-            if(!retract){
-                return;
+            if(retract){
+                indexer.add(createIndexRequest(element));
+            } else {
+                //the retracted row is deleted by its id, the row of an update is indexed right after
+                String id = buildId(element);
+                if(id.isEmpty()){
+                    return;
+                }
+                indexer.add(createDeleteRequest(id));
             }
-
-
-            indexer.add(createIndexRequest(element));
             outRecords.inc();
         }catch (Throwable e){
             logger.error("", e);
@@ -93,27 +93,32 @@ public class CustomerSinkFunc implements ElasticsearchSinkFunction<Tuple2> {
     }
 
     private IndexRequest createIndexRequest(Row element) {
+        return Requests.indexRequest()
+                .index(index)
+                .type(type)
+                .id(buildId(element))
+                .source(EsUtil.rowToJsonMap(element, fieldPaths));
+    }
+
+    private DeleteRequest createDeleteRequest(String id) {
+        return Requests.deleteRequest(index)
+                .type(type)
+                .id(id);
+    }
 
-        List<String> idFieldList = new ArrayList<>();
+    private String buildId(Row element) {
+        StringBuilder id = new StringBuilder();
         for(int index : idFieldIndexList){
             if(index >= element.getArity()){
                 continue;
             }
 
-            idFieldList.add(element.getField(index).toString());
-        }
-
-        Map<String, Object> dataMap = EsUtil.rowToJsonMap(element,fieldNames,fieldTypes);
-        int length = Math.min(element.getArity(), fieldNames.size());
-        for(int i=0; i<length; i++){
-            dataMap.put(fieldNames.get(i), element.getField(i));
+            if(id.length() > 0){
+                id.append(sp);
+            }
+            id.append(element.getField(index).toString());
         }
 
-        String id = StringUtils.join(idFieldList, sp);
-        return Requests.indexRequest()
-                .index(index)
-                .type(type)
-                .id(id)
-                .source(dataMap);
+        return id.toString();
     }
 }
@@ -30,6 +30,7 @@ import org.apache.flink.api.java.typeutils.TupleTypeInfo;
 import org.apache.flink.streaming.api.datastream.DataStream;
 import org.apache.flink.streaming.api.datastream.DataStreamSink;
 import org.apache.flink.streaming.api.functions.sink.RichSinkFunction;
+import org.apache.flink.streaming.connectors.elasticsearch.ElasticsearchSinkBase;
 import org.apache.flink.table.sinks.RetractStreamTableSink;
 import org.apache.flink.table.sinks.TableSink;
 import org.apache.flink.types.Row;
@@ -56,7 +57,7 @@ public class ElasticsearchSink implements RetractStreamTableSink<Row>, IStreamSi
 
     private String clusterName;
 
-    private int bulkFlushMaxActions = 1;
+    private int bulkFlushMaxActions;
 
     private List<String> esAddressList;
 
@@ -110,8 +111,18 @@ public class ElasticsearchSink implements RetractStreamTableSink<Row>, IStreamSi
 
         Map<String, String> userConfig = new HashMap<>();
         userConfig.put("cluster.name", clusterName);
-        // This instructs the sink to emit after every element, otherwise they would be buffered
-        userConfig.put(org.apache.flink.streaming.connectors.elasticsearch5.ElasticsearchSink.CONFIG_KEY_BULK_FLUSH_MAX_ACTIONS, "" + bulkFlushMaxActions);
+        // pending actions are flushed by count, size, interval and on checkpoint
+        userConfig.put(ElasticsearchSinkBase.CONFIG_KEY_BULK_FLUSH_MAX_ACTIONS, "" + bulkFlushMaxActions);
+        userConfig.put(ElasticsearchSinkBase.CONFIG_KEY_BULK_FLUSH_MAX_SIZE_MB, "" + esTableInfo.getBulkFlushMaxSizeMb());
+        if (esTableInfo.getBulkFlushIntervalMs() > 0) {
+            userConfig.put(ElasticsearchSinkBase.CONFIG_KEY_BULK_FLUSH_INTERVAL_MS, "" + esTableInfo.getBulkFlushIntervalMs());
+        }
+        if (esTableInfo.getBulkFlushBackoffType() != null) {
+            userConfig.put(ElasticsearchSinkBase.CONFIG_KEY_BULK_FLUSH_BACKOFF_ENABLE, "true");
+            userConfig.put(ElasticsearchSinkBase.CONFIG_KEY_BULK_FLUSH_BACKOFF_TYPE, esTableInfo.getBulkFlushBackoffType().toUpperCase());
+            userConfig.put(ElasticsearchSinkBase.CONFIG_KEY_BULK_FLUSH_BACKOFF_RETRIES, "" + esTableInfo.getBulkFlushBackoffRetries());
+            userConfig.put(ElasticsearchSinkBase.CONFIG_KEY_BULK_FLUSH_BACKOFF_DELAY, "" + esTableInfo.getBulkFlushBackoffDelayMs());
+        }
         List<InetSocketAddress> transports = new ArrayList<>();
 
         for(String address : esAddressList){
@@ -138,7 +149,7 @@ public class ElasticsearchSink implements RetractStreamTableSink<Row>, IStreamSi
             userConfig.put("xpack.security.user", authPassword);
         }
 
-        CustomerSinkFunc customerSinkFunc = new CustomerSinkFunc(index, type, Arrays.asList(fieldNames), Arrays.asList(columnTypes), idIndexList);
+        CustomerSinkFunc customerSinkFunc = new CustomerSinkFunc(index, type, Arrays.asList(fieldNames), idIndexList);
 
         return new MetricElasticsearchSink(userConfig, transports, customerSinkFunc, esTableInfo);
     }
@@ -186,6 +197,7 @@ public class ElasticsearchSink implements RetractStreamTableSink<Row>, IStreamSi
         }
 
         columnTypes = elasticsearchTableInfo.getFieldTypes();
+        bulkFlushMaxActions = elasticsearchTableInfo.getBulkFlushMaxActions();
 
         return this;
     }
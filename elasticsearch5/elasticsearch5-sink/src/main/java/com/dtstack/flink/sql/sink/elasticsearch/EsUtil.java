@@ -18,9 +18,7 @@
 
 package com.dtstack.flink.sql.sink.elasticsearch;
 
-import com.dtstack.flink.sql.util.DtStringUtil;
 import org.apache.flink.types.Row;
-import org.apache.flink.util.Preconditions;
 
 import java.util.HashMap;
 import java.util.List;
@@ -34,28 +32,37 @@ import java.util.Map;
  */
 public class EsUtil {
 
-    public static Map<String, Object> rowToJsonMap(Row row, List<String> fields, List<String> types) {
-        Preconditions.checkArgument(row.getArity() == fields.size());
-        Map<String,Object> jsonMap = new HashMap<>();
-        int i = 0;
-        for(; i < fields.size(); ++i) {
-            String field = fields.get(i);
-            String[] parts = field.split("\\.");
+    /**
+     * Split the field names by '.' once, a field a.b is written as the field b of the object a.
+     */
+    public static String[][] splitFieldPaths(List<String> fields) {
+        String[][] fieldPaths = new String[fields.size()][];
+        for (int i = 0; i < fieldPaths.length; i++) {
+            fieldPaths[i] = fields.get(i).split("\\.");
+        }
+
+        return fieldPaths;
+    }
+
+    /**
+     * Build the document source of the row in one pass, values are kept as their java type.
+     * @param fieldPaths field names split by {@link #splitFieldPaths(List)}
+     */
+    public static Map<String, Object> rowToJsonMap(Row row, String[][] fieldPaths) {
+        int length = Math.min(row.getArity(), fieldPaths.length);
+        Map<String, Object> jsonMap = new HashMap<>(length * 4 / 3 + 1);
+        for (int i = 0; i < length; i++) {
+            String[] parts = fieldPaths[i];
             Map<String, Object> currMap = jsonMap;
-            for(int j = 0; j < parts.length - 1; ++j) {
-                String key = parts[j];
-                if(currMap.get(key) == null) {
-                    currMap.put(key, new HashMap<String,Object>());
+            for (int j = 0; j < parts.length - 1; j++) {
+                Object child = currMap.get(parts[j]);
+                if (!(child instanceof Map)) {
+                    child = new HashMap<String, Object>();
+                    currMap.put(parts[j], child);
                 }
-                currMap = (Map<String, Object>) currMap.get(key);
-            }
-            String key = parts[parts.length - 1];
-            Object col = row.getField(i);
-            if(col != null) {
-                Object value = DtStringUtil.col2string(col, types.get(i));
-                currMap.put(key, value);
+                currMap = (Map<String, Object>) child;
             }
-
+            currMap.put(parts[parts.length - 1], row.getField(i));
         }
 
         return jsonMap;
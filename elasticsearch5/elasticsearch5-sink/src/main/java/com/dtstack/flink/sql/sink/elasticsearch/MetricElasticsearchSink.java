@@ -22,14 +22,22 @@ import com.dtstack.flink.sql.metric.MetricConstant;
 import com.dtstack.flink.sql.sink.elasticsearch.table.ElasticsearchTableInfo;
 import org.apache.flink.configuration.Configuration;
 import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.Gauge;
 import org.apache.flink.metrics.Meter;
 import org.apache.flink.metrics.MeterView;
 import org.apache.flink.streaming.connectors.elasticsearch.ElasticsearchSinkFunction;
 import org.apache.flink.streaming.connectors.elasticsearch.util.NoOpFailureHandler;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.rest.RestStatus;
 
-import java.net.InetSocketAddress;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @Auther: jiangjunjie
@@ -45,6 +53,14 @@ public class MetricElasticsearchSink extends org.apache.flink.streaming.connecto
 
     protected Map userConfig;
 
+    protected transient Counter outRejectedRecords;
+
+    private transient volatile long lastBulkActions;
+
+    private transient volatile long lastBulkBytes;
+
+    private transient volatile long lastBulkLatencyMs;
+
 
     public MetricElasticsearchSink(Map userConfig, List transportAddresses,
                                    ElasticsearchSinkFunction elasticsearchSinkFunction,
@@ -56,8 +72,14 @@ public class MetricElasticsearchSink extends org.apache.flink.streaming.connecto
 
     @Override
     public void open(Configuration parameters) throws Exception {
-        super.open(parameters);
+        //metrics are read by the bulk listener, which may run as soon as the bulk processor is built
         initMetric();
+        super.open(parameters);
+    }
+
+    @Override
+    protected BulkProcessor buildBulkProcessor(BulkProcessor.Listener listener) {
+        return super.buildBulkProcessor(new MetricBulkListener(listener));
     }
 
     /*public void setXPackTransportClient() throws Exception {
@@ -78,5 +100,62 @@ public class MetricElasticsearchSink extends org.apache.flink.streaming.connecto
         Counter counter = getRuntimeContext().getMetricGroup().counter(MetricConstant.DT_NUM_RECORDS_OUT);
         customerSinkFunc.setOutRecords(counter);
         outRecordsRate = getRuntimeContext().getMetricGroup().meter(MetricConstant.DT_NUM_RECORDS_OUT_RATE, new MeterView(counter, 20));
+        outRejectedRecords = getRuntimeContext().getMetricGroup().counter(MetricConstant.DT_NUM_SINK_REJECTED_RECORDS);
+        getRuntimeContext().getMetricGroup().gauge(MetricConstant.DT_SINK_BULK_ACTIONS_GAUGE, (Gauge<Long>) () -> lastBulkActions);
+        getRuntimeContext().getMetricGroup().gauge(MetricConstant.DT_SINK_BULK_BYTES_GAUGE, (Gauge<Long>) () -> lastBulkBytes);
+        getRuntimeContext().getMetricGroup().gauge(MetricConstant.DT_SINK_BULK_LATENCY_GAUGE, (Gauge<Long>) () -> lastBulkLatencyMs);
+    }
+
+    /**
+     * Records size and latency of each bulk request and counts the actions rejected by a full write queue
+     * of the cluster, the failures are then handled by the listener of the base sink.
+     */
+    private class MetricBulkListener implements BulkProcessor.Listener {
+
+        private final BulkProcessor.Listener listener;
+
+        //execution id -> start time of the bulk request
+        private final Map<Long, Long> startTimes = new ConcurrentHashMap<>();
+
+        MetricBulkListener(BulkProcessor.Listener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void beforeBulk(long executionId, BulkRequest request) {
+            startTimes.put(executionId, System.currentTimeMillis());
+            lastBulkActions = request.numberOfActions();
+            lastBulkBytes = request.estimatedSizeInBytes();
+            listener.beforeBulk(executionId, request);
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+            recordLatency(executionId);
+            if (response.hasFailures()) {
+                for (BulkItemResponse itemResponse : response.getItems()) {
+                    if (itemResponse.isFailed() && itemResponse.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS) {
+                        outRejectedRecords.inc();
+                    }
+                }
+            }
+            listener.afterBulk(executionId, request, response);
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+            recordLatency(executionId);
+            if (ExceptionsHelper.unwrapCause(failure) instanceof EsRejectedExecutionException) {
+                outRejectedRecords.inc(request.numberOfActions());
+            }
+            listener.afterBulk(executionId, request, failure);
+        }
+
+        private void recordLatency(long executionId) {
+            Long startTime = startTimes.remove(executionId);
+            if (startTime != null) {
+                lastBulkLatencyMs = System.currentTimeMillis() - startTime;
+            }
+        }
     }
 }
@@ -50,6 +50,18 @@ public class ElasticsearchSinkParser extends AbsTableParser {
 
     private static final String KEY_ES_PASSWORD = "password";
 
+    private static final String KEY_ES_BULK_FLUSH_MAX_ACTIONS = "bulkFlushMaxActions";
+
+    private static final String KEY_ES_BULK_FLUSH_MAX_SIZE_MB = "bulkFlushMaxSizeMb";
+
+    private static final String KEY_ES_BULK_FLUSH_INTERVAL_MS = "bulkFlushIntervalMs";
+
+    private static final String KEY_ES_BULK_FLUSH_BACKOFF_TYPE = "bulkFlushBackoffType";
+
+    private static final String KEY_ES_BULK_FLUSH_BACKOFF_RETRIES = "bulkFlushBackoffRetries";
+
+    private static final String KEY_ES_BULK_FLUSH_BACKOFF_DELAY_MS = "bulkFlushBackoffDelayMs";
+
     @Override
     protected boolean fieldNameNeedsUpperCase() {
         return false;
@@ -72,6 +84,28 @@ public class ElasticsearchSinkParser extends AbsTableParser {
             elasticsearchTableInfo.setUserName(MathUtil.getString(props.get(KEY_ES_USERNAME.toLowerCase())));
             elasticsearchTableInfo.setPassword(MathUtil.getString(props.get(KEY_ES_PASSWORD.toLowerCase())));
         }
+
+        Integer bulkFlushMaxActions = MathUtil.getIntegerVal(props.get(KEY_ES_BULK_FLUSH_MAX_ACTIONS.toLowerCase()));
+        if (bulkFlushMaxActions != null) {
+            elasticsearchTableInfo.setBulkFlushMaxActions(bulkFlushMaxActions);
+        }
+        Integer bulkFlushMaxSizeMb = MathUtil.getIntegerVal(props.get(KEY_ES_BULK_FLUSH_MAX_SIZE_MB.toLowerCase()));
+        if (bulkFlushMaxSizeMb != null) {
+            elasticsearchTableInfo.setBulkFlushMaxSizeMb(bulkFlushMaxSizeMb);
+        }
+        Long bulkFlushIntervalMs = MathUtil.getLongVal(props.get(KEY_ES_BULK_FLUSH_INTERVAL_MS.toLowerCase()));
+        if (bulkFlushIntervalMs != null) {
+            elasticsearchTableInfo.setBulkFlushIntervalMs(bulkFlushIntervalMs);
+        }
+        elasticsearchTableInfo.setBulkFlushBackoffType(MathUtil.getString(props.get(KEY_ES_BULK_FLUSH_BACKOFF_TYPE.toLowerCase())));
+        Integer bulkFlushBackoffRetries = MathUtil.getIntegerVal(props.get(KEY_ES_BULK_FLUSH_BACKOFF_RETRIES.toLowerCase()));
+        if (bulkFlushBackoffRetries != null) {
+            elasticsearchTableInfo.setBulkFlushBackoffRetries(bulkFlushBackoffRetries);
+        }
+        Long bulkFlushBackoffDelayMs = MathUtil.getLongVal(props.get(KEY_ES_BULK_FLUSH_BACKOFF_DELAY_MS.toLowerCase()));
+        if (bulkFlushBackoffDelayMs != null) {
+            elasticsearchTableInfo.setBulkFlushBackoffDelayMs(bulkFlushBackoffDelayMs);
+        }
         elasticsearchTableInfo.check();
         return elasticsearchTableInfo;
     }
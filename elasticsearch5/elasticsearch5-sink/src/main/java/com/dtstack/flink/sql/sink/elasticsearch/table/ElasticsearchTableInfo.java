@@ -49,6 +49,22 @@ public class ElasticsearchTableInfo extends TargetTableInfo {
 
     private String password;
 
+    //actions of one bulk request, -1 to flush by size or interval only
+    private int bulkFlushMaxActions = 1000;
+
+    //estimated size of one bulk request, -1 to flush by actions or interval only
+    private int bulkFlushMaxSizeMb = 5;
+
+    //flush of the pending actions, no periodic flush if not positive
+    private long bulkFlushIntervalMs = 1000;
+
+    //constant or exponential retry of a bulk rejected by a full write queue, no retry if null
+    private String bulkFlushBackoffType;
+
+    private int bulkFlushBackoffRetries = 3;
+
+    private long bulkFlushBackoffDelayMs = 100;
+
     public String getEsType() {
         return esType;
     }
@@ -119,6 +135,54 @@ public class ElasticsearchTableInfo extends TargetTableInfo {
         this.password = password;
     }
 
+    public int getBulkFlushMaxActions() {
+        return bulkFlushMaxActions;
+    }
+
+    public void setBulkFlushMaxActions(int bulkFlushMaxActions) {
+        this.bulkFlushMaxActions = bulkFlushMaxActions;
+    }
+
+    public int getBulkFlushMaxSizeMb() {
+        return bulkFlushMaxSizeMb;
+    }
+
+    public void setBulkFlushMaxSizeMb(int bulkFlushMaxSizeMb) {
+        this.bulkFlushMaxSizeMb = bulkFlushMaxSizeMb;
+    }
+
+    public long getBulkFlushIntervalMs() {
+        return bulkFlushIntervalMs;
+    }
+
+    public void setBulkFlushIntervalMs(long bulkFlushIntervalMs) {
+        this.bulkFlushIntervalMs = bulkFlushIntervalMs;
+    }
+
+    public String getBulkFlushBackoffType() {
+        return bulkFlushBackoffType;
+    }
+
+    public void setBulkFlushBackoffType(String bulkFlushBackoffType) {
+        this.bulkFlushBackoffType = bulkFlushBackoffType;
+    }
+
+    public int getBulkFlushBackoffRetries() {
+        return bulkFlushBackoffRetries;
+    }
+
+    public void setBulkFlushBackoffRetries(int bulkFlushBackoffRetries) {
+        this.bulkFlushBackoffRetries = bulkFlushBackoffRetries;
+    }
+
+    public long getBulkFlushBackoffDelayMs() {
+        return bulkFlushBackoffDelayMs;
+    }
+
+    public void setBulkFlushBackoffDelayMs(long bulkFlushBackoffDelayMs) {
+        this.bulkFlushBackoffDelayMs = bulkFlushBackoffDelayMs;
+    }
+
     public ElasticsearchTableInfo() {
         setType(CURR_TYPE);
     }
@@ -136,6 +200,17 @@ public class ElasticsearchTableInfo extends TargetTableInfo {
             Preconditions.checkNotNull(password, "elasticsearch type of password is required");
         }
 
+        Preconditions.checkArgument(bulkFlushMaxActions > 0 || bulkFlushMaxActions == -1,
+                "elasticsearch type of bulkFlushMaxActions must be positive or -1");
+        Preconditions.checkArgument(bulkFlushMaxSizeMb > 0 || bulkFlushMaxSizeMb == -1,
+                "elasticsearch type of bulkFlushMaxSizeMb must be positive or -1");
+        if (bulkFlushBackoffType != null) {
+            Preconditions.checkArgument("constant".equalsIgnoreCase(bulkFlushBackoffType) || "exponential".equalsIgnoreCase(bulkFlushBackoffType),
+                    "elasticsearch type of bulkFlushBackoffType must be constant or exponential");
+            Preconditions.checkArgument(bulkFlushBackoffRetries > 0, "elasticsearch type of bulkFlushBackoffRetries must be positive");
+            Preconditions.checkArgument(bulkFlushBackoffDelayMs >= 0, "elasticsearch type of bulkFlushBackoffDelayMs must not be negative");
+        }
+
         return true;
     }
 
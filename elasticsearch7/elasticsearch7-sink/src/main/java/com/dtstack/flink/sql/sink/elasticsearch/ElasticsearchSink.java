@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.dtstack.flink.sql.sink.elasticsearch;
+
+import com.dtstack.flink.sql.sink.elasticsearch.table.ElasticsearchTableInfo;
+
+/**
+ * table output of elasticsearch 7.x through the http rest api,
+ * mapping types are removed, _doc is left out of the actions, the routing key is routing
+ * Company: www.dtstack.com
+ */
+
+public class ElasticsearchSink extends AbsElasticsearchSink {
+
+    private static final String BULK_ROUTING_KEY = "routing";
+
+    @Override
+    protected ElasticsearchOutputFormat createOutputFormat(ElasticsearchTableInfo esTableInfo, String[] fieldNames) {
+        return new ElasticsearchOutputFormat(esTableInfo, fieldNames, BULK_ROUTING_KEY, false);
+    }
+}
@@ -20,23 +20,34 @@
 
 package com.dtstack.flink.sql.side.hbase;
 
-import com.dtstack.flink.sql.side.*;
+import com.dtstack.flink.sql.factory.DTThreadFactory;
+import com.dtstack.flink.sql.side.AllReqRow;
+import com.dtstack.flink.sql.side.FieldInfo;
+import com.dtstack.flink.sql.side.JoinInfo;
+import com.dtstack.flink.sql.side.SideTableInfo;
+import com.dtstack.flink.sql.side.cache.AbsAllCacheStore;
+import com.dtstack.flink.sql.side.cache.SideCacheKey;
 import com.dtstack.flink.sql.side.hbase.table.HbaseSideTableInfo;
 import com.dtstack.flink.sql.side.hbase.utils.HbaseConfigUtils;
 import org.apache.calcite.sql.JoinType;
-import org.apache.commons.collections.map.HashedMap;
-import org.apache.commons.lang3.StringUtils;
 import org.apache.flink.api.java.typeutils.RowTypeInfo;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import org.apache.flink.table.typeutils.TimeIndicatorTypeInfo;
 import org.apache.flink.types.Row;
 import org.apache.flink.util.Collector;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.Cell;
-import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.TableName;
-import org.apache.hadoop.hbase.client.*;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.ConnectionFactory;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,82 +55,77 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.security.PrivilegedAction;
 import java.sql.SQLException;
-import java.sql.Timestamp;
-import java.time.LocalDateTime;
-import java.util.*;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public class HbaseAllReqRow extends AllReqRow {
 
     private static final Logger LOG = LoggerFactory.getLogger(HbaseAllReqRow.class);
 
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    //marks the end of a region scan in the row queue
+    private static final List<Map.Entry<String, Object[]>> REGION_END = Collections.emptyList();
+
     private String tableName;
 
-    private Map<String, String> aliasNameInversion;
+    private boolean preRowKey;
+
+    //rowkey -> side line for the rowkey prefix lookup of preRowKey, sorted so that the lines of a prefix are adjacent;
+    //lines looked up by the whole rowkey are kept in the cache store instead
+    private AtomicReference<NavigableMap<String, Object[]>> prefixCacheRef = new AtomicReference<>();
 
-    private AtomicReference<Map<String, Map<String, Object>>> cacheRef = new AtomicReference<>();
+    //column family, qualifier and side line position of each projected column
+    private transient byte[][] families;
 
-    private Connection conn = null;
-    private Table table = null;
-    private ResultScanner resultScanner = null;
-    private Configuration conf = null;
+    private transient byte[][] qualifiers;
+
+    private transient int[] columnPositions;
 
     public HbaseAllReqRow(RowTypeInfo rowTypeInfo, JoinInfo joinInfo, List<FieldInfo> outFieldInfoList, SideTableInfo sideTableInfo) {
         super(new HbaseAllSideInfo(rowTypeInfo, joinInfo, outFieldInfoList, sideTableInfo));
         tableName = ((HbaseSideTableInfo)sideTableInfo).getTableName();
-
-        HbaseSideTableInfo hbaseSideTableInfo = (HbaseSideTableInfo) sideTableInfo;
-        Map<String, String> aliasNameRef = hbaseSideTableInfo.getAliasNameRef();
-        aliasNameInversion = new HashMap<>();
-        for(Map.Entry<String, String> entry : aliasNameRef.entrySet()){
-            aliasNameInversion.put(entry.getValue(), entry.getKey());
-        }
+        preRowKey = ((HbaseSideTableInfo)sideTableInfo).isPreRowKey();
     }
 
     @Override
-    public Row fillData(Row input, Object sideInput) {
-        Map<String, Object> sideInputList = (Map<String, Object>) sideInput;
-        Row row = new Row(sideInfo.getOutFieldInfoList().size());
-        for(Map.Entry<Integer, Integer> entry : sideInfo.getInFieldIndex().entrySet()){
-            Object obj = input.getField(entry.getValue());
-            boolean isTimeIndicatorTypeInfo = TimeIndicatorTypeInfo.class.isAssignableFrom(sideInfo.getRowTypeInfo().getTypeAt(entry.getValue()).getClass());
-
-            //Type information for indicating event or processing time. However, it behaves like a regular SQL timestamp but is serialized as Long.
-            if (obj instanceof LocalDateTime && isTimeIndicatorTypeInfo) {
-                obj = Timestamp.valueOf(((LocalDateTime) obj));
-            }
-            row.setField(entry.getKey(), obj);
-        }
-
-        for(Map.Entry<Integer, Integer> entry : sideInfo.getSideFieldIndex().entrySet()){
-            if(sideInputList == null){
-                row.setField(entry.getKey(), null);
-            }else{
-                String key = sideInfo.getSideFieldNameIndex().get(entry.getKey());
-                row.setField(entry.getKey(), sideInputList.get(key));
-            }
+    protected String getCacheSourceIdentity() {
+        if (preRowKey) {
+            return null;
         }
 
-        return row;
+        HbaseSideTableInfo hbaseSideTableInfo = (HbaseSideTableInfo) sideInfo.getSideTableInfo();
+        return hbaseSideTableInfo.getHost() + "|" + hbaseSideTableInfo.getParent() + "|" + tableName
+                + "|" + new TreeMap<>(hbaseSideTableInfo.getHbaseConfig());
     }
 
     @Override
     protected void initCache() throws SQLException {
-        Map<String, Map<String, Object>> newCache = Maps.newConcurrentMap();
-        cacheRef.set(newCache);
-        loadData(newCache);
+        loadCache();
     }
 
     @Override
     protected void reloadCache() {
-        Map<String, Map<String, Object>> newCache = Maps.newConcurrentMap();
         try {
-            loadData(newCache);
-        } catch (SQLException e) {
-            LOG.error("", e);
+            loadCache();
+        } catch (Exception e) {
+            LOG.error("reload hbase all side table " + tableName + " fail, keep the old cache", e);
+            return;
         }
 
-        cacheRef.set(newCache);
         LOG.info("----- HBase all cacheRef reload end:{}", Calendar.getInstance());
     }
 
@@ -141,115 +147,252 @@ public class HbaseAllReqRow extends AllReqRow {
 
         String rowKeyStr = ((HbaseAllSideInfo)sideInfo).getRowKeyBuilder().getRowKey(refData);
 
-        Map<String, Object> cacheList = null;
-
-        SideTableInfo sideTableInfo = sideInfo.getSideTableInfo();
-        HbaseSideTableInfo hbaseSideTableInfo = (HbaseSideTableInfo) sideTableInfo;
-        if (hbaseSideTableInfo.isPreRowKey())
-        {
-            for (Map.Entry<String, Map<String, Object>> entry : cacheRef.get().entrySet()){
-                if (entry.getKey().startsWith(rowKeyStr))
-                {
-                    cacheList = cacheRef.get().get(entry.getKey());
-                    Row row = fillData(value, cacheList);
-                    out.collect(row);
+        boolean matched = false;
+        if (preRowKey) {
+            for (Map.Entry<String, Object[]> entry : prefixCacheRef.get().tailMap(rowKeyStr, true).entrySet()) {
+                if (!entry.getKey().startsWith(rowKeyStr)) {
+                    break;
                 }
+                out.collect(fillData(value, entry.getValue()));
+                matched = true;
             }
         } else {
-            cacheList = cacheRef.get().get(rowKeyStr);
-            Row row = fillData(value, cacheList);
-            out.collect(row);
+            List<Object[]> cacheList = getCacheStore().get(SideCacheKey.of(rowKeyStr));
+            if (cacheList != null) {
+                for (Object[] one : cacheList) {
+                    out.collect(fillData(value, one));
+                    matched = true;
+                }
+            }
         }
 
+        if (!matched && sideInfo.getJoinType() == JoinType.LEFT) {
+            out.collect(fillData(value, null));
+        }
     }
 
-    private void loadData(Map<String, Map<String, Object>> tmpCache) throws SQLException {
-        SideTableInfo sideTableInfo = sideInfo.getSideTableInfo();
-        HbaseSideTableInfo hbaseSideTableInfo = (HbaseSideTableInfo) sideTableInfo;
-        boolean openKerberos = HbaseConfigUtils.openKerberos(hbaseSideTableInfo.getHbaseConfig());
+    /**
+     * Load the side table into a new cache and publish it once loaded.
+     */
+    private void loadCache() {
+        if (preRowKey) {
+            NavigableMap<String, Object[]> newCache = new TreeMap<>();
+            loadData(newCache::put);
+            prefixCacheRef.set(newCache);
+        } else {
+            AbsAllCacheStore newCache = newCacheStore();
+            loadData((rowKey, sideRow) -> newCache.put(SideCacheKey.of(rowKey), sideRow));
+            switchCacheStore(newCache);
+        }
+    }
 
-        try {
-            if (openKerberos) {
-                conf = HbaseConfigUtils.getHadoopConfiguration(hbaseSideTableInfo.getHbaseConfig());
-                conf.set(HbaseConfigUtils.KEY_HBASE_ZOOKEEPER_QUORUM, hbaseSideTableInfo.getHost());
-                conf.set(HbaseConfigUtils.KEY_HBASE_ZOOKEEPER_ZNODE_QUORUM, hbaseSideTableInfo.getParent());
-                String principal = HbaseConfigUtils.getPrincipal(hbaseSideTableInfo.getHbaseConfig());
-                String keytab = HbaseConfigUtils.getKeytab(hbaseSideTableInfo.getHbaseConfig());
-
-                UserGroupInformation userGroupInformation = HbaseConfigUtils.loginAndReturnUGI(conf, principal, keytab);
-                Configuration finalConf = conf;
-                conn = userGroupInformation.doAs(new PrivilegedAction<Connection>() {
-                    @Override
-                    public Connection run() {
-                        try {
-                            return ConnectionFactory.createConnection(finalConf);
-                        } catch (IOException e) {
-                            LOG.error("Get connection fail with config:{}", finalConf);
-                            throw new RuntimeException(e);
-                        }
-                    }
-                });
+    /**
+     * Scan the projected columns region by region, with up to loadParallelism regions at the same time.
+     * @param cacheWriter puts one loaded line by its rowkey, only called by the calling thread
+     */
+    private void loadData(BiConsumer<String, Object[]> cacheWriter) {
+        HbaseSideTableInfo hbaseSideTableInfo = (HbaseSideTableInfo) sideInfo.getSideTableInfo();
+        initProjection(hbaseSideTableInfo);
 
-            } else {
-                conf = HbaseConfigUtils.getConfig(hbaseSideTableInfo.getHbaseConfig());
-                conf.set(HbaseConfigUtils.KEY_HBASE_ZOOKEEPER_QUORUM, hbaseSideTableInfo.getHost());
-                conf.set(HbaseConfigUtils.KEY_HBASE_ZOOKEEPER_ZNODE_QUORUM, hbaseSideTableInfo.getParent());
-                conn = ConnectionFactory.createConnection(conf);
-            }
-
-            table = conn.getTable(TableName.valueOf(tableName));
-            resultScanner = table.getScanner(new Scan());
-            for (Result r : resultScanner) {
-                Map<String, Object> kv = new HashedMap();
-                for (Cell cell : r.listCells())
-                {
-                    String family = Bytes.toString(CellUtil.cloneFamily(cell));
-                    String qualifier = Bytes.toString(CellUtil.cloneQualifier(cell));
-                    String value = Bytes.toString(CellUtil.cloneValue(cell));
-                    StringBuilder key = new StringBuilder();
-                    key.append(family).append(":").append(qualifier);
-
-                    kv.put(aliasNameInversion.get(key.toString()), value);
+        Connection conn = null;
+        try {
+            conn = createConnection(hbaseSideTableInfo);
+            List<Scan> regionScans = buildRegionScans(conn, hbaseSideTableInfo);
+            int loadParallelism = Math.min(hbaseSideTableInfo.getLoadParallelism(), regionScans.size());
+            if (loadParallelism <= 1) {
+                for (Scan scan : regionScans) {
+                    loadRegion(conn, scan, rows -> rows.forEach(row -> cacheWriter.accept(row.getKey(), row.getValue())));
                 }
-                tmpCache.put(new String(r.getRow()), kv);
+            } else {
+                loadParallel(conn, regionScans, loadParallelism, cacheWriter);
             }
-        } catch (IOException e) {
+            LOG.info("hbase all side table {} loaded from {} regions", tableName, regionScans.size());
+        } catch (Exception e) {
             throw new RuntimeException(e);
         } finally {
             try {
                 if (null != conn) {
                     conn.close();
                 }
-
-                if (null != table) {
-                    table.close();
-                }
-
-                if (null != resultScanner) {
-                    resultScanner.close();
-                }
             } catch (IOException e) {
                 LOG.error("", e);
             }
         }
     }
 
-    @Override
-    public void close() throws Exception {
+    /**
+     * Only the configured columns kept in the side line are read, every other column family stays on the region server.
+     */
+    private void initProjection(HbaseSideTableInfo hbaseSideTableInfo) {
+        List<byte[]> familyList = Lists.newArrayList();
+        List<byte[]> qualifierList = Lists.newArrayList();
+        List<Integer> positionList = Lists.newArrayList();
+        for (Map.Entry<String, String> entry : hbaseSideTableInfo.getAliasNameRef().entrySet()) {
+            int position = getSideRowPosition(entry.getKey());
+            String[] familyAndQualifier = entry.getValue().split(":", 2);
+            if (position == -1 || familyAndQualifier.length != 2) {
+                continue;
+            }
+
+            familyList.add(Bytes.toBytes(familyAndQualifier[0]));
+            qualifierList.add(Bytes.toBytes(familyAndQualifier[1]));
+            positionList.add(position);
+        }
+
+        families = familyList.toArray(new byte[0][]);
+        qualifiers = qualifierList.toArray(new byte[0][]);
+        columnPositions = positionList.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * One scan per region, bounded by the region start and end keys.
+     */
+    private List<Scan> buildRegionScans(Connection conn, HbaseSideTableInfo hbaseSideTableInfo) throws IOException {
+        Pair<byte[][], byte[][]> startEndKeys;
+        try (RegionLocator regionLocator = conn.getRegionLocator(TableName.valueOf(tableName))) {
+            startEndKeys = regionLocator.getStartEndKeys();
+        }
+
+        List<Scan> regionScans = Lists.newArrayListWithCapacity(startEndKeys.getFirst().length);
+        for (int i = 0; i < startEndKeys.getFirst().length; i++) {
+            Scan scan = new Scan(startEndKeys.getFirst()[i], startEndKeys.getSecond()[i]);
+            for (int j = 0; j < families.length; j++) {
+                scan.addColumn(families[j], qualifiers[j]);
+            }
+            if (families.length == 0) {
+                //no column is joined, only the rowkeys are needed
+                scan.setFilter(new FirstKeyOnlyFilter());
+            }
+            scan.setCaching(hbaseSideTableInfo.getScanCaching());
+            if (hbaseSideTableInfo.getScanBatch() != null) {
+                scan.setBatch(hbaseSideTableInfo.getScanBatch());
+            }
+            //a full scan would only evict the blocks of online reads
+            scan.setCacheBlocks(false);
+            regionScans.add(scan);
+        }
+
+        return regionScans;
+    }
+
+    /**
+     * Scan the regions on a pool of loadParallelism threads. Rows are handed over in batches
+     * to the calling thread, which is the only one building the cache as stores are not thread safe.
+     */
+    private void loadParallel(Connection conn, List<Scan> regionScans, int loadParallelism,
+                              BiConsumer<String, Object[]> cacheWriter) throws InterruptedException, ExecutionException {
+        BlockingQueue<List<Map.Entry<String, Object[]>>> rowQueue = new ArrayBlockingQueue<>(loadParallelism * 4);
+        ExecutorService executor = Executors.newFixedThreadPool(loadParallelism, new DTThreadFactory("hbase-all-load"));
         try {
-            if (null != conn) {
-                conn.close();
+            List<Future<?>> futures = Lists.newArrayList();
+            for (Scan scan : regionScans) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        loadRegion(conn, scan, rows -> putRows(rowQueue, rows));
+                    } finally {
+                        putRows(rowQueue, REGION_END);
+                    }
+                    return null;
+                }));
             }
 
-            if (null != table) {
-                table.close();
+            int finishedNum = 0;
+            while (finishedNum < regionScans.size()) {
+                List<Map.Entry<String, Object[]>> rows = rowQueue.take();
+                if (rows == REGION_END) {
+                    finishedNum++;
+                    continue;
+                }
+                rows.forEach(row -> cacheWriter.accept(row.getKey(), row.getValue()));
             }
 
-            if (null != resultScanner) {
-                resultScanner.close();
+            for (Future<?> future : futures) {
+                future.get();
             }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        } finally {
+            executor.shutdownNow();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Read one region into side lines of rowkey -> positional values.
+     * With scanBatch a row comes in several results one after the other, a line is only handed over once complete.
+     */
+    private void loadRegion(Connection conn, Scan scan, Consumer<List<Map.Entry<String, Object[]>>> rowsConsumer) throws IOException {
+        int sideRowLength = getSideRowFields().length;
+        try (Table table = conn.getTable(TableName.valueOf(tableName));
+             ResultScanner resultScanner = table.getScanner(scan)) {
+            List<Map.Entry<String, Object[]>> rows = Lists.newArrayListWithCapacity(LOAD_BATCH_SIZE);
+            byte[] pendingRowKey = null;
+            Object[] pendingRow = null;
+            for (Result result : resultScanner) {
+                if (pendingRow == null || !Bytes.equals(pendingRowKey, result.getRow())) {
+                    if (pendingRow != null) {
+                        rows.add(Maps.immutableEntry(Bytes.toString(pendingRowKey), pendingRow));
+                        if (rows.size() >= LOAD_BATCH_SIZE) {
+                            rowsConsumer.accept(rows);
+                            rows = Lists.newArrayListWithCapacity(LOAD_BATCH_SIZE);
+                        }
+                    }
+                    pendingRowKey = result.getRow();
+                    pendingRow = new Object[sideRowLength];
+                }
+                fillSideRow(result, pendingRow);
+            }
+
+            if (pendingRow != null) {
+                rows.add(Maps.immutableEntry(Bytes.toString(pendingRowKey), pendingRow));
+            }
+            if (!rows.isEmpty()) {
+                rowsConsumer.accept(rows);
+            }
+        }
+    }
+
+    private void fillSideRow(Result result, Object[] sideRow) {
+        for (int i = 0; i < families.length; i++) {
+            Cell cell = result.getColumnLatestCell(families[i], qualifiers[i]);
+            if (cell != null) {
+                sideRow[columnPositions[i]] = Bytes.toString(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+            }
+        }
+    }
+
+    private void putRows(BlockingQueue<List<Map.Entry<String, Object[]>>> rowQueue, List<Map.Entry<String, Object[]>> rows) {
+        try {
+            rowQueue.put(rows);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("load of hbase region is interrupted", e);
+        }
+    }
+
+    private Connection createConnection(HbaseSideTableInfo hbaseSideTableInfo) throws IOException {
+        boolean openKerberos = HbaseConfigUtils.openKerberos(hbaseSideTableInfo.getHbaseConfig());
+        if (openKerberos) {
+            Configuration conf = HbaseConfigUtils.getHadoopConfiguration(hbaseSideTableInfo.getHbaseConfig());
+            conf.set(HbaseConfigUtils.KEY_HBASE_ZOOKEEPER_QUORUM, hbaseSideTableInfo.getHost());
+            conf.set(HbaseConfigUtils.KEY_HBASE_ZOOKEEPER_ZNODE_QUORUM, hbaseSideTableInfo.getParent());
+            String principal = HbaseConfigUtils.getPrincipal(hbaseSideTableInfo.getHbaseConfig());
+            String keytab = HbaseConfigUtils.getKeytab(hbaseSideTableInfo.getHbaseConfig());
+
+            UserGroupInformation userGroupInformation = HbaseConfigUtils.loginAndReturnUGI(conf, principal, keytab);
+            return userGroupInformation.doAs(new PrivilegedAction<Connection>() {
+                @Override
+                public Connection run() {
+                    try {
+                        return ConnectionFactory.createConnection(conf);
+                    } catch (IOException e) {
+                        LOG.error("Get connection fail with config:{}", conf);
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+        }
+
+        Configuration conf = HbaseConfigUtils.getConfig(hbaseSideTableInfo.getHbaseConfig());
+        conf.set(HbaseConfigUtils.KEY_HBASE_ZOOKEEPER_QUORUM, hbaseSideTableInfo.getHost());
+        conf.set(HbaseConfigUtils.KEY_HBASE_ZOOKEEPER_ZNODE_QUORUM, hbaseSideTableInfo.getParent());
+        return ConnectionFactory.createConnection(conf);
+    }
+}
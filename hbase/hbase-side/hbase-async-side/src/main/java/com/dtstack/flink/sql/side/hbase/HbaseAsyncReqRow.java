@@ -20,38 +20,30 @@
 
 package com.dtstack.flink.sql.side.hbase;
 
-import com.dtstack.flink.sql.enums.ECacheContentType;
 import com.dtstack.flink.sql.side.AsyncReqRow;
 import com.dtstack.flink.sql.side.FieldInfo;
 import com.dtstack.flink.sql.side.JoinInfo;
+import com.dtstack.flink.sql.side.SideLookupReq;
 import com.dtstack.flink.sql.side.SideTableInfo;
-import com.dtstack.flink.sql.side.cache.CacheObj;
 import com.dtstack.flink.sql.side.hbase.rowkeydealer.AbsRowKeyModeDealer;
 import com.dtstack.flink.sql.side.hbase.rowkeydealer.PreRowKeyModeDealerDealer;
 import com.dtstack.flink.sql.side.hbase.rowkeydealer.RowKeyEqualModeDealer;
 import com.dtstack.flink.sql.side.hbase.table.HbaseSideTableInfo;
-import com.dtstack.flink.sql.factory.DTThreadFactory;
 import com.dtstack.flink.sql.side.hbase.utils.HbaseConfigUtils;
-import com.google.common.collect.Maps;
+import com.google.common.collect.Lists;
 import com.stumbleupon.async.Deferred;
 import org.apache.flink.api.java.typeutils.RowTypeInfo;
 import org.apache.flink.configuration.Configuration;
-import org.apache.flink.streaming.api.functions.async.ResultFuture;
-import org.apache.flink.table.typeutils.TimeIndicatorTypeInfo;
 import org.apache.flink.types.Row;
 import org.hbase.async.Config;
+import org.hbase.async.GetResultOrException;
 import org.hbase.async.HBaseClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.sql.Timestamp;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.TreeMap;
 
 /**
  * Date: 2018/8/21
@@ -65,15 +57,11 @@ public class HbaseAsyncReqRow extends AsyncReqRow {
 
     private static final Logger LOG = LoggerFactory.getLogger(HbaseAsyncReqRow.class);
 
-    //match to the rule of netty3
-    private static final int DEFAULT_BOSS_THREADS = 1;
-
-    private static final int DEFAULT_IO_THREADS = Runtime.getRuntime().availableProcessors() * 2;
-
-    private static final int DEFAULT_POOL_SIZE = DEFAULT_IO_THREADS + DEFAULT_BOSS_THREADS;
-
     private transient HBaseClient hBaseClient;
 
+    //identity of the shared client, see HbaseClientRegistry
+    private transient String clientIdentity;
+
     private transient AbsRowKeyModeDealer rowKeyMode;
 
     private String tableName;
@@ -95,10 +83,6 @@ public class HbaseAsyncReqRow extends AsyncReqRow {
         HbaseSideTableInfo hbaseSideTableInfo = (HbaseSideTableInfo) sideTableInfo;
         Map<String, Object> hbaseConfig = hbaseSideTableInfo.getHbaseConfig();
 
-        ExecutorService executorService =new ThreadPoolExecutor(DEFAULT_POOL_SIZE, DEFAULT_POOL_SIZE,
-                0L, TimeUnit.MILLISECONDS,
-                new LinkedBlockingQueue<>(), new DTThreadFactory("hbase-aysnc"));
-
         Config config = new Config();
         config.overrideConfig(HbaseConfigUtils.KEY_HBASE_ZOOKEEPER_QUORUM, hbaseSideTableInfo.getHost());
         config.overrideConfig(HbaseConfigUtils.KEY_HBASE_ZOOKEEPER_ZNODE_QUORUM, hbaseSideTableInfo.getParent());
@@ -114,7 +98,8 @@ public class HbaseAsyncReqRow extends AsyncReqRow {
         }
 
 
-        hBaseClient = new HBaseClient(config, executorService);
+        clientIdentity = hbaseSideTableInfo.getHost() + "|" + hbaseSideTableInfo.getParent() + "|" + new TreeMap<>(hbaseConfig);
+        hBaseClient = HbaseClientRegistry.acquire(clientIdentity, config);
 
         try {
             Deferred deferred = hBaseClient.ensureTableExists(tableName)
@@ -132,62 +117,76 @@ public class HbaseAsyncReqRow extends AsyncReqRow {
         HbaseAsyncSideInfo hbaseAsyncSideInfo = (HbaseAsyncSideInfo) sideInfo;
         if(hbaseSideTableInfo.isPreRowKey()){
             rowKeyMode = new PreRowKeyModeDealerDealer(hbaseAsyncSideInfo.getColRefType(), colNames, hBaseClient,
-                    openCache(), sideInfo.getJoinType(), sideInfo.getOutFieldInfoList(),
-                    sideInfo.getInFieldIndex(), sideInfo.getSideFieldIndex());
+                    hbaseSideTableInfo.getScanCaching());
         }else{
-            rowKeyMode = new RowKeyEqualModeDealer(hbaseAsyncSideInfo.getColRefType(), colNames, hBaseClient,
-                    openCache(), sideInfo.getJoinType(), sideInfo.getOutFieldInfoList(),
-                    sideInfo.getInFieldIndex(), sideInfo.getSideFieldIndex());
+            rowKeyMode = new RowKeyEqualModeDealer(hbaseAsyncSideInfo.getColRefType(), colNames, hBaseClient);
         }
     }
 
     @Override
-    public void asyncInvoke(Row input, ResultFuture<Row> resultFuture) throws Exception {
-        Map<String, Object> refData = Maps.newHashMap();
-        for (int i = 0; i < sideInfo.getEqualValIndex().size(); i++) {
-            Integer conValIndex = sideInfo.getEqualValIndex().get(i);
-            Object equalObj = input.getField(conValIndex);
-            if(equalObj == null || "".equals(equalObj.toString())){
-                dealMissKey(input, resultFuture);
-                return;
+    protected Map<String, Object> parseInputParam(Row input) {
+        Map<String, Object> refData = super.parseInputParam(input);
+        if(refData == null){
+            return null;
+        }
+
+        for(Object equalObj : refData.values()){
+            if("".equals(equalObj.toString())){
+                return null;
             }
+        }
 
-            refData.put(sideInfo.getEqualFieldList().get(i), equalObj);
+        return refData;
+    }
+
+    @Override
+    protected void handleAsyncInvoke(SideLookupReq req) throws Exception {
+        String rowKeyStr = ((HbaseAsyncSideInfo)sideInfo).getRowKeyBuilder().getRowKey(req.getInputParams());
+        rowKeyMode.asyncGetData(tableName, rowKeyStr).addCallbacks(val -> {
+            completeLookup(req, val);
+            return "";
+        }, arg2 -> {
+            LOG.error("record:" + req.getInputParams());
+            LOG.error("get side record exception:" + arg2);
+            dropLookup(req);
+            return "";
+        });
+    }
+
+    /**
+     * Row keys are read with one multi-get, which the client sends to each region as one multi action.
+     * Prefix scans can't be batched.
+     */
+    @Override
+    protected boolean supportBatch() {
+        return !((HbaseSideTableInfo) sideInfo.getSideTableInfo()).isPreRowKey();
+    }
+
+    @Override
+    protected void handleBatchInvoke(List<SideLookupReq> reqs) throws Exception {
+        RowKeyEqualModeDealer rowKeyEqualMode = (RowKeyEqualModeDealer) rowKeyMode;
+        List<String> rowKeys = Lists.newArrayListWithCapacity(reqs.size());
+        for (SideLookupReq req : reqs) {
+            rowKeys.add(((HbaseAsyncSideInfo)sideInfo).getRowKeyBuilder().getRowKey(req.getInputParams()));
         }
 
-        String rowKeyStr = ((HbaseAsyncSideInfo)sideInfo).getRowKeyBuilder().getRowKey(refData);
-
-        //get from cache
-        if(openCache()){
-            CacheObj val = getFromCache(rowKeyStr);
-            if(val != null){
-                if(ECacheContentType.MissVal == val.getType()){
-                    dealMissKey(input, resultFuture);
-                    return;
-                }else if(ECacheContentType.SingleLine == val.getType()){
-                    try {
-                        Row row = fillData(input, val.getContent());
-                        resultFuture.complete(Collections.singleton(row));
-                    } catch (Exception e) {
-                        dealFillDataError(resultFuture, e, input, val);
-                    }
-                }else if(ECacheContentType.MultiLine == val.getType()){
-                    Object debugData = null;
-                    try {
-                        for(Object one : (List)val.getContent()){
-                            debugData = one;
-                            Row row = fillData(input, one);
-                            resultFuture.complete(Collections.singleton(row));
-                        }
-                    } catch (Exception e) {
-                        dealFillDataError(resultFuture, e, input, debugData);
-                    }
+        rowKeyEqualMode.asyncGetData(tableName, rowKeys).addCallbacks(results -> {
+            for (int i = 0; i < reqs.size(); i++) {
+                GetResultOrException result = results.get(i);
+                if (result.getException() != null) {
+                    LOG.error("record:" + reqs.get(i).getInputParams());
+                    LOG.error("get side record exception:" + result.getException());
+                    dropLookup(reqs.get(i));
+                } else {
+                    completeLookup(reqs.get(i), rowKeyEqualMode.dealRow(result.getCells()));
                 }
-                return;
             }
-        }
-
-        rowKeyMode.asyncGetData(tableName, rowKeyStr, input, resultFuture, sideInfo.getSideCache());
+            return "";
+        }, arg2 -> {
+            LOG.error("get side records exception:" + arg2);
+            reqs.forEach(this::dropLookup);
+            return "";
+        });
     }
 
     @Override
@@ -216,7 +215,8 @@ public class HbaseAsyncReqRow extends AsyncReqRow {
     public void close() throws Exception {
         super.close();
         if (null!=hBaseClient) {
-            hBaseClient.shutdown();
+            HbaseClientRegistry.release(clientIdentity);
+            hBaseClient = null;
         }
     }
 
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.dtstack.flink.sql.side.hbase;
+
+import com.dtstack.flink.sql.factory.DTThreadFactory;
+import com.google.common.collect.Maps;
+import org.hbase.async.Config;
+import org.hbase.async.HBaseClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reference counted HBaseClients of the TaskManager, so that the async side tables of one hbase cluster
+ * share one client and one netty thread pool instead of creating them in every subtask.
+ * The registry is held by the class loader of the job, clients are never shared between jobs.
+ * Company: www.dtstack.com
+ */
+
+public class HbaseClientRegistry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HbaseClientRegistry.class);
+
+    //match to the rule of netty3
+    private static final int DEFAULT_BOSS_THREADS = 1;
+
+    private static final int DEFAULT_IO_THREADS = Runtime.getRuntime().availableProcessors() * 2;
+
+    private static final int DEFAULT_POOL_SIZE = DEFAULT_IO_THREADS + DEFAULT_BOSS_THREADS;
+
+    //client identity -> client
+    private static final Map<String, SharedClient> CLIENTS = Maps.newHashMap();
+
+    private HbaseClientRegistry() {
+    }
+
+    /**
+     * Get the client of the identity, created with the config if absent. Every acquire must be paired with a release.
+     * @param identity quorum, znode parent and client settings of the config
+     */
+    public static synchronized HBaseClient acquire(String identity, Config config) {
+        SharedClient sharedClient = CLIENTS.get(identity);
+        if (sharedClient == null) {
+            ExecutorService executorService = new ThreadPoolExecutor(DEFAULT_POOL_SIZE, DEFAULT_POOL_SIZE,
+                    0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), new DTThreadFactory("hbase-aysnc"));
+            sharedClient = new SharedClient(new HBaseClient(config, executorService), executorService);
+            CLIENTS.put(identity, sharedClient);
+        }
+
+        sharedClient.refCount++;
+        LOG.info("acquire hbase client:{}, refCount:{}", identity, sharedClient.refCount);
+        return sharedClient.client;
+    }
+
+    /**
+     * Give up the client, the last subtask releasing it shuts it down.
+     */
+    public static synchronized void release(String identity) {
+        SharedClient sharedClient = CLIENTS.get(identity);
+        if (sharedClient == null) {
+            return;
+        }
+
+        sharedClient.refCount--;
+        LOG.info("release hbase client:{}, refCount:{}", identity, sharedClient.refCount);
+        if (sharedClient.refCount <= 0) {
+            CLIENTS.remove(identity);
+            try {
+                sharedClient.client.shutdown().join();
+            } catch (Exception e) {
+                LOG.error("shutdown hbase client error", e);
+            } finally {
+                sharedClient.executorService.shutdownNow();
+            }
+        }
+    }
+
+    private static class SharedClient {
+
+        private final HBaseClient client;
+
+        private final ExecutorService executorService;
+
+        private int refCount;
+
+        SharedClient(HBaseClient client, ExecutorService executorService) {
+            this.client = client;
+            this.executorService = executorService;
+        }
+    }
+}
@@ -20,20 +20,10 @@
 
 package com.dtstack.flink.sql.side.hbase.rowkeydealer;
 
-import com.dtstack.flink.sql.side.FieldInfo;
-import com.dtstack.flink.sql.side.cache.AbsSideCache;
-import com.dtstack.flink.sql.side.hbase.HbaseAsyncReqRow;
-import org.apache.calcite.sql.JoinType;
-import com.google.common.collect.Maps;
-import org.apache.flink.streaming.api.functions.async.ResultFuture;
-import org.apache.flink.table.typeutils.TimeIndicatorTypeInfo;
-import org.apache.flink.types.Row;
+import com.dtstack.flink.sql.side.cache.CacheObj;
+import com.stumbleupon.async.Deferred;
 import org.hbase.async.HBaseClient;
 
-import java.sql.Timestamp;
-import java.time.LocalDateTime;
-import java.util.Collections;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -51,72 +41,15 @@ public abstract class AbsRowKeyModeDealer {
 
     protected HBaseClient hBaseClient;
 
-    protected boolean openCache;
-
-    protected JoinType joinType;
-
-    protected List<FieldInfo> outFieldInfoList;
-
-    //key:Returns the value of the position, returns the index values ​​in the input data
-    protected Map<Integer, Integer> inFieldIndex = Maps.newHashMap();
-
-    protected Map<Integer, Integer> sideFieldIndex = Maps.newHashMap();
-
-    public AbsRowKeyModeDealer(Map<String, String> colRefType, String[] colNames, HBaseClient hBaseClient,
-                               boolean openCache, JoinType joinType, List<FieldInfo> outFieldInfoList,
-                               Map<Integer, Integer> inFieldIndex, Map<Integer, Integer> sideFieldIndex){
+    public AbsRowKeyModeDealer(Map<String, String> colRefType, String[] colNames, HBaseClient hBaseClient){
         this.colRefType = colRefType;
         this.colNames = colNames;
         this.hBaseClient = hBaseClient;
-        this.openCache = openCache;
-        this.joinType = joinType;
-        this.outFieldInfoList = outFieldInfoList;
-        this.inFieldIndex = inFieldIndex;
-        this.sideFieldIndex = sideFieldIndex;
-    }
-
-    protected void dealMissKey(Row input, ResultFuture<Row> resultFuture){
-        if(joinType == JoinType.LEFT){
-            //保留left 表数据
-            Row row = fillData(input, null);
-            resultFuture.complete(Collections.singleton(row));
-        }else{
-            resultFuture.complete(null);
-        }
-    }
-
-    protected Row fillData(Row input, Object sideInput){
-
-        List<Object> sideInputList = (List<Object>) sideInput;
-        Row row = new Row(outFieldInfoList.size());
-
-        for(Map.Entry<Integer, Integer> entry : inFieldIndex.entrySet()){
-            Object obj = input.getField(entry.getValue());
-            obj = convertTimeIndictorTypeInfo(entry.getValue(), obj);
-            row.setField(entry.getKey(), obj);
-        }
-
-        for(Map.Entry<Integer, Integer> entry : sideFieldIndex.entrySet()){
-            if(sideInputList == null){
-                row.setField(entry.getKey(), null);
-            }else{
-                row.setField(entry.getKey(), sideInputList.get(entry.getValue()));
-            }
-        }
-
-        return row;
-    }
-
-    protected Object convertTimeIndictorTypeInfo(Integer index, Object obj) {
-        boolean isTimeIndicatorTypeInfo = TimeIndicatorTypeInfo.class.isAssignableFrom(outFieldInfoList.get(index).getTypeInformation().getClass());
-
-        //Type information for indicating event or processing time. However, it behaves like a regular SQL timestamp but is serialized as Long.
-        if (obj instanceof LocalDateTime && isTimeIndicatorTypeInfo) {
-            obj = Timestamp.valueOf(((LocalDateTime) obj));
-        }
-        return obj;
     }
 
-    public abstract void asyncGetData(String tableName, String rowKeyStr, Row input, ResultFuture<Row> resultFuture,
-                             AbsSideCache sideCache);
+    /**
+     * query hbase with the row key
+     * @return the side data of the row key, MissVal if nothing found
+     */
+    public abstract Deferred<CacheObj> asyncGetData(String tableName, String rowKeyStr);
 }
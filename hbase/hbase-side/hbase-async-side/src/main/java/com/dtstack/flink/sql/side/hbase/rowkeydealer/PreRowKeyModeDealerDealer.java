@@ -22,28 +22,20 @@ package com.dtstack.flink.sql.side.hbase.rowkeydealer;
 
 import com.dtstack.flink.sql.enums.ECacheContentType;
 import com.dtstack.flink.sql.side.CacheMissVal;
-import com.dtstack.flink.sql.side.FieldInfo;
-import com.dtstack.flink.sql.side.cache.AbsSideCache;
 import com.dtstack.flink.sql.side.cache.CacheObj;
 import com.dtstack.flink.sql.side.hbase.utils.HbaseUtils;
-import com.google.common.collect.Maps;
-import org.apache.calcite.sql.JoinType;
 import com.google.common.collect.Lists;
-import org.apache.flink.streaming.api.functions.async.ResultFuture;
-import org.apache.flink.types.Row;
-import org.hbase.async.BinaryPrefixComparator;
+import com.google.common.collect.Maps;
+import com.stumbleupon.async.Deferred;
 import org.hbase.async.Bytes;
-import org.hbase.async.CompareFilter;
 import org.hbase.async.HBaseClient;
 import org.hbase.async.KeyValue;
-import org.hbase.async.RowFilter;
-import org.hbase.async.ScanFilter;
 import org.hbase.async.Scanner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -58,97 +50,88 @@ public class PreRowKeyModeDealerDealer extends AbsRowKeyModeDealer {
 
     private static final Logger LOG = LoggerFactory.getLogger(PreRowKeyModeDealerDealer.class);
 
-    public PreRowKeyModeDealerDealer(Map<String, String> colRefType, String[] colNames, HBaseClient hBaseClient,
-                                     boolean openCache, JoinType joinType, List<FieldInfo> outFieldInfoList,
-                                     Map<Integer, Integer> inFieldIndex, Map<Integer, Integer> sideFieldIndex) {
-        super(colRefType, colNames, hBaseClient, openCache, joinType, outFieldInfoList, inFieldIndex, sideFieldIndex);
+    //rows fetched by one scanner rpc
+    private final int scanCaching;
+
+    public PreRowKeyModeDealerDealer(Map<String, String> colRefType, String[] colNames, HBaseClient hBaseClient, int scanCaching) {
+        super(colRefType, colNames, hBaseClient);
+        this.scanCaching = scanCaching;
     }
 
+    /**
+     * Scan the rows of the prefix only, from the prefix to the prefix incremented, scanCaching rows per rpc.
+     */
     @Override
-    public void asyncGetData(String tableName, String rowKeyStr, Row input, ResultFuture<Row> resultFuture,
-                             AbsSideCache sideCache) {
+    public Deferred<CacheObj> asyncGetData(String tableName, String rowKeyStr) {
         Scanner prefixScanner = hBaseClient.newScanner(tableName);
-        ScanFilter scanFilter = new RowFilter(CompareFilter.CompareOp.EQUAL, new BinaryPrefixComparator(Bytes.UTF8(rowKeyStr)));
-        prefixScanner.setFilter(scanFilter);
+        byte[] prefix = Bytes.UTF8(rowKeyStr);
+        prefixScanner.setStartKey(prefix);
+        prefixScanner.setStopKey(prefixStopKey(prefix));
+        prefixScanner.setMaxNumRows(scanCaching);
         prefixScanner.setMaxVersions(1);
 
-        prefixScanner.nextRows().addCallbacks(arg -> {
-            dealOneRow(arg, rowKeyStr, input, resultFuture, sideCache);
-            return "";
-        }, arg2 -> dealFail(arg2, input, resultFuture));
+        return scanRows(prefixScanner, Lists.newArrayList());
     }
 
+    private Deferred<CacheObj> scanRows(Scanner prefixScanner, List<Object> cacheContent) {
+        return prefixScanner.nextRows().addCallbackDeferring(rows -> {
+            if (rows == null) {
+                prefixScanner.close();
+                if (cacheContent.isEmpty()) {
+                    return Deferred.fromResult(CacheMissVal.getMissKeyObj());
+                }
+                return Deferred.fromResult(CacheObj.buildCacheObj(ECacheContentType.MultiLine, cacheContent));
+            }
 
-    private String dealOneRow(ArrayList<ArrayList<KeyValue>> args, String rowKeyStr, Row input, ResultFuture<Row> resultFuture, AbsSideCache sideCache) {
-        if(args == null || args.size() == 0){
-            dealMissKey(input, resultFuture);
-            if (openCache) {
-                sideCache.putCache(rowKeyStr, CacheMissVal.getMissKeyObj());
+            dealRows(rows, cacheContent);
+            return scanRows(prefixScanner, cacheContent);
+        });
+    }
+
+    /**
+     * Smallest row key greater than every row key starting with the prefix, empty to scan to the end of the table.
+     */
+    private static byte[] prefixStopKey(byte[] prefix) {
+        for (int i = prefix.length - 1; i >= 0; i--) {
+            if (prefix[i] != (byte) 0xff) {
+                byte[] stopKey = Arrays.copyOf(prefix, i + 1);
+                stopKey[i]++;
+                return stopKey;
             }
         }
+        return new byte[0];
+    }
 
-        List<Object> cacheContent = Lists.newArrayList();
-        List<Row> rowList = Lists.newArrayList();
-
+    private void dealRows(ArrayList<ArrayList<KeyValue>> args, List<Object> cacheContent) {
         for(List<KeyValue> oneRow : args){
-            try {
-                Map<String, Object> sideMap = Maps.newHashMap();
-                for (KeyValue keyValue : oneRow) {
-                    String cf = new String(keyValue.family());
-                    String col = new String(keyValue.qualifier());
-                    String mapKey = cf + ":" + col;
-
-                    //The table format defined using different data type conversion byte
-                    String colType = colRefType.get(mapKey);
-                    Object val = HbaseUtils.convertByte(keyValue.value(), colType);
-                    sideMap.put(mapKey, val);
-                }
-
-                try {
-                    if (oneRow.size() > 0) {
-                        //The order of the fields defined in the data conversion table
-                        List<Object> sideVal = Lists.newArrayList();
-                        for (String key : colNames) {
-                            Object val = sideMap.get(key);
-                            if (val == null) {
-                                System.out.println("can't get data with column " + key);
-                                LOG.error("can't get data with column " + key);
-                            }
-
-                            sideVal.add(val);
-                        }
-
-                        Row row = fillData(input, sideVal);
-                        if (openCache) {
-                            cacheContent.add(sideVal);
-                        }
-                        rowList.add(row);
-                    }
-                } catch (Exception e) {
-                    resultFuture.completeExceptionally(e);
-                }
-            } catch (Exception e) {
-                resultFuture.complete(null);
-                LOG.error("record:" + input);
-                LOG.error("get side record exception:", e);
+            if (oneRow.size() == 0) {
+                continue;
             }
-        }
 
-        if (rowList.size() > 0){
-            resultFuture.complete(rowList);
-        }
+            Map<String, Object> sideMap = Maps.newHashMap();
+            for (KeyValue keyValue : oneRow) {
+                String cf = new String(keyValue.family());
+                String col = new String(keyValue.qualifier());
+                String mapKey = cf + ":" + col;
 
-        if(openCache){
-            sideCache.putCache(rowKeyStr, CacheObj.buildCacheObj(ECacheContentType.MultiLine, cacheContent));
-        }
+                //The table format defined using different data type conversion byte
+                String colType = colRefType.get(mapKey);
+                Object val = HbaseUtils.convertByte(keyValue.value(), colType);
+                sideMap.put(mapKey, val);
+            }
 
-        return "";
-    }
+            //The order of the fields defined in the data conversion table
+            List<Object> sideVal = Lists.newArrayList();
+            for (String key : colNames) {
+                Object val = sideMap.get(key);
+                if (val == null) {
+                    LOG.error("can't get data with column " + key);
+                }
 
-    private String dealFail(Object arg2, Row input, ResultFuture<Row> resultFuture){
-        LOG.error("record:" + input);
-        LOG.error("get side record exception:" + arg2);
-        resultFuture.complete(null);
-        return "";
+                sideVal.add(val);
+            }
+
+            cacheContent.add(sideVal);
+        }
     }
 }
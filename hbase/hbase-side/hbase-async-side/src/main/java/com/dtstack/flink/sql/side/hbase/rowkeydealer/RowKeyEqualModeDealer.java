@@ -22,22 +22,16 @@ package com.dtstack.flink.sql.side.hbase.rowkeydealer;
 
 import com.dtstack.flink.sql.enums.ECacheContentType;
 import com.dtstack.flink.sql.side.CacheMissVal;
-import com.dtstack.flink.sql.side.FieldInfo;
-import com.dtstack.flink.sql.side.cache.AbsSideCache;
 import com.dtstack.flink.sql.side.cache.CacheObj;
 import com.dtstack.flink.sql.side.hbase.utils.HbaseUtils;
-import com.google.common.collect.Maps;
-import org.apache.calcite.sql.JoinType;
 import com.google.common.collect.Lists;
-import org.apache.flink.streaming.api.functions.async.ResultFuture;
-import org.apache.flink.types.Row;
+import com.google.common.collect.Maps;
+import com.stumbleupon.async.Deferred;
 import org.hbase.async.GetRequest;
+import org.hbase.async.GetResultOrException;
 import org.hbase.async.HBaseClient;
 import org.hbase.async.KeyValue;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -50,77 +44,52 @@ import java.util.Map;
 
 public class RowKeyEqualModeDealer extends AbsRowKeyModeDealer {
 
-    private static final Logger LOG = LoggerFactory.getLogger(RowKeyEqualModeDealer.class);
-
-    public RowKeyEqualModeDealer(Map<String, String> colRefType, String[] colNames, HBaseClient hBaseClient,
-                                 boolean openCache, JoinType joinType, List<FieldInfo> outFieldInfoList,
-                                 Map<Integer, Integer> inFieldIndex, Map<Integer, Integer> sideFieldIndex) {
-        super(colRefType, colNames, hBaseClient, openCache, joinType, outFieldInfoList, inFieldIndex, sideFieldIndex);
+    public RowKeyEqualModeDealer(Map<String, String> colRefType, String[] colNames, HBaseClient hBaseClient) {
+        super(colRefType, colNames, hBaseClient);
     }
 
 
     @Override
-    public void asyncGetData(String tableName, String rowKeyStr, Row input, ResultFuture<Row> resultFuture,
-                             AbsSideCache sideCache){
+    public Deferred<CacheObj> asyncGetData(String tableName, String rowKeyStr){
         //TODO 是否有查询多个col family 和多个col的方法
         GetRequest getRequest = new GetRequest(tableName, rowKeyStr);
-        hBaseClient.get(getRequest).addCallbacks(arg -> {
-
-            try{
-                Map<String, Object> sideMap = Maps.newHashMap();
-                for(KeyValue keyValue : arg){
-                    String cf = new String(keyValue.family());
-                    String col = new String(keyValue.qualifier());
-                    String mapKey = cf + ":" + col;
-                    //The table format defined using different data type conversion byte
-                    String colType = colRefType.get(mapKey);
-                    Object val = HbaseUtils.convertByte(keyValue.value(), colType);
-                    sideMap.put(mapKey, val);
-                }
-
-                if(arg.size() > 0){
-                    //The order of the fields defined in the data conversion table
-                    try {
-                        List<Object> sideVal = Lists.newArrayList();
-                        for(String key : colNames){
-                            Object val = sideMap.get(key);
-                            // if(val == null){
-                            //     System.out.println("can't get data with column " + key);
-                            //     LOG.error("can't get data with column " + key);
-                            // }
-
-                            sideVal.add(val);
-                        }
-
-                        Row row = fillData(input, sideVal);
-                        if(openCache){
-                            sideCache.putCache(rowKeyStr, CacheObj.buildCacheObj(ECacheContentType.SingleLine, sideVal));
-                        }
-
-                        resultFuture.complete(Collections.singleton(row));
-                    } catch (Exception e) {
-                        resultFuture.completeExceptionally(e);
-                    }
-                }else{
-
-                    dealMissKey(input, resultFuture);
+        return hBaseClient.get(getRequest).addCallback(this::dealRow);
+    }
 
-                    if (openCache) {
-                        sideCache.putCache(rowKeyStr, CacheMissVal.getMissKeyObj());
-                    }
-                }
-            }catch (Exception e){
-                resultFuture.completeExceptionally(e);
-                LOG.error("record:" + input);
-                LOG.error("get side record exception:", e);
-            }
+    /**
+     * query hbase with several row keys in one multi-get
+     * @return the result of each row key, in the order of the row keys
+     */
+    public Deferred<List<GetResultOrException>> asyncGetData(String tableName, List<String> rowKeys) {
+        List<GetRequest> getRequests = Lists.newArrayListWithCapacity(rowKeys.size());
+        for (String rowKey : rowKeys) {
+            getRequests.add(new GetRequest(tableName, rowKey));
+        }
+        return hBaseClient.get(getRequests);
+    }
 
-            return "";
-        }, arg2 -> {
-            LOG.error("record:" + input);
-            LOG.error("get side record exception:" + arg2);
-            resultFuture.complete(null);
-            return "";
-        });
+    public CacheObj dealRow(List<KeyValue> arg) {
+        if(arg.size() == 0){
+            return CacheMissVal.getMissKeyObj();
+        }
+
+        Map<String, Object> sideMap = Maps.newHashMap();
+        for(KeyValue keyValue : arg){
+            String cf = new String(keyValue.family());
+            String col = new String(keyValue.qualifier());
+            String mapKey = cf + ":" + col;
+            //The table format defined using different data type conversion byte
+            String colType = colRefType.get(mapKey);
+            Object val = HbaseUtils.convertByte(keyValue.value(), colType);
+            sideMap.put(mapKey, val);
+        }
+
+        //The order of the fields defined in the data conversion table
+        List<Object> sideVal = Lists.newArrayList();
+        for(String key : colNames){
+            sideVal.add(sideMap.get(key));
+        }
+
+        return CacheObj.buildCacheObj(ECacheContentType.SingleLine, sideVal);
     }
 }
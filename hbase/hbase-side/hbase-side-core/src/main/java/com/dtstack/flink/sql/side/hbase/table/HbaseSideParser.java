@@ -56,6 +56,12 @@ public class HbaseSideParser extends AbsSideTableParser {
 
     public static final String CACHE = "cache";
 
+    public static final String SCAN_CACHING_KEY = "scanCaching";
+
+    public static final String SCAN_BATCH_KEY = "scanBatch";
+
+    public static final String LOAD_PARALLELISM_KEY = "loadParallelism";
+
 
     public HbaseSideParser() {
         addParserHandler(FIELD_KEY, FIELD_PATTERN, this::dealField);
@@ -75,6 +81,14 @@ public class HbaseSideParser extends AbsSideTableParser {
         hbaseTableInfo.setParent((String)props.get(ZOOKEEPER_PARENT.toLowerCase()));
         hbaseTableInfo.setPreRowKey(MathUtil.getBoolean(props.get(PRE_ROW_KEY.toLowerCase()), false));
         hbaseTableInfo.setCacheType((String) props.get(CACHE));
+        if (props.get(SCAN_CACHING_KEY.toLowerCase()) != null) {
+            hbaseTableInfo.setScanCaching(MathUtil.getIntegerVal(props.get(SCAN_CACHING_KEY.toLowerCase())));
+        }
+        hbaseTableInfo.setScanBatch(MathUtil.getIntegerVal(props.get(SCAN_BATCH_KEY.toLowerCase())));
+        Integer loadParallelism = MathUtil.getIntegerVal(props.get(LOAD_PARALLELISM_KEY.toLowerCase()));
+        if (loadParallelism != null) {
+            hbaseTableInfo.setLoadParallelism(loadParallelism);
+        }
 
         props.entrySet().stream()
                 .filter(entity -> entity.getKey().contains("."))
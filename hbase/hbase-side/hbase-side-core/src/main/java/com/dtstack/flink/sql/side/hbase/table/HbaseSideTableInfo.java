@@ -60,6 +60,15 @@ public class HbaseSideTableInfo extends SideTableInfo {
 
     private Map<String, String> aliasNameRef = Maps.newHashMap();
 
+    //rows fetched by one scanner rpc
+    private int scanCaching = 100;
+
+    //max columns of a row returned by one scanner result when loading ALL, null for the whole row
+    private Integer scanBatch;
+
+    //regions scanned at the same time when loading ALL
+    private int loadParallelism = 4;
+
     public HbaseSideTableInfo(){
         setType(CURR_TYPE);
     }
@@ -70,6 +79,30 @@ public class HbaseSideTableInfo extends SideTableInfo {
         return false;
     }
 
+    public int getScanCaching() {
+        return scanCaching;
+    }
+
+    public void setScanCaching(int scanCaching) {
+        this.scanCaching = scanCaching;
+    }
+
+    public Integer getScanBatch() {
+        return scanBatch;
+    }
+
+    public void setScanBatch(Integer scanBatch) {
+        this.scanBatch = scanBatch;
+    }
+
+    public int getLoadParallelism() {
+        return loadParallelism;
+    }
+
+    public void setLoadParallelism(int loadParallelism) {
+        this.loadParallelism = loadParallelism;
+    }
+
     public String getHost() {
         return host;
     }
@@ -19,8 +19,11 @@
 
 package com.dtstack.flink.sql.sink.hbase;
 
+import com.dtstack.flink.sql.factory.DTThreadFactory;
+import com.dtstack.flink.sql.sink.IFlushableOutputFormat;
 import com.dtstack.flink.sql.sink.MetricOutputFormat;
 import com.dtstack.flink.sql.sink.hbase.utils.HbaseConfigUtils;
+import com.dtstack.flink.sql.sink.hbase.utils.HbaseUtil;
 import com.google.common.collect.Lists;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.flink.api.java.tuple.Tuple2;
@@ -32,10 +35,15 @@ import org.apache.hadoop.hbase.ChoreService;
 import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.ScheduledChore;
 import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.BufferedMutatorParams;
 import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.ConnectionFactory;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
-import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.client.RetriesExhaustedWithDetailsException;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,15 +52,19 @@ import java.io.File;
 import java.io.IOException;
 import java.security.PrivilegedAction;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * author: jingzhen@dtstack.com
  * date: 2017-6-29
  */
-public class HbaseOutputFormat extends MetricOutputFormat {
+public class HbaseOutputFormat extends MetricOutputFormat implements IFlushableOutputFormat {
 
     private static final Logger LOG = LoggerFactory.getLogger(HbaseOutputFormat.class);
 
@@ -71,12 +83,28 @@ public class HbaseOutputFormat extends MetricOutputFormat {
     private String clientPrincipal;
     private String clientKeytabFile;
 
-    private String[] families;
-    private String[] qualifiers;
+    //bytes of the mutation buffer, null for hbase.client.write.buffer
+    private Long writeBufferSize;
+    private long flushInterval = 1000;
+    //string: utf-8 bytes of the string value, binary: Bytes.toBytes of the java type
+    private String valueEncoding = HbaseUtil.VALUE_ENCODING_STRING;
+
+    //computed once in finish()
+    private byte[][] families;
+    private byte[][] qualifiers;
+    private int[] rowKeyIndexes;
+    private boolean binaryEncoding;
 
     private transient org.apache.hadoop.conf.Configuration conf;
     private transient Connection conn;
-    private transient Table table;
+    private transient BufferedMutator mutator;
+
+    private transient ScheduledExecutorService flushScheduler;
+
+    private transient volatile Exception flushException;
+
+    //a delete and a put of the same row buffered together are applied in timestamp order, not in sending order
+    private transient long lastTimestamp;
 
     public final SimpleDateFormat ROWKEY_DATE_FORMAT = new SimpleDateFormat("yyyyMMddHHmmss");
 
@@ -97,9 +125,35 @@ public class HbaseOutputFormat extends MetricOutputFormat {
     public void open(int taskNumber, int numTasks) throws IOException {
         LOG.warn("---open---");
         openConn();
-        table = conn.getTable(TableName.valueOf(tableName));
-        LOG.warn("---open end(get table from hbase) ---");
         initMetric();
+        BufferedMutatorParams params = new BufferedMutatorParams(TableName.valueOf(tableName))
+                .listener(this::onWriteFailed);
+        if (writeBufferSize != null) {
+            params.writeBufferSize(writeBufferSize);
+        }
+        mutator = conn.getBufferedMutator(params);
+        LOG.warn("---open end(get table from hbase) ---");
+
+        if (flushInterval > 0) {
+            flushScheduler = Executors.newSingleThreadScheduledExecutor(new DTThreadFactory("hbase-sink-flush"));
+            flushScheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    flush();
+                } catch (Exception e) {
+                    flushException = e;
+                }
+            }, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Mutations failed after the retries of the client are counted as dirty, the others are sent again.
+     */
+    private void onWriteFailed(RetriesExhaustedWithDetailsException e, BufferedMutator bufferedMutator) {
+        if (outDirtyRecords.getCount() % dirtyDataPrintFrequency == 0 || LOG.isDebugEnabled()) {
+            LOG.error("record insert failed ..", e);
+        }
+        outDirtyRecords.inc(e.getNumExceptions());
     }
 
     private void openConn(){
@@ -158,18 +212,16 @@ public class HbaseOutputFormat extends MetricOutputFormat {
 
 
     @Override
-    public void writeRecord(Tuple2 tuple2) {
+    public void writeRecord(Tuple2 tuple2) throws IOException {
         if (outRecords.getCount() == 0 || outRecords.getCount() % rowLenth == 0) {
             LOG.info(tuple2.toString());
         }
+        if (flushException != null) {
+            throw new IOException("write to hbase failed", flushException);
+        }
 
         Tuple2<Boolean, Row> tupleTrans = tuple2;
         Boolean retract = tupleTrans.getField(0);
-        if (!retract) {
-            //FIXME 暂时不处理hbase删除操作--->hbase要求有key,所有认为都是可以执行update查找
-            return;
-        }
-
         Row record = tupleTrans.getField(1);
         List<String> rowKeyValues = getRowKeyValues(record);
         // all rowkey not null
@@ -179,56 +231,72 @@ public class HbaseOutputFormat extends MetricOutputFormat {
             return;
         }
 
-        String key = StringUtils.join(rowKeyValues, "-");
-        Put put = new Put(key.getBytes());
+        byte[] key = Bytes.toBytes(StringUtils.join(rowKeyValues, "-"));
+        Mutation mutation;
+        synchronized (this) {
+            mutation = retract ? buildPut(key, record, nextTimestamp()) : buildDelete(key, nextTimestamp());
+        }
+        if (mutation.isEmpty()) {
+            return;
+        }
+
+        mutator.mutate(mutation);
+        outRecords.inc();
+    }
+
+    private Put buildPut(byte[] key, Row record, long timestamp) {
+        Put put = new Put(key);
         for (int i = 0; i < record.getArity(); ++i) {
             Object fieldVal = record.getField(i);
             if (fieldVal == null) {
                 continue;
             }
-            byte[] val = fieldVal.toString().getBytes();
-            byte[] cf = families[i].getBytes();
-            byte[] qualifier = qualifiers[i].getBytes();
-
-            put.addColumn(cf, qualifier, val);
+            byte[] val = binaryEncoding ? HbaseUtil.toBinaryBytes(fieldVal) : Bytes.toBytes(fieldVal.toString());
+            put.addColumn(families[i], qualifiers[i], timestamp, val);
         }
+        return put;
+    }
 
-
-        try {
-            table.put(put);
-        } catch (IOException e) {
-            if (outDirtyRecords.getCount() % dirtyDataPrintFrequency == 0 || LOG.isDebugEnabled()) {
-                LOG.error("record insert failed ..", record.toString());
-                LOG.error("", e);
-            }
-            outDirtyRecords.inc();
+    /**
+     * A retraction deletes the columns of the sink, other columns of the row are kept.
+     */
+    private Delete buildDelete(byte[] key, long timestamp) {
+        Delete delete = new Delete(key);
+        for (int i = 0; i < families.length; ++i) {
+            delete.addColumns(families[i], qualifiers[i], timestamp);
         }
+        return delete;
+    }
 
-        outRecords.inc();
+    /**
+     * Timestamps are given by the sink, so that a delete and a put of a row buffered together keep their order.
+     * They are only ordered within one subtask: all updates of a row key must go through the same subtask,
+     * e.g. parallelism 1 or a result keyed by the row key, and the clocks of the hosts must be synchronized
+     * so that the writes after a failover are not older than the ones before it.
+     */
+    private long nextTimestamp() {
+        lastTimestamp = Math.max(System.currentTimeMillis(), lastTimestamp + 1);
+        return lastTimestamp;
+    }
 
+    @Override
+    public synchronized void flush() throws IOException {
+        if (mutator != null) {
+            mutator.flush();
+        }
     }
 
     private List<String> getRowKeyValues(Row record) {
         List<String> rowKeyValues = Lists.newArrayList();
-        for (int i = 0; i < rowkey.length; ++i) {
-            String colName = rowkey[i];
-            int rowKeyIndex = 0;  //rowkey index
-            for (; rowKeyIndex < columnNames.length; ++rowKeyIndex) {
-                if (columnNames[rowKeyIndex].equals(colName)) {
-                    break;
-                }
-            }
-
-            if (rowKeyIndex != columnNames.length && record.getField(rowKeyIndex) != null) {
-                Object field = record.getField(rowKeyIndex);
-                if (field == null) {
-                    continue;
-                } else if (field instanceof java.util.Date) {
-                    java.util.Date d = (java.util.Date) field;
-                    rowKeyValues.add(ROWKEY_DATE_FORMAT.format(d));
-                } else {
-                    rowKeyValues.add(field.toString());
-                }
+        for (int rowKeyIndex : rowKeyIndexes) {
+            Object field = rowKeyIndex == -1 ? null : record.getField(rowKeyIndex);
+            if (field == null) {
+                continue;
+            } else if (field instanceof java.util.Date) {
+                java.util.Date d = (java.util.Date) field;
+                rowKeyValues.add(ROWKEY_DATE_FORMAT.format(d));
+            } else {
+                rowKeyValues.add(field.toString());
             }
         }
         return rowKeyValues;
@@ -236,6 +304,16 @@ public class HbaseOutputFormat extends MetricOutputFormat {
 
     @Override
     public void close() throws IOException {
+        if (flushScheduler != null) {
+            flushScheduler.shutdownNow();
+        }
+        if (mutator != null) {
+            try {
+                mutator.close();
+            } finally {
+                mutator = null;
+            }
+        }
         if (conn != null) {
             conn.close();
             conn = null;
@@ -333,14 +411,36 @@ public class HbaseOutputFormat extends MetricOutputFormat {
         }
 
 
+        public HbaseOutputFormatBuilder setWriteBufferSize(Long writeBufferSize) {
+            format.writeBufferSize = writeBufferSize;
+            return this;
+        }
+
+        public HbaseOutputFormatBuilder setFlushInterval(Long flushInterval) {
+            if (flushInterval != null) {
+                format.flushInterval = flushInterval;
+            }
+            return this;
+        }
+
+        public HbaseOutputFormatBuilder setValueEncoding(String valueEncoding) {
+            if (valueEncoding != null) {
+                format.valueEncoding = valueEncoding.toLowerCase();
+            }
+            return this;
+        }
+
         public HbaseOutputFormat finish() {
             Preconditions.checkNotNull(format.host, "zookeeperQuorum should be specified");
             Preconditions.checkNotNull(format.tableName, "tableName should be specified");
             Preconditions.checkNotNull(format.columnNames, "columnNames should be specified");
             Preconditions.checkArgument(format.columnNames.length != 0, "columnNames length should not be zero");
 
-            String[] families = new String[format.columnNames.length];
-            String[] qualifiers = new String[format.columnNames.length];
+            Preconditions.checkArgument(HbaseUtil.VALUE_ENCODING_STRING.equals(format.valueEncoding)
+                    || HbaseUtil.VALUE_ENCODING_BINARY.equals(format.valueEncoding), "valueEncoding should be string or binary");
+
+            byte[][] families = new byte[format.columnNames.length][];
+            byte[][] qualifiers = new byte[format.columnNames.length][];
 
             if (format.columnNameFamily != null) {
                 Set<String> keySet = format.columnNameFamily.keySet();
@@ -348,12 +448,19 @@ public class HbaseOutputFormat extends MetricOutputFormat {
                 for (int i = 0; i < columns.length; ++i) {
                     String col = columns[i];
                     String[] part = col.split(":");
-                    families[i] = part[0];
-                    qualifiers[i] = part[1];
+                    families[i] = Bytes.toBytes(part[0]);
+                    qualifiers[i] = Bytes.toBytes(part[1]);
                 }
             }
             format.families = families;
             format.qualifiers = qualifiers;
+            format.binaryEncoding = HbaseUtil.VALUE_ENCODING_BINARY.equals(format.valueEncoding);
+
+            int[] rowKeyIndexes = new int[format.rowkey.length];
+            for (int i = 0; i < format.rowkey.length; ++i) {
+                rowKeyIndexes[i] = Arrays.asList(format.columnNames).indexOf(format.rowkey[i]);
+            }
+            format.rowKeyIndexes = rowKeyIndexes;
 
             return format;
         }
@@ -20,6 +20,7 @@
 
 package com.dtstack.flink.sql.sink.hbase;
 
+import com.dtstack.flink.sql.sink.CheckpointFlushSinkFunction;
 import com.dtstack.flink.sql.sink.IStreamSinkGener;
 import com.dtstack.flink.sql.sink.hbase.table.HbaseTableInfo;
 import com.dtstack.flink.sql.table.TargetTableInfo;
@@ -29,7 +30,6 @@ import org.apache.flink.api.java.typeutils.RowTypeInfo;
 import org.apache.flink.api.java.typeutils.TupleTypeInfo;
 import org.apache.flink.streaming.api.datastream.DataStream;
 import org.apache.flink.streaming.api.datastream.DataStreamSink;
-import org.apache.flink.streaming.api.functions.sink.OutputFormatSinkFunction;
 import org.apache.flink.streaming.api.functions.sink.RichSinkFunction;
 import org.apache.flink.table.sinks.AppendStreamTableSink;
 import org.apache.flink.table.sinks.RetractStreamTableSink;
@@ -64,6 +64,10 @@ public class HbaseSink implements RetractStreamTableSink<Row>, IStreamSinkGener<
     private String clientPrincipal;
     private String clientKeytabFile;
 
+    private Long writeBufferSize;
+    private Long flushInterval;
+    private String valueEncoding;
+
     private int parallelism = -1;
 
     public HbaseSink() {
@@ -90,6 +94,10 @@ public class HbaseSink implements RetractStreamTableSink<Row>, IStreamSinkGener<
         this.clientKeytabFile = hbaseTableInfo.getClientKeytabFile();
         this.clientPrincipal = hbaseTableInfo.getClientPrincipal();
 
+        this.writeBufferSize = hbaseTableInfo.getWriteBufferSize();
+        this.flushInterval = hbaseTableInfo.getFlushInterval();
+        this.valueEncoding = hbaseTableInfo.getValueEncoding();
+
         Integer tmpSinkParallelism = hbaseTableInfo.getParallelism();
         if (tmpSinkParallelism != null) {
             setParallelism(tmpSinkParallelism);
@@ -147,8 +155,12 @@ public class HbaseSink implements RetractStreamTableSink<Row>, IStreamSinkGener<
         builder.setClientPrincipal(clientPrincipal);
         builder.setClientKeytabFile(clientKeytabFile);
 
+        builder.setWriteBufferSize(writeBufferSize);
+        builder.setFlushInterval(flushInterval);
+        builder.setValueEncoding(valueEncoding);
+
         HbaseOutputFormat outputFormat = builder.finish();
-        RichSinkFunction richSinkFunction = new OutputFormatSinkFunction(outputFormat);
+        RichSinkFunction richSinkFunction = new CheckpointFlushSinkFunction(outputFormat);
         DataStreamSink streamSink = dataStream.addSink(richSinkFunction);
         streamSink.name(registerTabName);
         if (parallelism > 0) {
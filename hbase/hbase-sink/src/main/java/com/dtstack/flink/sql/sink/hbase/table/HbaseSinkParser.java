@@ -56,6 +56,12 @@ public class HbaseSinkParser extends AbsTableParser {
     public static final String CLIENT_PRINCIPAL_KEY = "clientPrincipal";
     public static final String CLIENT_KEYTABFILE_KEY = "clientKeytabFile";
 
+    public static final String WRITE_BUFFER_SIZE_KEY = "writeBufferSize";
+
+    public static final String FLUSH_INTERVAL_KEY = "flushInterval";
+
+    public static final String VALUE_ENCODING_KEY = "valueEncoding";
+
     @Override
     protected boolean fieldNameNeedsUpperCase() {
         return false;
@@ -82,6 +88,10 @@ public class HbaseSinkParser extends AbsTableParser {
         hbaseTableInfo.setClientPrincipal((String) props.get(CLIENT_PRINCIPAL_KEY.toLowerCase()));
         hbaseTableInfo.setClientKeytabFile((String) props.get(CLIENT_KEYTABFILE_KEY.toLowerCase()));
 
+        hbaseTableInfo.setWriteBufferSize(MathUtil.getLongVal(props.get(WRITE_BUFFER_SIZE_KEY.toLowerCase())));
+        hbaseTableInfo.setFlushInterval(MathUtil.getLongVal(props.get(FLUSH_INTERVAL_KEY.toLowerCase())));
+        hbaseTableInfo.setValueEncoding(MathUtil.getString(props.get(VALUE_ENCODING_KEY.toLowerCase())));
+
         return hbaseTableInfo;
     }
 
@@ -70,6 +70,12 @@ public class HbaseTableInfo extends TargetTableInfo {
 
     private Map<String,Object> hbaseConfig = Maps.newHashMap();
 
+    private Long writeBufferSize;
+
+    private Long flushInterval;
+
+    private String valueEncoding;
+
     public HbaseTableInfo(){
         setType(CURR_TYPE);
     }
@@ -146,9 +152,36 @@ public class HbaseTableInfo extends TargetTableInfo {
         this.columnTypes = columnTypes;
     }
 
+    public Long getWriteBufferSize() {
+        return writeBufferSize;
+    }
+
+    public void setWriteBufferSize(Long writeBufferSize) {
+        this.writeBufferSize = writeBufferSize;
+    }
+
+    public Long getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Long flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public String getValueEncoding() {
+        return valueEncoding;
+    }
+
+    public void setValueEncoding(String valueEncoding) {
+        this.valueEncoding = valueEncoding;
+    }
+
     @Override
     public boolean check() {
         Preconditions.checkNotNull(host, "hbase field of zookeeperQuorum is required");
+        Preconditions.checkArgument(writeBufferSize == null || writeBufferSize > 0, "hbase field of writeBufferSize must be greater than 0");
+        Preconditions.checkArgument(valueEncoding == null || "string".equalsIgnoreCase(valueEncoding) || "binary".equalsIgnoreCase(valueEncoding),
+                "hbase field of valueEncoding must be string or binary");
         return true;
     }
 
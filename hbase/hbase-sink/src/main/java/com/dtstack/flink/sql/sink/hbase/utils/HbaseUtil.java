@@ -22,17 +22,55 @@ package com.dtstack.flink.sql.sink.hbase.utils;
 
 import org.apache.flink.api.common.typeinfo.BasicTypeInfo;
 import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.io.ByteWritable;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.Text;
 
+import java.math.BigDecimal;
+
 /**
  * Created by softfly on 17/6/30.
  */
 public class HbaseUtil {
 
+    public static final String VALUE_ENCODING_STRING = "string";
+
+    public static final String VALUE_ENCODING_BINARY = "binary";
+
     private HbaseUtil() {}
 
+    /**
+     * Binary value of a field, as written by Bytes.toBytes for its java type. Dates are written as epoch millis.
+     */
+    public static byte[] toBinaryBytes(Object value) {
+        if (value instanceof String) {
+            return Bytes.toBytes((String) value);
+        } else if (value instanceof Integer) {
+            return Bytes.toBytes((Integer) value);
+        } else if (value instanceof Long) {
+            return Bytes.toBytes((Long) value);
+        } else if (value instanceof Short) {
+            return Bytes.toBytes((Short) value);
+        } else if (value instanceof Byte) {
+            return new byte[]{(Byte) value};
+        } else if (value instanceof Double) {
+            return Bytes.toBytes((Double) value);
+        } else if (value instanceof Float) {
+            return Bytes.toBytes((Float) value);
+        } else if (value instanceof Boolean) {
+            return Bytes.toBytes((Boolean) value);
+        } else if (value instanceof BigDecimal) {
+            return Bytes.toBytes((BigDecimal) value);
+        } else if (value instanceof java.util.Date) {
+            return Bytes.toBytes(((java.util.Date) value).getTime());
+        } else if (value instanceof byte[]) {
+            return (byte[]) value;
+        }
+
+        return Bytes.toBytes(value.toString());
+    }
+
     public static TypeInformation columnTypeToTypeInformation(String type) {
         type = type.toUpperCase();
 
@@ -1,15 +1,17 @@
 package com.dtstack.flink.sql.side.kudu;
 
+import com.dtstack.flink.sql.factory.DTThreadFactory;
 import com.dtstack.flink.sql.side.AllReqRow;
 import com.dtstack.flink.sql.side.FieldInfo;
 import com.dtstack.flink.sql.side.JoinInfo;
 import com.dtstack.flink.sql.side.SideTableInfo;
+import com.dtstack.flink.sql.side.cache.AbsAllCacheStore;
+import com.dtstack.flink.sql.side.cache.SideCacheKey;
 import com.dtstack.flink.sql.side.kudu.table.KuduSideTableInfo;
+import com.google.common.collect.Lists;
 import org.apache.calcite.sql.JoinType;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.flink.api.java.typeutils.RowTypeInfo;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import org.apache.flink.table.typeutils.TimeIndicatorTypeInfo;
 import org.apache.flink.types.Row;
 import org.apache.flink.util.Collector;
@@ -24,7 +26,14 @@ import org.slf4j.LoggerFactory;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 public class KuduAllReqRow extends AllReqRow {
 
@@ -40,71 +49,65 @@ public class KuduAllReqRow extends AllReqRow {
      */
     private static final Long FETCH_SIZE = 1000L;
 
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    //marks the end of a scan token in the row queue
+    private static final List<Object[]> TOKEN_END = Collections.emptyList();
+
     private KuduClient client;
 
     private KuduTable table;
 
 
-    private AtomicReference<Map<String, List<Map<String, Object>>>> cacheRef = new AtomicReference<>();
-
     public KuduAllReqRow(RowTypeInfo rowTypeInfo, JoinInfo joinInfo, List<FieldInfo> outFieldInfoList, SideTableInfo sideTableInfo) {
         super(new KuduAllSideInfo(rowTypeInfo, joinInfo, outFieldInfoList, sideTableInfo));
     }
 
 
     @Override
-    public Row fillData(Row input, Object sideInput) {
-        Map<String, Object> cacheInfo = (Map<String, Object>) sideInput;
-        Row row = new Row(sideInfo.getOutFieldInfoList().size());
-        for (Map.Entry<Integer, Integer> entry : sideInfo.getInFieldIndex().entrySet()) {
-            Object obj = input.getField(entry.getValue());
-            obj = convertTimeIndictorTypeInfo(entry.getValue(), obj);
-            row.setField(entry.getKey(), obj);
-        }
-
-        for (Map.Entry<Integer, String> entry : sideInfo.getSideFieldNameIndex().entrySet()) {
-            if (cacheInfo == null) {
-                row.setField(entry.getKey(), null);
-            } else {
-                row.setField(entry.getKey(), cacheInfo.get(entry.getValue()));
-            }
-        }
-
-        return row;
+    protected String getCacheSourceIdentity() {
+        KuduSideTableInfo tableInfo = (KuduSideTableInfo) sideInfo.getSideTableInfo();
+        return tableInfo.getKuduMasters() + "|" + tableInfo.getTableName() + "|" + tableInfo.getLowerBoundPrimaryKey()
+                + "|" + tableInfo.getUpperBoundPrimaryKey() + "|" + tableInfo.getLimitNum();
     }
 
     @Override
     protected void initCache() throws SQLException {
-        Map<String, List<Map<String, Object>>> newCache = Maps.newConcurrentMap();
-        cacheRef.set(newCache);
+        AbsAllCacheStore newCache = newCacheStore();
         loadData(newCache);
+        switchCacheStore(newCache);
     }
 
 
     @Override
     protected void reloadCache() {
         //reload cacheRef and replace to old cacheRef
-        Map<String, List<Map<String, Object>>> newCache = Maps.newConcurrentMap();
-        loadData(newCache);
+        AbsAllCacheStore newCache = newCacheStore();
+        try {
+            loadData(newCache);
+        } catch (Exception e) {
+            //a store missing the rows of a failed token would turn them into misses, lookups stay on the last load
+            LOG.error("reload of kudu all cache failed, keep the last loaded rows", e);
+            return;
+        }
 
-        cacheRef.set(newCache);
+        switchCacheStore(newCache);
         LOG.info("----- kudu all cacheRef reload end:{}", Calendar.getInstance());
     }
 
 
     @Override
     public void flatMap(Row value, Collector<Row> out) throws Exception {
-        List<Object> inputParams = Lists.newArrayList();
-        for (Integer conValIndex : sideInfo.getEqualValIndex()) {
-            Object equalObj = value.getField(conValIndex);
-            if (equalObj == null) {
-                out.collect(null);
+        SideCacheKey key = buildInputKey(value);
+        if (key == null) {
+            if (sideInfo.getJoinType() == JoinType.LEFT) {
+                Row row = fillData(value, null);
+                out.collect(row);
             }
-            inputParams.add(equalObj);
+            return;
         }
 
-        String key = buildKey(inputParams);
-        List<Map<String, Object>> cacheList = cacheRef.get().get(key);
+        List<Object[]> cacheList = getCacheStore().get(key);
         if (CollectionUtils.isEmpty(cacheList)) {
             if (sideInfo.getJoinType() == JoinType.LEFT) {
                 Row row = fillData(value, null);
@@ -113,18 +116,18 @@ public class KuduAllReqRow extends AllReqRow {
             return;
         }
 
-        for (Map<String, Object> one : cacheList) {
+        for (Object[] one : cacheList) {
             out.collect(fillData(value, one));
         }
     }
 
-    private void loadData(Map<String, List<Map<String, Object>>> tmpCache) {
+    private void loadData(AbsAllCacheStore tmpCache) {
         KuduSideTableInfo tableInfo = (KuduSideTableInfo) sideInfo.getSideTableInfo();
-        KuduScanner scanner = null;
         try {
+            List<KuduScanToken> scanTokens = null;
             for (int i = 0; i < CONN_RETRY_NUM; i++) {
                 try {
-                    scanner = getConn(tableInfo);
+                    scanTokens = getScanTokens(tableInfo);
                     break;
                 } catch (Exception e) {
                     if (i == CONN_RETRY_NUM - 1) {
@@ -140,61 +143,126 @@ public class KuduAllReqRow extends AllReqRow {
                 }
             }
             //load data from table
-            assert scanner != null;
-            String[] sideFieldNames = sideInfo.getSideSelectFields().split(",");
+            assert scanTokens != null;
+            String[] sideFieldNames = getSideRowFields();
+            ColumnSchema[] columnSchemas = new ColumnSchema[sideFieldNames.length];
+            for (int i = 0; i < sideFieldNames.length; i++) {
+                columnSchemas[i] = findColumn(table.getSchema(), sideFieldNames[i]);
+            }
 
+            //the limit applies to the whole table, not to each token
+            AtomicLong remaining = new AtomicLong(resolveLimit(tableInfo));
+            int loadParallelism = Math.min(tableInfo.getLoadParallelism(), scanTokens.size());
+            if (loadParallelism <= 1) {
+                for (KuduScanToken scanToken : scanTokens) {
+                    loadToken(scanToken, columnSchemas, remaining, rows -> rows.forEach(oneRow -> tmpCache.put(buildSideKey(oneRow), oneRow)));
+                }
+            } else {
+                loadParallel(scanTokens, loadParallelism, columnSchemas, remaining, tmpCache);
+            }
+            LOG.info("kudu all side table {} loaded from {} scan tokens", tableInfo.getTableName(), scanTokens.size());
+        } catch (ExecutionException e) {
+            throw new RuntimeException("load scan token of side table failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("load of side table is interrupted", e);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("load of side table failed", e);
+        }
+    }
 
-            while (scanner.hasMoreRows()) {
-                RowResultIterator results = scanner.nextRows();
-                while (results.hasNext()) {
-                    RowResult result = results.next();
-                    Map<String, Object> oneRow = Maps.newHashMap();
-                    for (String sideFieldName1 : sideFieldNames) {
-                        String sideFieldName = sideFieldName1.trim();
-                        ColumnSchema columnSchema = table.getSchema().getColumn(sideFieldName);
-                        if (null != columnSchema) {
-                            setMapValue(columnSchema.getType(), oneRow, sideFieldName, result);
-                        }
+    /**
+     * Read the scan tokens on a pool of loadParallelism threads. Rows are handed over in batches
+     * to the calling thread, which is the only one building the cache as stores are not thread safe.
+     */
+    private void loadParallel(List<KuduScanToken> scanTokens, int loadParallelism, ColumnSchema[] columnSchemas,
+                              AtomicLong remaining, AbsAllCacheStore tmpCache) throws InterruptedException, ExecutionException {
+        BlockingQueue<List<Object[]>> rowQueue = new ArrayBlockingQueue<>(loadParallelism * 4);
+        ExecutorService executor = Executors.newFixedThreadPool(loadParallelism, new DTThreadFactory("kudu-all-load"));
+        try {
+            List<Future<?>> futures = Lists.newArrayList();
+            for (KuduScanToken scanToken : scanTokens) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        loadToken(scanToken, columnSchemas, remaining, rows -> putRows(rowQueue, rows));
+                    } finally {
+                        putRows(rowQueue, TOKEN_END);
                     }
-                    String cacheKey = buildKey(oneRow, sideInfo.getEqualFieldList());
-                    List<Map<String, Object>> list = tmpCache.computeIfAbsent(cacheKey, key -> Lists.newArrayList());
-                    list.add(oneRow);
-                }
+                    return null;
+                }));
             }
 
-        } catch (Exception e) {
-            LOG.error("", e);
-        } finally {
-            if (null != scanner) {
-                try {
-                    scanner.close();
-                } catch (KuduException e) {
-                    LOG.error("Error while closing scanner.", e);
+            int finishedNum = 0;
+            while (finishedNum < scanTokens.size()) {
+                List<Object[]> rows = rowQueue.take();
+                if (rows == TOKEN_END) {
+                    finishedNum++;
+                    continue;
                 }
+                rows.forEach(oneRow -> tmpCache.put(buildSideKey(oneRow), oneRow));
             }
-        }
-
 
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
-    private String buildKey(List<Object> equalValList) {
-        StringBuilder sb = new StringBuilder("");
-        for (Object equalVal : equalValList) {
-            sb.append(equalVal).append("_");
-        }
+    /**
+     * Scan the tablet range of the token, rows of other subtasks' key groups are dropped here.
+     */
+    private void loadToken(KuduScanToken scanToken, ColumnSchema[] columnSchemas, AtomicLong remaining,
+                           Consumer<List<Object[]>> rowsConsumer) throws Exception {
+        KuduScanner scanner = scanToken.intoScanner(client);
+        try {
+            List<Object[]> rows = Lists.newArrayListWithCapacity(LOAD_BATCH_SIZE);
+            while (scanner.hasMoreRows() && remaining.get() > 0) {
+                RowResultIterator results = scanner.nextRows();
+                while (results.hasNext() && remaining.getAndDecrement() > 0) {
+                    RowResult result = results.next();
+                    Object[] oneRow = new Object[columnSchemas.length];
+                    for (int i = 0; i < columnSchemas.length; i++) {
+                        if (null != columnSchemas[i]) {
+                            oneRow[i] = getColumnValue(columnSchemas[i].getType(), columnSchemas[i].getName(), result);
+                        }
+                    }
+                    if (!isLocalSideRow(oneRow)) {
+                        continue;
+                    }
 
-        return sb.toString();
+                    rows.add(oneRow);
+                    if (rows.size() >= LOAD_BATCH_SIZE) {
+                        rowsConsumer.accept(rows);
+                        rows = Lists.newArrayListWithCapacity(LOAD_BATCH_SIZE);
+                    }
+                }
+            }
+            if (!rows.isEmpty()) {
+                rowsConsumer.accept(rows);
+            }
+        } finally {
+            try {
+                scanner.close();
+            } catch (KuduException e) {
+                LOG.error("Error while closing scanner.", e);
+            }
+        }
     }
 
-    private String buildKey(Map<String, Object> val, List<String> equalFieldList) {
-        StringBuilder sb = new StringBuilder("");
-        for (String equalField : equalFieldList) {
-            sb.append(val.get(equalField)).append("_");
+    private void putRows(BlockingQueue<List<Object[]>> rowQueue, List<Object[]> rows) {
+        try {
+            rowQueue.put(rows);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("load of scan token is interrupted", e);
         }
-        return sb.toString();
     }
 
-    private KuduScanner getConn(KuduSideTableInfo tableInfo) {
+    private List<KuduScanToken> getScanTokens(KuduSideTableInfo tableInfo) {
         try {
             if (client == null) {
                 String kuduMasters = tableInfo.getKuduMasters();
@@ -224,39 +292,35 @@ public class KuduAllReqRow extends AllReqRow {
                 table = client.openTable(tableName);
             }
             Schema schema = table.getSchema();
-            KuduScanner.KuduScannerBuilder tokenBuilder = client.newScannerBuilder(table);
-            return buildScanner(tokenBuilder, schema, tableInfo);
+            KuduScanToken.KuduScanTokenBuilder tokenBuilder = client.newScanTokenBuilder(table);
+            configureScan(tokenBuilder, schema, tableInfo);
+            return tokenBuilder.build();
         } catch (Exception e) {
             LOG.error("connect kudu is error:" + e.getMessage());
             throw new RuntimeException(e);
         }
     }
 
+    private long resolveLimit(KuduSideTableInfo tableInfo) {
+        Long limitNum = tableInfo.getLimitNum();
+        return null == limitNum || limitNum <= 0 ? FETCH_SIZE : limitNum;
+    }
 
     /**
-     * @param builder   创建AsyncKuduScanner对象
+     * @param builder   创建scan token的builder,每个token对应一个tablet上的扫描范围
      * @param schema    kudu中表约束
-     * @param tableInfo AsyncKuduScanner的配置信息
-     * @return
+     * @param tableInfo 扫描的配置信息
      */
-    private KuduScanner buildScanner(KuduScanner.KuduScannerBuilder builder, Schema schema, KuduSideTableInfo
-            tableInfo) {
+    private void configureScan(KuduScanToken.KuduScanTokenBuilder builder, Schema schema, KuduSideTableInfo tableInfo) {
         Integer batchSizeBytes = tableInfo.getBatchSizeBytes();
-        Long limitNum = tableInfo.getLimitNum();
         Boolean isFaultTolerant = tableInfo.getFaultTolerant();
-        //查询需要的字段
-        String[] sideFieldNames = sideInfo.getSideSelectFields().split(",");
         //主键过滤条件 主键最小值
         String lowerBoundPrimaryKey = tableInfo.getLowerBoundPrimaryKey();
         //主键过滤条件 主键最大值
         String upperBoundPrimaryKey = tableInfo.getUpperBoundPrimaryKey();
         //主键字段
         String primaryKeys = tableInfo.getPrimaryKey();
-        if (null == limitNum || limitNum <= 0) {
-            builder.limit(FETCH_SIZE);
-        } else {
-            builder.limit(limitNum);
-        }
+        builder.limit(resolveLimit(tableInfo));
         if (null != batchSizeBytes) {
             builder.batchSizeBytes(batchSizeBytes);
         }
@@ -283,8 +347,26 @@ public class KuduAllReqRow extends AllReqRow {
             builder.lowerBound(lowerPartialRow);
             builder.exclusiveUpperBound(upperPartialRow);
         }
-        List<String> projectColumns = Arrays.asList(sideFieldNames);
-        return builder.setProjectedColumnNames(projectColumns).build();
+        //查询需要的字段
+        List<String> projectColumns = Lists.newArrayList();
+        for (String sideFieldName : getSideRowFields()) {
+            if (findColumn(schema, sideFieldName) != null) {
+                projectColumns.add(sideFieldName);
+            }
+        }
+        builder.setProjectedColumnNames(projectColumns);
+    }
+
+    /**
+     * @return schema of the column, null if the table has no such column
+     */
+    private ColumnSchema findColumn(Schema schema, String columnName) {
+        for (ColumnSchema columnSchema : schema.getColumns()) {
+            if (columnSchema.getName().equals(columnName)) {
+                return columnSchema;
+            }
+        }
+        return null;
     }
 
     private String[] splitString(String data) {
@@ -328,38 +410,28 @@ public class KuduAllReqRow extends AllReqRow {
         }
     }
 
-    private void setMapValue(Type type, Map<String, Object> oneRow, String sideFieldName, RowResult result) {
+    private Object getColumnValue(Type type, String sideFieldName, RowResult result) {
         switch (type) {
             case STRING:
-                oneRow.put(sideFieldName, result.getString(sideFieldName));
-                break;
+                return result.getString(sideFieldName);
             case FLOAT:
-                oneRow.put(sideFieldName, result.getFloat(sideFieldName));
-                break;
+                return result.getFloat(sideFieldName);
             case INT8:
-                oneRow.put(sideFieldName, result.getFloat(sideFieldName));
-                break;
+                return result.getFloat(sideFieldName);
             case INT16:
-                oneRow.put(sideFieldName, result.getShort(sideFieldName));
-                break;
+                return result.getShort(sideFieldName);
             case INT32:
-                oneRow.put(sideFieldName, result.getInt(sideFieldName));
-                break;
+                return result.getInt(sideFieldName);
             case INT64:
-                oneRow.put(sideFieldName, result.getLong(sideFieldName));
-                break;
+                return result.getLong(sideFieldName);
             case DOUBLE:
-                oneRow.put(sideFieldName, result.getDouble(sideFieldName));
-                break;
+                return result.getDouble(sideFieldName);
             case BOOL:
-                oneRow.put(sideFieldName, result.getBoolean(sideFieldName));
-                break;
+                return result.getBoolean(sideFieldName);
             case UNIXTIME_MICROS:
-                oneRow.put(sideFieldName, result.getTimestamp(sideFieldName));
-                break;
+                return result.getTimestamp(sideFieldName);
             case BINARY:
-                oneRow.put(sideFieldName, result.getBinary(sideFieldName));
-                break;
+                return result.getBinary(sideFieldName);
             default:
                 throw new IllegalArgumentException("Illegal var type: " + type);
         }
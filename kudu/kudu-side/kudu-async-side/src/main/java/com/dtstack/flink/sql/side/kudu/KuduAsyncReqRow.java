@@ -3,16 +3,15 @@ package com.dtstack.flink.sql.side.kudu;
 import com.dtstack.flink.sql.enums.ECacheContentType;
 import com.dtstack.flink.sql.side.*;
 import com.dtstack.flink.sql.side.cache.CacheObj;
+import com.dtstack.flink.sql.side.cache.SideCacheKey;
 import com.dtstack.flink.sql.side.kudu.table.KuduSideTableInfo;
+import com.dtstack.flink.sql.util.ClassUtil;
 import com.stumbleupon.async.Callback;
 import com.stumbleupon.async.Deferred;
-import io.vertx.core.json.JsonArray;
 import org.apache.flink.api.java.typeutils.RowTypeInfo;
 import com.google.common.collect.Lists;
 import org.apache.flink.configuration.Configuration;
 import com.google.common.collect.Maps;
-import org.apache.flink.streaming.api.functions.async.ResultFuture;
-import org.apache.flink.table.typeutils.TimeIndicatorTypeInfo;
 import org.apache.flink.types.Row;
 import org.apache.flink.util.Preconditions;
 import org.apache.kudu.ColumnSchema;
@@ -22,11 +21,12 @@ import org.apache.kudu.client.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.sql.Timestamp;
-import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public class KuduAsyncReqRow extends AsyncReqRow {
 
@@ -49,7 +49,14 @@ public class KuduAsyncReqRow extends AsyncReqRow {
 
     private KuduSideTableInfo kuduSideTableInfo;
 
-    private AsyncKuduScanner.AsyncKuduScannerBuilder scannerBuilder;
+    //resolved once in open, every lookup only adds its predicates to a scanner built from them
+    private transient List<String> projectColumns;
+
+    private transient ColumnSchema[] projectColumnSchemas;
+
+    private transient ColumnSchema[] keyColumnSchemas;
+
+    private transient long limit;
 
     public KuduAsyncReqRow(RowTypeInfo rowTypeInfo, JoinInfo joinInfo, List<FieldInfo> outFieldInfoList, SideTableInfo sideTableInfo) {
         super(new KuduAsyncSideInfo(rowTypeInfo, joinInfo, outFieldInfoList, sideTableInfo));
@@ -60,6 +67,7 @@ public class KuduAsyncReqRow extends AsyncReqRow {
         super.open(parameters);
         kuduSideTableInfo = (KuduSideTableInfo) sideInfo.getSideTableInfo();
         connKuDu();
+        initScanInfo();
     }
 
     /**
@@ -68,108 +76,182 @@ public class KuduAsyncReqRow extends AsyncReqRow {
      * @throws KuduException
      */
     private void connKuDu() throws KuduException {
-        if (null == table) {
-            String kuduMasters = kuduSideTableInfo.getKuduMasters();
-            String tableName = kuduSideTableInfo.getTableName();
-            Integer workerCount = kuduSideTableInfo.getWorkerCount();
-            Integer defaultSocketReadTimeoutMs = kuduSideTableInfo.getDefaultSocketReadTimeoutMs();
-            Integer defaultOperationTimeoutMs = kuduSideTableInfo.getDefaultOperationTimeoutMs();
-
-            Preconditions.checkNotNull(kuduMasters, "kuduMasters could not be null");
-
-            AsyncKuduClient.AsyncKuduClientBuilder asyncKuduClientBuilder = new AsyncKuduClient.AsyncKuduClientBuilder(kuduMasters);
-            if (null != workerCount) {
-                asyncKuduClientBuilder.workerCount(workerCount);
-            }
-            if (null != defaultSocketReadTimeoutMs) {
-                asyncKuduClientBuilder.defaultSocketReadTimeoutMs(defaultSocketReadTimeoutMs);
-            }
+        String kuduMasters = kuduSideTableInfo.getKuduMasters();
+        String tableName = kuduSideTableInfo.getTableName();
+        Integer workerCount = kuduSideTableInfo.getWorkerCount();
+        Integer defaultSocketReadTimeoutMs = kuduSideTableInfo.getDefaultSocketReadTimeoutMs();
+        Integer defaultOperationTimeoutMs = kuduSideTableInfo.getDefaultOperationTimeoutMs();
+
+        Preconditions.checkNotNull(kuduMasters, "kuduMasters could not be null");
+
+        AsyncKuduClient.AsyncKuduClientBuilder asyncKuduClientBuilder = new AsyncKuduClient.AsyncKuduClientBuilder(kuduMasters);
+        if (null != workerCount) {
+            asyncKuduClientBuilder.workerCount(workerCount);
+        }
+        if (null != defaultSocketReadTimeoutMs) {
+            asyncKuduClientBuilder.defaultSocketReadTimeoutMs(defaultSocketReadTimeoutMs);
+        }
 
-            if (null != defaultOperationTimeoutMs) {
-                asyncKuduClientBuilder.defaultOperationTimeoutMs(defaultOperationTimeoutMs);
+        if (null != defaultOperationTimeoutMs) {
+            asyncKuduClientBuilder.defaultOperationTimeoutMs(defaultOperationTimeoutMs);
+        }
+        asyncClient = asyncKuduClientBuilder.build();
+        if (!asyncClient.syncClient().tableExists(tableName)) {
+            throw new IllegalArgumentException("Table Open Failed , please check table exists");
+        }
+        table = asyncClient.syncClient().openTable(tableName);
+        LOG.info("connect kudu is successed!");
+    }
+
+    /**
+     * Resolve the columns to read and the key columns of the predicates from the table schema.
+     * The key columns are read too, so that the rows of a batch lookup can be dispatched to their keys.
+     */
+    private void initScanInfo() {
+        Schema schema = table.getSchema();
+        projectColumns = Lists.newArrayList();
+        List<ColumnSchema> columnSchemas = Lists.newArrayList();
+        List<String> readColumns = Lists.newArrayList(sideInfo.getSideSelectFields().split(","));
+        readColumns.addAll(sideInfo.getEqualFieldList());
+        for (String readColumn : readColumns) {
+            String columnName = readColumn.trim();
+            if (projectColumns.contains(columnName)) {
+                continue;
             }
-            asyncClient = asyncKuduClientBuilder.build();
-            if (!asyncClient.syncClient().tableExists(tableName)) {
-                throw new IllegalArgumentException("Table Open Failed , please check table exists");
+            projectColumns.add(columnName);
+            ColumnSchema columnSchema = findColumn(schema, columnName);
+            if (columnSchema != null) {
+                columnSchemas.add(columnSchema);
             }
-            table = asyncClient.syncClient().openTable(tableName);
-            LOG.info("connect kudu is successed!");
         }
-        scannerBuilder = asyncClient.newScannerBuilder(table);
-        Integer batchSizeBytes = kuduSideTableInfo.getBatchSizeBytes();
+        projectColumnSchemas = columnSchemas.toArray(new ColumnSchema[0]);
+
+        List<String> equalFields = sideInfo.getEqualFieldList();
+        keyColumnSchemas = new ColumnSchema[equalFields.size()];
+        for (int i = 0; i < equalFields.size(); i++) {
+            keyColumnSchemas[i] = schema.getColumn(equalFields.get(i));
+        }
+
         Long limitNum = kuduSideTableInfo.getLimitNum();
-        Boolean isFaultTolerant = kuduSideTableInfo.getFaultTolerant();
-        //查询需要的字段
-        String[] sideFieldNames = sideInfo.getSideSelectFields().split(",");
-
-        if (null == limitNum || limitNum <= 0) {
-            scannerBuilder.limit(FETCH_SIZE);
-        } else {
-            scannerBuilder.limit(limitNum);
+        limit = null == limitNum || limitNum <= 0 ? FETCH_SIZE : limitNum;
+    }
+
+    /**
+     * @return schema of the column, null if the table has no such column
+     */
+    private ColumnSchema findColumn(Schema schema, String columnName) {
+        for (ColumnSchema columnSchema : schema.getColumns()) {
+            if (columnSchema.getName().equals(columnName)) {
+                return columnSchema;
+            }
         }
-        if (null != batchSizeBytes) {
-            scannerBuilder.batchSizeBytes(batchSizeBytes);
+        return null;
+    }
+
+    private AsyncKuduScanner.AsyncKuduScannerBuilder newScannerBuilder(long scanLimit) {
+        AsyncKuduScanner.AsyncKuduScannerBuilder scannerBuilder = asyncClient.newScannerBuilder(table);
+        scannerBuilder.limit(scanLimit);
+        if (null != kuduSideTableInfo.getBatchSizeBytes()) {
+            scannerBuilder.batchSizeBytes(kuduSideTableInfo.getBatchSizeBytes());
         }
-        if (null != isFaultTolerant) {
-            scannerBuilder.setFaultTolerant(isFaultTolerant);
+        if (null != kuduSideTableInfo.getFaultTolerant()) {
+            scannerBuilder.setFaultTolerant(kuduSideTableInfo.getFaultTolerant());
         }
-
-        List<String> projectColumns = Arrays.asList(sideFieldNames);
         scannerBuilder.setProjectedColumnNames(projectColumns);
+        return scannerBuilder;
     }
 
 
     @Override
-    public void asyncInvoke(Row input, ResultFuture<Row> resultFuture) throws Exception {
-        //scannerBuilder 设置为null重新加载过滤条件
-        scannerBuilder = null;
-        connKuDu();
-        JsonArray inputParams = new JsonArray();
-        Schema schema = table.getSchema();
+    protected void handleAsyncInvoke(SideLookupReq req) throws Exception {
+        AsyncKuduScanner.AsyncKuduScannerBuilder scannerBuilder = newScannerBuilder(limit);
+        int keyIndex = 0;
+        for (Object keyValue : req.getInputParams().values()) {
+            //增加过滤条件
+            scannerBuilder.addPredicate(KuduPredicate.newInListPredicate(keyColumnSchemas[keyIndex++], Collections.singletonList(keyValue)));
+        }
 
-        for (Integer conValIndex : sideInfo.getEqualValIndex()) {
-            Object equalObj = input.getField(conValIndex);
-            if (equalObj == null) {
-                resultFuture.complete(null);
-                return;
+        scan(scannerBuilder.build(), rows -> {
+            if (rows.size() > 0) {
+                completeLookup(req, CacheObj.buildCacheObj(ECacheContentType.MultiLine, rows));
+            } else {
+                //放置在putCache的Miss中 一段时间内同一个key都会直接返回
+                completeLookup(req, CacheMissVal.getMissKeyObj());
             }
-            //增加过滤条件
-            scannerBuilder.addPredicate(KuduPredicate.newInListPredicate(schema.getColumn(sideInfo.getEqualFieldList().get(conValIndex)), Collections.singletonList(equalObj)));
-            inputParams.add(equalObj);
+        }, e -> failLookup(req, e));
+    }
+
+    /**
+     * Only single column keys are batched, InList predicates on several key columns would match
+     * the cross product of the values of the batch.
+     */
+    @Override
+    protected boolean supportBatch() {
+        return sideInfo.getEqualFieldList().size() == 1;
+    }
+
+    /**
+     * One scanner with an InList predicate of the values of all the keys of the batch.
+     */
+    @Override
+    protected void handleBatchInvoke(List<SideLookupReq> reqs) throws Exception {
+        Set<Object> keyValues = new LinkedHashSet<>();
+        for (SideLookupReq req : reqs) {
+            keyValues.addAll(req.getInputParams().values());
         }
 
-        String key = buildCacheKey(inputParams);
-
-        if (openCache()) {
-            //判断数据是否已经加载到缓存中
-            CacheObj val = getFromCache(key);
-            if (val != null) {
-
-                if (ECacheContentType.MissVal == val.getType()) {
-                    dealMissKey(input, resultFuture);
-                    return;
-                } else if (ECacheContentType.SingleLine == val.getType()) {
-                    Row row = fillData(input, val);
-                    resultFuture.complete(Collections.singleton(row));
-                } else if (ECacheContentType.MultiLine == val.getType()) {
-                    List<Row> rowList = Lists.newArrayList();
-                    for (Object jsonArray : (List) val.getContent()) {
-                        Row row = fillData(input, jsonArray);
-                        rowList.add(row);
-                    }
-                    resultFuture.complete(rowList);
-                } else {
-                    throw new RuntimeException("not support cache obj type " + val.getType());
+        long scanLimit = limit * keyValues.size();
+        AsyncKuduScanner.AsyncKuduScannerBuilder scannerBuilder = newScannerBuilder(scanLimit);
+        scannerBuilder.addPredicate(KuduPredicate.newInListPredicate(keyColumnSchemas[0], Lists.newArrayList(keyValues)));
+        scan(scannerBuilder.build(), rows -> dispatchBatchRows(reqs, rows, rows.size() >= scanLimit), e -> reqs.forEach(req -> failLookup(req, e)));
+    }
+
+    /**
+     * @param truncated the scan stopped at its limit, rows of some keys may not be read
+     */
+    private void dispatchBatchRows(List<SideLookupReq> reqs, List<Map<String, Object>> rows, boolean truncated) {
+        Class<?> keyClass = reqs.get(0).getInputParams().values().iterator().next().getClass();
+        Map<SideCacheKey, List<Map<String, Object>>> keyRows = Maps.newHashMap();
+        for (Map<String, Object> row : rows) {
+            Object keyValue = ClassUtil.convertToClass(row.get(keyColumnSchemas[0].getName()), keyClass);
+            keyRows.computeIfAbsent(SideCacheKey.of(keyValue), key -> Lists.newArrayList()).add(row);
+        }
+
+        for (SideLookupReq req : reqs) {
+            List<Map<String, Object>> reqRows = keyRows.get(req.getCacheKey());
+            if (reqRows != null && reqRows.size() >= limit) {
+                //as many rows as the single key lookup returns
+                completeLookup(req, CacheObj.buildCacheObj(ECacheContentType.MultiLine, Lists.newArrayList(reqRows.subList(0, (int) limit))));
+            } else if (truncated) {
+                //the other keys may have taken the rows of this one, the single key lookup applies the limit to the key alone
+                try {
+                    handleAsyncInvoke(req);
+                } catch (Exception e) {
+                    failLookup(req, e);
                 }
-                return;
+            } else if (reqRows == null) {
+                completeLookup(req, CacheMissVal.getMissKeyObj());
+            } else {
+                completeLookup(req, CacheObj.buildCacheObj(ECacheContentType.MultiLine, reqRows));
             }
         }
-        List<Map<String, Object>> cacheContent = Lists.newArrayList();
-        AsyncKuduScanner asyncKuduScanner = scannerBuilder.build();
-        List<Row> rowList = Lists.newArrayList();
+    }
+
+    /**
+     * Read every batch of the scanner asynchronously, the rows are handed over once the scanner is exhausted.
+     */
+    private void scan(AsyncKuduScanner asyncKuduScanner, Consumer<List<Map<String, Object>>> onComplete, Consumer<Exception> onError) {
         Deferred<RowResultIterator> data = asyncKuduScanner.nextRows();
         //从之前的同步修改为调用异步的Callback
-        data.addCallbackDeferring(new GetListRowCB(input, cacheContent, rowList, asyncKuduScanner, resultFuture, key));
+        data.addCallbackDeferring(new GetListRowCB(Lists.newArrayList(), asyncKuduScanner, onComplete))
+                .addErrback(new Callback<Object, Exception>() {
+                    @Override
+                    public Object call(Exception e) {
+                        LOG.error("scan kudu side table error", e);
+                        onError.accept(e);
+                        return null;
+                    }
+                });
     }
 
 
@@ -194,16 +276,6 @@ public class KuduAsyncReqRow extends AsyncReqRow {
         return row;
     }
 
-    public String buildCacheKey(JsonArray jsonArray) {
-        StringBuilder sb = new StringBuilder();
-        for (Object ele : jsonArray.getList()) {
-            sb.append(ele.toString())
-                    .append("_");
-        }
-
-        return sb.toString();
-    }
-
     @Override
     public void close() throws Exception {
         super.close();
@@ -254,60 +326,35 @@ public class KuduAsyncReqRow extends AsyncReqRow {
     }
 
     class GetListRowCB implements Callback<Deferred<List<Row>>, RowResultIterator> {
-        private Row input;
         private List<Map<String, Object>> cacheContent;
-        private List<Row> rowList;
         private AsyncKuduScanner asyncKuduScanner;
-        private ResultFuture<Row> resultFuture;
-        private String key;
+        private Consumer<List<Map<String, Object>>> onComplete;
 
 
         public GetListRowCB() {
         }
 
-        GetListRowCB(Row input, List<Map<String, Object>> cacheContent, List<Row> rowList, AsyncKuduScanner asyncKuduScanner, ResultFuture<Row> resultFuture, String key) {
-            this.input = input;
+        GetListRowCB(List<Map<String, Object>> cacheContent, AsyncKuduScanner asyncKuduScanner, Consumer<List<Map<String, Object>>> onComplete) {
             this.cacheContent = cacheContent;
-            this.rowList = rowList;
             this.asyncKuduScanner = asyncKuduScanner;
-            this.resultFuture = resultFuture;
-            this.key = key;
+            this.onComplete = onComplete;
         }
 
         @Override
         public Deferred<List<Row>> call(RowResultIterator results) throws Exception {
             for (RowResult result : results) {
                 Map<String, Object> oneRow = Maps.newHashMap();
-                for (String sideFieldName1 : sideInfo.getSideSelectFields().split(",")) {
-                    String sideFieldName = sideFieldName1.trim();
-                    ColumnSchema columnSchema = table.getSchema().getColumn(sideFieldName);
-                    if (null != columnSchema) {
-                        setMapValue(columnSchema.getType(), oneRow, sideFieldName, result);
-                    }
+                for (ColumnSchema columnSchema : projectColumnSchemas) {
+                    setMapValue(columnSchema.getType(), oneRow, columnSchema.getName(), result);
                 }
-                Row row = fillData(input, oneRow);
-                if (openCache()) {
-                    cacheContent.add(oneRow);
-                }
-                rowList.add(row);
+                cacheContent.add(oneRow);
             }
             if (asyncKuduScanner.hasMoreRows()) {
                 return asyncKuduScanner.nextRows().addCallbackDeferring(this);
             }
 
-            if (rowList.size() > 0) {
-                if (openCache()) {
-                    putCache(key, CacheObj.buildCacheObj(ECacheContentType.MultiLine, cacheContent));
-                }
-                resultFuture.complete(rowList);
-            } else {
-                dealMissKey(input, resultFuture);
-                if (openCache()) {
-                    //放置在putCache的Miss中 一段时间内同一个key都会直接返回
-                    putCache(key, CacheMissVal.getMissKeyObj());
-                }
-            }
-
+            asyncKuduScanner.close();
+            onComplete.accept(cacheContent);
             return null;
         }
     }
@@ -49,6 +49,10 @@ public class KuduSideParser extends AbsSideTableParser {
      * 过滤主键的最大值 不包含
      */
     public static final String UPPER_BOUND_PRIMARY_KEY = "upperBoundPrimaryKey";
+    /**
+     * ALL模式下同时读取的scan token数
+     */
+    public static final String LOAD_PARALLELISM = "loadParallelism";
 
 
     @Override
@@ -71,6 +75,10 @@ public class KuduSideParser extends AbsSideTableParser {
         kuduSideTableInfo.setPrimaryKey(MathUtil.getString(props.get(PRIMARY_KEY.toLowerCase())));
         kuduSideTableInfo.setLowerBoundPrimaryKey(MathUtil.getString(props.get(LOWER_BOUND_PRIMARY_KEY.toLowerCase())));
         kuduSideTableInfo.setUpperBoundPrimaryKey(MathUtil.getString(props.get(UPPER_BOUND_PRIMARY_KEY.toLowerCase())));
+        Integer loadParallelism = MathUtil.getIntegerVal(props.get(LOAD_PARALLELISM.toLowerCase()));
+        if (null != loadParallelism) {
+            kuduSideTableInfo.setLoadParallelism(loadParallelism);
+        }
         return kuduSideTableInfo;
 
     }
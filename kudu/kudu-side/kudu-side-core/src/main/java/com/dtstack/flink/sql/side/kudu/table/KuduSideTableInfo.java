@@ -44,6 +44,10 @@ public class KuduSideTableInfo extends SideTableInfo {
      * 过滤主键的最大值 不包含
      */
     private String upperBoundPrimaryKey;
+    /**
+     * ALL模式下同时读取的scan token数
+     */
+    private int loadParallelism = 1;
 
 
     public KuduSideTableInfo() {
@@ -140,10 +144,19 @@ public class KuduSideTableInfo extends SideTableInfo {
     }
 
 
+    public int getLoadParallelism() {
+        return loadParallelism;
+    }
+
+    public void setLoadParallelism(int loadParallelism) {
+        this.loadParallelism = loadParallelism;
+    }
+
     @Override
     public boolean check() {
         Preconditions.checkNotNull(kuduMasters, "kudu field of kuduMasters is required");
         Preconditions.checkNotNull(tableName, "kudu field of tableName is required");
+        Preconditions.checkArgument(loadParallelism > 0, "kudu field of loadParallelism must be positive");
         return true;
     }
 
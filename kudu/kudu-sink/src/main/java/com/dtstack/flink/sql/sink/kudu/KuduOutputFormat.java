@@ -18,6 +18,7 @@
 
 package com.dtstack.flink.sql.sink.kudu;
 
+import com.dtstack.flink.sql.sink.IFlushableOutputFormat;
 import com.dtstack.flink.sql.sink.MetricOutputFormat;
 import org.apache.flink.api.common.typeinfo.TypeInformation;
 import org.apache.flink.api.java.tuple.Tuple2;
@@ -31,8 +32,9 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.util.Date;
+import java.util.List;
 
-public class KuduOutputFormat extends MetricOutputFormat {
+public class KuduOutputFormat extends MetricOutputFormat implements IFlushableOutputFormat {
 
     private static final long serialVersionUID = 1L;
 
@@ -40,6 +42,11 @@ public class KuduOutputFormat extends MetricOutputFormat {
 
     public enum WriteMode {INSERT, UPDATE, UPSERT}
 
+    //default mutation buffer space of a kudu session
+    private static final int DEFAULT_MUTATION_BUFFER_SPACE = 1000;
+
+    private static final int DIRTY_PRINT_FREQUENCY = 1000;
+
     private String kuduMasters;
 
     private String tableName;
@@ -60,6 +67,18 @@ public class KuduOutputFormat extends MetricOutputFormat {
 
     private Integer defaultSocketReadTimeoutMs;
 
+    private SessionConfiguration.FlushMode flushMode = SessionConfiguration.FlushMode.AUTO_FLUSH_BACKGROUND;
+
+    //operations buffered by the session before they are sent
+    private Integer mutationBufferSpace;
+
+    //ms between two background flushes
+    private Integer flushInterval;
+
+    private transient KuduSession session;
+
+    //operations applied since the last flush in manual flush mode
+    private transient int bufferedOperations;
 
     private KuduOutputFormat() {
     }
@@ -82,11 +101,11 @@ public class KuduOutputFormat extends MetricOutputFormat {
             asyncKuduClientBuilder.workerCount(workerCount);
         }
         if (null != defaultSocketReadTimeoutMs) {
-            asyncKuduClientBuilder.workerCount(defaultSocketReadTimeoutMs);
+            asyncKuduClientBuilder.defaultSocketReadTimeoutMs(defaultSocketReadTimeoutMs);
         }
 
         if (null != defaultOperationTimeoutMs) {
-            asyncKuduClientBuilder.workerCount(defaultOperationTimeoutMs);
+            asyncKuduClientBuilder.defaultOperationTimeoutMs(defaultOperationTimeoutMs);
         }
         client = asyncKuduClientBuilder.build();
         KuduClient syncClient = client.syncClient();
@@ -94,10 +113,20 @@ public class KuduOutputFormat extends MetricOutputFormat {
         if (syncClient.tableExists(tableName)) {
             table = syncClient.openTable(tableName);
         }
+
+        //one session for the life of the subtask, rows are sent in batches instead of one rpc per row
+        session = syncClient.newSession();
+        session.setFlushMode(flushMode);
+        if (null != mutationBufferSpace) {
+            session.setMutationBufferSpace(mutationBufferSpace);
+        }
+        if (null != flushInterval) {
+            session.setFlushInterval(flushInterval);
+        }
     }
 
     @Override
-    public void writeRecord(Tuple2 record) throws IOException {
+    public synchronized void writeRecord(Tuple2 record) throws IOException {
         Tuple2<Boolean, Row> tupleTrans = record;
         Boolean retract = tupleTrans.getField(0);
         if (!retract) {
@@ -109,27 +138,80 @@ public class KuduOutputFormat extends MetricOutputFormat {
         }
 
         Operation operation = toOperation(writeMode, row);
-        AsyncKuduSession session = client.newSession();
+        if (flushMode == SessionConfiguration.FlushMode.MANUAL_FLUSH
+                && bufferedOperations >= (null == mutationBufferSpace ? DEFAULT_MUTATION_BUFFER_SPACE : mutationBufferSpace)) {
+            flush();
+        }
 
         try {
             session.apply(operation);
-            session.close();
+            bufferedOperations++;
             outRecords.inc();
         } catch (KuduException e) {
             outDirtyRecords.inc();
-            LOG.error("record insert failed ..", row.toString().substring(0, 100));
+            LOG.error("record insert failed, {}", row);
             LOG.error("", e);
         }
+        collectRowErrors();
+    }
+
+    /**
+     * Send the operations buffered by the session and wait for them to complete.
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        if (null == session || session.isClosed()) {
+            return;
+        }
+
+        List<OperationResponse> responses = session.flush();
+        bufferedOperations = 0;
+        for (OperationResponse response : responses) {
+            if (response.hasRowError()) {
+                dirtyRow(response.getRowError());
+            }
+        }
+        collectRowErrors();
+    }
+
+    /**
+     * Rows failed by background flushes are kept by the session until collected.
+     */
+    private void collectRowErrors() {
+        if (session.countPendingErrors() == 0) {
+            return;
+        }
+
+        RowErrorsAndOverflowStatus pendingErrors = session.getPendingErrors();
+        for (RowError rowError : pendingErrors.getRowErrors()) {
+            dirtyRow(rowError);
+        }
+        if (pendingErrors.isOverflowed()) {
+            LOG.warn("too many row errors to be kept by the kudu session, some failed rows are not counted as dirty");
+        }
+    }
 
+    private void dirtyRow(RowError rowError) {
+        outDirtyRecords.inc();
+        if (outDirtyRecords.getCount() == 1 || outDirtyRecords.getCount() % DIRTY_PRINT_FREQUENCY == 0) {
+            LOG.error("record write failed, {}", rowError);
+        }
     }
 
     @Override
-    public void close() {
-        if (null != client) {
-            try {
-                client.close();
-            } catch (Exception e) {
-                throw new IllegalArgumentException("[closeKudu]:" + e.getMessage());
+    public void close() throws IOException {
+        try {
+            if (null != session && !session.isClosed()) {
+                flush();
+                session.close();
+            }
+        } finally {
+            if (null != client) {
+                try {
+                    client.close();
+                } catch (Exception e) {
+                    throw new IllegalArgumentException("[closeKudu]:" + e.getMessage());
+                }
             }
         }
     }
@@ -190,6 +272,23 @@ public class KuduOutputFormat extends MetricOutputFormat {
         }
 
 
+        public KuduOutputFormatBuilder setFlushMode(String flushMode) {
+            if (null != flushMode) {
+                kuduOutputFormat.flushMode = SessionConfiguration.FlushMode.valueOf(flushMode.toUpperCase());
+            }
+            return this;
+        }
+
+        public KuduOutputFormatBuilder setMutationBufferSpace(Integer mutationBufferSpace) {
+            kuduOutputFormat.mutationBufferSpace = mutationBufferSpace;
+            return this;
+        }
+
+        public KuduOutputFormatBuilder setFlushInterval(Integer flushInterval) {
+            kuduOutputFormat.flushInterval = flushInterval;
+            return this;
+        }
+
         public KuduOutputFormat finish() {
             if (kuduOutputFormat.kuduMasters == null) {
                 throw new IllegalArgumentException("No kuduMasters supplied.");
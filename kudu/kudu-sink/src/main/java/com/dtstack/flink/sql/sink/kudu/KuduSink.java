@@ -1,6 +1,7 @@
 package com.dtstack.flink.sql.sink.kudu;
 
 
+import com.dtstack.flink.sql.sink.CheckpointFlushSinkFunction;
 import com.dtstack.flink.sql.sink.IStreamSinkGener;
 import com.dtstack.flink.sql.sink.kudu.table.KuduTableInfo;
 import com.dtstack.flink.sql.table.TargetTableInfo;
@@ -10,7 +11,6 @@ import org.apache.flink.api.java.typeutils.RowTypeInfo;
 import org.apache.flink.api.java.typeutils.TupleTypeInfo;
 import org.apache.flink.streaming.api.datastream.DataStream;
 import org.apache.flink.streaming.api.datastream.DataStreamSink;
-import org.apache.flink.streaming.api.functions.sink.OutputFormatSinkFunction;
 import org.apache.flink.streaming.api.functions.sink.RichSinkFunction;
 import org.apache.flink.table.sinks.RetractStreamTableSink;
 import org.apache.flink.table.sinks.TableSink;
@@ -36,6 +36,12 @@ public class KuduSink implements RetractStreamTableSink<Row>, Serializable, IStr
 
     private Integer defaultSocketReadTimeoutMs;
 
+    private String flushMode;
+
+    private Integer mutationBufferSpace;
+
+    private Integer flushInterval;
+
     private int parallelism = -1;
 
     @Override
@@ -47,6 +53,9 @@ public class KuduSink implements RetractStreamTableSink<Row>, Serializable, IStr
         this.defaultSocketReadTimeoutMs = kuduTableInfo.getDefaultSocketReadTimeoutMs();
         this.workerCount = kuduTableInfo.getWorkerCount();
         this.writeMode = kuduTableInfo.getWriteMode();
+        this.flushMode = kuduTableInfo.getFlushMode();
+        this.mutationBufferSpace = kuduTableInfo.getMutationBufferSpace();
+        this.flushInterval = kuduTableInfo.getFlushInterval();
 
         return this;
     }
@@ -65,10 +74,13 @@ public class KuduSink implements RetractStreamTableSink<Row>, Serializable, IStr
                 .setWorkerCount(this.workerCount)
                 .setDefaultOperationTimeoutMs(this.defaultOperationTimeoutMs)
                 .setDefaultSocketReadTimeoutMs(this.defaultSocketReadTimeoutMs)
+                .setFlushMode(this.flushMode)
+                .setMutationBufferSpace(this.mutationBufferSpace)
+                .setFlushInterval(this.flushInterval)
                 .setFieldNames(this.fieldNames)
                 .setFieldTypes(this.fieldTypes);
         KuduOutputFormat kuduOutputFormat = builder.finish();
-        RichSinkFunction richSinkFunction = new OutputFormatSinkFunction(kuduOutputFormat);
+        RichSinkFunction richSinkFunction = new CheckpointFlushSinkFunction(kuduOutputFormat);
         DataStreamSink dataStreamSink = dataStream.addSink(richSinkFunction);
         dataStreamSink.name(tableName);
         if (parallelism > 0) {
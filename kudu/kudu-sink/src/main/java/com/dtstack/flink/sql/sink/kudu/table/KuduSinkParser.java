@@ -26,6 +26,12 @@ public class KuduSinkParser extends AbsTableParser {
 
     public static final String SOCKET_READ_TIMEOUT_MS = "defaultSocketReadTimeoutMs";
 
+    public static final String FLUSH_MODE = "flushMode";
+
+    public static final String MUTATION_BUFFER_SPACE = "mutationBufferSpace";
+
+    public static final String FLUSH_INTERVAL = "flushInterval";
+
     @Override
     public TableInfo getTableInfo(String tableName, String fieldsInfo, Map<String, Object> props) {
         KuduTableInfo kuduTableInfo = new KuduTableInfo();
@@ -39,6 +45,9 @@ public class KuduSinkParser extends AbsTableParser {
         kuduTableInfo.setWorkerCount(MathUtil.getIntegerVal(props.get(WORKER_COUNT.toLowerCase())));
         kuduTableInfo.setDefaultOperationTimeoutMs(MathUtil.getIntegerVal(props.get(OPERATION_TIMEOUT_MS.toLowerCase())));
         kuduTableInfo.setDefaultSocketReadTimeoutMs(MathUtil.getIntegerVal(props.get(SOCKET_READ_TIMEOUT_MS.toLowerCase())));
+        kuduTableInfo.setFlushMode(MathUtil.getString(props.get(FLUSH_MODE.toLowerCase())));
+        kuduTableInfo.setMutationBufferSpace(MathUtil.getIntegerVal(props.get(MUTATION_BUFFER_SPACE.toLowerCase())));
+        kuduTableInfo.setFlushInterval(MathUtil.getIntegerVal(props.get(FLUSH_INTERVAL.toLowerCase())));
         return kuduTableInfo;
     }
 
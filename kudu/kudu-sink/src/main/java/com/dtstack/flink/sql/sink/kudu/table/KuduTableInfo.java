@@ -20,6 +20,12 @@ public class KuduTableInfo extends TargetTableInfo {
 
     private Integer defaultSocketReadTimeoutMs;
 
+    private String flushMode;
+
+    private Integer mutationBufferSpace;
+
+    private Integer flushInterval;
+
     public KuduTableInfo() {
         setType(CURR_TYPE);
     }
@@ -73,10 +79,38 @@ public class KuduTableInfo extends TargetTableInfo {
         this.defaultSocketReadTimeoutMs = defaultSocketReadTimeoutMs;
     }
 
+    public String getFlushMode() {
+        return flushMode;
+    }
+
+    public void setFlushMode(String flushMode) {
+        this.flushMode = flushMode;
+    }
+
+    public Integer getMutationBufferSpace() {
+        return mutationBufferSpace;
+    }
+
+    public void setMutationBufferSpace(Integer mutationBufferSpace) {
+        this.mutationBufferSpace = mutationBufferSpace;
+    }
+
+    public Integer getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Integer flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
     @Override
     public boolean check() {
         Preconditions.checkNotNull(kuduMasters, "kudu field of kuduMasters is required");
         Preconditions.checkNotNull(tableName, "kudu field of tableName is required");
+        Preconditions.checkArgument(flushMode == null || "auto_flush_background".equalsIgnoreCase(flushMode)
+                || "manual_flush".equalsIgnoreCase(flushMode), "kudu field of flushMode only supports auto_flush_background or manual_flush");
+        Preconditions.checkArgument(mutationBufferSpace == null || mutationBufferSpace > 0, "kudu field of mutationBufferSpace must be positive");
+        Preconditions.checkArgument(flushInterval == null || flushInterval > 0, "kudu field of flushInterval must be positive");
         return true;
     }
 
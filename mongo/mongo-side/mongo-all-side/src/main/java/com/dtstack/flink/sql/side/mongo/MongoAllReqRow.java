@@ -22,8 +22,10 @@ import com.dtstack.flink.sql.side.AllReqRow;
 import com.dtstack.flink.sql.side.FieldInfo;
 import com.dtstack.flink.sql.side.JoinInfo;
 import com.dtstack.flink.sql.side.SideTableInfo;
+import com.dtstack.flink.sql.side.cache.AbsAllCacheStore;
+import com.dtstack.flink.sql.side.cache.SideCacheKey;
 import com.dtstack.flink.sql.side.mongo.table.MongoSideTableInfo;
-import com.mongodb.BasicDBObject;
+import com.dtstack.flink.sql.side.mongo.utils.MongoUtil;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoClientOptions;
 import com.mongodb.MongoCredential;
@@ -36,8 +38,6 @@ import org.apache.calcite.sql.JoinType;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.flink.api.java.typeutils.RowTypeInfo;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import org.apache.flink.table.typeutils.TimeIndicatorTypeInfo;
 import org.apache.flink.types.Row;
 import org.apache.flink.util.Collector;
@@ -48,10 +48,9 @@ import org.slf4j.LoggerFactory;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Reason:
@@ -67,78 +66,58 @@ public class MongoAllReqRow extends AllReqRow {
 
     private static final int CONN_RETRY_NUM = 3;
 
-    private static final int FETCH_SIZE = 1000;
+    //documents per cursor batch, the default first batch of mongo is 101 documents
+    private static final int FETCH_SIZE = 10000;
 
     private MongoClient mongoClient;
 
     private MongoDatabase db;
 
-    private AtomicReference<Map<String, List<Map<String, Object>>>> cacheRef = new AtomicReference<>();
-
     public MongoAllReqRow(RowTypeInfo rowTypeInfo, JoinInfo joinInfo, List<FieldInfo> outFieldInfoList, SideTableInfo sideTableInfo) {
         super(new MongoAllSideInfo(rowTypeInfo, joinInfo, outFieldInfoList, sideTableInfo));
     }
 
     @Override
-    public Row fillData(Row input, Object sideInput) {
-        Map<String, Object> cacheInfo = (Map<String, Object>) sideInput;
-        Row row = new Row(sideInfo.getOutFieldInfoList().size());
-        for (Map.Entry<Integer, Integer> entry : sideInfo.getInFieldIndex().entrySet()) {
-            Object obj = input.getField(entry.getValue());
-            obj = convertTimeIndictorTypeInfo(entry.getValue(), obj);
-            row.setField(entry.getKey(), obj);
-        }
-
-        for (Map.Entry<Integer, String> entry : sideInfo.getSideFieldNameIndex().entrySet()) {
-            if (cacheInfo == null) {
-                row.setField(entry.getKey(), null);
-            } else {
-                row.setField(entry.getKey(), cacheInfo.get(entry.getValue()));
-            }
-        }
-
-        return row;
+    protected String getCacheSourceIdentity() {
+        MongoSideTableInfo tableInfo = (MongoSideTableInfo) sideInfo.getSideTableInfo();
+        return tableInfo.getAddress() + "|" + tableInfo.getDatabase() + "|" + tableInfo.getTableName();
     }
 
     @Override
     protected void initCache() throws SQLException {
-        Map<String, List<Map<String, Object>>> newCache = Maps.newConcurrentMap();
-        cacheRef.set(newCache);
+        AbsAllCacheStore newCache = newCacheStore();
         loadData(newCache);
+        switchCacheStore(newCache);
     }
 
     @Override
     protected void reloadCache() {
         //reload cacheRef and replace to old cacheRef
-        Map<String, List<Map<String, Object>>> newCache = Maps.newConcurrentMap();
+        AbsAllCacheStore newCache = newCacheStore();
         try {
             loadData(newCache);
-        } catch (SQLException e) {
-            LOG.error("", e);
+        } catch (Exception e) {
+            //a partially loaded store would turn the rows not read yet into misses, lookups stay on the last load
+            LOG.error("reload of mongo all cache failed, keep the last loaded rows", e);
+            return;
         }
 
-        cacheRef.set(newCache);
+        switchCacheStore(newCache);
         LOG.info("----- Mongo all cacheRef reload end:{}", Calendar.getInstance());
     }
 
     @Override
     public void flatMap(Row value, Collector<Row> out) throws Exception {
-        List<Object> inputParams = Lists.newArrayList();
-        for (Integer conValIndex : sideInfo.getEqualValIndex()) {
-            Object equalObj = value.getField(conValIndex);
-            if (equalObj == null) {
-                if(sideInfo.getJoinType() == JoinType.LEFT){
-                    Row data = fillData(value, null);
-                    out.collect(data);
-                }
-                return;
+        SideCacheKey key = buildInputKey(value);
+        if (key == null) {
+            if(sideInfo.getJoinType() == JoinType.LEFT){
+                Row data = fillData(value, null);
+                out.collect(data);
             }
-
-            inputParams.add(equalObj);
+            return;
         }
 
-        String key = buildKey(inputParams);
-        List<Map<String, Object>> cacheList = cacheRef.get().get(key);
+        List<Object[]> cacheList = getCacheStore().get(key);
         if (CollectionUtils.isEmpty(cacheList)) {
             if (sideInfo.getJoinType() == JoinType.LEFT) {
                 Row row = fillData(value, null);
@@ -150,29 +129,11 @@ public class MongoAllReqRow extends AllReqRow {
             return;
         }
 
-        for (Map<String, Object> one : cacheList) {
+        for (Object[] one : cacheList) {
             out.collect(fillData(value, one));
         }
     }
 
-    private String buildKey(List<Object> equalValList) {
-        StringBuilder sb = new StringBuilder("");
-        for (Object equalVal : equalValList) {
-            sb.append(equalVal).append("_");
-        }
-
-        return sb.toString();
-    }
-
-    private String buildKey(Map<String, Object> val, List<String> equalFieldList) {
-        StringBuilder sb = new StringBuilder("");
-        for (String equalField : equalFieldList) {
-            sb.append(val.get(equalField)).append("_");
-        }
-
-        return sb.toString();
-    }
-
     private MongoCollection getConn(String address, String userName, String password, String database, String tableName) {
         MongoCollection dbCollection;
         try {
@@ -203,7 +164,7 @@ public class MongoAllReqRow extends AllReqRow {
         }
     }
 
-    private void loadData(Map<String, List<Map<String, Object>>> tmpCache) throws SQLException {
+    private void loadData(AbsAllCacheStore tmpCache) throws SQLException {
         MongoSideTableInfo tableInfo = (MongoSideTableInfo) sideInfo.getSideTableInfo();
         MongoCollection dbCollection = null;
 
@@ -229,25 +190,20 @@ public class MongoAllReqRow extends AllReqRow {
             }
 
             //load data from table
-            String[] sideFieldNames = sideInfo.getSideSelectFields().split(",");
-            BasicDBObject basicDBObject = new BasicDBObject();
-            for (String selectField : sideFieldNames) {
-                basicDBObject.append(selectField, 1);
-            }
-            FindIterable<Document> findIterable = dbCollection.find().projection(basicDBObject).limit(FETCH_SIZE);
+            String[] sideFieldNames = getSideRowFields();
+            FindIterable<Document> findIterable = dbCollection.find().projection(MongoUtil.buildProjection(Arrays.asList(sideFieldNames)))
+                    .batchSize(FETCH_SIZE);
             MongoCursor<Document> mongoCursor = findIterable.iterator();
             while (mongoCursor.hasNext()) {
                 Document doc = mongoCursor.next();
-                Map<String, Object> oneRow = Maps.newHashMap();
-                for (String fieldName : sideFieldNames) {
-                    oneRow.put(fieldName.trim(), doc.get(fieldName.trim()));
+                Object[] oneRow = new Object[sideFieldNames.length];
+                for (int i = 0; i < sideFieldNames.length; i++) {
+                    oneRow[i] = doc.get(sideFieldNames[i]);
+                }
+                if (isLocalSideRow(oneRow)) {
+                    tmpCache.put(buildSideKey(oneRow), oneRow);
                 }
-                String cacheKey = buildKey(oneRow, sideInfo.getEqualFieldList());
-                List<Map<String, Object>> list = tmpCache.computeIfAbsent(cacheKey, key -> Lists.newArrayList());
-                list.add(oneRow);
             }
-        } catch (Exception e) {
-            LOG.error("", e);
         } finally {
             try {
                 if (mongoClient != null) {
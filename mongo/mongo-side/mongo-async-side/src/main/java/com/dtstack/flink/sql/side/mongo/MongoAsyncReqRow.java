@@ -22,40 +22,40 @@ package com.dtstack.flink.sql.side.mongo;
 import com.dtstack.flink.sql.enums.ECacheContentType;
 import com.dtstack.flink.sql.side.AsyncReqRow;
 import com.dtstack.flink.sql.side.FieldInfo;
+import com.dtstack.flink.sql.side.CacheMissVal;
 import com.dtstack.flink.sql.side.JoinInfo;
+import com.dtstack.flink.sql.side.SideLookupReq;
 import com.dtstack.flink.sql.side.SideTableInfo;
 import com.dtstack.flink.sql.side.cache.CacheObj;
+import com.dtstack.flink.sql.side.cache.SideCacheKey;
 import com.dtstack.flink.sql.side.mongo.table.MongoSideTableInfo;
+import com.dtstack.flink.sql.side.mongo.utils.MongoUtil;
+import com.dtstack.flink.sql.util.ClassUtil;
 import com.mongodb.BasicDBObject;
-import com.mongodb.Block;
 import com.mongodb.MongoCredential;
 import com.mongodb.ServerAddress;
-import com.mongodb.async.SingleResultCallback;
 import com.mongodb.async.client.MongoClient;
 import com.mongodb.async.client.MongoClientSettings;
 import com.mongodb.async.client.MongoClients;
 import com.mongodb.async.client.MongoCollection;
 import com.mongodb.async.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
 import com.mongodb.connection.ClusterSettings;
 import com.mongodb.connection.ConnectionPoolSettings;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.flink.api.java.typeutils.RowTypeInfo;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.apache.flink.configuration.Configuration;
-import org.apache.flink.streaming.api.functions.async.ResultFuture;
-import org.apache.flink.table.typeutils.TimeIndicatorTypeInfo;
 import org.apache.flink.types.Row;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.sql.Timestamp;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Reason:
@@ -76,6 +76,11 @@ public class MongoAsyncReqRow extends AsyncReqRow {
 
     private MongoSideTableInfo MongoSideTableInfo;
 
+    private transient MongoCollection<Document> dbCollection;
+
+    //selected side fields and join fields, the join fields dispatch the documents of a batch lookup
+    private transient Bson projection;
+
     public MongoAsyncReqRow(RowTypeInfo rowTypeInfo, JoinInfo joinInfo, List<FieldInfo> outFieldInfoList, SideTableInfo sideTableInfo) {
         super(new MongoAsyncSideInfo(rowTypeInfo, joinInfo, outFieldInfoList, sideTableInfo));
     }
@@ -119,70 +124,87 @@ public class MongoAsyncReqRow extends AsyncReqRow {
             mongoClient = MongoClients.create(settings);
         }
         db = mongoClient.getDatabase(MongoSideTableInfo.getDatabase());
+        dbCollection = db.getCollection(MongoSideTableInfo.getTableName(), Document.class);
+
+        List<String> projectFields = Lists.newArrayList(sideInfo.getSideFieldNameIndex().values());
+        projectFields.addAll(sideInfo.getEqualFieldList());
+        projection = MongoUtil.buildProjection(projectFields);
     }
 
     @Override
-    public void asyncInvoke(Row input, ResultFuture<Row> resultFuture) throws Exception {
-
+    protected void handleAsyncInvoke(SideLookupReq req) throws Exception {
         BasicDBObject basicDBObject = new BasicDBObject();
-        for (int i = 0; i < sideInfo.getEqualFieldList().size(); i++) {
-            Integer conValIndex = sideInfo.getEqualValIndex().get(i);
-            Object equalObj = input.getField(conValIndex);
-            if (equalObj == null) {
-                dealMissKey(input, resultFuture);
-                return;
+        basicDBObject.putAll(req.getInputParams());
+
+        List<Document> cacheContent = Lists.newArrayList();
+        dbCollection.find(basicDBObject).projection(projection).forEach(cacheContent::add, (result, t) -> {
+            if (t != null) {
+                LOG.error("query mongo side table error", t);
+                failLookup(req, t);
+            } else if (cacheContent.isEmpty()) {
+                completeLookup(req, CacheMissVal.getMissKeyObj());
+            } else {
+                completeLookup(req, CacheObj.buildCacheObj(ECacheContentType.MultiLine, cacheContent));
             }
-            basicDBObject.put(sideInfo.getEqualFieldList().get(i), equalObj);
-        }
-        String key = buildCacheKey(basicDBObject.values());
-        if (openCache()) {
-            CacheObj val = getFromCache(key);
-            if (val != null) {
-
-                if (ECacheContentType.MissVal == val.getType()) {
-                    dealMissKey(input, resultFuture);
-                    return;
-                } else if (ECacheContentType.MultiLine == val.getType()) {
-                    List<Row> rowList = Lists.newArrayList();
-                    for (Object jsonArray : (List) val.getContent()) {
-                        Row row = fillData(input, jsonArray);
-                        rowList.add(row);
-                    }
-                    resultFuture.complete(rowList);
-                } else {
-                    throw new RuntimeException("not support cache obj type " + val.getType());
-                }
-                return;
+        });
+    }
+
+    @Override
+    protected boolean supportBatch() {
+        return true;
+    }
+
+    /**
+     * One find for the keys of the batch: {key: {$in: [...]}} for a single join field, an $or of the keys otherwise.
+     * The documents are dispatched to their key by the join fields, converted to the java type of the stream values first
+     * as mongo compares numbers by value (a stored double or int64 matches an int) and returns dates as java.util.Date.
+     */
+    @Override
+    protected void handleBatchInvoke(List<SideLookupReq> reqs) throws Exception {
+        List<String> equalFieldList = sideInfo.getEqualFieldList();
+        Bson filter;
+        if (equalFieldList.size() == 1) {
+            List<Object> keyValues = Lists.newArrayListWithCapacity(reqs.size());
+            for (SideLookupReq req : reqs) {
+                keyValues.addAll(req.getInputParams().values());
+            }
+            filter = Filters.in(equalFieldList.get(0), keyValues);
+        } else {
+            List<Bson> keyFilters = Lists.newArrayListWithCapacity(reqs.size());
+            for (SideLookupReq req : reqs) {
+                keyFilters.add(new Document(req.getInputParams()));
             }
+            filter = Filters.or(keyFilters);
         }
-        AtomicInteger atomicInteger = new AtomicInteger(0);
-        MongoCollection dbCollection = db.getCollection(MongoSideTableInfo.getTableName(), Document.class);
-        List<Document> cacheContent = Lists.newArrayList();
-        Block<Document> printDocumentBlock = new Block<Document>() {
-            @Override
-            public void apply(final Document document) {
-                atomicInteger.incrementAndGet();
-                Row row = fillData(input, document);
-                if (openCache()) {
-                    cacheContent.add(document);
-                }
-                resultFuture.complete(Collections.singleton(row));
+
+        List<Class<?>> keyClasses = Lists.newArrayListWithCapacity(equalFieldList.size());
+        for (Object equalObj : reqs.get(0).getInputParams().values()) {
+            keyClasses.add(equalObj.getClass());
+        }
+
+        Map<SideCacheKey, List<Document>> keyDocs = Maps.newHashMap();
+        dbCollection.find(filter).projection(projection).forEach(doc -> {
+            List<Object> keyValues = Lists.newArrayListWithCapacity(equalFieldList.size());
+            for (int i = 0; i < equalFieldList.size(); i++) {
+                keyValues.add(ClassUtil.convertToClass(doc.get(equalFieldList.get(i)), keyClasses.get(i)));
+            }
+            keyDocs.computeIfAbsent(SideCacheKey.of(keyValues), key -> Lists.newArrayList()).add(doc);
+        }, (result, t) -> {
+            if (t != null) {
+                LOG.error("query mongo side table error", t);
+                reqs.forEach(req -> failLookup(req, t));
+                return;
             }
-        };
-        SingleResultCallback<Void> callbackWhenFinished = new SingleResultCallback<Void>() {
-            @Override
-            public void onResult(final Void result, final Throwable t) {
-                if (atomicInteger.get() <= 0) {
-                    LOG.warn("Cannot retrieve the data from the database");
-                    resultFuture.complete(null);
+
+            for (SideLookupReq req : reqs) {
+                List<Document> docs = keyDocs.get(SideCacheKey.of(req.getInputParams().values()));
+                if (docs == null) {
+                    completeLookup(req, CacheMissVal.getMissKeyObj());
                 } else {
-                    if (openCache()) {
-                        putCache(key, CacheObj.buildCacheObj(ECacheContentType.MultiLine, cacheContent));
-                    }
+                    completeLookup(req, CacheObj.buildCacheObj(ECacheContentType.MultiLine, docs));
                 }
             }
-        };
-        dbCollection.find(basicDBObject).forEach(printDocumentBlock, callbackWhenFinished);
+        });
     }
 
     @Override
@@ -218,14 +240,4 @@ public class MongoAsyncReqRow extends AsyncReqRow {
         }
     }
 
-    public String buildCacheKey(Collection collection) {
-        StringBuilder sb = new StringBuilder();
-        for (Object ele : collection) {
-            sb.append(ele.toString())
-                    .append("_");
-        }
-
-        return sb.toString();
-    }
-
 }
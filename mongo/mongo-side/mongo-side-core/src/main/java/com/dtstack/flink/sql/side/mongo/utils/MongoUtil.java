@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.flink.sql.side.mongo.utils;
+
+import com.google.common.collect.Lists;
+import com.mongodb.client.model.Projections;
+import org.bson.conversions.Bson;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Reason: queries of the mongo side tables shared by the all and async modes
+ * Company: www.dtstack.com
+ */
+
+public class MongoUtil {
+
+    private static final String ID = "_id";
+
+    /**
+     * Projection of the fields read by the side table, _id is left out unless it is one of them.
+     */
+    public static Bson buildProjection(Collection<String> fieldNames) {
+        List<String> fields = Lists.newArrayList(new LinkedHashSet<>(fieldNames));
+        if (fields.contains(ID)) {
+            return Projections.include(fields);
+        }
+        return Projections.fields(Projections.include(fields), Projections.excludeId());
+    }
+}
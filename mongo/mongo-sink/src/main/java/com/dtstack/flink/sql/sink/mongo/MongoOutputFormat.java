@@ -19,14 +19,25 @@
 
 package com.dtstack.flink.sql.sink.mongo;
 
+import com.dtstack.flink.sql.factory.DTThreadFactory;
+import com.dtstack.flink.sql.sink.IFlushableOutputFormat;
 import com.dtstack.flink.sql.sink.MetricOutputFormat;
+import com.mongodb.MongoBulkWriteException;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoClientOptions;
 import com.mongodb.MongoCredential;
+import com.mongodb.MongoException;
 import com.mongodb.ServerAddress;
+import com.mongodb.WriteConcern;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
-import com.mongodb.client.result.UpdateResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.flink.api.common.typeinfo.TypeInformation;
 import org.apache.flink.api.java.tuple.Tuple2;
@@ -39,7 +50,12 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Reason:
@@ -47,7 +63,7 @@ import java.util.List;
  *
  * @author xuqianjin
  */
-public class MongoOutputFormat extends MetricOutputFormat {
+public class MongoOutputFormat extends MetricOutputFormat implements IFlushableOutputFormat {
     private static final Logger LOG = LoggerFactory.getLogger(MongoOutputFormat.class);
 
     private String address;
@@ -58,11 +74,35 @@ public class MongoOutputFormat extends MetricOutputFormat {
     protected String[] fieldNames;
     TypeInformation<?>[] fieldTypes;
 
+    //rows buffered before a bulk write, 1 writes every row when it arrives
+    private int batchSize = 1;
+    private long batchWaitInterval = 1000;
+    //update: $set the fields of the row, replace: replace the whole document
+    private String updateMode = UPDATE_MODE_UPDATE;
+    //name of a WriteConcern constant, e.g. ACKNOWLEDGED, W1, MAJORITY, JOURNALED
+    private String writeConcern;
+
     private MongoClient mongoClient;
     private MongoDatabase db;
+    private transient MongoCollection<Document> dbCollection;
+
+    //_id -> upsert of the row, later rows of the same _id are merged so that the unordered bulk write can't reorder them
+    private transient Map<Object, Document> upsertBuffer;
+    //rows without _id, inserted
+    private transient List<Document> insertBuffer;
+
+    private transient ScheduledExecutorService flushScheduler;
+
+    private transient volatile Exception flushException;
 
     private static String PK = "_ID";
 
+    public static final String UPDATE_MODE_UPDATE = "update";
+
+    public static final String UPDATE_MODE_REPLACE = "replace";
+
+    private static final int DIRTY_PRINT_FREQUENCY = 1000;
+
     private static int rowLenth = 1000;
 
     public final SimpleDateFormat ROWKEY_DATE_FORMAT = new SimpleDateFormat("yyyyMMddHHmmss");
@@ -75,6 +115,19 @@ public class MongoOutputFormat extends MetricOutputFormat {
     public void open(int taskNumber, int numTasks) throws IOException {
         establishConnection();
         initMetric();
+        upsertBuffer = new LinkedHashMap<>();
+        insertBuffer = new ArrayList<>();
+
+        if (batchSize > 1 && batchWaitInterval > 0) {
+            flushScheduler = Executors.newSingleThreadScheduledExecutor(new DTThreadFactory("mongo-sink-flush"));
+            flushScheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    flush();
+                } catch (Exception e) {
+                    flushException = e;
+                }
+            }, batchWaitInterval, batchWaitInterval, TimeUnit.MILLISECONDS);
+        }
     }
 
     @Override
@@ -92,22 +145,30 @@ public class MongoOutputFormat extends MetricOutputFormat {
             return;
         }
 
+        checkFlushException();
+
         Document doc = new Document();
-        MongoCollection dbCollection = db.getCollection(tableName, Document.class);
         for (int i = 0; i < fieldNames.length; i++) {
             doc.append(fieldNames[i], record.getField(i));
         }
-        if (doc.containsKey(PK)) {
-            Document updateValue = new Document();
-            Document filter = new Document(PK.toLowerCase(), new ObjectId(doc.getString(PK)));
-            doc.remove(PK);
-            updateValue.append("$set", doc);
-            UpdateResult updateResult = dbCollection.updateOne(filter, updateValue);
-            if (updateResult.getMatchedCount() <= 0) {
-                dbCollection.insertOne(doc);
+
+        synchronized (this) {
+            if (doc.containsKey(PK)) {
+                Object id = toObjectId(doc.get(PK));
+                doc.remove(PK);
+                Document buffered = upsertBuffer.get(id);
+                if (buffered == null || UPDATE_MODE_REPLACE.equals(updateMode)) {
+                    upsertBuffer.put(id, doc);
+                } else {
+                    buffered.putAll(doc);
+                }
+            } else {
+                insertBuffer.add(doc);
+            }
+
+            if (upsertBuffer.size() + insertBuffer.size() >= batchSize) {
+                flush();
             }
-        } else {
-            dbCollection.insertOne(doc);
         }
 
         if (outRecords.getCount()%rowLenth == 0){
@@ -116,8 +177,76 @@ public class MongoOutputFormat extends MetricOutputFormat {
         outRecords.inc();
     }
 
+    private static Object toObjectId(Object id) {
+        if (id instanceof String && ObjectId.isValid((String) id)) {
+            return new ObjectId((String) id);
+        }
+        return id;
+    }
+
+    /**
+     * Write the buffered rows with one unordered bulk write: an upsert per _id and an insert per row without _id.
+     * Rows rejected by mongo are counted as dirty, other errors fail the write and keep the rows buffered for the next flush.
+     */
     @Override
-    public void close() {
+    public synchronized void flush() throws IOException {
+        checkFlushException();
+        if (upsertBuffer == null || (upsertBuffer.isEmpty() && insertBuffer.isEmpty())) {
+            return;
+        }
+
+        List<WriteModel<Document>> writeModels = new ArrayList<>(upsertBuffer.size() + insertBuffer.size());
+        for (Map.Entry<Object, Document> entry : upsertBuffer.entrySet()) {
+            Document filter = new Document(PK.toLowerCase(), entry.getKey());
+            if (UPDATE_MODE_REPLACE.equals(updateMode)) {
+                writeModels.add(new ReplaceOneModel<>(filter, entry.getValue(), new ReplaceOptions().upsert(true)));
+            } else {
+                writeModels.add(new UpdateOneModel<>(filter, new Document("$set", entry.getValue()), new UpdateOptions().upsert(true)));
+            }
+        }
+        for (Document doc : insertBuffer) {
+            writeModels.add(new InsertOneModel<>(doc));
+        }
+
+        try {
+            dbCollection.bulkWrite(writeModels, new BulkWriteOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            dirtyRows(e.getWriteErrors().size(), e);
+        } catch (MongoException e) {
+            throw new IOException("write to mongo failed", e);
+        }
+
+        upsertBuffer.clear();
+        insertBuffer.clear();
+    }
+
+    private void dirtyRows(int rowNum, Exception e) {
+        long before = outDirtyRecords.getCount();
+        outDirtyRecords.inc(rowNum);
+        if (before == 0 || before / DIRTY_PRINT_FREQUENCY != outDirtyRecords.getCount() / DIRTY_PRINT_FREQUENCY) {
+            LOG.error("write rows to mongo failed", e);
+        }
+    }
+
+    private void checkFlushException() throws IOException {
+        if (flushException != null) {
+            throw new IOException("write to mongo failed", flushException);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (flushScheduler != null) {
+            flushScheduler.shutdownNow();
+        }
+        try {
+            flush();
+        } finally {
+            closeClient();
+        }
+    }
+
+    private void closeClient() {
         try {
             if (mongoClient != null) {
                 mongoClient.close();
@@ -149,6 +278,10 @@ public class MongoOutputFormat extends MetricOutputFormat {
                 mongoClient = new MongoClient(lists);
             }
             db = mongoClient.getDatabase(database);
+            dbCollection = db.getCollection(tableName, Document.class);
+            if (StringUtils.isNotBlank(writeConcern)) {
+                dbCollection = dbCollection.withWriteConcern(WriteConcern.valueOf(writeConcern.toUpperCase()));
+            }
         } catch (Exception e) {
             throw new IllegalArgumentException("[connMongoDB]:" + e.getMessage());
         }
@@ -203,6 +336,32 @@ public class MongoOutputFormat extends MetricOutputFormat {
             return this;
         }
 
+        public MongoOutputFormatBuilder setBatchSize(Integer batchSize) {
+            if (batchSize != null) {
+                format.batchSize = batchSize;
+            }
+            return this;
+        }
+
+        public MongoOutputFormatBuilder setBatchWaitInterval(Long batchWaitInterval) {
+            if (batchWaitInterval != null) {
+                format.batchWaitInterval = batchWaitInterval;
+            }
+            return this;
+        }
+
+        public MongoOutputFormatBuilder setUpdateMode(String updateMode) {
+            if (updateMode != null) {
+                format.updateMode = updateMode.toLowerCase();
+            }
+            return this;
+        }
+
+        public MongoOutputFormatBuilder setWriteConcern(String writeConcern) {
+            format.writeConcern = writeConcern;
+            return this;
+        }
+
         /**
          * Finalizes the configuration and checks validity.
          *
@@ -224,6 +383,12 @@ public class MongoOutputFormat extends MetricOutputFormat {
             if (format.tableName == null) {
                 throw new IllegalArgumentException("No tableName supplied");
             }
+            if (!UPDATE_MODE_UPDATE.equals(format.updateMode) && !UPDATE_MODE_REPLACE.equals(format.updateMode)) {
+                throw new IllegalArgumentException("updateMode must be update or replace");
+            }
+            if (format.writeConcern != null && WriteConcern.valueOf(format.writeConcern.toUpperCase()) == null) {
+                throw new IllegalArgumentException("unknown writeConcern " + format.writeConcern);
+            }
             return format;
         }
     }
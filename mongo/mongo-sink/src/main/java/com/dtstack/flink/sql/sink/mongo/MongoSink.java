@@ -19,6 +19,7 @@
 
 package com.dtstack.flink.sql.sink.mongo;
 
+import com.dtstack.flink.sql.sink.CheckpointFlushSinkFunction;
 import com.dtstack.flink.sql.sink.IStreamSinkGener;
 import com.dtstack.flink.sql.sink.mongo.table.MongoTableInfo;
 import com.dtstack.flink.sql.table.TargetTableInfo;
@@ -28,7 +29,6 @@ import org.apache.flink.api.java.typeutils.RowTypeInfo;
 import org.apache.flink.api.java.typeutils.TupleTypeInfo;
 import org.apache.flink.streaming.api.datastream.DataStream;
 import org.apache.flink.streaming.api.datastream.DataStreamSink;
-import org.apache.flink.streaming.api.functions.sink.OutputFormatSinkFunction;
 import org.apache.flink.streaming.api.functions.sink.RichSinkFunction;
 import org.apache.flink.table.sinks.RetractStreamTableSink;
 import org.apache.flink.table.sinks.TableSink;
@@ -49,6 +49,10 @@ public class MongoSink implements RetractStreamTableSink<Row>, IStreamSinkGener<
     protected String userName;
     protected String password;
     protected String database;
+    protected Integer batchSize;
+    protected Long batchWaitInterval;
+    protected String updateMode;
+    protected String writeConcern;
 
     public MongoSink() {
         // TO DO NOTHING
@@ -62,6 +66,10 @@ public class MongoSink implements RetractStreamTableSink<Row>, IStreamSinkGener<
         this.userName = mongoTableInfo.getUserName();
         this.password = mongoTableInfo.getPassword();
         this.database = mongoTableInfo.getDatabase();
+        this.batchSize = mongoTableInfo.getBatchSize();
+        this.batchWaitInterval = mongoTableInfo.getBatchWaitInterval();
+        this.updateMode = mongoTableInfo.getUpdateMode();
+        this.writeConcern = mongoTableInfo.getWriteConcern();
         return this;
     }
 
@@ -78,11 +86,15 @@ public class MongoSink implements RetractStreamTableSink<Row>, IStreamSinkGener<
                 .setTableName(this.tableName)
                 .setPassword(this.password)
                 .setUsername(this.userName)
+                .setBatchSize(this.batchSize)
+                .setBatchWaitInterval(this.batchWaitInterval)
+                .setUpdateMode(this.updateMode)
+                .setWriteConcern(this.writeConcern)
                 .setFieldNames(this.fieldNames)
                 .setFieldTypes(this.fieldTypes);
 
         MongoOutputFormat outputFormat = builder.finish();
-        RichSinkFunction richSinkFunction = new OutputFormatSinkFunction(outputFormat);
+        RichSinkFunction richSinkFunction = new CheckpointFlushSinkFunction(outputFormat);
         DataStreamSink dataStreamSink = dataStream.addSink(richSinkFunction);
         return dataStreamSink;
     }
@@ -48,6 +48,14 @@ public class MongoSinkParser extends AbsTableParser {
 
     public static final String DATABASE_KEY = "database";
 
+    public static final String BATCH_SIZE_KEY = "batchSize";
+
+    public static final String BATCH_WAIT_INTERVAL_KEY = "batchWaitInterval";
+
+    public static final String UPDATE_MODE_KEY = "updateMode";
+
+    public static final String WRITE_CONCERN_KEY = "writeConcern";
+
     @Override
     public TableInfo getTableInfo(String tableName, String fieldsInfo, Map<String, Object> props) {
         MongoTableInfo mongoTableInfo = new MongoTableInfo();
@@ -60,6 +68,10 @@ public class MongoSinkParser extends AbsTableParser {
         mongoTableInfo.setDatabase(MathUtil.getString(props.get(DATABASE_KEY.toLowerCase())));
         mongoTableInfo.setUserName(MathUtil.getString(props.get(USER_NAME_KEY.toLowerCase())));
         mongoTableInfo.setPassword(MathUtil.getString(props.get(PASSWORD_KEY.toLowerCase())));
+        mongoTableInfo.setBatchSize(MathUtil.getIntegerVal(props.get(BATCH_SIZE_KEY.toLowerCase())));
+        mongoTableInfo.setBatchWaitInterval(MathUtil.getLongVal(props.get(BATCH_WAIT_INTERVAL_KEY.toLowerCase())));
+        mongoTableInfo.setUpdateMode(MathUtil.getString(props.get(UPDATE_MODE_KEY.toLowerCase())));
+        mongoTableInfo.setWriteConcern(MathUtil.getString(props.get(WRITE_CONCERN_KEY.toLowerCase())));
 
         return mongoTableInfo;
     }
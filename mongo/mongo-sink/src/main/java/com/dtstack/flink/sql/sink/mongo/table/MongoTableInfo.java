@@ -48,6 +48,14 @@ public class MongoTableInfo extends TargetTableInfo {
 
     private String database;
 
+    private Integer batchSize;
+
+    private Long batchWaitInterval;
+
+    private String updateMode;
+
+    private String writeConcern;
+
     public String getAddress() {
         return address;
     }
@@ -88,11 +96,46 @@ public class MongoTableInfo extends TargetTableInfo {
         this.password = password;
     }
 
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(Integer batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Long getBatchWaitInterval() {
+        return batchWaitInterval;
+    }
+
+    public void setBatchWaitInterval(Long batchWaitInterval) {
+        this.batchWaitInterval = batchWaitInterval;
+    }
+
+    public String getUpdateMode() {
+        return updateMode;
+    }
+
+    public void setUpdateMode(String updateMode) {
+        this.updateMode = updateMode;
+    }
+
+    public String getWriteConcern() {
+        return writeConcern;
+    }
+
+    public void setWriteConcern(String writeConcern) {
+        this.writeConcern = writeConcern;
+    }
+
     @Override
     public boolean check() {
         Preconditions.checkNotNull(address, "Mongo field of ADDRESS is required");
         Preconditions.checkNotNull(database, "Mongo field of database is required");
         Preconditions.checkNotNull(tableName, "Mongo field of tableName is required");
+        Preconditions.checkArgument(batchSize == null || batchSize > 0, "Mongo field of batchSize must be greater than 0");
+        Preconditions.checkArgument(updateMode == null || "update".equalsIgnoreCase(updateMode) || "replace".equalsIgnoreCase(updateMode),
+                "Mongo field of updateMode must be update or replace");
         return true;
     }
 
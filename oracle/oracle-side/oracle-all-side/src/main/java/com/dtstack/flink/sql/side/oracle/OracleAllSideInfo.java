@@ -41,10 +41,20 @@ public class OracleAllSideInfo extends RdbAllSideInfo {
         sqlCondition = "select ${selectField} from ${tableName} ";
 
 
-        sqlCondition = sqlCondition.replace("${tableName}", DtStringUtil.getTableFullPath(rdbSideTableInfo.getSchema(), rdbSideTableInfo.getTableName())).replace("${selectField}", dealLowerSelectFiled(sideSelectFields));
+        sqlCondition = sqlCondition.replace("${tableName}", getSqlTableName(rdbSideTableInfo)).replace("${selectField}", dealLowerSelectFiled(sideSelectFields));
         System.out.println("---------side_exe_sql-----\n" + sqlCondition);
     }
 
+    @Override
+    protected String getSqlTableName(RdbSideTableInfo rdbSideTableInfo) {
+        return DtStringUtil.getTableFullPath(rdbSideTableInfo.getSchema(), rdbSideTableInfo.getTableName());
+    }
+
+
+    @Override
+    protected String quoteIdentifier(String identifier) {
+        return "\"" + identifier + "\"";
+    }
 
     private String dealLowerSelectFiled(String fieldsStr) {
         StringBuilder sb = new StringBuilder();
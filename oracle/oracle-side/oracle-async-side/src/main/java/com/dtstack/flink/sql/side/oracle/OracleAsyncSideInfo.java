@@ -47,7 +47,7 @@ public class OracleAsyncSideInfo extends RdbAsyncSideInfo {
         SqlNode conditionNode = joinInfo.getCondition();
 
         List<SqlNode> sqlNodeList = Lists.newArrayList();
-        List<String> sqlJoinCompareOperate= Lists.newArrayList();
+        sqlJoinCompareOperate = Lists.newArrayList();
 
         ParseUtils.parseAnd(conditionNode, sqlNodeList);
         ParseUtils.parseJoinCompareOperate(conditionNode, sqlJoinCompareOperate);
@@ -66,10 +66,21 @@ public class OracleAsyncSideInfo extends RdbAsyncSideInfo {
             }
         }
 
-        sqlCondition = sqlCondition.replace("${tableName}", DtStringUtil.getTableFullPath(rdbSideTableInfo.getSchema(), rdbSideTableInfo.getTableName())).replace("${selectField}", dealLowerSelectFiled(sideSelectFields));
+        sqlCondition = sqlCondition.replace("${tableName}", getFullTableName()).replace("${selectField}", dealLowerSelectFiled(sideSelectFields));
         System.out.println("---------side_exe_sql-----\n" + sqlCondition);
     }
 
+    @Override
+    protected String quoteIdentifier(String identifier) {
+        return dealLowerFiled(identifier);
+    }
+
+    @Override
+    protected String getFullTableName() {
+        RdbSideTableInfo rdbSideTableInfo = (RdbSideTableInfo) sideTableInfo;
+        return DtStringUtil.getTableFullPath(rdbSideTableInfo.getSchema(), rdbSideTableInfo.getTableName());
+    }
+
 
 
     private String dealLowerFiled(String field) {
@@ -61,7 +61,10 @@ public class PostgresqlAllReqRow extends RdbAllReqRow {
             Map<String, String> addParams = Maps.newHashMap();
             addParams.put("useCursorFetch", "true");
             String targetDbUrl = DtStringUtil.addJdbcParam(dbURL, addParams, true);
-            return DriverManager.getConnection(targetDbUrl, userName, password);
+            Connection connection = DriverManager.getConnection(targetDbUrl, userName, password);
+            //the driver only fetches with a cursor by fetch size inside a transaction, otherwise the whole result is read into memory
+            connection.setAutoCommit(false);
+            return connection;
         } catch (Exception e) {
             LOG.error("", e);
             throw new RuntimeException("", e);
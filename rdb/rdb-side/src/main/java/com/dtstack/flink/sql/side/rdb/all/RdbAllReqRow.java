@@ -18,8 +18,11 @@
 
 package com.dtstack.flink.sql.side.rdb.all;
 
+import com.dtstack.flink.sql.factory.DTThreadFactory;
 import com.dtstack.flink.sql.side.AllReqRow;
 import com.dtstack.flink.sql.side.SideInfo;
+import com.dtstack.flink.sql.side.cache.AbsAllCacheStore;
+import com.dtstack.flink.sql.side.cache.SideCacheKey;
 import com.dtstack.flink.sql.side.rdb.table.RdbSideTableInfo;
 import com.dtstack.flink.sql.side.rdb.util.SwitchUtil;
 import org.apache.calcite.sql.JoinType;
@@ -34,7 +37,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.xml.datatype.DatatypeConstants;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -42,9 +48,17 @@ import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * side operator with cache for all(period reload)
@@ -62,72 +76,350 @@ public abstract class RdbAllReqRow extends AllReqRow {
 
     private static final int CONN_RETRY_NUM = 3;
 
-    private AtomicReference<Map<String, List<Map<String, Object>>>> cacheRef = new AtomicReference<>();
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    //marks the end of a split range in the line queue
+    private static final List<Object[]> RANGE_END = Collections.emptyList();
+
+    //largest increment column value loaded, lines from it on are fetched by the next incremental reload
+    private transient Object incrementMark;
+
+    private transient int reloadCycle;
+
+    private transient int[] primaryKeyPosition;
+
+    private transient boolean trackJoinKey;
+
+    //primary key -> join key of the line, only kept when an update may change the join key of a line
+    private transient Map<SideCacheKey, SideCacheKey> joinKeyIndex;
 
     public RdbAllReqRow(SideInfo sideInfo) {
         super(sideInfo);
     }
 
     @Override
-    public Row fillData(Row input, Object sideInput) {
-        Map<String, Object> cacheInfo = (Map<String, Object>) sideInput;
-        Row row = new Row(sideInfo.getOutFieldInfoList().size());
-        for (Map.Entry<Integer, Integer> entry : sideInfo.getInFieldIndex().entrySet()) {
-            Object obj = input.getField(entry.getValue());
-            obj = convertTimeIndictorTypeInfo(entry.getValue(), obj);
-            row.setField(entry.getKey(), obj);
-        }
-
-        for (Map.Entry<Integer, String> entry : sideInfo.getSideFieldNameIndex().entrySet()) {
-            if (cacheInfo == null) {
-                row.setField(entry.getKey(), null);
-            } else {
-                row.setField(entry.getKey(), cacheInfo.get(entry.getValue()));
-            }
-        }
+    protected List<String> getExtraSideRowFields() {
+        RdbSideTableInfo tableInfo = (RdbSideTableInfo) sideInfo.getSideTableInfo();
+        return tableInfo.isIncrementReload() ? tableInfo.getPrimaryKeys() : Collections.emptyList();
+    }
 
-        return row;
+    @Override
+    protected String getCacheSourceIdentity() {
+        RdbSideTableInfo tableInfo = (RdbSideTableInfo) sideInfo.getSideTableInfo();
+        return tableInfo.getUrl() + "|" + tableInfo.getUserName() + "|" + sideInfo.getSqlCondition() + "|" + tableInfo.getIncrementColumn()
+                + "|" + tableInfo.getTombstoneColumn() + "|" + tableInfo.getFullReloadCycles();
     }
 
     @Override
     protected void initCache() throws SQLException {
-        Map<String, List<Map<String, Object>>> newCache = Maps.newConcurrentMap();
-        cacheRef.set(newCache);
-        loadData(newCache);
+        fullReload();
+    }
+
+    /**
+     * Done on the first load of this subtask, which may also be a reload taken over from another subtask sharing the cache.
+     */
+    private void initIncrementState() {
+        RdbSideTableInfo tableInfo = (RdbSideTableInfo) sideInfo.getSideTableInfo();
+        if (!tableInfo.isIncrementReload() || primaryKeyPosition != null) {
+            return;
+        }
+
+        primaryKeyPosition = new int[tableInfo.getPrimaryKeys().size()];
+        for (int i = 0; i < primaryKeyPosition.length; i++) {
+            primaryKeyPosition[i] = getSideRowPosition(tableInfo.getPrimaryKeys().get(i));
+        }
+        //without the index a changed line is looked for under its new join key only
+        trackJoinKey = !tableInfo.getPrimaryKeys().containsAll(sideInfo.getEqualFieldList());
     }
 
     @Override
     protected void reloadCache() {
-        //reload cacheRef and replace to old cacheRef
-        Map<String, List<Map<String, Object>>> newCache = Maps.newConcurrentMap();
+        RdbSideTableInfo tableInfo = (RdbSideTableInfo) sideInfo.getSideTableInfo();
         try {
-            loadData(newCache);
-        } catch (SQLException e) {
+            reloadCycle++;
+            boolean fullReloadDue = tableInfo.getFullReloadCycles() > 0 && reloadCycle >= tableInfo.getFullReloadCycles();
+            if (!tableInfo.isIncrementReload() || incrementMark == null || fullReloadDue) {
+                reloadCycle = 0;
+                fullReload();
+                LOG.info("----- rdb all cacheRef reload end:{}", Calendar.getInstance());
+            } else {
+                int changedNum = incrementReload();
+                LOG.info("----- rdb all cacheRef increment reload end:{}, changed lines:{}", Calendar.getInstance(), changedNum);
+            }
+        } catch (Exception e) {
             LOG.error("", e);
         }
+    }
 
-        cacheRef.set(newCache);
-        LOG.info("----- rdb all cacheRef reload end:{}", Calendar.getInstance());
+    private void fullReload() throws SQLException {
+        initIncrementState();
+        AbsAllCacheStore newCache = newCacheStore();
+        Map<SideCacheKey, SideCacheKey> newJoinKeyIndex = trackJoinKey ? Maps.newHashMap() : null;
+        Consumer<Object[]> cacheBuilder = oneRow -> {
+            SideCacheKey cacheKey = buildSideKey(oneRow);
+            newCache.put(cacheKey, oneRow);
+            if (newJoinKeyIndex != null) {
+                newJoinKeyIndex.put(SideCacheKey.of(oneRow, primaryKeyPosition), cacheKey);
+            }
+        };
+
+        try {
+            int loadParallelism = ((RdbSideTableInfo) sideInfo.getSideTableInfo()).getLoadParallelism();
+            List<SplitRange> splitRanges = loadParallelism > 1 ? buildSplitRanges(loadParallelism) : null;
+            if (splitRanges == null) {
+                incrementMark = loadSingle(cacheBuilder);
+            } else {
+                incrementMark = loadParallel(splitRanges, cacheBuilder);
+            }
+        } catch (ExecutionException e) {
+            throw new RuntimeException("load split range of side table failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("load of side table is interrupted", e);
+        }
+
+        joinKeyIndex = newJoinKeyIndex;
+        switchCacheStore(newCache);
+    }
+
+    private Object loadSingle(Consumer<Object[]> cacheBuilder) throws SQLException {
+        Connection connection = getConnWithRetry();
+        try {
+            Statement statement = connection.createStatement();
+            statement.setFetchSize(resolveFetchSize());
+            ResultSet resultSet = statement.executeQuery(sideInfo.getSqlCondition());
+            return loadData(resultSet, null, (oneRow, deleted) -> {
+                if (!deleted && isLocalSideRow(oneRow)) {
+                    cacheBuilder.accept(oneRow);
+                }
+            });
+        } finally {
+            connection.close();
+        }
     }
 
+    /**
+     * Read the split ranges over one connection each at the same time. Lines are handed over in batches
+     * to the calling thread, which is the only one building the cache as stores are not thread safe.
+     * @return the largest increment column value of all ranges
+     */
+    private Object loadParallel(List<SplitRange> splitRanges, Consumer<Object[]> cacheBuilder) throws InterruptedException, ExecutionException {
+        BlockingQueue<List<Object[]>> lineQueue = new ArrayBlockingQueue<>(splitRanges.size() * 4);
+        ExecutorService executor = Executors.newFixedThreadPool(splitRanges.size(), new DTThreadFactory("rdb-all-load"));
+        try {
+            List<Future<Object>> futures = Lists.newArrayList();
+            for (SplitRange splitRange : splitRanges) {
+                futures.add(executor.submit(() -> loadRange(splitRange, lineQueue)));
+            }
+
+            int finishedNum = 0;
+            while (finishedNum < splitRanges.size()) {
+                List<Object[]> lines = lineQueue.take();
+                if (lines == RANGE_END) {
+                    finishedNum++;
+                    continue;
+                }
+                lines.forEach(cacheBuilder);
+            }
+
+            Object maxMark = null;
+            for (Future<Object> future : futures) {
+                Object mark = future.get();
+                if (mark != null && (maxMark == null || ((Comparable) mark).compareTo(maxMark) > 0)) {
+                    maxMark = mark;
+                }
+            }
+            return maxMark;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Object loadRange(SplitRange splitRange, BlockingQueue<List<Object[]>> lineQueue) throws Exception {
+        try {
+            Connection connection = getConnWithRetry();
+            try {
+                PreparedStatement statement = connection.prepareStatement(splitRange.sql);
+                statement.setFetchSize(resolveFetchSize());
+                for (int i = 0; i < splitRange.bounds.length; i++) {
+                    statement.setLong(i + 1, splitRange.bounds[i]);
+                }
+
+                ResultSet resultSet = statement.executeQuery();
+                List<List<Object[]>> batch = Lists.newArrayList();
+                batch.add(Lists.newArrayListWithCapacity(LOAD_BATCH_SIZE));
+                Object mark = loadData(resultSet, null, (oneRow, deleted) -> {
+                    if (deleted || !isLocalSideRow(oneRow)) {
+                        return;
+                    }
+
+                    batch.get(0).add(oneRow);
+                    if (batch.get(0).size() >= LOAD_BATCH_SIZE) {
+                        putLines(lineQueue, batch.get(0));
+                        batch.set(0, Lists.newArrayListWithCapacity(LOAD_BATCH_SIZE));
+                    }
+                });
+                if (!batch.get(0).isEmpty()) {
+                    putLines(lineQueue, batch.get(0));
+                }
+                return mark;
+            } finally {
+                connection.close();
+            }
+        } finally {
+            putLines(lineQueue, RANGE_END);
+        }
+    }
+
+    private void putLines(BlockingQueue<List<Object[]>> lineQueue, List<Object[]> lines) {
+        try {
+            lineQueue.put(lines);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("load of split range is interrupted", e);
+        }
+    }
+
+    /**
+     * Split the range between the smallest and largest split column value into equal parts,
+     * the last range has no upper bound and lines without a split column value are read apart.
+     * @return null if the split column is not an integer column or the table is empty, the table is read in one query then
+     */
+    private List<SplitRange> buildSplitRanges(int loadParallelism) throws SQLException {
+        RdbAllSideInfo rdbSideInfo = (RdbAllSideInfo) sideInfo;
+        RdbSideTableInfo tableInfo = (RdbSideTableInfo) sideInfo.getSideTableInfo();
+        Object min;
+        Object max;
+        Connection connection = getConnWithRetry();
+        try {
+            ResultSet resultSet = connection.createStatement().executeQuery(rdbSideInfo.getSplitBoundSql());
+            resultSet.next();
+            min = resultSet.getObject(1);
+            max = resultSet.getObject(2);
+        } finally {
+            connection.close();
+        }
+
+        if (!isIntegral(min) || !isIntegral(max)) {
+            LOG.warn("split column {} has no integer bounds(min:{}, max:{}), load the table in one query", tableInfo.getLoadSplitColumn(), min, max);
+            return null;
+        }
+
+        long lower = ((Number) min).longValue();
+        long upper = ((Number) max).longValue();
+        BigInteger span = BigInteger.valueOf(upper).subtract(BigInteger.valueOf(lower));
+        long step = span.divide(BigInteger.valueOf(loadParallelism)).add(BigInteger.ONE)
+                .min(BigInteger.valueOf(Long.MAX_VALUE)).longValue();
+
+        List<SplitRange> splitRanges = Lists.newArrayList();
+        long start = lower;
+        for (int i = 0; i < loadParallelism; i++) {
+            long end = start + step;
+            boolean lastRange = i == loadParallelism - 1 || end > upper || end < start;
+            long[] bounds = lastRange ? new long[]{start} : new long[]{start, end};
+            splitRanges.add(new SplitRange(rdbSideInfo.getSplitSqlCondition(lastRange), bounds));
+            if (lastRange) {
+                break;
+            }
+            start = end;
+        }
+
+        if (tableInfo.getPrimaryKeys() == null || !tableInfo.getPrimaryKeys().contains(tableInfo.getLoadSplitColumn())) {
+            splitRanges.add(new SplitRange(rdbSideInfo.getSplitNullSqlCondition(), new long[0]));
+        }
+
+        LOG.info("load table in {} split ranges of column {} between {} and {}", splitRanges.size(), tableInfo.getLoadSplitColumn(), lower, upper);
+        return splitRanges;
+    }
+
+    private boolean isIntegral(Object value) {
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).signum() == 0 || ((BigDecimal) value).stripTrailingZeros().scale() <= 0;
+        }
+
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte || value instanceof BigInteger;
+    }
+
+    private int resolveFetchSize() {
+        Integer fetchSize = ((RdbSideTableInfo) sideInfo.getSideTableInfo()).getFetchSize();
+        return fetchSize == null ? getFetchSize() : fetchSize;
+    }
+
+    /**
+     * Merge the lines changed since the last reload into the live cache, lines are matched by primary key.
+     * @return number of changed lines
+     */
+    private int incrementReload() throws SQLException {
+        AbsAllCacheStore cacheStore = getCacheStore();
+        int[] changedNum = {0};
+        Connection connection = getConnWithRetry();
+        try {
+            PreparedStatement statement = connection.prepareStatement(((RdbAllSideInfo) sideInfo).getIncrementSqlCondition());
+            statement.setFetchSize(resolveFetchSize());
+            statement.setObject(1, incrementMark);
+            ResultSet resultSet = statement.executeQuery();
+            incrementMark = loadData(resultSet, incrementMark, (oneRow, deleted) -> {
+                //a line whose join key moved to another subtask is dropped like a deleted one
+                boolean dropped = deleted || !isLocalSideRow(oneRow);
+                SideCacheKey primaryKey = SideCacheKey.of(oneRow, primaryKeyPosition);
+                SideCacheKey cacheKey = buildSideKey(oneRow);
+                SideCacheKey oldCacheKey = joinKeyIndex == null ? cacheKey : joinKeyIndex.get(primaryKey);
+                if (oldCacheKey != null && !oldCacheKey.equals(cacheKey)) {
+                    replaceLine(cacheStore, oldCacheKey, primaryKey, null);
+                }
+
+                replaceLine(cacheStore, cacheKey, primaryKey, dropped ? null : oneRow);
+                if (joinKeyIndex != null) {
+                    if (dropped) {
+                        joinKeyIndex.remove(primaryKey);
+                    } else {
+                        joinKeyIndex.put(primaryKey, cacheKey);
+                    }
+                }
+                changedNum[0]++;
+            });
+        } finally {
+            connection.close();
+        }
+
+        return changedNum[0];
+    }
+
+    /**
+     * Swap the line of the primary key under the join key, the line is removed when newRow is null.
+     */
+    private void replaceLine(AbsAllCacheStore cacheStore, SideCacheKey cacheKey, SideCacheKey primaryKey, Object[] newRow) {
+        List<Object[]> oldRows = cacheStore.get(cacheKey);
+        List<Object[]> newRows = Lists.newArrayList();
+        if (oldRows != null) {
+            for (Object[] oldRow : oldRows) {
+                if (!primaryKey.equals(SideCacheKey.of(oldRow, primaryKeyPosition))) {
+                    newRows.add(oldRow);
+                }
+            }
+        }
+
+        if (newRow != null) {
+            newRows.add(newRow);
+        }
+
+        if (oldRows != null || newRow != null) {
+            cacheStore.replace(cacheKey, newRows);
+        }
+    }
 
     @Override
     public void flatMap(Row value, Collector<Row> out) throws Exception {
-        List<Object> inputParams = Lists.newArrayList();
-        for (Integer conValIndex : sideInfo.getEqualValIndex()) {
-            Object equalObj = value.getField(conValIndex);
-            if (equalObj == null) {
-                if (sideInfo.getJoinType() == JoinType.LEFT) {
-                    Row row = fillData(value, null);
-                    out.collect(row);
-                }
-                return;
+        SideCacheKey key = buildInputKey(value);
+        if (key == null) {
+            if (sideInfo.getJoinType() == JoinType.LEFT) {
+                Row row = fillData(value, null);
+                out.collect(row);
             }
-            inputParams.add(equalObj);
+            return;
         }
 
-        String key = buildKey(inputParams);
-        List<Map<String, Object>> cacheList = cacheRef.get().get(key);
+        List<Object[]> cacheList = getCacheStore().get(key);
         if (CollectionUtils.isEmpty(cacheList)) {
             if (sideInfo.getJoinType() == JoinType.LEFT) {
                 Row row = fillData(value, null);
@@ -139,88 +431,111 @@ public abstract class RdbAllReqRow extends AllReqRow {
             return;
         }
 
-        for (Map<String, Object> one : cacheList) {
+        for (Object[] one : cacheList) {
             out.collect(fillData(value, one));
         }
 
     }
 
-    private String buildKey(List<Object> equalValList) {
-        StringBuilder sb = new StringBuilder("");
-        for (Object equalVal : equalValList) {
-            sb.append(equalVal).append("_");
-        }
+    public abstract Connection getConn(String dbURL, String userName, String password);
 
-        return sb.toString();
-    }
 
-    private String buildKey(Map<String, Object> val, List<String> equalFieldList) {
-        StringBuilder sb = new StringBuilder("");
-        for (String equalField : equalFieldList) {
-            sb.append(val.get(equalField)).append("_");
+    private Connection getConnWithRetry() {
+        RdbSideTableInfo tableInfo = (RdbSideTableInfo) sideInfo.getSideTableInfo();
+        for (int i = 0; i < CONN_RETRY_NUM; i++) {
+            try {
+                return getConn(tableInfo.getUrl(), tableInfo.getUserName(), tableInfo.getPassword());
+            } catch (Exception e) {
+                if (i == CONN_RETRY_NUM - 1) {
+                    throw new RuntimeException("", e);
+                }
+                try {
+                    String connInfo = "url:" + tableInfo.getUrl() + ";userName:" + tableInfo.getUserName() + ",pwd:" + tableInfo.getPassword();
+                    LOG.warn("get conn fail, wait for 5 sec and try again, connInfo:" + connInfo);
+                    Thread.sleep(5 * 1000);
+                } catch (InterruptedException e1) {
+                    e1.printStackTrace();
+                }
+            }
+
         }
 
-        return sb.toString();
+        throw new RuntimeException("get conn fail, url:" + tableInfo.getUrl());
     }
 
-    public abstract Connection getConn(String dbURL, String userName, String password);
-
-
-    private void loadData(Map<String, List<Map<String, Object>>> tmpCache) throws SQLException {
+    /**
+     * Read every line of the result set and hand it over with its tombstone flag.
+     * @return the largest of lastMark and the increment column values read, only taken as the new mark
+     * once the whole result set is read, as lines don't come in increment column order
+     */
+    private Object loadData(ResultSet resultSet, Object lastMark, BiConsumer<Object[], Boolean> lineConsumer) throws SQLException {
         RdbSideTableInfo tableInfo = (RdbSideTableInfo) sideInfo.getSideTableInfo();
-        Connection connection = null;
-
-        try {
-            for (int i = 0; i < CONN_RETRY_NUM; i++) {
-                try {
-                    connection = getConn(tableInfo.getUrl(), tableInfo.getUserName(), tableInfo.getPassword());
-                    break;
-                } catch (Exception e) {
-                    if (i == CONN_RETRY_NUM - 1) {
-                        throw new RuntimeException("", e);
-                    }
-                    try {
-                        String connInfo = "url:" + tableInfo.getUrl() + ";userName:" + tableInfo.getUserName() + ",pwd:" + tableInfo.getPassword();
-                        LOG.warn("get conn fail, wait for 5 sec and try again, connInfo:" + connInfo);
-                        Thread.sleep(5 * 1000);
-                    } catch (InterruptedException e1) {
-                        e1.printStackTrace();
-                    }
-                }
+        String[] sideFieldNames = getSideRowFields();
+        String[] fields = sideInfo.getSideTableInfo().getFieldTypes();
+        int[] fieldIndexes = new int[sideFieldNames.length];
+        for (int i = 0; i < sideFieldNames.length; i++) {
+            fieldIndexes[i] = sideInfo.getSideTableInfo().getFieldList().indexOf(sideFieldNames[i]);
+        }
 
+        Object maxMark = lastMark;
+        while (resultSet.next()) {
+            Object[] oneRow = new Object[sideFieldNames.length];
+            for (int i = 0; i < sideFieldNames.length; i++) {
+                Object object = resultSet.getObject(sideFieldNames[i]);
+                oneRow[i] = SwitchUtil.getTarget(object, fields[fieldIndexes[i]]);
             }
 
-            //load data from table
-            String sql = sideInfo.getSqlCondition();
-            Statement statement = connection.createStatement();
-            statement.setFetchSize(getFetchSize());
-            ResultSet resultSet = statement.executeQuery(sql);
-            String[] sideFieldNames = sideInfo.getSideSelectFields().split(",");
-            String[] fields = sideInfo.getSideTableInfo().getFieldTypes();
-            while (resultSet.next()) {
-                Map<String, Object> oneRow = Maps.newHashMap();
-                for (String fieldName : sideFieldNames) {
-                    Object object = resultSet.getObject(fieldName.trim());
-                    int fieldIndex = sideInfo.getSideTableInfo().getFieldList().indexOf(fieldName.trim());
-                    object = SwitchUtil.getTarget(object, fields[fieldIndex]);
-                    oneRow.put(fieldName.trim(), object);
+            boolean deleted = false;
+            if (tableInfo.isIncrementReload()) {
+                Object mark = resultSet.getObject(tableInfo.getIncrementColumn());
+                if (mark != null && !(mark instanceof Comparable)) {
+                    //driver specific time types, e.g. oracle.sql.TIMESTAMP
+                    mark = resultSet.getTimestamp(tableInfo.getIncrementColumn());
+                }
+                if (mark != null && (maxMark == null || ((Comparable) mark).compareTo(maxMark) > 0)) {
+                    maxMark = mark;
                 }
 
-                String cacheKey = buildKey(oneRow, sideInfo.getEqualFieldList());
-                List<Map<String, Object>> list = tmpCache.computeIfAbsent(cacheKey, key -> Lists.newArrayList());
-                list.add(oneRow);
-            }
-        } catch (Exception e) {
-            LOG.error("", e);
-        } finally {
-            if (connection != null) {
-                connection.close();
+                if (tableInfo.getTombstoneColumn() != null) {
+                    deleted = isTombstone(resultSet.getObject(tableInfo.getTombstoneColumn()));
+                }
             }
+
+            lineConsumer.accept(oneRow, deleted);
         }
+
+        return maxMark;
     }
 
+    private boolean isTombstone(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+
+        if (value instanceof Number) {
+            return ((Number) value).intValue() != 0;
+        }
+
+        return value != null && ("1".equals(value.toString()) || "true".equalsIgnoreCase(value.toString()));
+    }
+
+    /**
+     * default jdbc fetch size of the dialect, overridden by the fetchSize option
+     */
     public int getFetchSize() {
         return 1000;
     }
 
+    private static class SplitRange {
+
+        private final String sql;
+
+        private final long[] bounds;
+
+        SplitRange(String sql, long[] bounds) {
+            this.sql = sql;
+            this.bounds = bounds;
+        }
+    }
+
 }
@@ -53,7 +53,14 @@ public class RdbAllSideInfo extends SideInfo {
         RdbSideTableInfo rdbSideTableInfo = (RdbSideTableInfo) sideTableInfo;
 
         sqlCondition = "select ${selectField} from ${tableName} ";
-        sqlCondition = sqlCondition.replace("${tableName}", rdbSideTableInfo.getTableName()).replace("${selectField}", sideSelectFields);
+        sqlCondition = sqlCondition.replace("${tableName}", getSqlTableName(rdbSideTableInfo)).replace("${selectField}", sideSelectFields);
+    }
+
+    /**
+     * name of the side table in the sql, e.g. with the schema
+     */
+    protected String getSqlTableName(RdbSideTableInfo rdbSideTableInfo) {
+        return rdbSideTableInfo.getTableName();
     }
 
     @Override
@@ -105,6 +112,59 @@ public class RdbAllSideInfo extends SideInfo {
             fields.add(equalField);
         }
 
+        //incremental reload needs the primary key, the increment column and the tombstone column of every line
+        RdbSideTableInfo rdbSideTableInfo = (RdbSideTableInfo) sideTableInfo;
+        if (rdbSideTableInfo.isIncrementReload()) {
+            List<String> incrementFields = Lists.newArrayList(rdbSideTableInfo.getPrimaryKeys());
+            incrementFields.add(rdbSideTableInfo.getIncrementColumn());
+            if (rdbSideTableInfo.getTombstoneColumn() != null) {
+                incrementFields.add(rdbSideTableInfo.getTombstoneColumn());
+            }
+
+            for (String incrementField : incrementFields) {
+                if (!fields.contains(incrementField)) {
+                    fields.add(incrementField);
+                }
+            }
+        }
+
         sideSelectFields = String.join(",", fields);
     }
+
+    /**
+     * sql to fetch the lines changed since the last reload, the parameter is the largest increment column value loaded
+     */
+    public String getIncrementSqlCondition() {
+        String incrementColumn = ((RdbSideTableInfo) sideTableInfo).getIncrementColumn();
+        return sqlCondition + "where " + quoteIdentifier(incrementColumn) + " >= ?";
+    }
+
+    /**
+     * sql to probe the smallest and largest value of the split column
+     */
+    public String getSplitBoundSql() {
+        String splitColumn = quoteIdentifier(((RdbSideTableInfo) sideTableInfo).getLoadSplitColumn());
+        return "select min(" + splitColumn + "), max(" + splitColumn + ") from " + getSqlTableName((RdbSideTableInfo) sideTableInfo);
+    }
+
+    /**
+     * sql to fetch the lines of one split range, the parameters are the inclusive lower bound and,
+     * unless it is the last range, the exclusive upper bound
+     */
+    public String getSplitSqlCondition(boolean lastRange) {
+        String splitColumn = quoteIdentifier(((RdbSideTableInfo) sideTableInfo).getLoadSplitColumn());
+        String condition = sqlCondition + "where " + splitColumn + " >= ?";
+        return lastRange ? condition : condition + " and " + splitColumn + " < ?";
+    }
+
+    /**
+     * sql to fetch the lines without a split column value, which fall in no range
+     */
+    public String getSplitNullSqlCondition() {
+        return sqlCondition + "where " + quoteIdentifier(((RdbSideTableInfo) sideTableInfo).getLoadSplitColumn()) + " is null";
+    }
+
+    protected String quoteIdentifier(String identifier) {
+        return identifier;
+    }
 }
@@ -22,19 +22,19 @@ package com.dtstack.flink.sql.side.rdb.async;
 import com.dtstack.flink.sql.enums.ECacheContentType;
 import com.dtstack.flink.sql.side.*;
 import com.dtstack.flink.sql.side.cache.CacheObj;
+import com.dtstack.flink.sql.side.cache.SideCacheKey;
 import com.dtstack.flink.sql.side.rdb.table.RdbSideTableInfo;
 import com.dtstack.flink.sql.side.rdb.util.SwitchUtil;
+import com.dtstack.flink.sql.util.ClassUtil;
 import io.vertx.core.json.JsonArray;
 import io.vertx.ext.sql.SQLClient;
 import io.vertx.ext.sql.SQLConnection;
 import com.google.common.collect.Lists;
-import org.apache.flink.streaming.api.functions.async.ResultFuture;
-import org.apache.flink.table.typeutils.TimeIndicatorTypeInfo;
+import com.google.common.collect.Maps;
 import org.apache.flink.types.Row;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.sql.Timestamp;
 import java.util.List;
 import java.util.Map;
 
@@ -81,50 +81,16 @@ public class RdbAsyncReqRow extends AsyncReqRow {
     }
 
     @Override
-    public void asyncInvoke(Row input, ResultFuture<Row> resultFuture) throws Exception {
-
+    protected void handleAsyncInvoke(SideLookupReq req) throws Exception {
         JsonArray inputParams = new JsonArray();
-        for (Integer conValIndex : sideInfo.getEqualValIndex()) {
-            Object equalObj = input.getField(conValIndex);
-            if (equalObj == null) {
-                dealMissKey(input, resultFuture);
-                return;
-            }
+        for (Object equalObj : req.getInputParams().values()) {
             inputParams.add(equalObj);
         }
 
-        String key = buildCacheKey(inputParams);
-        if (openCache()) {
-            CacheObj val = getFromCache(key);
-            if (val != null) {
-
-                if (ECacheContentType.MissVal == val.getType()) {
-                    dealMissKey(input, resultFuture);
-                    return;
-                } else if (ECacheContentType.MultiLine == val.getType()) {
-                    List<Row> rowList = Lists.newArrayList();
-                    Object debugData = null;
-                    try {
-                        for (Object jsonArray : (List) val.getContent()) {
-                            debugData = jsonArray;
-                            Row row = fillData(input, jsonArray);
-                            rowList.add(row);
-                        }
-                        resultFuture.complete(rowList);
-                    } catch (Exception e) {
-                        dealFillDataError(resultFuture, e, input, debugData);
-                    }
-                } else {
-                    resultFuture.completeExceptionally(new RuntimeException("not support cache obj type " + val.getType()));
-                }
-                return;
-            }
-        }
-
         rdbSQLClient.getConnection(conn -> {
             if (conn.failed()) {
                 //Treatment failures
-                resultFuture.completeExceptionally(conn.cause());
+                failLookup(req, conn.cause());
                 return;
             }
 
@@ -133,50 +99,113 @@ public class RdbAsyncReqRow extends AsyncReqRow {
             connection.queryWithParams(sqlCondition, inputParams, rs -> {
                 if (rs.failed()) {
                     LOG.error("Cannot retrieve the data from the database", rs.cause());
-                    resultFuture.completeExceptionally(rs.cause());
-                    return;
+                    failLookup(req, rs.cause());
+                } else if (rs.result().getResults().size() > 0) {
+                    completeLookup(req, CacheObj.buildCacheObj(ECacheContentType.MultiLine, rs.result().getResults()));
+                } else {
+                    completeLookup(req, CacheMissVal.getMissKeyObj());
                 }
 
-                List<JsonArray> cacheContent = Lists.newArrayList();
-
-                int resultSize = rs.result().getResults().size();
-                if (resultSize > 0) {
-                    List<Row> rowList = Lists.newArrayList();
-                    Object debugData = null;
-                    try {
-                        for (JsonArray line : rs.result().getResults()) {
-                            debugData = line;
-                            Row row = fillData(input, line);
-                            if (openCache()) {
-                                cacheContent.add(line);
-                            }
-                            rowList.add(row);
-                        }
-
-                        if (openCache()) {
-                            putCache(key, CacheObj.buildCacheObj(ECacheContentType.MultiLine, cacheContent));
-                        }
-                        resultFuture.complete(rowList);
-                    } catch (Exception e) {
-                        dealFillDataError(resultFuture, e, input, debugData);
-                    }
+                // and close the connection
+                closeConnection(connection);
+            });
+        });
+    }
+
+    @Override
+    protected boolean supportBatch() {
+        return ((RdbAsyncSideInfo) sideInfo).isSupportBatch();
+    }
+
+    /**
+     * one "where k in (...)" query for all keys of the batch; the equal fields are selected in front of
+     * the side fields so that every result line can be dispatched to the key it belongs to.
+     * The selected key values are converted to the java type of the bound values before matching, because
+     * the column type can differ from the stream type and vertx returns dates as iso strings.
+     */
+    @Override
+    protected void handleBatchInvoke(List<SideLookupReq> reqs) throws Exception {
+        RdbAsyncSideInfo rdbAsyncSideInfo = (RdbAsyncSideInfo) sideInfo;
+        JsonArray inputParams = new JsonArray();
+        for (SideLookupReq req : reqs) {
+            for (Object equalObj : req.getInputParams().values()) {
+                inputParams.add(equalObj);
+            }
+        }
+
+        String batchSqlCondition = rdbAsyncSideInfo.buildBatchSqlCondition(reqs.size());
+        rdbSQLClient.getConnection(conn -> {
+            if (conn.failed()) {
+                reqs.forEach(req -> failLookup(req, conn.cause()));
+                return;
+            }
+
+            final SQLConnection connection = conn.result();
+            connection.queryWithParams(batchSqlCondition, inputParams, rs -> {
+                if (rs.failed()) {
+                    LOG.error("Cannot retrieve the data from the database", rs.cause());
+                    reqs.forEach(req -> failLookup(req, rs.cause()));
                 } else {
-                    dealMissKey(input, resultFuture);
-                    if (openCache()) {
-                        putCache(key, CacheMissVal.getMissKeyObj());
-                    }
+                    dispatchBatchResult(reqs, rs.result().getResults());
                 }
 
-                // and close the connection
-                connection.close(done -> {
-                    if (done.failed()) {
-                        throw new RuntimeException(done.cause());
-                    }
-                });
+                closeConnection(connection);
             });
         });
     }
 
+    private void dispatchBatchResult(List<SideLookupReq> reqs, List<JsonArray> results) {
+        int keyNum = sideInfo.getEqualFieldList().size();
+        List<Class<?>> keyClasses = Lists.newArrayList();
+        for (Object equalObj : reqs.get(0).getInputParams().values()) {
+            keyClasses.add(equalObj.getClass());
+        }
+
+        Map<SideCacheKey, List<JsonArray>> keyLines = Maps.newHashMap();
+        for (JsonArray line : results) {
+            List<Object> values = line.getList();
+            List<Object> keyValues = Lists.newArrayListWithCapacity(keyNum);
+            for (int i = 0; i < keyNum; i++) {
+                keyValues.add(ClassUtil.convertToClass(values.get(i), keyClasses.get(i)));
+            }
+            keyLines.computeIfAbsent(SideCacheKey.of(keyValues), k -> Lists.newArrayList())
+                    .add(new JsonArray(values.subList(keyNum, values.size())));
+        }
+
+        List<SideLookupReq> unmatchedReqs = Lists.newArrayList();
+        for (SideLookupReq req : reqs) {
+            List<JsonArray> lines = keyLines.remove(SideCacheKey.of(req.getInputParams().values()));
+            if (lines == null) {
+                unmatchedReqs.add(req);
+            } else {
+                completeLookup(req, CacheObj.buildCacheObj(ECacheContentType.MultiLine, lines));
+            }
+        }
+
+        //lines left belong to a key the database compares differently (e.g. case insensitive collation),
+        //so a request without lines is not a sure miss and is queried by itself instead of caching the miss
+        boolean allLinesMatched = keyLines.isEmpty();
+        for (SideLookupReq req : unmatchedReqs) {
+            if (allLinesMatched) {
+                completeLookup(req, CacheMissVal.getMissKeyObj());
+                continue;
+            }
+
+            try {
+                handleAsyncInvoke(req);
+            } catch (Exception e) {
+                failLookup(req, e);
+            }
+        }
+    }
+
+    private void closeConnection(SQLConnection connection) {
+        connection.close(done -> {
+            if (done.failed()) {
+                throw new RuntimeException(done.cause());
+            }
+        });
+    }
 
     @Override
     public Row fillData(Row input, Object line) {
@@ -210,16 +239,6 @@ public class RdbAsyncReqRow extends AsyncReqRow {
 
     }
 
-    public String buildCacheKey(JsonArray jsonArray) {
-        StringBuilder sb = new StringBuilder();
-        for (Object ele : jsonArray.getList()) {
-            sb.append(ele.toString())
-                    .append("_");
-        }
-
-        return sb.toString();
-    }
-
     public void setRdbSQLClient(SQLClient rdbSQLClient) {
         this.rdbSQLClient = rdbSQLClient;
     }
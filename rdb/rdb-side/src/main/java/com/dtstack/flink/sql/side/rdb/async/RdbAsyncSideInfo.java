@@ -35,6 +35,7 @@ import com.google.common.collect.Lists;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 
 /**
@@ -49,6 +50,9 @@ public class RdbAsyncSideInfo extends SideInfo {
 
     private static final long serialVersionUID = 1942629132469918611L;
 
+    //assigned in buildEqualInfo which runs inside the super constructor, so no field initializer here
+    protected List<String> sqlJoinCompareOperate;
+
     public RdbAsyncSideInfo(RowTypeInfo rowTypeInfo, JoinInfo joinInfo, List<FieldInfo> outFieldInfoList, SideTableInfo sideTableInfo) {
         super(rowTypeInfo, joinInfo, outFieldInfoList, sideTableInfo);
     }
@@ -63,8 +67,7 @@ public class RdbAsyncSideInfo extends SideInfo {
 
         List<SqlNode> sqlNodeList = Lists.newArrayList();
 
-        List<String> sqlJoinCompareOperate= Lists.newArrayList();
-
+        sqlJoinCompareOperate = Lists.newArrayList();
         ParseUtils.parseAnd(conditionNode, sqlNodeList);
         ParseUtils.parseJoinCompareOperate(conditionNode, sqlJoinCompareOperate);
 
@@ -107,6 +110,59 @@ public class RdbAsyncSideInfo extends SideInfo {
         System.out.println(sqlCondition);
     }
 
+    /**
+     * batch lookup only for pure equal join conditions
+     */
+    public boolean isSupportBatch() {
+        return sqlJoinCompareOperate != null && sqlJoinCompareOperate.stream().allMatch("="::equals);
+    }
+
+    /**
+     * select the equal fields before the side fields and match keyNum keys of the batch
+     * single equal field: where k in (?, ?)
+     * multi equal fields: where (k1 = ? and k2 = ?) or (k1 = ? and k2 = ?)
+     */
+    public String buildBatchSqlCondition(int keyNum) {
+        List<String> equalFields = Lists.newArrayList();
+        for (String equalField : equalFieldList) {
+            equalFields.add(quoteIdentifier(sideTableInfo.getPhysicalFields().getOrDefault(equalField, equalField)));
+        }
+
+        List<String> selectFields = Lists.newArrayList(equalFields);
+        for (String selectField : sideSelectFields.split(",")) {
+            selectFields.add(quoteIdentifier(selectField));
+        }
+
+        StringBuilder sb = new StringBuilder("select ")
+                .append(String.join(",", selectFields))
+                .append(" from ").append(getFullTableName()).append(" where ");
+        if (equalFields.size() == 1) {
+            sb.append(equalFields.get(0)).append(" in (");
+            for (int i = 0; i < keyNum; i++) {
+                sb.append(i == 0 ? "?" : ", ?");
+            }
+            sb.append(")");
+            return sb.toString();
+        }
+
+        String oneKeyCondition = "(" + equalFields.stream().map(field -> field + " = ?").collect(Collectors.joining(" and ")) + ")";
+        for (int i = 0; i < keyNum; i++) {
+            if (i != 0) {
+                sb.append(" or ");
+            }
+            sb.append(oneKeyCondition);
+        }
+        return sb.toString();
+    }
+
+    protected String quoteIdentifier(String identifier) {
+        return identifier;
+    }
+
+    protected String getFullTableName() {
+        return ((RdbSideTableInfo) sideTableInfo).getTableName();
+    }
+
 
     @Override
     public void dealOneEqualCon(SqlNode sqlNode, String sideTableName) {
@@ -48,6 +48,18 @@ public class RdbSideParser extends AbsSideTableParser {
         rdbTableInfo.setUserName(MathUtil.getString(props.get(RdbSideTableInfo.USER_NAME_KEY.toLowerCase())));
         rdbTableInfo.setPassword(MathUtil.getString(props.get(RdbSideTableInfo.PASSWORD_KEY.toLowerCase())));
         rdbTableInfo.setSchema(MathUtil.getString(props.get(RdbSideTableInfo.SCHEMA_KEY.toLowerCase())));
+        rdbTableInfo.setIncrementColumn(MathUtil.getString(props.get(RdbSideTableInfo.INCREMENT_COLUMN_KEY.toLowerCase())));
+        rdbTableInfo.setTombstoneColumn(MathUtil.getString(props.get(RdbSideTableInfo.TOMBSTONE_COLUMN_KEY.toLowerCase())));
+        Integer fullReloadCycles = MathUtil.getIntegerVal(props.get(RdbSideTableInfo.FULL_RELOAD_CYCLES_KEY.toLowerCase()));
+        if (fullReloadCycles != null) {
+            rdbTableInfo.setFullReloadCycles(fullReloadCycles);
+        }
+        Integer loadParallelism = MathUtil.getIntegerVal(props.get(RdbSideTableInfo.LOAD_PARALLELISM_KEY.toLowerCase()));
+        if (loadParallelism != null) {
+            rdbTableInfo.setLoadParallelism(loadParallelism);
+        }
+        rdbTableInfo.setSplitColumn(MathUtil.getString(props.get(RdbSideTableInfo.SPLIT_COLUMN_KEY.toLowerCase())));
+        rdbTableInfo.setFetchSize(MathUtil.getIntegerVal(props.get(RdbSideTableInfo.FETCH_SIZE_KEY.toLowerCase())));
 
         rdbTableInfo.check();
         return rdbTableInfo;
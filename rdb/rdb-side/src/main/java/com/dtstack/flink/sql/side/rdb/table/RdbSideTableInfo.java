@@ -17,6 +17,7 @@
  */
 package com.dtstack.flink.sql.side.rdb.table;
 
+import com.dtstack.flink.sql.enums.ECacheStoreType;
 import com.dtstack.flink.sql.side.SideTableInfo;
 import com.google.common.base.Preconditions;
 
@@ -41,12 +42,38 @@ public class RdbSideTableInfo extends SideTableInfo {
 
     public static final String SCHEMA_KEY = "schema";
 
+    public static final String INCREMENT_COLUMN_KEY = "incrementColumn";
+
+    public static final String TOMBSTONE_COLUMN_KEY = "tombstoneColumn";
+
+    public static final String FULL_RELOAD_CYCLES_KEY = "fullReloadCycles";
+
+    public static final String LOAD_PARALLELISM_KEY = "loadParallelism";
+
+    public static final String SPLIT_COLUMN_KEY = "splitColumn";
+
+    public static final String FETCH_SIZE_KEY = "fetchSize";
+
     @Override
     public boolean check() {
         Preconditions.checkNotNull(url, "rdb of URL is required");
         Preconditions.checkNotNull(tableName, "rdb of tableName is required");
         Preconditions.checkNotNull(userName, "rdb of userName is required");
         Preconditions.checkNotNull(password, "rdb of password is required");
+        if (isIncrementReload()) {
+            Preconditions.checkArgument(getPrimaryKeys() != null && !getPrimaryKeys().isEmpty(),
+                    "rdb of PRIMARY KEY is required when incrementColumn is set");
+            Preconditions.checkArgument(ECacheStoreType.HEAP.name().equalsIgnoreCase(getCacheStore()),
+                    "rdb of incrementColumn only supports cacheStore heap");
+            Preconditions.checkArgument(fullReloadCycles >= 0, "rdb of fullReloadCycles must not be negative");
+        } else {
+            Preconditions.checkArgument(tombstoneColumn == null, "rdb of tombstoneColumn only works with incrementColumn");
+        }
+        Preconditions.checkArgument(loadParallelism > 0, "rdb of loadParallelism must be positive");
+        if (loadParallelism > 1) {
+            Preconditions.checkArgument(getLoadSplitColumn() != null,
+                    "rdb of splitColumn or a single column PRIMARY KEY is required when loadParallelism is greater than 1");
+        }
         return true;
     }
 
@@ -60,6 +87,24 @@ public class RdbSideTableInfo extends SideTableInfo {
 
     private String schema;
 
+    //update time or version column, only lines changed since the last reload are fetched when set
+    private String incrementColumn;
+
+    //lines with the column true or 1 are removed from cache
+    private String tombstoneColumn;
+
+    //incremental reloads between two full reloads, 0 means never reload fully
+    private int fullReloadCycles = 10;
+
+    //connections loading the table at the same time in ALL mode, each one reads a range of the split column
+    private int loadParallelism = 1;
+
+    //numeric column to split the table by, the primary key is used when not set
+    private String splitColumn;
+
+    //jdbc fetch size of the ALL mode load, the default of the dialect is used when not set
+    private Integer fetchSize;
+
     public String getSchema() {
         return schema;
     }
@@ -99,4 +144,67 @@ public class RdbSideTableInfo extends SideTableInfo {
     public void setPassword(String password) {
         this.password = password;
     }
+
+    public String getIncrementColumn() {
+        return incrementColumn;
+    }
+
+    public void setIncrementColumn(String incrementColumn) {
+        this.incrementColumn = incrementColumn;
+    }
+
+    public String getTombstoneColumn() {
+        return tombstoneColumn;
+    }
+
+    public void setTombstoneColumn(String tombstoneColumn) {
+        this.tombstoneColumn = tombstoneColumn;
+    }
+
+    public int getFullReloadCycles() {
+        return fullReloadCycles;
+    }
+
+    public void setFullReloadCycles(int fullReloadCycles) {
+        this.fullReloadCycles = fullReloadCycles;
+    }
+
+    public int getLoadParallelism() {
+        return loadParallelism;
+    }
+
+    public void setLoadParallelism(int loadParallelism) {
+        this.loadParallelism = loadParallelism;
+    }
+
+    public String getSplitColumn() {
+        return splitColumn;
+    }
+
+    public void setSplitColumn(String splitColumn) {
+        this.splitColumn = splitColumn;
+    }
+
+    public Integer getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(Integer fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * @return the split column, or the primary key if it is a single column, null if the table can't be split
+     */
+    public String getLoadSplitColumn() {
+        if (splitColumn != null) {
+            return splitColumn;
+        }
+
+        return getPrimaryKeys() != null && getPrimaryKeys().size() == 1 ? getPrimaryKeys().get(0) : null;
+    }
+
+    public boolean isIncrementReload() {
+        return incrementColumn != null;
+    }
 }
@@ -18,25 +18,38 @@
 
 package com.dtstack.flink.sql.side.redis;
 
+import com.dtstack.flink.sql.enums.ERedisStorageType;
+import com.dtstack.flink.sql.factory.DTThreadFactory;
+import com.dtstack.flink.sql.metric.MetricConstant;
 import com.dtstack.flink.sql.side.*;
+import com.dtstack.flink.sql.side.cache.AbsAllCacheStore;
+import com.dtstack.flink.sql.side.cache.SideCacheKey;
 import com.dtstack.flink.sql.side.redis.table.RedisSideReqRow;
 import com.dtstack.flink.sql.side.redis.table.RedisSideTableInfo;
 import org.apache.calcite.sql.JoinType;
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.apache.flink.api.java.typeutils.RowTypeInfo;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.metrics.Gauge;
 import com.google.common.collect.Maps;
 import org.apache.flink.types.Row;
 import org.apache.flink.util.Collector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.*;
+import redis.clients.jedis.exceptions.JedisDataException;
 
 import java.io.Closeable;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.Collectors;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 public class RedisAllReqRow extends AllReqRow{
 
@@ -46,50 +59,80 @@ public class RedisAllReqRow extends AllReqRow{
 
     private static final int CONN_RETRY_NUM = 3;
 
+    private static final Map<String, Map<String, String>> NODE_END = Collections.emptyMap();
+
     private JedisPool pool;
 
     private JedisSentinelPool jedisSentinelPool;
 
     private RedisSideTableInfo tableInfo;
 
-    private AtomicReference<Map<String, Map<String, String>>> cacheRef = new AtomicReference<>();
-
     private RedisSideReqRow redisSideReqRow;
 
+    private transient volatile long lastLoadTimeMs;
+
+    //used_cpu_sys + used_cpu_user grown on the scanned nodes during the last load
+    private transient volatile long lastLoadStoreCpuMs;
+
     public RedisAllReqRow(RowTypeInfo rowTypeInfo, JoinInfo joinInfo, List<FieldInfo> outFieldInfoList, SideTableInfo sideTableInfo) {
         super(new RedisAllSideInfo(rowTypeInfo, joinInfo, outFieldInfoList, sideTableInfo));
         this.redisSideReqRow = new RedisSideReqRow(super.sideInfo);
+        this.tableInfo = (RedisSideTableInfo) sideTableInfo;
+    }
+
+    @Override
+    public void open(Configuration parameters) throws Exception {
+        super.open(parameters);
+        getRuntimeContext().getMetricGroup().gauge(MetricConstant.DT_SIDE_CACHE_LOAD_TIME_GAUGE, (Gauge<Long>) () -> lastLoadTimeMs);
+        getRuntimeContext().getMetricGroup().gauge(MetricConstant.DT_SIDE_CACHE_LOAD_STORE_CPU_GAUGE, (Gauge<Long>) () -> lastLoadStoreCpuMs);
     }
 
     @Override
     public Row fillData(Row input, Object sideInput) {
-        return redisSideReqRow.fillData(input, sideInput);
+        Row row = super.fillData(input, null);
+        if (sideInput == null) {
+            return row;
+        }
+
+        //values are kept as redis strings and converted to the side field type on output
+        Object[] sideRow = (Object[]) sideInput;
+        for (Map.Entry<Integer, Integer> entry : sideInfo.getSideFieldIndex().entrySet()) {
+            redisSideReqRow.setRowField(row, entry.getKey(), sideInfo, (String) sideRow[entry.getValue()]);
+        }
+
+        return row;
+    }
+
+    @Override
+    protected String getCacheSourceIdentity() {
+        return tableInfo.getUrl() + "|" + tableInfo.getDatabase() + "|" + tableInfo.getTableName() + "|" + tableInfo.getRedisType() + "|" + tableInfo.getStorageType();
     }
 
     @Override
     protected void initCache() throws SQLException {
-        tableInfo = (RedisSideTableInfo) sideInfo.getSideTableInfo();
-        Map<String, Map<String, String>> newCache = Maps.newConcurrentMap();
-        cacheRef.set(newCache);
+        AbsAllCacheStore newCache = newCacheStore();
         loadData(newCache);
+        switchCacheStore(newCache);
     }
 
     @Override
     protected void reloadCache() {
-        Map<String, Map<String, String>> newCache = Maps.newConcurrentMap();
+        AbsAllCacheStore newCache = newCacheStore();
         try {
             loadData(newCache);
-        } catch (SQLException e) {
-            LOG.error("", e);
+        } catch (Exception e) {
+            //a partly loaded store would turn the lines not read yet into misses, lookups stay on the last load
+            LOG.error("reload of redis all cache failed, keep the last loaded lines", e);
+            return;
         }
 
-        cacheRef.set(newCache);
+        switchCacheStore(newCache);
         LOG.info("----- Redis all cacheRef reload end:{}", Calendar.getInstance());
     }
 
     @Override
     public void flatMap(Row row, Collector<Row> out) throws Exception {
-        Map<String, String> inputParams = Maps.newHashMap();
+        List<Object> equalValues = new ArrayList<>(sideInfo.getEqualValIndex().size());
         for(Integer conValIndex : sideInfo.getEqualValIndex()){
             Object equalObj = row.getField(conValIndex);
             if(equalObj == null){
@@ -99,14 +142,13 @@ public class RedisAllReqRow extends AllReqRow{
                 }
                 return;
             }
-            String columnName = sideInfo.getEqualFieldList().get(conValIndex);
-            inputParams.put(columnName, equalObj.toString());
+            equalValues.add(equalObj);
         }
-        String key = buildKey(inputParams);
+        String key = ERedisStorageType.buildRowKey(tableInfo.getTableName(), sideInfo.getEqualFieldList(), equalValues);
 
-        Map<String, String> cacheMap = cacheRef.get().get(key);
+        List<Object[]> cacheList = getCacheStore().get(SideCacheKey.of(key));
 
-        if (cacheMap == null){
+        if (cacheList == null || cacheList.isEmpty()){
             if(sideInfo.getJoinType() == JoinType.LEFT){
                 Row data = fillData(row, null);
                 out.collect(data);
@@ -117,21 +159,12 @@ public class RedisAllReqRow extends AllReqRow{
             return;
         }
 
-        Row newRow = fillData(row, cacheMap);
+        Row newRow = fillData(row, cacheList.get(0));
         out.collect(newRow);
     }
 
-    private String buildKey(Map<String, String> inputParams) {
-        String tableName = tableInfo.getTableName();
-        StringBuilder key = new StringBuilder();
-        for (int i=0; i<inputParams.size(); i++){
-            key.append(tableName).append(":").append(inputParams.keySet().toArray()[i]).append(":")
-                    .append(inputParams.get(inputParams.keySet().toArray()[i]));
-        }
-        return key.toString();
-    }
-
-    private void loadData(Map<String, Map<String, String>> tmpCache) throws SQLException {
+    private void loadData(AbsAllCacheStore tmpCache) {
+        long startTime = System.currentTimeMillis();
         JedisCommands jedis = null;
 
         try {
@@ -155,53 +188,28 @@ public class RedisAllReqRow extends AllReqRow{
                 }
             }
 
-            if (tableInfo.getRedisType() != 3){
-                String perKey = tableInfo.getTableName() + "*";
-                Set<String> keys = ((Jedis) jedis).keys(perKey);
-                List<String> newPerKeys = new LinkedList<>();
-                for (String key : keys){
-                    String[] splitKey = key.split(":");
-                    String newKey = splitKey[0] + ":" + splitKey[1] + ":" + splitKey[2];
-                    newPerKeys.add(newKey);
-                }
-                List<String> list = newPerKeys.stream().distinct().collect(Collectors.toList());
-                for(String key : list){
-                    Map<String, String> kv = Maps.newHashMap();
-                    String[] primaryKv = key.split(":");
-                    kv.put(primaryKv[1], primaryKv[2]);
-                    String pattern = key + "*";
-                    Set<String> realKeys = ((Jedis) jedis).keys(pattern);
-                    for (String realKey : realKeys){
-                        kv.put(realKey.split(":")[3], jedis.get(realKey));
-                    }
-                    tmpCache.put(key, kv);
-                }
-            } else {
-                String perKey = tableInfo.getTableName() + "*";
-                Set<String> keys = keys((JedisCluster) jedis, perKey);
-                List<String> newPerKeys = new LinkedList<>();
-                for (String key : keys){
-                    String[] splitKey = key.split(":");
-                    String newKey = splitKey[0] + ":" + splitKey[1] + ":" + splitKey[2];
-                    newPerKeys.add(newKey);
+            List<Jedis> scanNodes = getScanNodes(jedis);
+            try {
+                double cpuBefore = getUsedCpu(scanNodes);
+                SideRowWriter rowWriter = new SideRowWriter(tmpCache);
+                if (scanNodes.size() == 1) {
+                    scanNode(scanNodes.get(0), rowWriter::write);
+                } else {
+                    scanNodes(scanNodes, rowWriter::write);
                 }
-                List<String> list = newPerKeys.stream().distinct().collect(Collectors.toList());
-                for(String key : list){
-                    Map<String, String> kv = Maps.newHashMap();
-                    String[] primaryKv = key.split(":");
-                    kv.put(primaryKv[1], primaryKv[2]);
-                    String pattern = key + "*";
-                    Set<String> realKeys = keys((JedisCluster) jedis, pattern);
-                    for (String realKey : realKeys){
-                        kv.put(realKey.split(":")[3], jedis.get(realKey));
-                    }
-                    tmpCache.put(key, kv);
+                rowWriter.finish();
+                lastLoadStoreCpuMs = (long) ((getUsedCpu(scanNodes) - cpuBefore) * 1000);
+            } finally {
+                if (tableInfo.getRedisType() == 3){
+                    scanNodes.forEach(Jedis::close);
                 }
             }
 
-
-        } catch (Exception e){
-            LOG.error("", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("scan of redis node failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("load of redis side table is interrupted", e);
         } finally {
             if (jedis != null){
                 try {
@@ -216,7 +224,245 @@ public class RedisAllReqRow extends AllReqRow{
             if (pool != null) {
                 pool.close();
             }
+            lastLoadTimeMs = System.currentTimeMillis() - startTime;
+        }
+    }
+
+    /**
+     * Nodes holding the keys, every master node in cluster mode.
+     */
+    private List<Jedis> getScanNodes(JedisCommands jedis){
+        if (tableInfo.getRedisType() != 3){
+            return Collections.singletonList((Jedis) jedis);
+        }
+
+        List<Jedis> masters = new ArrayList<>();
+        for (JedisPool nodePool : ((JedisCluster) jedis).getClusterNodes().values()){
+            Jedis node = nodePool.getResource();
+            if (node.info("replication").contains("role:master")){
+                masters.add(node);
+            } else {
+                node.close();
+            }
+        }
+        if (masters.isEmpty()){
+            throw new RuntimeException("no master node found in redis cluster:" + tableInfo.getUrl());
+        }
+        return masters;
+    }
+
+    /**
+     * Scan the nodes at the same time, the scanned batches are handed over to the calling thread,
+     * which is the only one writing the store as stores are not thread safe.
+     */
+    private void scanNodes(List<Jedis> nodes, Consumer<Map<String, Map<String, String>>> batchConsumer) throws InterruptedException, ExecutionException {
+        BlockingQueue<Map<String, Map<String, String>>> batchQueue = new ArrayBlockingQueue<>(nodes.size() * 4);
+        ExecutorService executor = Executors.newFixedThreadPool(nodes.size(), new DTThreadFactory("redis-all-scan"));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Jedis node : nodes){
+                futures.add(executor.submit(() -> {
+                    try {
+                        scanNode(node, batch -> putBatch(batchQueue, batch));
+                    } finally {
+                        putBatch(batchQueue, NODE_END);
+                    }
+                }));
+            }
+
+            int finishedNum = 0;
+            while (finishedNum < nodes.size()){
+                Map<String, Map<String, String>> batch = batchQueue.take();
+                if (batch == NODE_END){
+                    finishedNum++;
+                    continue;
+                }
+                batchConsumer.accept(batch);
+            }
+
+            for (Future<?> future : futures){
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void putBatch(BlockingQueue<Map<String, Map<String, String>>> batchQueue, Map<String, Map<String, String>> batch){
+        try {
+            batchQueue.put(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("scan of redis node is interrupted", e);
+        }
+    }
+
+    /**
+     * Walk the keys of the table with SCAN, the values of each batch of keys are read in one pipeline.
+     * @param batchConsumer gets row key -> field -> value of every scanned batch
+     */
+    private void scanNode(Jedis node, Consumer<Map<String, Map<String, String>>> batchConsumer){
+        boolean hashStorage = ERedisStorageType.of(tableInfo.getStorageType()) == ERedisStorageType.HASH;
+        ScanParams scanParams = new ScanParams().match(tableInfo.getTableName() + ":*").count(tableInfo.getScanCount());
+        String cursor = ScanParams.SCAN_POINTER_START;
+        do {
+            ScanResult<String> scanResult = node.scan(cursor, scanParams);
+            List<String> keys = scanResult.getResult();
+            if (!keys.isEmpty()){
+                Map<String, Map<String, String>> rows = Maps.newHashMap();
+                if (hashStorage){
+                    fetchHashRows(node, keys, rows);
+                } else {
+                    fetchStringRows(node, keys, rows);
+                }
+                if (!rows.isEmpty()){
+                    batchConsumer.accept(rows);
+                }
+            }
+            cursor = scanResult.getStringCursor();
+        } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+    }
+
+    private void fetchHashRows(Jedis node, List<String> rowKeys, Map<String, Map<String, String>> rows){
+        Pipeline pipeline = node.pipelined();
+        List<Response<Map<String, String>>> responses = new ArrayList<>(rowKeys.size());
+        for (String rowKey : rowKeys){
+            responses.add(pipeline.hgetAll(rowKey));
+        }
+        pipeline.sync();
+
+        for (int i = 0; i < rowKeys.size(); i++){
+            Map<String, String> values = getResponse(responses.get(i), rowKeys.get(i));
+            if (values != null && !values.isEmpty()){
+                rows.computeIfAbsent(rowKeys.get(i), key -> Maps.newHashMap()).putAll(values);
+            }
+        }
+    }
+
+    private void fetchStringRows(Jedis node, List<String> fieldKeys, Map<String, Map<String, String>> rows){
+        Pipeline pipeline = node.pipelined();
+        List<Response<String>> responses = new ArrayList<>(fieldKeys.size());
+        for (String fieldKey : fieldKeys){
+            responses.add(pipeline.get(fieldKey));
+        }
+        pipeline.sync();
+
+        for (int i = 0; i < fieldKeys.size(); i++){
+            String fieldKey = fieldKeys.get(i);
+            String value = getResponse(responses.get(i), fieldKey);
+            int fieldStart = fieldKey.lastIndexOf(':');
+            if (value != null && fieldStart > tableInfo.getTableName().length()){
+                rows.computeIfAbsent(fieldKey.substring(0, fieldStart), key -> Maps.newHashMap())
+                        .put(fieldKey.substring(fieldStart + 1), value);
+            }
+        }
+    }
+
+    /**
+     * @return null for keys of another type matching the table pattern
+     */
+    private <T> T getResponse(Response<T> response, String key){
+        try {
+            return response.get();
+        } catch (JedisDataException e){
+            LOG.warn("skip key {} of the unexpected type:{}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return seconds of cpu used by the redis processes so far
+     */
+    private double getUsedCpu(List<Jedis> nodes){
+        double usedCpu = 0;
+        for (Jedis node : nodes){
+            for (String line : node.info("cpu").split("\r?\n")){
+                if (line.startsWith("used_cpu_sys:") || line.startsWith("used_cpu_user:")){
+                    usedCpu += Double.parseDouble(line.substring(line.indexOf(':') + 1).trim());
+                }
+            }
         }
+        return usedCpu;
+    }
+
+    /**
+     * Writes the scanned rows into the store as they come. A hash holds a whole row, in the string layout
+     * the fields of a row are separate keys read in different batches (and from different nodes in cluster mode),
+     * so such a row is only held until every side field is read.
+     */
+    private class SideRowWriter {
+
+        private final AbsAllCacheStore store;
+
+        private final boolean hashStorage = ERedisStorageType.of(tableInfo.getStorageType()) == ERedisStorageType.HASH;
+
+        private final List<String> sideFields = Arrays.asList(getSideRowFields());
+
+        //string layout only, rows not all side fields of which are read yet
+        private final Map<String, Map<String, String>> partialRows = Maps.newHashMap();
+
+        SideRowWriter(AbsAllCacheStore store) {
+            this.store = store;
+        }
+
+        void write(Map<String, Map<String, String>> batch) {
+            for (Map.Entry<String, Map<String, String>> row : batch.entrySet()){
+                String rowKey = row.getKey();
+                Map<String, String> kv = partialRows.remove(rowKey);
+                if (kv == null){
+                    kv = keyValues(rowKey);
+                }
+                kv.putAll(row.getValue());
+
+                if (hashStorage || kv.keySet().containsAll(sideFields)){
+                    writeRow(rowKey, kv);
+                } else {
+                    partialRows.put(rowKey, kv);
+                }
+            }
+        }
+
+        /**
+         * Rows of which some field is not stored at all are written with the field left null.
+         */
+        void finish() {
+            partialRows.forEach(this::writeRow);
+            partialRows.clear();
+        }
+
+        private void writeRow(String rowKey, Map<String, String> kv) {
+            SideCacheKey cacheKey = SideCacheKey.of(rowKey);
+            //SCAN may return a key more than once
+            if (store.get(cacheKey) != null){
+                return;
+            }
+
+            Object[] sideRow = toSideRow(kv);
+            if (isLocalSideRow(sideRow)){
+                store.put(cacheKey, sideRow);
+            }
+        }
+
+        /**
+         * tableName:key1:value1[:key2:value2...]
+         */
+        private Map<String, String> keyValues(String rowKey) {
+            Map<String, String> kv = Maps.newHashMap();
+            String[] keyValues = rowKey.substring(tableInfo.getTableName().length() + 1).split(":");
+            for (int i = 0; i + 1 < keyValues.length; i += 2){
+                kv.put(keyValues[i], keyValues[i + 1]);
+            }
+            return kv;
+        }
+    }
+
+    private Object[] toSideRow(Map<String, String> kv) {
+        String[] sideFieldNames = getSideRowFields();
+        Object[] sideRow = new Object[sideFieldNames.length];
+        for (int i = 0; i < sideFieldNames.length; i++) {
+            sideRow[i] = kv.get(sideFieldNames[i]);
+        }
+        return sideRow;
     }
 
     private JedisCommands getJedis(RedisSideTableInfo tableInfo) {
@@ -263,23 +509,6 @@ public class RedisAllReqRow extends AllReqRow{
         return jedis;
     }
 
-    private Set<String> keys(JedisCluster jedisCluster, String pattern){
-        Set<String> keys = new TreeSet<>();
-        Map<String, JedisPool> clusterNodes = jedisCluster.getClusterNodes();
-        for(String k : clusterNodes.keySet()){
-            JedisPool jp = clusterNodes.get(k);
-            Jedis connection = jp.getResource();
-            try {
-                keys.addAll(connection.keys(pattern));
-            } catch (Exception e){
-                LOG.error("Getting keys error: {}", e);
-            } finally {
-                connection.close();
-            }
-        }
-        return keys;
-    }
-
     private GenericObjectPoolConfig setPoolConfig(String maxTotal, String maxIdle, String minIdle){
         GenericObjectPoolConfig config = new GenericObjectPoolConfig();
         if (maxTotal != null){
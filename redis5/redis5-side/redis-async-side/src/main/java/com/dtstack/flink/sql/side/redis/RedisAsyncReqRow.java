@@ -19,6 +19,7 @@
 package com.dtstack.flink.sql.side.redis;
 
 import com.dtstack.flink.sql.enums.ECacheContentType;
+import com.dtstack.flink.sql.enums.ERedisStorageType;
 import com.dtstack.flink.sql.side.*;
 import com.dtstack.flink.sql.side.cache.CacheObj;
 import com.dtstack.flink.sql.side.redis.table.RedisSideReqRow;
@@ -26,22 +27,19 @@ import com.dtstack.flink.sql.side.redis.table.RedisSideTableInfo;
 import io.lettuce.core.KeyValue;
 import io.lettuce.core.RedisClient;
 import io.lettuce.core.RedisFuture;
+import io.lettuce.core.api.StatefulConnection;
 import io.lettuce.core.api.StatefulRedisConnection;
-import io.lettuce.core.api.async.RedisKeyAsyncCommands;
-import io.lettuce.core.api.async.RedisStringAsyncCommands;
 import io.lettuce.core.cluster.RedisClusterClient;
 import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
 import org.apache.flink.api.java.typeutils.RowTypeInfo;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.flink.configuration.Configuration;
-import org.apache.flink.streaming.api.functions.async.ResultFuture;
 import org.apache.flink.types.Row;
 
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Consumer;
 
 public class RedisAsyncReqRow extends AsyncReqRow {
 
@@ -55,12 +53,22 @@ public class RedisAsyncReqRow extends AsyncReqRow {
 
     private StatefulRedisClusterConnection<String, String> clusterConnection;
 
-    private RedisKeyAsyncCommands<String, String> async;
+    private RedisClusterAsyncCommands<String, String> async;
+
+    //HGETALL of a batch are pipelined on a connection of their own and flushed once for the batch
+    private StatefulConnection<String, String> batchConnection;
+
+    private RedisClusterAsyncCommands<String, String> batchAsync;
 
     private RedisSideTableInfo redisSideTableInfo;
 
     private RedisSideReqRow redisSideReqRow;
 
+    private ERedisStorageType storageType;
+
+    //field names of the side table, each one is a key of its own in the string layout
+    private String[] fieldNames;
+
     public RedisAsyncReqRow(RowTypeInfo rowTypeInfo, JoinInfo joinInfo, List<FieldInfo> outFieldInfoList, SideTableInfo sideTableInfo) {
         super(new RedisAsyncSideInfo(rowTypeInfo, joinInfo, outFieldInfoList, sideTableInfo));
         redisSideReqRow = new RedisSideReqRow(super.sideInfo);
@@ -70,7 +78,12 @@ public class RedisAsyncReqRow extends AsyncReqRow {
     public void open(Configuration parameters) throws Exception {
         super.open(parameters);
         redisSideTableInfo = (RedisSideTableInfo) sideInfo.getSideTableInfo();
+        storageType = ERedisStorageType.of(redisSideTableInfo.getStorageType());
+        fieldNames = redisSideTableInfo.getFields();
         buildRedisClient(redisSideTableInfo);
+        if (storageType == ERedisStorageType.HASH && redisSideTableInfo.getAsyncBatchSize() > 1) {
+            buildBatchConnection();
+        }
     }
 
     private void buildRedisClient(RedisSideTableInfo tableInfo){
@@ -110,93 +123,145 @@ public class RedisAsyncReqRow extends AsyncReqRow {
         }
     }
 
+    private void buildBatchConnection() {
+        if (clusterClient != null) {
+            StatefulRedisClusterConnection<String, String> clusterBatchConnection = clusterClient.connect();
+            batchAsync = clusterBatchConnection.async();
+            batchConnection = clusterBatchConnection;
+        } else {
+            StatefulRedisConnection<String, String> redisBatchConnection = redisClient.connect();
+            batchAsync = redisBatchConnection.async();
+            batchConnection = redisBatchConnection;
+        }
+        batchConnection.setAutoFlushCommands(false);
+    }
+
     @Override
     public Row fillData(Row input, Object sideInput) {
         return redisSideReqRow.fillData(input, sideInput);
     }
 
+    private String buildRedisKey(Map<String, Object> inputParams) {
+        return ERedisStorageType.buildRowKey(redisSideTableInfo.getTableName(),
+                Lists.newArrayList(inputParams.keySet()), Lists.newArrayList(inputParams.values()));
+    }
+
+    /**
+     * The keys of the row are known from the field list, so a lookup is one MGET (string layout) or
+     * one HGETALL (hash layout) completed on the lettuce event loop, the operator thread never waits on redis.
+     */
     @Override
-    public void asyncInvoke(Row input, ResultFuture<Row> resultFuture) throws Exception {
-        List<String> keyData = Lists.newLinkedList();
-        for (int i = 0; i < sideInfo.getEqualValIndex().size(); i++) {
-            Integer conValIndex = sideInfo.getEqualValIndex().get(i);
-            Object equalObj = input.getField(conValIndex);
-            if(equalObj == null){
-                dealMissKey(input, resultFuture);
+    protected void handleAsyncInvoke(SideLookupReq req) throws Exception {
+        String rowKey = buildRedisKey(req.getInputParams());
+        if (storageType == ERedisStorageType.HASH) {
+            async.hgetall(rowKey).whenComplete((values, t) -> {
+                if (t != null) {
+                    failLookup(req, t);
+                    return;
+                }
+                completeWithValues(req, values);
+            });
+            return;
+        }
+
+        String[] fieldKeys = new String[fieldNames.length];
+        fillFieldKeys(rowKey, fieldKeys, 0);
+        async.mget(fieldKeys).whenComplete((keyValues, t) -> {
+            if (t != null) {
+                failLookup(req, t);
                 return;
             }
-            String value = equalObj.toString();
-            keyData.add(sideInfo.getEqualFieldList().get(i));
-            keyData.add(value);
-        }
+            completeWithValues(req, toFieldValues(keyValues, 0));
+        });
+    }
 
-        String key = buildCacheKey(keyData);
+    @Override
+    protected boolean supportBatch() {
+        return true;
+    }
 
-        if(openCache()){
-            CacheObj val = getFromCache(key);
-            if(val != null){
+    /**
+     * String layout: the field keys of every row of the batch in one MGET, split by slot in cluster mode.
+     * Hash layout: one HGETALL per row, pipelined and sent with a single flush.
+     */
+    @Override
+    protected void handleBatchInvoke(List<SideLookupReq> reqs) throws Exception {
+        if (storageType == ERedisStorageType.HASH) {
+            List<RedisFuture<Map<String, String>>> futures = Lists.newArrayListWithCapacity(reqs.size());
+            synchronized (batchConnection) {
+                for (SideLookupReq req : reqs) {
+                    futures.add(batchAsync.hgetall(buildRedisKey(req.getInputParams())));
+                }
+                batchConnection.flushCommands();
+            }
 
-                if(ECacheContentType.MissVal == val.getType()){
-                    dealMissKey(input, resultFuture);
-                    return;
-                }else if(ECacheContentType.MultiLine == val.getType()){
-                    List<Row> rowList = Lists.newArrayList();
-                    for (Object jsonArray : (List) val.getContent()) {
-                        Row row = fillData(input, val.getContent());
-                        rowList.add(row);
+            for (int i = 0; i < reqs.size(); i++) {
+                SideLookupReq req = reqs.get(i);
+                futures.get(i).whenComplete((values, t) -> {
+                    if (t != null) {
+                        failLookup(req, t);
+                        return;
                     }
-                    resultFuture.complete(rowList);
-                }else{
-                    RuntimeException exception = new RuntimeException("not support cache obj type " + val.getType());
-                    resultFuture.completeExceptionally(exception);
-                }
+                    completeWithValues(req, values);
+                });
+            }
+            return;
+        }
+
+        String[] fieldKeys = new String[reqs.size() * fieldNames.length];
+        for (int i = 0; i < reqs.size(); i++) {
+            fillFieldKeys(buildRedisKey(reqs.get(i).getInputParams()), fieldKeys, i * fieldNames.length);
+        }
+
+        async.mget(fieldKeys).whenComplete((keyValues, t) -> {
+            if (t != null) {
+                reqs.forEach(req -> failLookup(req, t));
                 return;
             }
+
+            //mget answers in the order of the keys, the values of a row are found by its position in the batch
+            for (int i = 0; i < reqs.size(); i++) {
+                completeWithValues(reqs.get(i), toFieldValues(keyValues, i * fieldNames.length));
+            }
+        });
+    }
+
+    private void fillFieldKeys(String rowKey, String[] fieldKeys, int offset) {
+        for (int i = 0; i < fieldNames.length; i++) {
+            fieldKeys[offset + i] = ERedisStorageType.buildFieldKey(rowKey, fieldNames[i]);
         }
+    }
 
-        Map<String, String> keyValue = Maps.newHashMap();
-        List<String> value = async.keys(key + ":*").get();
-        String[] values = value.toArray(new String[value.size()]);
-        if (values.length == 0){
-            dealMissKey(input, resultFuture);
-        } else {
-            RedisFuture<List<KeyValue<String, String>>> future = ((RedisStringAsyncCommands) async).mget(values);
-            future.thenAccept(new Consumer<List<KeyValue<String, String>>>() {
-                @Override
-                public void accept(List<KeyValue<String, String>> keyValues) {
-                    if (keyValues.size() != 0) {
-                        for (int i = 0; i < keyValues.size(); i++) {
-                            String[] splitKeys = keyValues.get(i).getKey().split(":");
-                            keyValue.put(splitKeys[1], splitKeys[2]);
-                            keyValue.put(splitKeys[3], keyValues.get(i).getValue());
-                        }
-                        Row row = fillData(input, keyValue);
-                        resultFuture.complete(Collections.singleton(row));
-                        if (openCache()) {
-                            putCache(key, CacheObj.buildCacheObj(ECacheContentType.MultiLine, keyValue));
-                        }
-                    } else {
-                        dealMissKey(input, resultFuture);
-                        if (openCache()) {
-                            putCache(key, CacheMissVal.getMissKeyObj());
-                        }
-                    }
-                }
-            });
+    private Map<String, String> toFieldValues(List<KeyValue<String, String>> keyValues, int offset) {
+        Map<String, String> values = Maps.newHashMap();
+        for (int i = 0; i < fieldNames.length; i++) {
+            KeyValue<String, String> keyValue = keyValues.get(offset + i);
+            if (keyValue.hasValue()) {
+                values.put(fieldNames[i], keyValue.getValue());
+            }
         }
+        return values;
     }
 
-    private String buildCacheKey(List<String> keyData) {
-        String kv = String.join(":", keyData);
-        String tableName = redisSideTableInfo.getTableName();
-        StringBuilder preKey =  new StringBuilder();
-        preKey.append(tableName).append(":").append(kv);
-        return preKey.toString();
+    private void completeWithValues(SideLookupReq req, Map<String, String> values) {
+        if (values == null || values.isEmpty()) {
+            completeLookup(req, CacheMissVal.getMissKeyObj());
+            return;
+        }
+
+        //the join fields are part of the row key
+        for (Map.Entry<String, Object> entry : req.getInputParams().entrySet()) {
+            values.putIfAbsent(entry.getKey(), entry.getValue().toString());
+        }
+        completeLookup(req, CacheObj.buildCacheObj(ECacheContentType.SingleLine, values));
     }
 
     @Override
     public void close() throws Exception {
         super.close();
+        if (batchConnection != null){
+            batchConnection.close();
+        }
         if (connection != null){
             connection.close();
         }
@@ -47,6 +47,10 @@ public class RedisSideParser extends AbsSideTableParser {
         redisSideTableInfo.setMinIdle(MathUtil.getString(props.get(RedisSideTableInfo.MINIDLE.toLowerCase())));
         redisSideTableInfo.setMasterName(MathUtil.getString(props.get(RedisSideTableInfo.MASTER_NAME.toLowerCase())));
         redisSideTableInfo.setRedisType(MathUtil.getString(props.get(RedisSideTableInfo.REDIS_TYPE.toLowerCase())));
+        redisSideTableInfo.setStorageType(MathUtil.getString(props.get(RedisSideTableInfo.STORAGE_TYPE.toLowerCase())));
+        if (props.get(RedisSideTableInfo.SCAN_COUNT.toLowerCase()) != null){
+            redisSideTableInfo.setScanCount(MathUtil.getIntegerVal(props.get(RedisSideTableInfo.SCAN_COUNT.toLowerCase())));
+        }
 
         return redisSideTableInfo;
     }
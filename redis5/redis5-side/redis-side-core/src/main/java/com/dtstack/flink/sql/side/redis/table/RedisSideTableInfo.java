@@ -18,6 +18,7 @@
 
 package com.dtstack.flink.sql.side.redis.table;
 
+import com.dtstack.flink.sql.enums.ERedisStorageType;
 import com.dtstack.flink.sql.side.SideTableInfo;
 import com.google.common.base.Preconditions;
 
@@ -47,6 +48,10 @@ public class RedisSideTableInfo extends SideTableInfo {
 
     public static final String MASTER_NAME = "masterName";
 
+    public static final String STORAGE_TYPE = "storageType";
+
+    public static final String SCAN_COUNT = "scanCount";
+
     private String url;
 
     private String database;
@@ -67,6 +72,12 @@ public class RedisSideTableInfo extends SideTableInfo {
 
     private String masterName;
 
+    //layout of the rows in redis, see ERedisStorageType
+    private String storageType;
+
+    //COUNT hint of SCAN and number of values read in one pipeline when loading the ALL cache
+    private int scanCount = 1000;
+
     public RedisSideTableInfo(){
         setType(CURR_TYPE);
     }
@@ -77,6 +88,9 @@ public class RedisSideTableInfo extends SideTableInfo {
         Preconditions.checkNotNull(url, "redis of URL is required");
         Preconditions.checkNotNull(tableName, "redis of tablename is required");
         Preconditions.checkNotNull(redisType, "redis of type is required");
+        Preconditions.checkArgument(storageType == null || ERedisStorageType.isValid(storageType),
+                "redis of storageType only supports string or hash");
+        Preconditions.checkArgument(scanCount > 0, "redis of scanCount must be positive");
         return true;
     }
 
@@ -159,4 +173,20 @@ public class RedisSideTableInfo extends SideTableInfo {
     public void setMasterName(String masterName) {
         this.masterName = masterName;
     }
+
+    public String getStorageType() {
+        return storageType;
+    }
+
+    public void setStorageType(String storageType) {
+        this.storageType = storageType;
+    }
+
+    public int getScanCount() {
+        return scanCount;
+    }
+
+    public void setScanCount(int scanCount) {
+        this.scanCount = scanCount;
+    }
 }
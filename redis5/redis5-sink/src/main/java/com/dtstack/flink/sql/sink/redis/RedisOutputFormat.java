@@ -18,6 +18,9 @@
 
 package com.dtstack.flink.sql.sink.redis;
 
+import com.dtstack.flink.sql.enums.ERedisStorageType;
+import com.dtstack.flink.sql.factory.DTThreadFactory;
+import com.dtstack.flink.sql.sink.IFlushableOutputFormat;
 import com.dtstack.flink.sql.sink.MetricOutputFormat;
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.apache.flink.api.common.typeinfo.TypeInformation;
@@ -27,11 +30,20 @@ import org.apache.flink.types.Row;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import redis.clients.jedis.*;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.exceptions.JedisRedirectionException;
+import redis.clients.util.JedisClusterCRC16;
+
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
-public class RedisOutputFormat extends MetricOutputFormat {
+public class RedisOutputFormat extends MetricOutputFormat implements IFlushableOutputFormat {
     private static final Logger LOG = LoggerFactory.getLogger(RedisOutputFormat.class);
 
     private String url;
@@ -52,6 +64,8 @@ public class RedisOutputFormat extends MetricOutputFormat {
 
     private String masterName;
 
+    private ERedisStorageType storageType = ERedisStorageType.STRING;
+
     protected String[] fieldNames;
 
     protected TypeInformation<?>[] fieldTypes;
@@ -70,6 +84,23 @@ public class RedisOutputFormat extends MetricOutputFormat {
 
     private static int rowLenth = 1000;
 
+    //rows written in one pipeline, 1 writes every row when it arrives
+    private int batchSize = 1;
+
+    private long batchWaitInterval = 1000;
+
+    //ttl in seconds of the keys written, 0 for keys never expiring
+    private int keyExpiredTime;
+
+    private transient int[] primaryKeyIndexes;
+
+    //row key -> field -> value, a later row with the same key replaces the buffered one
+    private transient Map<String, Map<String, String>> rowBuffer;
+
+    private transient ScheduledExecutorService flushScheduler;
+
+    private transient volatile Exception flushException;
+
     private RedisOutputFormat(){
     }
     @Override
@@ -81,6 +112,23 @@ public class RedisOutputFormat extends MetricOutputFormat {
     public void open(int taskNumber, int numTasks) throws IOException {
         establishConnection();
         initMetric();
+
+        primaryKeyIndexes = new int[primaryKeys.size()];
+        for (int i = 0; i < primaryKeys.size(); i++) {
+            primaryKeyIndexes[i] = Arrays.asList(fieldNames).indexOf(primaryKeys.get(i));
+        }
+        rowBuffer = new LinkedHashMap<>();
+
+        if (batchSize > 1 && batchWaitInterval > 0) {
+            flushScheduler = Executors.newSingleThreadScheduledExecutor(new DTThreadFactory("redis-sink-flush"));
+            flushScheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    flush();
+                } catch (Exception e) {
+                    flushException = e;
+                }
+            }, batchWaitInterval, batchWaitInterval, TimeUnit.MILLISECONDS);
+        }
     }
 
     private GenericObjectPoolConfig setPoolConfig(String maxTotal, String maxIdle, String minIdle){
@@ -131,12 +179,13 @@ public class RedisOutputFormat extends MetricOutputFormat {
                 break;
             //集群
             case 3:
-                jedis = new JedisCluster(addresses, timeout, timeout,10, password, poolConfig);
+                jedis = new SlotRoutedJedisCluster(addresses, timeout, timeout,10, password, poolConfig);
         }
     }
 
     @Override
     public void writeRecord(Tuple2 record) throws IOException {
+        checkFlushException();
         Tuple2<Boolean, Row> tupleTrans = record;
         Boolean retract = tupleTrans.getField(0);
         if (!retract) {
@@ -147,37 +196,27 @@ public class RedisOutputFormat extends MetricOutputFormat {
             return;
         }
 
-        HashMap<String, Integer> map = new HashMap<>();
-
-        for (String primaryKey : primaryKeys){
-            for (int i=0; i<fieldNames.length; i++){
-                if (fieldNames[i].equals(primaryKey)){
-                    map.put(primaryKey, i);
-                }
-            }
-        }
-
-        List<String> kvList = new LinkedList<>();
-        for (String primaryKey : primaryKeys){
-            StringBuilder primaryKV = new StringBuilder();
-            int index = map.get(primaryKey).intValue();
-            primaryKV.append(primaryKey).append(":").append(row.getField(index));
-            kvList.add(primaryKV.toString());
+        List<Object> keyValues = new ArrayList<>(primaryKeyIndexes.length);
+        for (int primaryKeyIndex : primaryKeyIndexes){
+            keyValues.add(row.getField(primaryKeyIndex));
         }
 
-        String perKey = String.join(":", kvList);
-
-
+        String rowKey = ERedisStorageType.buildRowKey(tableName, primaryKeys, keyValues);
+        Map<String, String> values = new HashMap<>(fieldNames.length);
         for (int i = 0; i < fieldNames.length; i++) {
-            StringBuilder key = new StringBuilder();
-            key.append(tableName).append(":").append(perKey).append(":").append(fieldNames[i]);
-
             String value = "null";
             Object field = row.getField(i);
             if (field != null) {
                 value = field.toString();
             }
-            jedis.set(key.toString(), value);
+            values.put(fieldNames[i], value);
+        }
+
+        synchronized (this) {
+            rowBuffer.put(rowKey, values);
+            if (rowBuffer.size() >= batchSize) {
+                flush();
+            }
         }
 
         if (outRecords.getCount()%rowLenth == 0){
@@ -186,20 +225,172 @@ public class RedisOutputFormat extends MetricOutputFormat {
         outRecords.inc();
     }
 
+    /**
+     * Write the buffered rows in one pipeline, in cluster mode one pipeline for each node owning the slots of the keys.
+     */
     @Override
-    public void close() throws IOException {
-        if (jedisSentinelPool != null) {
-            jedisSentinelPool.close();
+    public synchronized void flush() throws IOException {
+        checkFlushException();
+        if (rowBuffer == null || rowBuffer.isEmpty()) {
+            return;
         }
-        if (pool != null) {
-            pool.close();
+
+        try {
+            if (redisType == 3) {
+                writeToCluster((SlotRoutedJedisCluster) jedis);
+            } else {
+                Pipeline pipeline = ((Jedis) jedis).pipelined();
+                Map<String, List<Response<?>>> responses = new LinkedHashMap<>();
+                for (Map.Entry<String, Map<String, String>> row : rowBuffer.entrySet()) {
+                    responses.put(row.getKey(), writeRow(key -> pipeline, true, row.getKey(), row.getValue()));
+                }
+                pipeline.sync();
+                responses.forEach(this::checkResponses);
+            }
+        } catch (JedisException e) {
+            throw new IOException("write to redis failed", e);
+        } finally {
+            rowBuffer.clear();
         }
-        if (jedis != null){
-            if (jedis instanceof Closeable){
-                ((Closeable) jedis).close();
+    }
+
+    private void writeToCluster(SlotRoutedJedisCluster cluster) {
+        Map<String, Jedis> nodeConnections = new HashMap<>();
+        Map<String, Pipeline> nodePipelines = new HashMap<>();
+        Map<Integer, Pipeline> slotPipelines = new HashMap<>();
+        Function<String, Pipeline> pipelineOfKey = key -> slotPipelines.computeIfAbsent(JedisClusterCRC16.getSlot(key), slot -> {
+            Jedis connection = cluster.getConnectionFromSlot(slot);
+            String node = connection.getClient().getHost() + ":" + connection.getClient().getPort();
+            if (nodePipelines.containsKey(node)) {
+                connection.close();
+            } else {
+                nodeConnections.put(node, connection);
+                nodePipelines.put(node, connection.pipelined());
             }
+            return nodePipelines.get(node);
+        });
+
+        Map<String, List<Response<?>>> responses = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, Map<String, String>> row : rowBuffer.entrySet()) {
+                responses.put(row.getKey(), writeRow(pipelineOfKey, false, row.getKey(), row.getValue()));
+            }
+            nodePipelines.values().forEach(Pipeline::sync);
+        } finally {
+            nodeConnections.values().forEach(Jedis::close);
         }
 
+        boolean slotCacheRenewed = false;
+        for (Map.Entry<String, List<Response<?>>> rowResponses : responses.entrySet()) {
+            try {
+                checkResponses(rowResponses.getKey(), rowResponses.getValue());
+            } catch (JedisRedirectionException e) {
+                //slots migrated since the slot cache was loaded, rewrite the row through the cluster client
+                if (!slotCacheRenewed) {
+                    cluster.renewSlotCache();
+                    slotCacheRenewed = true;
+                }
+                writeRow(cluster, rowResponses.getKey(), rowBuffer.get(rowResponses.getKey()));
+            }
+        }
+    }
+
+    /**
+     * @param pipelineOfKey pipeline of the node serving the key
+     * @param sameNode whether all the keys are served by one node, so that the string layout can be written with one MSET
+     */
+    private List<Response<?>> writeRow(Function<String, Pipeline> pipelineOfKey, boolean sameNode, String rowKey, Map<String, String> values) {
+        List<Response<?>> responses = new ArrayList<>();
+        if (storageType == ERedisStorageType.HASH) {
+            Pipeline pipeline = pipelineOfKey.apply(rowKey);
+            responses.add(pipeline.hmset(rowKey, values));
+            if (keyExpiredTime > 0) {
+                responses.add(pipeline.expire(rowKey, keyExpiredTime));
+            }
+        } else if (sameNode && keyExpiredTime <= 0) {
+            String[] keysValues = new String[values.size() * 2];
+            int i = 0;
+            for (Map.Entry<String, String> value : values.entrySet()) {
+                keysValues[i++] = ERedisStorageType.buildFieldKey(rowKey, value.getKey());
+                keysValues[i++] = value.getValue();
+            }
+            responses.add(pipelineOfKey.apply(rowKey).mset(keysValues));
+        } else {
+            for (Map.Entry<String, String> value : values.entrySet()) {
+                String fieldKey = ERedisStorageType.buildFieldKey(rowKey, value.getKey());
+                Pipeline pipeline = pipelineOfKey.apply(fieldKey);
+                responses.add(keyExpiredTime > 0 ? pipeline.setex(fieldKey, keyExpiredTime, value.getValue()) : pipeline.set(fieldKey, value.getValue()));
+            }
+        }
+        return responses;
+    }
+
+    private void writeRow(JedisCommands commands, String rowKey, Map<String, String> values) {
+        if (storageType == ERedisStorageType.HASH) {
+            commands.hmset(rowKey, values);
+            if (keyExpiredTime > 0) {
+                commands.expire(rowKey, keyExpiredTime);
+            }
+            return;
+        }
+
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            String fieldKey = ERedisStorageType.buildFieldKey(rowKey, value.getKey());
+            if (keyExpiredTime > 0) {
+                commands.setex(fieldKey, keyExpiredTime, value.getValue());
+            } else {
+                commands.set(fieldKey, value.getValue());
+            }
+        }
+    }
+
+    /**
+     * A row rejected by redis, e.g. its key holds a value of another type, is counted as dirty.
+     * @throws JedisRedirectionException if the node no longer serves the slot of a key
+     */
+    private void checkResponses(String rowKey, List<Response<?>> responses) {
+        for (Response<?> response : responses) {
+            try {
+                response.get();
+            } catch (JedisRedirectionException e) {
+                throw e;
+            } catch (JedisDataException e) {
+                outDirtyRecords.inc();
+                if (outDirtyRecords.getCount() == 1 || outDirtyRecords.getCount() % rowLenth == 0) {
+                    LOG.error("write row " + rowKey + " to redis failed", e);
+                }
+                return;
+            }
+        }
+    }
+
+    private void checkFlushException() throws IOException {
+        if (flushException != null) {
+            throw new IOException("write to redis failed", flushException);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (flushScheduler != null) {
+            flushScheduler.shutdownNow();
+        }
+
+        try {
+            flush();
+        } finally {
+            if (jedisSentinelPool != null) {
+                jedisSentinelPool.close();
+            }
+            if (pool != null) {
+                pool.close();
+            }
+            if (jedis != null){
+                if (jedis instanceof Closeable){
+                    ((Closeable) jedis).close();
+                }
+            }
+        }
     }
 
     public static RedisOutputFormatBuilder buildRedisOutputFormat(){
@@ -278,6 +469,26 @@ public class RedisOutputFormat extends MetricOutputFormat {
             return this;
         }
 
+        public RedisOutputFormatBuilder setStorageType(String storageType){
+            redisOutputFormat.storageType = ERedisStorageType.of(storageType);
+            return this;
+        }
+
+        public RedisOutputFormatBuilder setBatchSize(int batchSize){
+            redisOutputFormat.batchSize = batchSize;
+            return this;
+        }
+
+        public RedisOutputFormatBuilder setBatchWaitInterval(long batchWaitInterval){
+            redisOutputFormat.batchWaitInterval = batchWaitInterval;
+            return this;
+        }
+
+        public RedisOutputFormatBuilder setKeyExpiredTime(int keyExpiredTime){
+            redisOutputFormat.keyExpiredTime = keyExpiredTime;
+            return this;
+        }
+
         public RedisOutputFormat finish(){
             if (redisOutputFormat.url == null){
                 throw new IllegalArgumentException("No URL supplied.");
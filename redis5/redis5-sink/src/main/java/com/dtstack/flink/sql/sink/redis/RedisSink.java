@@ -18,6 +18,7 @@
 
 package com.dtstack.flink.sql.sink.redis;
 
+import com.dtstack.flink.sql.sink.CheckpointFlushSinkFunction;
 import com.dtstack.flink.sql.sink.IStreamSinkGener;
 import com.dtstack.flink.sql.sink.redis.table.RedisTableInfo;
 import com.dtstack.flink.sql.table.TargetTableInfo;
@@ -27,7 +28,6 @@ import org.apache.flink.api.java.typeutils.RowTypeInfo;
 import org.apache.flink.api.java.typeutils.TupleTypeInfo;
 import org.apache.flink.streaming.api.datastream.DataStream;
 import org.apache.flink.streaming.api.datastream.DataStreamSink;
-import org.apache.flink.streaming.api.functions.sink.OutputFormatSinkFunction;
 import org.apache.flink.streaming.api.functions.sink.RichSinkFunction;
 import org.apache.flink.table.sinks.RetractStreamTableSink;
 import org.apache.flink.table.sinks.TableSink;
@@ -63,6 +63,14 @@ public class RedisSink implements RetractStreamTableSink<Row>, IStreamSinkGener<
 
     protected String masterName;
 
+    protected String storageType;
+
+    protected int batchSize;
+
+    protected long batchWaitInterval;
+
+    protected int keyExpiredTime;
+
     public RedisSink(){
 
     }
@@ -81,6 +89,10 @@ public class RedisSink implements RetractStreamTableSink<Row>, IStreamSinkGener<
         this.minIdle = redisTableInfo.getMinIdle();
         this.masterName = redisTableInfo.getMasterName();
         this.timeout = redisTableInfo.getTimeout();
+        this.storageType = redisTableInfo.getStorageType();
+        this.batchSize = redisTableInfo.getBatchSize();
+        this.batchWaitInterval = redisTableInfo.getBatchWaitInterval();
+        this.keyExpiredTime = redisTableInfo.getKeyExpiredTime();
         return this;
     }
 
@@ -109,9 +121,13 @@ public class RedisSink implements RetractStreamTableSink<Row>, IStreamSinkGener<
                 .setMaxTotal(this.maxTotal)
                 .setMaxIdle(this.maxIdle)
                 .setMinIdle(this.minIdle)
-                .setMasterName(this.masterName);
+                .setMasterName(this.masterName)
+                .setStorageType(this.storageType)
+                .setBatchSize(this.batchSize)
+                .setBatchWaitInterval(this.batchWaitInterval)
+                .setKeyExpiredTime(this.keyExpiredTime);
         RedisOutputFormat redisOutputFormat = builder.finish();
-        RichSinkFunction richSinkFunction = new OutputFormatSinkFunction(redisOutputFormat);
+        RichSinkFunction richSinkFunction = new CheckpointFlushSinkFunction(redisOutputFormat);
         DataStreamSink dataStreamSink = dataStream.addSink(richSinkFunction);
         return dataStreamSink;
     }
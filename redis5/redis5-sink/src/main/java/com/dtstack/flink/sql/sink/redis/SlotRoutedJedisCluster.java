@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dtstack.flink.sql.sink.redis;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisSlotBasedConnectionHandler;
+
+import java.util.Set;
+
+/**
+ * JedisCluster exposing the connection of the node serving a slot, so that commands can be pipelined per node.
+ * Company: www.dtstack.com
+ */
+public class SlotRoutedJedisCluster extends JedisCluster {
+
+    public SlotRoutedJedisCluster(Set<HostAndPort> nodes, int connectionTimeout, int soTimeout, int maxAttempts,
+                                  String password, GenericObjectPoolConfig poolConfig) {
+        super(nodes, connectionTimeout, soTimeout, maxAttempts, password, poolConfig);
+    }
+
+    /**
+     * Connection borrowed from the pool of the node owning the slot, to be closed by the caller.
+     */
+    public Jedis getConnectionFromSlot(int slot) {
+        //the handler created by JedisCluster, whose getConnectionFromSlot is public
+        return ((JedisSlotBasedConnectionHandler) connectionHandler).getConnectionFromSlot(slot);
+    }
+
+    /**
+     * Reload the slot owners after a MOVED or ASK redirection.
+     */
+    public void renewSlotCache() {
+        connectionHandler.renewSlotCache();
+    }
+}
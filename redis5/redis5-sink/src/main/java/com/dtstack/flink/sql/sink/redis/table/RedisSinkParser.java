@@ -45,6 +45,16 @@ public class RedisSinkParser extends AbsTableParser {
         redisTableInfo.setMinIdle(MathUtil.getString(props.get(RedisTableInfo.MINIDLE.toLowerCase())));
         redisTableInfo.setRedisType(MathUtil.getString(props.get(RedisTableInfo.REDIS_TYPE.toLowerCase())));
         redisTableInfo.setMasterName(MathUtil.getString(props.get(RedisTableInfo.MASTER_NAME.toLowerCase())));
+        redisTableInfo.setStorageType(MathUtil.getString(props.get(RedisTableInfo.STORAGE_TYPE.toLowerCase())));
+        if (props.get(RedisTableInfo.BATCH_SIZE.toLowerCase()) != null){
+            redisTableInfo.setBatchSize(MathUtil.getIntegerVal(props.get(RedisTableInfo.BATCH_SIZE.toLowerCase())));
+        }
+        if (props.get(RedisTableInfo.BATCH_WAIT_INTERVAL.toLowerCase()) != null){
+            redisTableInfo.setBatchWaitInterval(MathUtil.getLongVal(props.get(RedisTableInfo.BATCH_WAIT_INTERVAL.toLowerCase())));
+        }
+        if (props.get(RedisTableInfo.KEY_EXPIRED_TIME.toLowerCase()) != null){
+            redisTableInfo.setKeyExpiredTime(MathUtil.getIntegerVal(props.get(RedisTableInfo.KEY_EXPIRED_TIME.toLowerCase())));
+        }
 
         String primaryKeysStr = MathUtil.getString(props.get("primarykeys"));
         ArrayList<String> primaryKeysList = null;
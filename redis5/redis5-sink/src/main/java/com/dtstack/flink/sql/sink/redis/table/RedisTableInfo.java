@@ -18,6 +18,7 @@
 
 package com.dtstack.flink.sql.sink.redis.table;
 
+import com.dtstack.flink.sql.enums.ERedisStorageType;
 import com.dtstack.flink.sql.table.TargetTableInfo;
 import com.google.common.base.Preconditions;
 
@@ -45,6 +46,14 @@ public class RedisTableInfo extends TargetTableInfo {
 
     public static final String MASTER_NAME = "masterName";
 
+    public static final String STORAGE_TYPE = "storageType";
+
+    public static final String BATCH_SIZE = "batchSize";
+
+    public static final String BATCH_WAIT_INTERVAL = "batchWaitInterval";
+
+    public static final String KEY_EXPIRED_TIME = "keyExpiredTime";
+
     public RedisTableInfo(){
         setType(CURR_TYPE);
     }
@@ -69,6 +78,16 @@ public class RedisTableInfo extends TargetTableInfo {
 
     private String masterName;
 
+    //layout of the rows in redis, see ERedisStorageType
+    private String storageType;
+
+    private int batchSize = 1;
+
+    private long batchWaitInterval = 1000;
+
+    //seconds
+    private int keyExpiredTime;
+
     public String getUrl() {
         return url;
     }
@@ -141,6 +160,38 @@ public class RedisTableInfo extends TargetTableInfo {
         this.redisType = Integer.parseInt(redisType);
     }
 
+    public String getStorageType() {
+        return storageType;
+    }
+
+    public void setStorageType(String storageType) {
+        this.storageType = storageType;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getBatchWaitInterval() {
+        return batchWaitInterval;
+    }
+
+    public void setBatchWaitInterval(long batchWaitInterval) {
+        this.batchWaitInterval = batchWaitInterval;
+    }
+
+    public int getKeyExpiredTime() {
+        return keyExpiredTime;
+    }
+
+    public void setKeyExpiredTime(int keyExpiredTime) {
+        this.keyExpiredTime = keyExpiredTime;
+    }
+
     public String getMasterName() {
         return masterName;
     }
@@ -157,6 +208,11 @@ public class RedisTableInfo extends TargetTableInfo {
         if (redisType == 2){
             Preconditions.checkNotNull(masterName, "redis field of MasterName is required");
         }
+        Preconditions.checkArgument(storageType == null || ERedisStorageType.isValid(storageType),
+                "redis field of storageType only supports string or hash");
+        Preconditions.checkArgument(batchSize > 0, "redis field of batchSize must be positive");
+        Preconditions.checkArgument(batchWaitInterval >= 0, "redis field of batchWaitInterval can't be negative");
+        Preconditions.checkArgument(keyExpiredTime >= 0, "redis field of keyExpiredTime can't be negative");
         return true;
     }
 